@@ -0,0 +1,168 @@
+package com.example.benchmark;
+
+import com.example.service.client.EventStreamClientRxApi;
+import com.example.util.OffHeapOverflow;
+import com.example.util.SseReconnect;
+import com.example.util.StreamMetrics;
+import com.example.util.VirtualThreads;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.reactivex.rxjava3.core.BackpressureOverflowStrategy;
+import io.reactivex.rxjava3.core.BackpressureStrategy;
+import io.reactivex.rxjava3.core.Flowable;
+import io.reactivex.rxjava3.core.Scheduler;
+import io.reactivex.rxjava3.plugins.RxJavaPlugins;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+/**
+ * Thousands of SSE streams open at once against {@link LoopbackServer}'s paced endpoint, with the blocking readers
+ * on platform threads (the default) or on virtual threads ({@code consumer.threads.virtual}).
+ * <p>
+ * One operation opens {@code streams} streams of {@value #EVENTS} events, {@value #INTERVAL_MS} ms apart, and reads
+ * them all to the end, so its time is mostly the pacing; the difference lies in what holding the streams open costs.
+ * After each iteration the fork prints the peak number of live platform threads, the heap in use once every stream
+ * had delivered its first event, and the mean and max send-to-receive latency of the events. Run with
+ * {@code -prof gc} for allocation rates:
+ * <pre>
+ *     ./mvnw -Pjmh test-compile exec:exec -Djmh.args="ConcurrentStreamsBenchmark -prof gc"
+ * </pre>
+ * {@code pull} reads on {@code Schedulers.io()}, {@code push} inside the OkHttp dispatcher's callback.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+@State(Scope.Benchmark)
+public class ConcurrentStreamsBenchmark {
+
+    private static final int EVENTS = 20;
+    private static final int INTERVAL_MS = 50;
+
+    @Param({"platform", "virtual"})
+    public String threads;
+
+    @Param({"1000", "4000"})
+    public int streams;
+
+    @Param({"pull", "push"})
+    public String mode;
+
+    private final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+
+    private LoopbackServer server;
+    private OkHttpClient okHttpClient;
+    private ExecutorService ioExecutor;
+    private HttpUrl url;
+    private EventStreamClientRxApi eventStreamClient;
+
+    private final AtomicLong latencySumNanos = new AtomicLong();
+    private final AtomicLong latencyMaxNanos = new AtomicLong();
+    private final AtomicLong received = new AtomicLong();
+    private volatile long heapAtFullConcurrency;
+
+    @Setup
+    public void setup() throws IOException {
+        server = new LoopbackServer(SensorPayloads.eventStream(1));
+        url = HttpUrl.get(server.baseUrl() + "paced?events=" + EVENTS + "&intervalMs=" + INTERVAL_MS);
+
+        boolean virtual = threads.equals("virtual");
+        Dispatcher dispatcher = virtual ? new Dispatcher(VirtualThreads.executor("okhttp-dispatcher")) : new Dispatcher();
+        dispatcher.setMaxRequests(streams);
+        dispatcher.setMaxRequestsPerHost(streams);
+        if (virtual) {
+            ioExecutor = VirtualThreads.executor("rx-io");
+            Scheduler ioScheduler = VirtualThreads.scheduler(ioExecutor);
+            RxJavaPlugins.setIoSchedulerHandler(io -> ioScheduler); // What VirtualThreadConfig installs
+        }
+
+        okHttpClient = new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .connectionPool(new ConnectionPool(streams, 5, TimeUnit.MINUTES))
+                .readTimeout(Duration.ofSeconds(30))
+                .build();
+        eventStreamClient = new EventStreamClientRxApi(server.baseUrl(), false,
+                new OffHeapOverflow.Settings(1024, 1 << 20, BackpressureOverflowStrategy.ERROR),
+                new SseReconnect.Settings(0, Duration.ofMillis(500), Duration.ofSeconds(30), Duration.ofSeconds(30)),
+                okHttpClient, new StreamMetrics(new SimpleMeterRegistry()));
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.close();
+        okHttpClient.dispatcher().executorService().shutdownNow();
+        okHttpClient.connectionPool().evictAll();
+        RxJavaPlugins.reset();
+        if (ioExecutor != null) {
+            ioExecutor.shutdownNow();
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void resetCounters() {
+        System.gc();
+        threadBean.resetPeakThreadCount();
+        latencySumNanos.set(0);
+        latencyMaxNanos.set(0);
+        received.set(0);
+        heapAtFullConcurrency = 0;
+    }
+
+    @TearDown(Level.Iteration)
+    public void report() {
+        long count = Math.max(received.get(), 1);
+        System.out.printf("%n%s/%s %d streams: peak platform threads %d, heap at full concurrency %d MB, "
+                        + "latency mean %d us, max %d us, events %d%n",
+                threads, mode, streams, threadBean.getPeakThreadCount(), heapAtFullConcurrency >> 20,
+                TimeUnit.NANOSECONDS.toMicros(latencySumNanos.get() / count),
+                TimeUnit.NANOSECONDS.toMicros(latencyMaxNanos.get()), received.get());
+    }
+
+    @Benchmark
+    public void openStreams(Blackhole blackhole) {
+        AtomicInteger open = new AtomicInteger();
+        List<Flowable<String>> all = IntStream.range(0, streams)
+                .mapToObj(i -> Flowable.defer(() -> {
+                    AtomicBoolean first = new AtomicBoolean(true);
+                    return stream().doOnNext(sentNanos -> {
+                        record(sentNanos);
+                        if (first.compareAndSet(true, false) && open.incrementAndGet() == streams) {
+                            Runtime runtime = Runtime.getRuntime();
+                            heapAtFullConcurrency = runtime.totalMemory() - runtime.freeMemory();
+                        }
+                        blackhole.consume(sentNanos);
+                    });
+                }))
+                .toList();
+        Flowable.merge(all, streams).ignoreElements().blockingAwait();
+    }
+
+    private void record(String sentNanos) {
+        long latency = System.nanoTime() - Long.parseLong(sentNanos);
+        latencySumNanos.addAndGet(latency);
+        latencyMaxNanos.accumulateAndGet(latency, Math::max);
+        received.incrementAndGet();
+    }
+
+    private Flowable<String> stream() {
+        return mode.equals("pull")
+                ? eventStreamClient.pullEvents(url)
+                : eventStreamClient.streamEvents(url, BackpressureStrategy.BUFFER);
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.benchmark;
+
+import com.example.model.SensorData;
+import com.example.util.DataPrefixConverterFactory;
+import com.example.util.SseConverterFactory;
+import com.example.util.SseFrameParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import io.reactivex.rxjava3.core.Flowable;
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeStrategies;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import retrofit2.Converter;
+import retrofit2.Retrofit;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decoding cost of each way the consumer turns event-stream bytes into readings, entirely in memory.
+ * <p>
+ * One operation decodes {@code batchSize} events; divide by it for per-event figures, or run with
+ * {@code -p batchSize=1}. Allocation per operation comes from the GC profiler ({@code gc.alloc.rate.norm}),
+ * which the {@code jmh} profile enables by default.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DecodeBenchmark {
+
+    private static final MediaType EVENT_STREAM = MediaType.get("text/event-stream");
+
+    @Param({"1", "64", "1024"})
+    public int batchSize;
+
+    private byte[] eventStream;
+    private byte[][] dataPrefixed;
+    private ObjectReader reader;
+    private Converter<ResponseBody, Flowable<SensorData>> sseConverter;
+    private Converter<ResponseBody, SensorData> dataPrefixConverter;
+    private WebClient webClient;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        eventStream = SensorPayloads.eventStream(batchSize);
+        dataPrefixed = SensorPayloads.dataPrefixed(batchSize);
+
+        ObjectMapper objectMapper = SensorPayloads.objectMapper();
+        reader = objectMapper.readerFor(SensorData.class);
+        Retrofit retrofit = new Retrofit.Builder().baseUrl("http://localhost/").build();
+        sseConverter = (Converter<ResponseBody, Flowable<SensorData>>) SseConverterFactory.create(objectMapper)
+                .responseBodyConverter(SensorData.class, new Annotation[0], retrofit);
+        dataPrefixConverter = (Converter<ResponseBody, SensorData>) new DataPrefixConverterFactory(objectMapper)
+                .responseBodyConverter(SensorData.class, new Annotation[0], retrofit);
+
+        // The real WebClient decoding stack, fed by a stubbed exchange instead of a connection
+        ExchangeStrategies strategies = ExchangeStrategies.builder()
+                .codecs(codecs -> codecs.defaultCodecs().jackson2JsonDecoder(new Jackson2JsonDecoder(objectMapper)))
+                .build();
+        webClient = WebClient.builder()
+                .exchangeStrategies(strategies)
+                .exchangeFunction(request -> Mono.just(ClientResponse.create(HttpStatus.OK, strategies)
+                        .header(HttpHeaders.CONTENT_TYPE, EVENT_STREAM.toString())
+                        .body(Flux.just(DefaultDataBufferFactory.sharedInstance.wrap(eventStream)))
+                        .build()))
+                .build();
+    }
+
+    /**
+     * {@code EventStreamClientRxApi.streamEvents}: frames parsed on bytes, payload decoded to a String.
+     */
+    @Benchmark
+    public void frameParserToString(Blackhole blackhole) throws IOException {
+        SseFrameParser parser = new SseFrameParser(new Buffer().write(eventStream));
+        while (parser.nextFrame()) {
+            blackhole.consume(parser.payload().readUtf8());
+        }
+    }
+
+    /**
+     * {@code SseFrameParser} with Jackson reading each payload's bytes: the parsing inside
+     * {@link SseConverterFactory} without the Flowable around it.
+     */
+    @Benchmark
+    public void frameParserToSensorData(Blackhole blackhole) throws IOException {
+        SseFrameParser parser = new SseFrameParser(new Buffer().write(eventStream));
+        while (parser.nextFrame()) {
+            blackhole.consume(reader.<SensorData>readValue(parser.payload().inputStream()));
+        }
+    }
+
+    @Benchmark
+    public void sseConverterFactory(Blackhole blackhole) throws IOException {
+        drain(sseConverter.convert(ResponseBody.create(eventStream, EVENT_STREAM)), blackhole);
+    }
+
+    /**
+     * One response per event, which is how Retrofit uses this converter.
+     */
+    @Benchmark
+    public void dataPrefixConverterFactory(Blackhole blackhole) throws IOException {
+        for (byte[] body : dataPrefixed) {
+            blackhole.consume(dataPrefixConverter.convert(ResponseBody.create(body, EVENT_STREAM)));
+        }
+    }
+
+    @Benchmark
+    public void webClientBodyToFlux(Blackhole blackhole) {
+        webClient.get()
+                .uri("http://localhost/flowable")
+                .retrieve()
+                .bodyToFlux(SensorData.class)
+                .doOnNext(blackhole::consume)
+                .blockLast();
+    }
+
+    /**
+     * Consumes every event and rethrows a failure, so a broken path cannot pass for a fast one.
+     */
+    static void drain(Flowable<?> events, Blackhole blackhole) {
+        events.doOnNext(blackhole::consume)
+                .ignoreElements()
+                .blockingAwait();
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.benchmark;
+
+import com.example.model.SensorData;
+import com.example.service.client.EventStreamClientRxApi;
+import com.example.service.client.WebClientRxService;
+import com.example.util.OffHeapOverflow;
+import com.example.util.SseConverterFactory;
+import com.example.util.SseReconnect;
+import com.example.util.StreamMetrics;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.reactivex.rxjava3.core.BackpressureOverflowStrategy;
+import io.reactivex.rxjava3.core.BackpressureStrategy;
+import io.reactivex.rxjava3.core.Flowable;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.ResponseBody;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.web.reactive.function.client.WebClient;
+import retrofit2.Converter;
+import retrofit2.Retrofit;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full transport stacks against {@link LoopbackServer}: connection reuse, HTTP parsing, threading and decoding,
+ * one request of {@code batchSize} events per operation. Compare with {@link DecodeBenchmark} to see what the
+ * transport adds on top of decoding.
+ * <p>
+ * Retrofit runs its converter on a response OkHttp has already read, so {@link #okHttpSseConverter} is the
+ * Retrofit stack with {@link SseConverterFactory}, without the proxy and call adapter.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LoopbackBenchmark {
+
+    @Param({"64", "1024", "16384"})
+    public int batchSize;
+
+    private LoopbackServer server;
+    private OkHttpClient okHttpClient;
+    private HttpUrl url;
+    private EventStreamClientRxApi eventStreamClient;
+    private Converter<ResponseBody, Flowable<SensorData>> sseConverter;
+    private WebClientRxService webClientService;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setup() throws IOException {
+        server = new LoopbackServer(SensorPayloads.eventStream(batchSize));
+        String baseUrl = server.baseUrl();
+        url = HttpUrl.get(baseUrl + EventStreamClientRxApi.FLOWABLE_ENDPOINT);
+        ObjectMapper objectMapper = SensorPayloads.objectMapper();
+
+        okHttpClient = new OkHttpClient.Builder()
+                .readTimeout(Duration.ofSeconds(30))
+                .build();
+        eventStreamClient = new EventStreamClientRxApi(baseUrl, false,
+                new OffHeapOverflow.Settings(1024, 16 * 1024 * 1024, BackpressureOverflowStrategy.ERROR),
+                new SseReconnect.Settings(0, Duration.ofMillis(500), Duration.ofSeconds(30), Duration.ofSeconds(30)),
+                okHttpClient, new StreamMetrics(new SimpleMeterRegistry()));
+
+        Retrofit retrofit = new Retrofit.Builder().baseUrl(baseUrl).client(okHttpClient).build();
+        sseConverter = (Converter<ResponseBody, Flowable<SensorData>>) SseConverterFactory.create(objectMapper)
+                .responseBodyConverter(SensorData.class, new Annotation[0], retrofit);
+
+        WebClient.Builder webClientBuilder = WebClient.builder()
+                .codecs(codecs -> codecs.defaultCodecs().jackson2JsonDecoder(new Jackson2JsonDecoder(objectMapper)));
+        String rootUrl = baseUrl.substring(0, baseUrl.length() - 1); // The service adds "/flowable" itself
+        webClientService = new WebClientRxService(rootUrl, webClientBuilder.clone(), webClientBuilder.clone());
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.close();
+        okHttpClient.dispatcher().executorService().shutdown();
+        okHttpClient.connectionPool().evictAll();
+    }
+
+    /**
+     * OkHttp callback thread pushing into a BUFFER stage, the client's push mode.
+     */
+    @Benchmark
+    public void okHttpStreamEvents(Blackhole blackhole) {
+        DecodeBenchmark.drain(eventStreamClient.streamEvents(url, BackpressureStrategy.BUFFER), blackhole);
+    }
+
+    /**
+     * Reads driven by downstream demand on an I/O thread, the client's default mode.
+     */
+    @Benchmark
+    public void okHttpPullEvents(Blackhole blackhole) {
+        DecodeBenchmark.drain(eventStreamClient.pullEvents(url), blackhole);
+    }
+
+    @Benchmark
+    public void okHttpSseConverter(Blackhole blackhole) throws IOException {
+        ResponseBody body = okHttpClient.newCall(new Request.Builder().url(url).build()).execute().body();
+        DecodeBenchmark.drain(sseConverter.convert(body), blackhole);
+    }
+
+    @Benchmark
+    public void webClientBodyToFlux(Blackhole blackhole) {
+        DecodeBenchmark.drain(webClientService.getFastSensorUpdates(), blackhole);
+    }
+}
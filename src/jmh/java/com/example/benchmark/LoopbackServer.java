@@ -0,0 +1,84 @@
+package com.example.benchmark;
+
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-process producer on a loopback port: every request to {@code /flowable} gets the same event-stream body,
+ * written in chunks like a streaming response. {@code /paced} streams {@code events} events, one every
+ * {@code intervalMs}, each carrying its {@link System#nanoTime()} send time as the data payload.
+ * <p>
+ * Requests are served on virtual threads, so the server does not add platform threads to what a benchmark counts.
+ */
+final class LoopbackServer implements AutoCloseable {
+
+    private static final int CHUNK_BYTES = 8192;
+    private static final int BACKLOG = 4096; // Thousands of streams may connect at once
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    LoopbackServer(byte[] eventStream) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), BACKLOG);
+        server.createContext("/flowable", exchange -> {
+            exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+            exchange.sendResponseHeaders(200, 0); // Chunked, the length of a stream is not known upfront
+            try (OutputStream body = exchange.getResponseBody()) {
+                for (int offset = 0; offset < eventStream.length; offset += CHUNK_BYTES) {
+                    body.write(eventStream, offset, Math.min(CHUNK_BYTES, eventStream.length - offset));
+                    body.flush();
+                }
+            }
+        });
+        server.createContext("/paced", exchange -> {
+            String query = exchange.getRequestURI().getQuery();
+            int events = intParameter(query, "events", 10);
+            int intervalMs = intParameter(query, "intervalMs", 100);
+            exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+            exchange.sendResponseHeaders(200, 0);
+            try (OutputStream body = exchange.getResponseBody()) {
+                for (int i = 0; i < events; i++) {
+                    body.write(("data: " + System.nanoTime() + "\n\n").getBytes(StandardCharsets.US_ASCII));
+                    body.flush();
+                    TimeUnit.MILLISECONDS.sleep(intervalMs);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    /**
+     * Base URL with a trailing slash, as the clients expect it.
+     */
+    String baseUrl() {
+        return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/";
+    }
+
+    private static int intParameter(String query, String name, int defaultValue) {
+        if (query != null) {
+            for (String parameter : query.split("&")) {
+                if (parameter.startsWith(name + "=")) {
+                    return Integer.parseInt(parameter.substring(name.length() + 1));
+                }
+            }
+        }
+        return defaultValue;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
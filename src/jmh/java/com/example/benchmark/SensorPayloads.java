@@ -0,0 +1,65 @@
+package com.example.benchmark;
+
+import com.example.config.RetrofitConfig;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Recorded producer readings ({@code payloads/sensor-data.ndjson}), framed the way each decoding path receives them.
+ * Batches larger than the recording cycle through it.
+ */
+final class SensorPayloads {
+
+    private static final List<String> RECORDED = load("/payloads/sensor-data.ndjson");
+
+    private SensorPayloads() {
+    }
+
+    /**
+     * The ObjectMapper the application decodes with.
+     */
+    static ObjectMapper objectMapper() {
+        return new RetrofitConfig("http://localhost/").objectMapper();
+    }
+
+    /**
+     * One {@code text/event-stream} body carrying {@code batchSize} events.
+     */
+    static byte[] eventStream(int batchSize) {
+        StringBuilder body = new StringBuilder();
+        for (int i = 0; i < batchSize; i++) {
+            body.append("data:").append(RECORDED.get(i % RECORDED.size())).append("\n\n");
+        }
+        return body.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * {@code batchSize} single-event bodies, as {@link com.example.util.DataPrefixConverterFactory} reads them.
+     */
+    static byte[][] dataPrefixed(int batchSize) {
+        byte[][] bodies = new byte[batchSize][];
+        for (int i = 0; i < batchSize; i++) {
+            bodies[i] = ("data:" + RECORDED.get(i % RECORDED.size())).getBytes(StandardCharsets.UTF_8);
+        }
+        return bodies;
+    }
+
+    private static List<String> load(String resource) {
+        try (InputStream in = SensorPayloads.class.getResourceAsStream(resource)) {
+            if (in == null) {
+                throw new IllegalStateException("Missing benchmark payload " + resource);
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            in.transferTo(out);
+            return out.toString(StandardCharsets.UTF_8).lines().filter(line -> !line.isBlank()).toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
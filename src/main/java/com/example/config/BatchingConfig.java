@@ -0,0 +1,20 @@
+package com.example.config;
+
+import com.example.util.MicroBatcher;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+public class BatchingConfig {
+
+    @Bean
+    public MicroBatcher.Settings microBatchSettings(
+            @Value("${consumer.batching.max-size:256}") int maxSize,
+            @Value("${consumer.batching.max-latency:50ms}") Duration maxLatency,
+            @Value("${consumer.batching.prefetch-batches:2}") int prefetchBatches) {
+        return new MicroBatcher.Settings(maxSize, maxLatency, prefetchBatches);
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.config;
+
+import com.example.util.SensorDedup;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+public class DedupConfig {
+
+    @Bean
+    public SensorDedup.Settings dedupSettings(
+            @Value("${consumer.dedup.false-positive-rate:0.001}") double falsePositiveRate,
+            @Value("${consumer.dedup.expected-per-window:100000}") int expectedPerWindow,
+            @Value("${consumer.dedup.window:5m}") Duration window) {
+        return new SensorDedup.Settings(falsePositiveRate, expectedPerWindow, window);
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.config;
+
+import com.example.util.SseReconnect;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+public class EventStreamConfig {
+
+    @Bean
+    public SseReconnect.Settings reconnectSettings(
+            @Value("${consumer.event-stream.reconnect.max-attempts:10}") int maxAttempts,
+            @Value("${consumer.event-stream.reconnect.initial-backoff:500ms}") Duration initialBackoff,
+            @Value("${consumer.event-stream.reconnect.max-backoff:30s}") Duration maxBackoff,
+            @Value("${consumer.event-stream.reconnect.idle-timeout:30s}") Duration idleTimeout) {
+        return new SseReconnect.Settings(maxAttempts, initialBackoff, maxBackoff, idleTimeout);
+    }
+}
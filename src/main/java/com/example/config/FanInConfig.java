@@ -0,0 +1,33 @@
+package com.example.config;
+
+import com.example.util.FanIn;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+public class FanInConfig {
+
+    @Bean
+    public FanIn.Settings fanInSettings(
+            @Value("${consumer.fan-in.max-concurrency:16}") int maxConcurrency,
+            @Value("${consumer.fan-in.prefetch:128}") int prefetch,
+            @Value("${consumer.fan-in.max-attempts:10}") int maxAttempts,
+            @Value("${consumer.fan-in.initial-backoff:500ms}") Duration initialBackoff,
+            @Value("${consumer.fan-in.max-backoff:30s}") Duration maxBackoff) {
+        return new FanIn.Settings(maxConcurrency, prefetch, maxAttempts, initialBackoff, maxBackoff);
+    }
+
+    @Bean
+    public FanIn fanIn(FanIn.Settings fanInSettings, MeterRegistry meterRegistry) {
+        return new FanIn(fanInSettings, meterRegistry);
+    }
+
+    @Bean
+    public FanInEndpoint fanInEndpoint(FanIn fanIn) {
+        return new FanInEndpoint(fanIn);
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.config;
+
+import com.example.util.FanIn;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * {@code /actuator/fanin}: state, event count and current rate of every provider of the fan-in streams.
+ */
+@Endpoint(id = "fanin")
+public class FanInEndpoint {
+
+    private final FanIn fanIn;
+
+    public FanInEndpoint(FanIn fanIn) {
+        this.fanIn = fanIn;
+    }
+
+    @ReadOperation
+    public List<FanIn.Health> sources() {
+        return fanIn.sources().stream()
+                .sorted(Comparator.comparing(FanIn.Health::source))
+                .toList();
+    }
+}
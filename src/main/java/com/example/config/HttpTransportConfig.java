@@ -0,0 +1,125 @@
+package com.example.config;
+
+import com.example.util.VirtualThreads;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.okhttp3.OkHttpConnectionPoolMetrics;
+import io.micrometer.core.instrument.binder.okhttp3.OkHttpMetricsEventListener;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The one OkHttp transport shared by Retrofit and {@link com.example.service.client.EventStreamClientRxApi}.
+ * <p>
+ * Both client profiles are built from the same {@link Dispatcher} and {@link ConnectionPool}, so they share
+ * connections, threads and concurrency limits; they only differ in timeouts. Long-lived SSE streams each hold
+ * a dispatcher slot, hence per-host limits well above OkHttp's default of 5. With {@code consumer.threads.virtual}
+ * the dispatcher runs calls on virtual threads, so a push-mode stream reading inside its callback no longer pins a
+ * platform thread either.
+ */
+@Configuration
+public class HttpTransportConfig {
+
+    public static final String REQUEST_CLIENT = "requestHttpClient";
+    public static final String STREAMING_CLIENT = "streamingHttpClient";
+
+    private static final String METRIC_PREFIX = "okhttp";
+
+    private final Duration connectTimeout;
+    private final Duration writeTimeout;
+
+    public HttpTransportConfig(
+            @Value("${consumer.http.connect-timeout:5s}") Duration connectTimeout,
+            @Value("${consumer.http.write-timeout:10s}") Duration writeTimeout) {
+        this.connectTimeout = connectTimeout;
+        this.writeTimeout = writeTimeout;
+    }
+
+    @Bean
+    public Dispatcher httpDispatcher(
+            @Value("${consumer.http.max-requests:256}") int maxRequests,
+            @Value("${consumer.http.max-requests-per-host:64}") int maxRequestsPerHost,
+            @Value("${consumer.threads.virtual:false}") boolean virtualThreads) {
+        Dispatcher dispatcher = virtualThreads
+                ? new Dispatcher(VirtualThreads.executor("okhttp-dispatcher"))
+                : new Dispatcher();
+        dispatcher.setMaxRequests(maxRequests);
+        dispatcher.setMaxRequestsPerHost(maxRequestsPerHost);
+        return dispatcher;
+    }
+
+    @Bean
+    public ConnectionPool httpConnectionPool(
+            @Value("${consumer.http.pool.max-idle-connections:16}") int maxIdleConnections,
+            @Value("${consumer.http.pool.keep-alive:5m}") Duration keepAlive) {
+        return new ConnectionPool(maxIdleConnections, keepAlive.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Request/response profile: bounded reads, for calls that return one body.
+     */
+    @Bean(REQUEST_CLIENT)
+    public OkHttpClient requestHttpClient(
+            Dispatcher httpDispatcher, ConnectionPool httpConnectionPool, MeterRegistry meterRegistry,
+            @Value("${consumer.http.request.read-timeout:10s}") Duration readTimeout,
+            @Value("${consumer.http.request.call-timeout:0s}") Duration callTimeout) {
+        return builder(httpDispatcher, httpConnectionPool, meterRegistry)
+                .readTimeout(readTimeout)
+                .callTimeout(callTimeout)
+                .build();
+    }
+
+    /**
+     * Streaming profile: reads may wait as long as the producer stays quiet between events.
+     */
+    @Bean(STREAMING_CLIENT)
+    public OkHttpClient streamingHttpClient(
+            Dispatcher httpDispatcher, ConnectionPool httpConnectionPool, MeterRegistry meterRegistry,
+            @Value("${consumer.http.streaming.read-timeout:30s}") Duration readTimeout) {
+        return builder(httpDispatcher, httpConnectionPool, meterRegistry)
+                .readTimeout(readTimeout)
+                .callTimeout(Duration.ZERO)
+                .build();
+    }
+
+    @Bean
+    public MeterBinder httpTransportMetrics(Dispatcher httpDispatcher, ConnectionPool httpConnectionPool) {
+        return registry -> {
+            new OkHttpConnectionPoolMetrics(httpConnectionPool, METRIC_PREFIX + ".pool", List.of())
+                    .bindTo(registry);
+            Gauge.builder(METRIC_PREFIX + ".dispatcher.calls", httpDispatcher, Dispatcher::runningCallsCount)
+                    .tag("state", "running")
+                    .description("Calls currently executing")
+                    .register(registry);
+            Gauge.builder(METRIC_PREFIX + ".dispatcher.calls", httpDispatcher, Dispatcher::queuedCallsCount)
+                    .tag("state", "queued")
+                    .description("Calls waiting for a free dispatcher slot")
+                    .register(registry);
+            Gauge.builder(METRIC_PREFIX + ".dispatcher.max.requests.per.host", httpDispatcher,
+                            Dispatcher::getMaxRequestsPerHost)
+                    .register(registry);
+        };
+    }
+
+    private OkHttpClient.Builder builder(
+            Dispatcher httpDispatcher, ConnectionPool httpConnectionPool, MeterRegistry meterRegistry) {
+        return new OkHttpClient.Builder()
+                .dispatcher(httpDispatcher)
+                .connectionPool(httpConnectionPool)
+                .connectTimeout(connectTimeout)
+                .writeTimeout(writeTimeout)
+                // Call durations as okhttp.requests{method,uri,status,host}; the path keeps the tag cardinality low
+                .eventListener(OkHttpMetricsEventListener.builder(meterRegistry, METRIC_PREFIX + ".requests")
+                        .uriMapper(request -> request.url().encodedPath())
+                        .build());
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.config;
+
+import com.example.model.SensorData;
+import com.example.util.EventCodec;
+import com.example.util.EventJournal;
+import com.example.util.SensorDataCodec;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Configuration
+@ConditionalOnProperty(prefix = "consumer.journal", name = "enabled", havingValue = "true")
+public class JournalConfig {
+
+    private final Path directory;
+    private final int segmentBytes;
+    private final int indexInterval;
+    private final int commitBatch;
+    private final Duration commitInterval;
+    private final int retainedSegments;
+
+    public JournalConfig(
+            @Value("${consumer.journal.directory:${java.io.tmpdir}/rx-consumer/journal}") Path directory,
+            @Value("${consumer.journal.segment-bytes:67108864}") int segmentBytes,
+            @Value("${consumer.journal.index-interval:64}") int indexInterval,
+            @Value("${consumer.journal.commit-batch:256}") int commitBatch,
+            @Value("${consumer.journal.commit-interval:100ms}") Duration commitInterval,
+            @Value("${consumer.journal.retained-segments:16}") int retainedSegments) {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.indexInterval = indexInterval;
+        this.commitBatch = commitBatch;
+        this.commitInterval = commitInterval;
+        this.retainedSegments = retainedSegments;
+    }
+
+    @Bean
+    public EventJournal<String> eventStreamJournal() {
+        return new EventJournal<>(settings("event-stream"), EventCodec.utf8());
+    }
+
+    @Bean
+    public EventJournal<SensorData> sensorDataJournal() {
+        return new EventJournal<>(settings("sensor-data"), SensorDataCodec.INSTANCE);
+    }
+
+    private EventJournal.Settings settings(String stream) {
+        return new EventJournal.Settings(directory.resolve(stream), segmentBytes, indexInterval, commitBatch, commitInterval,
+                retainedSegments);
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.config;
+
+import com.example.util.StreamMetrics;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * {@code /actuator/latency}: p50, p99, p999 and max age of the readings per pipeline, at arrival and once processed.
+ * A processed latency pulling away from the received one means readings queue up in the consumer. Readings stamped
+ * ahead of our clock are reported as {@code skewed} rather than as zero latency.
+ * {@code /actuator/latency/{transport}} narrows it to retrofit, webclient or okhttp.
+ */
+@Endpoint(id = "latency")
+public class LatencyEndpoint {
+
+    private static final Comparator<StreamMetrics.LatencySnapshot> ORDER = Comparator
+            .comparing(StreamMetrics.LatencySnapshot::transport)
+            .thenComparing(StreamMetrics.LatencySnapshot::endpoint)
+            .thenComparing(StreamMetrics.LatencySnapshot::strategy)
+            .thenComparing(StreamMetrics.LatencySnapshot::stage, Comparator.reverseOrder()); // received first
+
+    private final StreamMetrics streamMetrics;
+
+    public LatencyEndpoint(StreamMetrics streamMetrics) {
+        this.streamMetrics = streamMetrics;
+    }
+
+    @ReadOperation
+    public List<StreamMetrics.LatencySnapshot> latency() {
+        return streamMetrics.latency().stream()
+                .sorted(ORDER)
+                .toList();
+    }
+
+    @ReadOperation
+    public List<StreamMetrics.LatencySnapshot> transport(@Selector String transport) {
+        return latency().stream()
+                .filter(snapshot -> snapshot.transport().equals(transport))
+                .toList();
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.config;
+
+import com.example.util.SampledLog;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+public class LoggingConfig {
+
+    @Bean
+    public SampledLog.Settings sampledLogSettings(
+            @Value("${consumer.logging.sample.every-nth:0}") int everyNth,
+            @Value("${consumer.logging.sample.per-second:10}") int perSecond,
+            @Value("${consumer.logging.sample.summary-interval:10s}") Duration summaryInterval) {
+        return new SampledLog.Settings(everyNth, perSecond, summaryInterval);
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.config;
+
+import com.example.util.LookupCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+public class LookupConfig {
+
+    @Bean
+    public LookupCache.Settings lookupSettings(
+            @Value("${consumer.lookup.ttl:1s}") Duration ttl,
+            @Value("${consumer.lookup.stale-while-revalidate:5s}") Duration staleWhileRevalidate,
+            @Value("${consumer.lookup.max-entries:1024}") int maxEntries) {
+        return new LookupCache.Settings(ttl, staleWhileRevalidate, maxEntries);
+    }
+}
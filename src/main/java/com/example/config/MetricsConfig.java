@@ -0,0 +1,41 @@
+package com.example.config;
+
+import com.example.util.StreamMetrics;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.reactivex.rxjava3.disposables.Disposable;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+public class MetricsConfig implements DisposableBean {
+
+    private Disposable latencyLog = Disposable.empty();
+
+    @Bean
+    public StreamMetrics streamMetrics(MeterRegistry meterRegistry,
+                                       @Value("${consumer.latency.window:1m}") Duration latencyWindow,
+                                       @Value("${consumer.latency.log-interval:30s}") Duration latencyLogInterval) {
+        StreamMetrics streamMetrics = new StreamMetrics(meterRegistry, latencyWindow);
+        latencyLog = streamMetrics.logLatency(latencyLogInterval);
+        return streamMetrics;
+    }
+
+    @Bean
+    public StreamsEndpoint streamsEndpoint(StreamMetrics streamMetrics) {
+        return new StreamsEndpoint(streamMetrics);
+    }
+
+    @Bean
+    public LatencyEndpoint latencyEndpoint(StreamMetrics streamMetrics) {
+        return new LatencyEndpoint(streamMetrics);
+    }
+
+    @Override
+    public void destroy() {
+        latencyLog.dispose();
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.config;
+
+import com.example.util.AdaptiveOverflow;
+import com.example.util.OffHeapOverflow;
+import io.reactivex.rxjava3.core.BackpressureOverflowStrategy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+public class OverflowConfig {
+
+    @Bean
+    public OffHeapOverflow.Settings overflowSettings(
+            @Value("${consumer.overflow.on-heap-capacity:1024}") int onHeapCapacity,
+            @Value("${consumer.overflow.off-heap-bytes:16777216}") int offHeapBytes,
+            @Value("${consumer.overflow.policy:ERROR}") BackpressureOverflowStrategy policy) {
+        return new OffHeapOverflow.Settings(onHeapCapacity, offHeapBytes, policy);
+    }
+
+    @Bean
+    public AdaptiveOverflow.Settings adaptiveOverflowSettings(
+            @Value("${consumer.overflow.on-heap-capacity:1024}") int onHeapCapacity,
+            @Value("${consumer.overflow.off-heap-bytes:16777216}") int offHeapBytes,
+            @Value("${consumer.overflow.adaptive.spill-lag:100ms}") Duration spillLag,
+            @Value("${consumer.overflow.adaptive.conflate-lag:2s}") Duration conflateLag,
+            @Value("${consumer.overflow.adaptive.hysteresis:0.5}") double hysteresis,
+            @Value("${consumer.overflow.adaptive.min-dwell:1s}") Duration minDwell) {
+        return new AdaptiveOverflow.Settings(onHeapCapacity, offHeapBytes, spillLag, conflateLag, hysteresis, minDwell);
+    }
+}
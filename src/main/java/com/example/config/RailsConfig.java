@@ -0,0 +1,19 @@
+package com.example.config;
+
+import com.example.util.SensorRails;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class RailsConfig {
+
+    @Bean
+    public SensorRails.Settings sensorRailsSettings(
+            @Value("${consumer.rails.count:0}") int rails,
+            @Value("${consumer.rails.queue-size:256}") int queueSize,
+            @Value("${consumer.rails.ordering:PER_SENSOR}") SensorRails.Ordering ordering) {
+        return new SensorRails.Settings(rails > 0 ? rails : Runtime.getRuntime().availableProcessors(),
+                queueSize, ordering);
+    }
+}
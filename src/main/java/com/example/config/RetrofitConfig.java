@@ -2,11 +2,13 @@ package com.example.config;
 
 import com.example.util.DataPrefixConverterFactory;
 import com.example.util.LocalDateTimeAdapter;
+import com.example.util.TimestampModule;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import okhttp3.OkHttpClient;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -24,6 +26,7 @@ public class RetrofitConfig {
     public ObjectMapper objectMapper() {
         ObjectMapper objectMapper = new ObjectMapper();
         objectMapper.registerModule(new JavaTimeModule()); // Register the module for Java time types
+        objectMapper.registerModule(new TimestampModule()); // Faster LocalDateTime decoding, overrides JavaTimeModule
         return objectMapper;
     }
 
@@ -32,12 +35,14 @@ public class RetrofitConfig {
     }
 
     @Bean
-    public Retrofit retrofit(ObjectMapper objectMapper) {
+    public Retrofit retrofit(ObjectMapper objectMapper,
+                             @Qualifier(HttpTransportConfig.REQUEST_CLIENT) OkHttpClient requestHttpClient) {
 //    public Retrofit retrofit() {
 //        val loggingInterceptor = HttpLoggingInterceptor();
 //        loggingInterceptor.setLevel(HttpLoggingInterceptor.Level.BODY)
 
-        OkHttpClient client = new OkHttpClient.Builder()
+        // Derived from the shared transport: same dispatcher, connection pool and metrics
+        OkHttpClient client = requestHttpClient.newBuilder()
 //                .addInterceptor(new DataPrefixInterceptor())
 //                .addInterceptor(chain -> {
 //                    Request request = chain.request();
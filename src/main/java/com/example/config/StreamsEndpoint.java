@@ -0,0 +1,47 @@
+package com.example.config;
+
+import com.example.util.StreamMetrics;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * {@code /actuator/streams}: one line per consumption pipeline, the {@code consumer.stream.*} meters side by side.
+ * {@code /actuator/streams/{transport}} narrows it to retrofit, webclient or okhttp.
+ * <p>
+ * {@code dropped} and {@code bufferDepth} count local overflow handling, which only push-mode streams have. With
+ * {@code consumer.event-stream.demand-driven} the okhttp backpressure streams read a frame per request instead:
+ * watch {@code outstandingDemand} and {@code readsInFlight} there, the strategy is applied by the producer.
+ */
+@Endpoint(id = "streams")
+public class StreamsEndpoint {
+
+    private static final Comparator<StreamMetrics.Snapshot> ORDER = Comparator
+            .comparing(StreamMetrics.Snapshot::transport)
+            .thenComparing(StreamMetrics.Snapshot::endpoint)
+            .thenComparing(StreamMetrics.Snapshot::strategy);
+
+    private final StreamMetrics streamMetrics;
+
+    public StreamsEndpoint(StreamMetrics streamMetrics) {
+        this.streamMetrics = streamMetrics;
+    }
+
+    @ReadOperation
+    public List<StreamMetrics.Snapshot> streams() {
+        return streamMetrics.probes().stream()
+                .map(StreamMetrics.Probe::snapshot)
+                .sorted(ORDER)
+                .toList();
+    }
+
+    @ReadOperation
+    public List<StreamMetrics.Snapshot> transport(@Selector String transport) {
+        return streams().stream()
+                .filter(snapshot -> snapshot.transport().equals(transport))
+                .toList();
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.config;
+
+import com.example.util.VirtualThreads;
+import io.reactivex.rxjava3.core.Scheduler;
+import io.reactivex.rxjava3.plugins.RxJavaPlugins;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Replaces {@code Schedulers.io()} with a virtual-thread scheduler, so every {@code subscribeOn(Schedulers.io())}
+ * stream reader (pulled SSE reads, Retrofit calls, {@code SseConverterFactory}) parks a virtual thread instead of
+ * pinning a platform thread. The OkHttp dispatcher follows the same switch in {@link HttpTransportConfig}.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "consumer.threads", name = "virtual", havingValue = "true")
+public class VirtualThreadConfig implements DisposableBean {
+
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadConfig.class);
+
+    private final ExecutorService ioExecutor = VirtualThreads.executor("rx-io");
+    private final Scheduler ioScheduler = VirtualThreads.scheduler(ioExecutor);
+
+    public VirtualThreadConfig() {
+        RxJavaPlugins.setIoSchedulerHandler(io -> ioScheduler);
+        logger.info("Schedulers.io() runs on virtual threads");
+    }
+
+    @Override
+    public void destroy() {
+        RxJavaPlugins.setIoSchedulerHandler(null);
+        ioExecutor.shutdownNow();
+    }
+}
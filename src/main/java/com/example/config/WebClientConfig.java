@@ -1,14 +1,125 @@
 package com.example.config;
 
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Scope;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.ExchangeStrategies;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.netty.resources.LoopResources;
 
+import java.time.Duration;
+
+/**
+ * Reactor Netty setup of the WebClient services.
+ * <p>
+ * Long-lived streams and short request/response calls get separate connection pools, so a burst of open
+ * streams never leaves single calls waiting for a connection. Both run on the same dedicated event loops and
+ * publish pool metrics ({@code reactor.netty.connection.provider.*}) to Micrometer.
+ * <p>
+ * The builders are prototypes, as in Spring Boot's own auto-configuration: each service customizes its copy.
+ */
 @Configuration
 public class WebClientConfig {
 
-    @Bean
-    public WebClient.Builder webClientBuilder() {
-        return WebClient.builder();
+    public static final String REQUEST_BUILDER = "webClientBuilder";
+    public static final String STREAMING_BUILDER = "streamingWebClientBuilder";
+
+    private final Duration connectTimeout;
+    private final int maxInMemorySize;
+
+    public WebClientConfig(
+            @Value("${consumer.webclient.connect-timeout:5s}") Duration connectTimeout,
+            @Value("${consumer.webclient.max-in-memory-size:1048576}") int maxInMemorySize) {
+        this.connectTimeout = connectTimeout;
+        this.maxInMemorySize = maxInMemorySize;
+    }
+
+    @Bean(destroyMethod = "dispose")
+    public LoopResources webClientLoopResources(
+            @Value("${consumer.webclient.event-loop-threads:0}") int eventLoopThreads) {
+        // 0 falls back to Reactor Netty's default, one thread per core (at least 4)
+        int threads = eventLoopThreads > 0 ? eventLoopThreads : LoopResources.DEFAULT_IO_WORKER_COUNT;
+        return LoopResources.create("webclient", threads, true);
+    }
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider requestConnectionProvider(
+            @Value("${consumer.webclient.request.max-connections:64}") int maxConnections,
+            @Value("${consumer.webclient.request.pending-acquire-max-count:256}") int pendingAcquireMaxCount,
+            @Value("${consumer.webclient.request.pending-acquire-timeout:5s}") Duration pendingAcquireTimeout,
+            @Value("${consumer.webclient.request.max-idle-time:30s}") Duration maxIdleTime,
+            @Value("${consumer.webclient.request.max-life-time:5m}") Duration maxLifeTime) {
+        return connectionProvider("webclient-request",
+                maxConnections, pendingAcquireMaxCount, pendingAcquireTimeout, maxIdleTime, maxLifeTime);
+    }
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider streamingConnectionProvider(
+            @Value("${consumer.webclient.streaming.max-connections:128}") int maxConnections,
+            @Value("${consumer.webclient.streaming.pending-acquire-max-count:128}") int pendingAcquireMaxCount,
+            @Value("${consumer.webclient.streaming.pending-acquire-timeout:10s}") Duration pendingAcquireTimeout,
+            @Value("${consumer.webclient.streaming.max-idle-time:60s}") Duration maxIdleTime,
+            @Value("${consumer.webclient.streaming.max-life-time:30m}") Duration maxLifeTime) {
+        return connectionProvider("webclient-streaming",
+                maxConnections, pendingAcquireMaxCount, pendingAcquireTimeout, maxIdleTime, maxLifeTime);
+    }
+
+    /**
+     * Request/response profile: the response timeout bounds the wait for each read of a single body.
+     */
+    @Bean(REQUEST_BUILDER)
+    @Primary
+    @Scope("prototype")
+    public WebClient.Builder webClientBuilder(
+            @Qualifier("requestConnectionProvider") ConnectionProvider requestConnectionProvider,
+            LoopResources webClientLoopResources,
+            @Value("${consumer.webclient.request.response-timeout:10s}") Duration responseTimeout) {
+        return builder(requestConnectionProvider, webClientLoopResources, responseTimeout);
+    }
+
+    /**
+     * Streaming profile: the response timeout is the longest silence tolerated between two events.
+     */
+    @Bean(STREAMING_BUILDER)
+    @Scope("prototype")
+    public WebClient.Builder streamingWebClientBuilder(
+            @Qualifier("streamingConnectionProvider") ConnectionProvider streamingConnectionProvider,
+            LoopResources webClientLoopResources,
+            @Value("${consumer.webclient.streaming.response-timeout:30s}") Duration responseTimeout) {
+        return builder(streamingConnectionProvider, webClientLoopResources, responseTimeout);
+    }
+
+    private WebClient.Builder builder(
+            ConnectionProvider connectionProvider, LoopResources loopResources, Duration responseTimeout) {
+        HttpClient httpClient = HttpClient.create(connectionProvider)
+                .runOn(loopResources)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+                .responseTimeout(responseTimeout);
+        return WebClient.builder()
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .exchangeStrategies(ExchangeStrategies.builder()
+                        .codecs(codecs -> codecs.defaultCodecs().maxInMemorySize(maxInMemorySize))
+                        .build());
+    }
+
+    private static ConnectionProvider connectionProvider(String name, int maxConnections, int pendingAcquireMaxCount,
+                                                         Duration pendingAcquireTimeout, Duration maxIdleTime,
+                                                         Duration maxLifeTime) {
+        return ConnectionProvider.builder(name)
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(pendingAcquireMaxCount)
+                .pendingAcquireTimeout(pendingAcquireTimeout)
+                .maxIdleTime(maxIdleTime)
+                .maxLifeTime(maxLifeTime)
+                .evictInBackground(maxIdleTime)
+                .metrics(true) // Published through Micrometer's global registry, which Spring Boot feeds
+                .build();
     }
-}
\ No newline at end of file
+}
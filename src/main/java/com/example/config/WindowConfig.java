@@ -0,0 +1,19 @@
+package com.example.config;
+
+import com.example.util.SensorWindows;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+public class WindowConfig {
+
+    @Bean
+    public SensorWindows.Settings windowSettings(
+            @Value("${consumer.windows.allowed-lateness:1s}") Duration allowedLateness,
+            @Value("${consumer.windows.idle-timeout:5s}") Duration idleTimeout) {
+        return new SensorWindows.Settings(allowedLateness, idleTimeout);
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.model;
+
+import com.example.util.SensorBatchPool;
+
+/**
+ * Columnar batch of sensor readings: reading {@code i} is spread over the parallel arrays at index {@code i}.
+ * <p>
+ * Analytics stages can loop over {@link #temperatures()} etc. up to {@link #size()} instead of walking
+ * millions of small {@link SensorData} records. Batches are pooled: call {@link #release()} once a batch
+ * has been processed so it can be refilled; a batch that is never released is simply garbage collected.
+ */
+public final class SensorBatch {
+
+    private final double[] temperatures;
+    private final double[] humidities;
+    private final long[] epochMillis;
+    private final int[] sensorOrdinals;
+    private final SensorBatchPool pool;
+    private int size;
+    private boolean released;
+
+    public SensorBatch(int capacity) {
+        this(capacity, null);
+    }
+
+    public SensorBatch(int capacity, SensorBatchPool pool) {
+        this.temperatures = new double[capacity];
+        this.humidities = new double[capacity];
+        this.epochMillis = new long[capacity];
+        this.sensorOrdinals = new int[capacity];
+        this.pool = pool;
+    }
+
+    public void add(SensorData data) {
+        if (released) {
+            throw new IllegalStateException("Batch was released");
+        }
+        if (isFull()) {
+            throw new IllegalStateException("Batch is full, capacity: " + capacity());
+        }
+        temperatures[size] = data.temperature();
+        humidities[size] = data.humidity();
+        epochMillis[size] = data.epochMillis();
+        sensorOrdinals[size] = data.sensorOrdinal();
+        size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return temperatures.length;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean isFull() {
+        return size == temperatures.length;
+    }
+
+    // The accessors below expose the backing arrays; only indexes below size() are valid
+
+    public double[] temperatures() {
+        return temperatures;
+    }
+
+    public double[] humidities() {
+        return humidities;
+    }
+
+    public long[] epochMillis() {
+        return epochMillis;
+    }
+
+    public int[] sensorOrdinals() {
+        return sensorOrdinals;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Hands the batch back to its pool. The batch must not be used afterwards; releasing it again does nothing.
+     */
+    public void release() {
+        if (released) {
+            return;
+        }
+        released = true;
+        if (pool != null) {
+            pool.release(this);
+        }
+    }
+
+    /**
+     * Marks a released batch as in use again; called by its pool when handing it out.
+     */
+    public void reacquire() {
+        released = false;
+    }
+
+    @Override
+    public String toString() {
+        return "SensorBatch[size=" + size + ", capacity=" + capacity() + "]";
+    }
+}
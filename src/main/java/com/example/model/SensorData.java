@@ -1,8 +1,50 @@
 package com.example.model;
 
+import com.example.util.SensorIdDeserializer;
+import com.example.util.SensorIdDictionary;
+import com.example.util.TimestampCodec;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+
+/**
+ * @param id            interned through {@link SensorIdDictionary} when deserialized
+ * @param epochMillis   {@code timestamp} decoded once on arrival, so time-based stages never re-parse the string;
+ *                      {@link #NO_EPOCH} if it is missing or cannot be parsed
+ * @param sensorOrdinal dense ordinal of {@code id} in the shared {@link SensorIdDictionary}, usable as an array
+ *                      index; {@link SensorIdDictionary#NO_ORDINAL} if the dictionary is full or the id is null
+ */
+@JsonIgnoreProperties(value = "sensorOrdinal", allowGetters = true) // Only meaningful inside this process
 public record SensorData(
         String id,
         double temperature,
         double humidity,
-        String timestamp) {
+        String timestamp,
+        long epochMillis,
+        int sensorOrdinal) {
+
+    public static final long NO_EPOCH = Long.MIN_VALUE;
+
+    /**
+     * A reading as received from the producer, which sends no {@code epochMillis}: it is decoded from
+     * {@code timestamp} through {@link TimestampCodec#shared()}, and the ordinal is assigned by
+     * {@link SensorIdDictionary#shared()}. The constructor takes both as given.
+     */
+    public static SensorData of(String id, double temperature, double humidity, String timestamp) {
+        return received(id, temperature, humidity, timestamp, null);
+    }
+
+    @JsonCreator
+    static SensorData received(@JsonProperty("id") @JsonDeserialize(using = SensorIdDeserializer.class) String id,
+                               @JsonProperty("temperature") double temperature,
+                               @JsonProperty("humidity") double humidity,
+                               @JsonProperty("timestamp") String timestamp,
+                               @JsonProperty("epochMillis") Long epochMillis) {
+        long millis = epochMillis != null ? epochMillis
+                : timestamp != null ? TimestampCodec.shared().toEpochMillisOrDefault(timestamp, NO_EPOCH)
+                : NO_EPOCH;
+        int ordinal = id != null ? SensorIdDictionary.shared().ordinalOf(id) : SensorIdDictionary.NO_ORDINAL;
+        return new SensorData(id, temperature, humidity, timestamp, millis, ordinal);
+    }
 }
@@ -0,0 +1,16 @@
+package com.example.model;
+
+/**
+ * A single dispatched Server-Sent Event.
+ *
+ * @param id    the last event id seen on the stream (SSE ids persist across frames), or null
+ * @param event the event type, "message" when the frame has no event field
+ * @param data  the payload, multi-line data fields joined with '\n'
+ * @param retry the reconnection time in millis last announced by the server, or -1 when never sent
+ */
+public record SseFrame(
+        String id,
+        String event,
+        String data,
+        long retry) {
+}
@@ -0,0 +1,23 @@
+package com.example.model;
+
+/**
+ * Rolling statistics of one sensor over one window. Variances are population variances.
+ *
+ * @param windowStart epoch millis, inclusive
+ * @param windowEnd   epoch millis, exclusive
+ */
+public record WindowAggregate(
+        String sensorId,
+        int sensorOrdinal,
+        long windowStart,
+        long windowEnd,
+        long count,
+        double minTemperature,
+        double maxTemperature,
+        double meanTemperature,
+        double temperatureVariance,
+        double minHumidity,
+        double maxHumidity,
+        double meanHumidity,
+        double humidityVariance) {
+}
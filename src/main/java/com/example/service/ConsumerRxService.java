@@ -1,45 +1,138 @@
 package com.example.service;
 
+import com.example.model.SensorBatch;
 import com.example.model.SensorData;
+import com.example.model.WindowAggregate;
 import com.example.service.client.WebClientRxService;
+import com.example.util.LookupCache;
+import com.example.util.SampledLog;
+import com.example.util.SensorBatches;
+import com.example.util.SensorDedup;
+import com.example.util.SensorWindows;
+import com.example.util.StreamMetrics;
 import io.reactivex.rxjava3.core.*;
+import io.reactivex.rxjava3.schedulers.Schedulers;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
 
-public class ConsumerRxService {
+import java.time.Duration;
+
+@Service
+public class ConsumerRxService implements DisposableBean {
     private static final Logger logger = LoggerFactory.getLogger(ConsumerRxService.class);
     private final WebClientRxService webClient;
+    private final SampledLog.Settings logSettings;
+    private final StreamMetrics metrics;
+    private final SensorDedup.Settings dedupSettings;
+    private final LookupCache<String, SensorData> lookups;
+    private final SensorWindows.Settings windowSettings;
 
     public ConsumerRxService(WebClientRxService webClient) {
+        this(webClient, SampledLog.Settings.DEFAULT, StreamMetrics.global(), SensorDedup.Settings.DEFAULT,
+                LookupCache.Settings.DEFAULT, SensorWindows.Settings.DEFAULT);
+    }
+
+    @Autowired
+    public ConsumerRxService(WebClientRxService webClient, SampledLog.Settings logSettings, StreamMetrics metrics,
+                             SensorDedup.Settings dedupSettings, LookupCache.Settings lookupSettings,
+                             SensorWindows.Settings windowSettings) {
         this.webClient = webClient;
+        this.logSettings = logSettings;
+        this.metrics = metrics;
+        this.dedupSettings = dedupSettings;
+        this.lookups = new LookupCache<>("webclient-rx", lookupSettings, metrics.registry());
+        this.windowSettings = windowSettings;
     }
 
     public Observable<SensorData> consumeObservable() {
         logger.info("[Observable] Starting to consume observable sensor data...");
         return webClient.getSensorUpdates()
+                .compose(probe("observable").observable())
                 .publish()
                 .refCount() // This manage the subscription
                 .doOnSubscribe(subscription -> logger.info("[Observable] Subscription started."))
-                .doOnNext(data -> logger.info("[Observable] Received sensor data: {}", data))
+                .compose(SampledLog.observable(logger, "[Observable]", logSettings))
                 .doOnError(throwable -> logger.error("[Observable] Error occurred while fetching sensor data: {}", throwable.getMessage()))
                 .doOnComplete(() -> logger.info("[Observable] Completed successfully."));
     }
 
+    /**
+     * Readings repeated within a subscription are dropped; see {@link SensorDedup}.
+     */
     public Flowable<SensorData> consumeFlowable() {
         logger.info("[Flowable] Starting to consume flowable sensor data...");
+        StreamMetrics.Probe probe = probe("flowable");
         return webClient.getFastSensorUpdates()
+                .compose(probe.flowable())
+                .compose(probe.dedup(() -> SensorDedup.readings(SensorDedup.Order.ORDERED, dedupSettings, Schedulers.computation())))
                 .publish()
                 .refCount() // This manage the subscription
                 .doOnSubscribe(subscription -> logger.info("[Flowable] Subscription started."))
-                .doOnNext(data -> logger.info("[Flowable] Received sensor data: {}", data))
+                .compose(SampledLog.flowable(logger, "[Flowable]", logSettings))
                 .doOnError(throwable -> logger.error("[Flowable] Error occurred while fetching sensor data: {}", throwable.getMessage()))
                 .doOnComplete(() -> logger.info("[Flowable] Completed successfully."))
                 .doOnCancel(() -> logger.info("[Flowable] Subscription cancelled"));
     }
 
+    /**
+     * The flowable streams of all configured providers, merged; see {@link WebClientRxService#getFanInSensorUpdates()}.
+     * Readings delivered by more than one provider, or again after a provider reconnected, are passed on once.
+     */
+    public Flowable<SensorData> consumeFanIn() {
+        logger.info("[FanIn] Starting to consume flowable sensor data from all providers...");
+        StreamMetrics.Probe probe = probe("fan-in");
+        return webClient.getFanInSensorUpdates()
+                .compose(probe.flowable())
+                .compose(probe.dedup(() -> SensorDedup.readings(SensorDedup.Order.UNORDERED, dedupSettings, Schedulers.computation())))
+                .doOnSubscribe(subscription -> logger.info("[FanIn] Subscription started."))
+                .compose(SampledLog.flowable(logger, "[FanIn]", logSettings))
+                .doOnError(throwable -> logger.error("[FanIn] Error occurred while fetching sensor data: {}", throwable.getMessage()))
+                .doOnComplete(() -> logger.info("[FanIn] Completed successfully."))
+                .doOnCancel(() -> logger.info("[FanIn] Subscription cancelled"));
+    }
+
+    /**
+     * Same stream as {@link #consumeFlowable()}, delivered as columnar batches of up to {@code batchSize} readings.
+     * Call {@link SensorBatch#release()} once a batch has been processed so it can be reused.
+     */
+    public Flowable<SensorBatch> consumeFlowableBatches(int batchSize) {
+        logger.info("[Flowable Batch] Starting to consume flowable sensor data in batches of {}...", batchSize);
+        return webClient.getFastSensorUpdates()
+                .compose(probe("flowable-batch").flowable())
+                .compose(SensorBatches.batches(batchSize))
+                .doOnSubscribe(subscription -> logger.info("[Flowable Batch] Subscription started."))
+                .doOnNext(batch -> logger.info("[Flowable Batch] Received {} sensor readings", batch.size()))
+                .doOnError(throwable -> logger.error("[Flowable Batch] Error occurred while fetching sensor data: {}", throwable.getMessage()))
+                .doOnComplete(() -> logger.info("[Flowable Batch] Completed successfully."))
+                .doOnCancel(() -> logger.info("[Flowable Batch] Subscription cancelled"));
+    }
+
+    /**
+     * Per-sensor temperature and humidity statistics of the flowable stream, computed incrementally.
+     * Pass the same duration twice for tumbling windows.
+     */
+    public Flowable<WindowAggregate> consumeWindowAggregates(Duration size, Duration slide) {
+        logger.info("[Window {}/{}] Starting to consume flowable sensor data...", size, slide);
+        StreamMetrics.Probe probe = probe("window");
+        return webClient.getFastSensorUpdates()
+                .compose(probe.flowable())
+                .compose(SensorWindows.sliding(size, slide, windowSettings, Schedulers.computation(), probe::late))
+                .doOnSubscribe(subscription -> logger.info("[Window {}/{}] Subscription started.", size, slide))
+                .doOnNext(aggregate -> logger.info("[Window {}/{}] Aggregate: {}", size, slide, aggregate))
+                .doOnError(throwable -> logger.error("[Window {}/{}] Error occurred while fetching sensor data: {}", size, slide, throwable.getMessage()))
+                .doOnComplete(() -> logger.info("[Window {}/{}] Completed successfully.", size, slide))
+                .doOnCancel(() -> logger.info("[Window {}/{}] Subscription cancelled", size, slide));
+    }
+
+    /**
+     * Concurrent and repeated calls share requests and recent results; see {@link LookupCache}.
+     */
     public Single<SensorData> consumeSingle() {
         logger.info("[Single] Starting to consume single sensor data...");
-        return webClient.getSingleSensorUpdate()
+        return lookups.single("single", webClient::getSingleSensorUpdate)
                 .doOnSubscribe(subscription -> logger.info("[Single] Subscription started."))
                 .doOnSuccess(data -> logger.info("[Single] Received sensor data: {}", data))
                 .doFinally(() -> logger.info("[Single] Completed successfully."))
@@ -48,7 +141,7 @@ public class ConsumerRxService {
 
     public Maybe<SensorData> consumeMaybe(boolean flag) {
         logger.info("[Maybe] Starting to consume maybe sensor data... flag: {}", flag);
-        return webClient.getMaybeSensorUpdate(flag)
+        return lookups.maybe("maybe:" + flag, () -> webClient.getMaybeSensorUpdate(flag))
                 .doOnSubscribe(subscription -> logger.info("[Maybe] Subscription started."))
                 .doOnSuccess(data -> logger.info("[Maybe] Received sensor data: {}", data))
                 .doFinally(() -> logger.info("[Maybe] Completed successfully."))
@@ -62,4 +155,16 @@ public class ConsumerRxService {
                 .doOnError(throwable -> logger.error("[Completable] Error occurred while processing: {}", throwable.getMessage()))
                 .doOnComplete(() -> logger.info("[Completable] Completed successfully."));
     }
+
+    /**
+     * Removes the lookup meters, so a service built again registers its own.
+     */
+    @Override
+    public void destroy() {
+        lookups.close();
+    }
+
+    private StreamMetrics.Probe probe(String endpoint) {
+        return metrics.probe(endpoint, StreamMetrics.WEBCLIENT, StreamMetrics.NO_STRATEGY);
+    }
 }
@@ -1,27 +1,60 @@
 package com.example.service;
 
 import com.example.model.SensorData;
+import com.example.model.WindowAggregate;
 import com.example.service.client.WebClientWebfluxService;
+import com.example.util.LookupCache;
+import com.example.util.MicroBatcher;
+import com.example.util.SampledLog;
+import com.example.util.SensorWindows;
+import com.example.util.StreamMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import reactor.core.Disposable;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
-public class ConsumerWebfluxService {
+import java.time.Duration;
+
+@Service
+public class ConsumerWebfluxService implements DisposableBean {
     private static final Logger logger = LoggerFactory.getLogger(ConsumerWebfluxService.class);
     private final WebClientWebfluxService webClient;
+    private final SampledLog.Settings logSettings;
+    private final StreamMetrics metrics;
+    private final MicroBatcher.Settings batchSettings;
+    private final LookupCache<String, SensorData> lookups;
+    private final SensorWindows.Settings windowSettings;
     private final String baseUrl = "http://localhost:8081/producer/api/sensors";
 
     public ConsumerWebfluxService(WebClientWebfluxService webClient) {
+        this(webClient, SampledLog.Settings.DEFAULT, StreamMetrics.global(), MicroBatcher.Settings.DEFAULT,
+                LookupCache.Settings.DEFAULT, SensorWindows.Settings.DEFAULT);
+    }
+
+    @Autowired
+    public ConsumerWebfluxService(WebClientWebfluxService webClient, SampledLog.Settings logSettings,
+                                  StreamMetrics metrics, MicroBatcher.Settings batchSettings,
+                                  LookupCache.Settings lookupSettings, SensorWindows.Settings windowSettings) {
         this.webClient = webClient;
+        this.logSettings = logSettings;
+        this.metrics = metrics;
+        this.batchSettings = batchSettings;
+        this.lookups = new LookupCache<>("webclient-webflux", lookupSettings, metrics.registry());
+        this.windowSettings = windowSettings;
     }
 
     public Flux<SensorData> consumeObservableAsFlux() {
         logger.info("[Observable As Flux] Starting to consume sensor data...");
 
         return webClient.fetchStreamSensorData()
+                .transform(probe("observable").flux())
                 .doOnSubscribe(subscription -> logger.info("[Observable As Flux] Subscription started."))
-                .doOnNext(data -> logger.info("[Observable As Flux] Received sensor data: {}", data))
+                .transform(SampledLog.flux(logger, "[Observable As Flux]", logSettings))
                 .doOnError(throwable -> logger.error("[Observable As Flux] Error occurred while fetching sensor data: {}", throwable.getMessage()))
                 .doOnComplete(() -> logger.info("[Observable As Flux] Completed successfully."))
                 .doOnCancel(() -> logger.info("[Observable As Flux] Subscription cancelled"));
@@ -31,16 +64,55 @@ public class ConsumerWebfluxService {
         logger.info("[Flowable As Flux] Starting to consume sensor data...");
 
         return webClient.fetchFastStreamSensorData()
+                .transform(probe("flowable").flux())
                 .doOnSubscribe(subscription -> logger.info("[Flowable As Flux] Subscription started."))
-                .doOnNext(data -> logger.info("[Flowable As Flux] Received sensor data: {}", data))
+                .transform(SampledLog.flux(logger, "[Flowable As Flux]", logSettings))
                 .doOnError(throwable -> logger.error("[Flowable As Flux] Error occurred while fetching sensor data: {}", throwable.getMessage()))
                 .doOnComplete(() -> logger.info("[Flowable As Flux] Completed successfully."))
                 .doOnCancel(() -> logger.info("[Flowable As Flux] Subscription cancelled"));
     }
 
+    /**
+     * Same stream as {@link #consumeFlowableAsFlux()}, handed to {@code callback} in batches; see
+     * {@link MicroBatcher} for when a batch is delivered and how a slow callback holds the stream back.
+     */
+    public Disposable consumeBatches(MicroBatcher.BatchCallback<SensorData> callback) {
+        logger.info("[Flux Batch] Starting to consume sensor data in batches of up to {}...", batchSettings.maxSize());
+
+        StreamMetrics.Probe probe = probe("flowable-batch");
+        Flux<SensorData> source = webClient.fetchFastStreamSensorData()
+                .transform(probe.flux())
+                .doOnError(throwable -> logger.error("[Flux Batch] Error occurred while fetching sensor data: {}", throwable.getMessage()))
+                .doOnComplete(() -> logger.info("[Flux Batch] Completed successfully."))
+                .doOnCancel(() -> logger.info("[Flux Batch] Subscription cancelled"));
+        return MicroBatcher.subscribeFlux(source, batchSettings, Schedulers.parallel(), probe.processed(callback));
+    }
+
+    /**
+     * Per-sensor temperature and humidity statistics of the flowable stream, computed incrementally.
+     * Pass the same duration twice for tumbling windows.
+     */
+    public Flux<WindowAggregate> consumeWindowAggregatesAsFlux(Duration size, Duration slide) {
+        logger.info("[Window As Flux {}/{}] Starting to consume sensor data...", size, slide);
+
+        StreamMetrics.Probe probe = probe("window");
+        return webClient.fetchFastStreamSensorData()
+                .transform(probe.flux())
+                .transform(SensorWindows.slidingFlux(size, slide, windowSettings, Schedulers.parallel(),
+                        probe::late))
+                .doOnSubscribe(subscription -> logger.info("[Window As Flux {}/{}] Subscription started.", size, slide))
+                .doOnNext(aggregate -> logger.info("[Window As Flux {}/{}] Aggregate: {}", size, slide, aggregate))
+                .doOnError(throwable -> logger.error("[Window As Flux {}/{}] Error occurred while fetching sensor data: {}", size, slide, throwable.getMessage()))
+                .doOnComplete(() -> logger.info("[Window As Flux {}/{}] Completed successfully.", size, slide))
+                .doOnCancel(() -> logger.info("[Window As Flux {}/{}] Subscription cancelled", size, slide));
+    }
+
 
+    /**
+     * Concurrent and repeated calls share requests and recent results; see {@link LookupCache}.
+     */
     public Mono<SensorData> consumeSingleAsMono() {
-        return webClient.fetchSingleSensorData()
+        return lookups.mono("single", webClient::fetchSingleSensorData)
                 .doOnSubscribe(subscription -> logger.info("[Single As Mono] Subscription started."))
                 .doOnNext(data -> logger.info("[Single As Mono] Received sensor data: {}", data))
                 .doOnError(throwable -> logger.error("[Single As Mono] Error occurred while fetching sensor data: {}", throwable.getMessage()))
@@ -50,7 +122,7 @@ public class ConsumerWebfluxService {
 
 
     public Mono<SensorData> consumeMaybeAsMono(boolean flag) {
-        return webClient.fetchMaybeSensorData(flag)
+        return lookups.mono("maybe:" + flag, () -> webClient.fetchMaybeSensorData(flag))
                 .doOnSubscribe(subscription -> logger.info("[Maybe As Mono] Subscription started."))
                 .doOnNext(data -> logger.info("[Maybe As Mono] Received sensor data: {}", data))
                 .doOnError(throwable -> logger.error("[Maybe As Mono] Error occurred while fetching sensor data: {}", throwable.getMessage()))
@@ -62,6 +134,18 @@ public class ConsumerWebfluxService {
         return webClient.calibrateSensors();
     }
 
+    /**
+     * Removes the lookup meters, so a service built again registers its own.
+     */
+    @Override
+    public void destroy() {
+        lookups.close();
+    }
+
+    private StreamMetrics.Probe probe(String endpoint) {
+        return metrics.probe(endpoint, StreamMetrics.WEBCLIENT, StreamMetrics.NO_STRATEGY);
+    }
+
     private void addThreadSleep(int millis) {
         // Optionally keep the application alive to listen for incoming data
         try {
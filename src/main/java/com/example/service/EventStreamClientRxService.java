@@ -1,11 +1,17 @@
 package com.example.service;
 
 import com.example.service.client.EventStreamClientRxApi;
+import com.example.util.EventJournal;
+import com.example.util.SampledLog;
+import com.example.util.SensorDedup;
+import com.example.util.StreamMetrics;
 import io.reactivex.rxjava3.core.BackpressureStrategy;
 import io.reactivex.rxjava3.core.Flowable;
+import io.reactivex.rxjava3.core.FlowableTransformer;
 import io.reactivex.rxjava3.schedulers.Schedulers;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -17,19 +23,47 @@ public class EventStreamClientRxService {
     private static final Logger logger = LoggerFactory.getLogger(EventStreamClientRxService.class);
 
     private final EventStreamClientRxApi clienRxApi;
+    private final EventJournal<String> journal; // Null unless consumer.journal.enabled
+    private final SampledLog.Settings logSettings;
+    private final StreamMetrics metrics;
+    private final SensorDedup.Settings dedupSettings;
 
-    @Autowired
     public EventStreamClientRxService(EventStreamClientRxApi eventStreamClientRxApi) {
         this.clienRxApi = eventStreamClientRxApi;
+        this.journal = null;
+        this.logSettings = SampledLog.Settings.DEFAULT;
+        this.metrics = StreamMetrics.global();
+        this.dedupSettings = SensorDedup.Settings.DEFAULT;
     }
 
+    @Autowired
+    public EventStreamClientRxService(EventStreamClientRxApi eventStreamClientRxApi,
+                                      ObjectProvider<EventJournal<String>> journal,
+                                      SampledLog.Settings logSettings,
+                                      StreamMetrics metrics,
+                                      SensorDedup.Settings dedupSettings) {
+        this.clienRxApi = eventStreamClientRxApi;
+        this.journal = journal.getIfAvailable();
+        this.logSettings = logSettings;
+        this.metrics = metrics;
+        this.dedupSettings = dedupSettings;
+    }
+
+    /**
+     * Events the producer repeats when a dropped connection is resumed with {@code Last-Event-ID} are dropped
+     * before they are journaled; see {@link SensorDedup}. Each subscription starts with an empty memory.
+     */
     public Flowable<String> consumeFlowable() {
         logger.info("[Flowable] Starting to consume flowable sensor data...");
+        StreamMetrics.Probe probe = probe(EventStreamClientRxApi.FLOWABLE_ENDPOINT, StreamMetrics.NO_STRATEGY);
         return clienRxApi.getFastSensorUpdates()
+                .compose(probe.flowable())
+                .compose(probe.dedup(() -> SensorDedup.events(dedupSettings, Schedulers.computation())))
+                .compose(journal())
                 .publish()
                 .refCount() // This manage the subscription
                 .doOnSubscribe(subscription -> logger.info("[Flowable] Subscription started."))
-                .doOnNext(data -> logger.info("[Flowable] Received sensor data: {}", data))
+                .compose(SampledLog.flowable(logger, "[Flowable]", logSettings))
                 .doOnError(throwable -> logger.error("[Flowable] Error occurred while fetching sensor data: {}", throwable.getMessage()))
                 .doOnComplete(() -> logger.info("[Flowable] Completed successfully."))
                 .doOnCancel(() -> logger.info("[Flowable] Subscription cancelled"));
@@ -40,13 +74,14 @@ public class EventStreamClientRxService {
             List<String> receivedEvents) {
         logger.info("[Backpressure {}] Starting to consume flowable sensor data...", backpressureStrategy);
         return clienRxApi.getBackpressureFlowable(backpressureStrategy, isFastProducer, dataSize)
+                .compose(probe(EventStreamClientRxApi.BACKPRESSURE_ENDPOINT, backpressureStrategy.name()).flowable())
                 .publish()
                 .refCount() // This manage the subscription
                 .doOnSubscribe(
                         subscription -> logger.info("[Backpressure {}] Subscription started.", backpressureStrategy))
+                .compose(SampledLog.flowable(logger, "[Backpressure " + backpressureStrategy + "]", logSettings))
                 .doOnNext(
                         data -> {
-                            logger.info("[Backpressure {}] Received sensor data: {}", backpressureStrategy, data);
                             receivedEvents.add(data);
                             addDelay(delay);
                         })
@@ -59,18 +94,54 @@ public class EventStreamClientRxService {
                 .observeOn(Schedulers.single());// Observe on a single thread for printing
     }
 
+    /**
+     * Like {@link #consumeBackpressure}, with the overflow strategy switched by the consumer's lag; see
+     * {@link com.example.util.AdaptiveOverflow}.
+     */
+    public Flowable<String> consumeAdaptive(int delay, boolean isFastProducer, int dataSize,
+                                            List<String> receivedEvents) {
+        logger.info("[Backpressure ADAPTIVE] Starting to consume flowable sensor data...");
+        return clienRxApi.getAdaptiveFlowable(isFastProducer, dataSize)
+                .compose(probe(EventStreamClientRxApi.BACKPRESSURE_ENDPOINT,
+                        EventStreamClientRxApi.ADAPTIVE_STRATEGY).flowable())
+                .publish()
+                .refCount() // This manage the subscription
+                .doOnSubscribe(subscription -> logger.info("[Backpressure ADAPTIVE] Subscription started."))
+                .compose(SampledLog.flowable(logger, "[Backpressure ADAPTIVE]", logSettings))
+                .doOnNext(
+                        data -> {
+                            receivedEvents.add(data);
+                            addDelay(delay);
+                        })
+                .doOnError(throwable -> logger.error(
+                        "[Backpressure ADAPTIVE] Error occurred while fetching sensor data: {}", throwable.getMessage()))
+                .doOnCancel(() -> logger.info("[Backpressure ADAPTIVE] Subscription cancelled"))
+                .doOnComplete(() -> logger.info("[Backpressure ADAPTIVE] Completed successfully."))
+                .subscribeOn(Schedulers.io()) // Run on I/O scheduler for background processing
+                .observeOn(Schedulers.single());// Observe on a single thread for printing
+    }
+
+    /**
+     * With {@code onErrorResumeNext} the producer continues on a fallback stream that may repeat events already
+     * sent; those are dropped.
+     */
     public Flowable<String> consumeErrorHandling(String errorHandlingFlag, List<String> receivedEvents) {
         logger.info("[ErrorHandling {}] Starting to consume flowable sensor data...", errorHandlingFlag);
+        StreamMetrics.Probe probe = probe(EventStreamClientRxApi.ERROR_HANDLING_ENDPOINT,
+                EventStreamClientRxApi.ERROR_HANDLING_STRATEGY.name());
+        FlowableTransformer<String, String> dedup =
+                EventStreamClientRxApi.ERRHANDLING_ONERRORRESUMENEXT.equals(errorHandlingFlag)
+                        ? probe.dedup(() -> SensorDedup.events(dedupSettings, Schedulers.computation()))
+                        : upstream -> upstream;
         return clienRxApi.getErrorHandlingFlowable(errorHandlingFlag)
+                .compose(probe.flowable())
+                .compose(dedup)
                 .publish()
                 .refCount() // This manage the subscription
                 .doOnSubscribe(
                         subscription -> logger.info("[ErrorHandling {}] Subscription started.", errorHandlingFlag))
-                .doOnNext(
-                        data -> {
-                            logger.info("[ErrorHandling {}] Received sensor data: {}", errorHandlingFlag, data);
-                            receivedEvents.add(data);
-                        })
+                .compose(SampledLog.flowable(logger, "[ErrorHandling " + errorHandlingFlag + "]", logSettings))
+                .doOnNext(receivedEvents::add)
                 .doOnError(
                         throwable -> logger.error("[ErrorHandling {}] Error occurred while fetching sensor data: {}",
                                 errorHandlingFlag, throwable.getMessage()))
@@ -80,6 +151,29 @@ public class EventStreamClientRxService {
                 .observeOn(Schedulers.single());// Observe on a single thread for printing
     }
 
+    /**
+     * Events journaled by {@link #consumeFlowable()}, starting at the given offset.
+     */
+    public Flowable<String> replayFlowable(long fromOffset) {
+        if (journal == null) {
+            return Flowable.error(new IllegalStateException("Journal is disabled, set consumer.journal.enabled"));
+        }
+        logger.info("[Replay] Replaying journaled sensor data from offset {}...", fromOffset);
+        return journal.replay(fromOffset)
+                .doOnComplete(() -> logger.info("[Replay] Completed successfully."));
+    }
+
+    private FlowableTransformer<String, String> journal() {
+        return journal != null ? EventJournal.journal(journal) : upstream -> upstream;
+    }
+
+    /**
+     * Same tags as the client's backpressure stage, so received, dropped and buffered events land on one probe.
+     */
+    private StreamMetrics.Probe probe(String endpoint, String strategy) {
+        return metrics.probe(endpoint, StreamMetrics.OKHTTP, strategy);
+    }
+
     private static void addDelay(int millis) {
         try {
             Thread.sleep(millis);
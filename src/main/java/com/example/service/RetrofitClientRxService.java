@@ -1,57 +1,179 @@
 package com.example.service;
 
+import com.example.model.SensorBatch;
 import com.example.model.SensorData;
+import com.example.model.WindowAggregate;
 import com.example.service.client.RetrofitClientRxApi;
+import com.example.util.EventJournal;
+import com.example.util.LookupCache;
+import com.example.util.MicroBatcher;
+import com.example.util.SampledLog;
+import com.example.util.SensorBatches;
+import com.example.util.SensorDedup;
+import com.example.util.SensorRails;
+import com.example.util.SensorWindows;
+import com.example.util.StreamMetrics;
 import io.reactivex.rxjava3.annotations.NonNull;
 import io.reactivex.rxjava3.core.*;
 import io.reactivex.rxjava3.disposables.Disposable;
+import io.reactivex.rxjava3.functions.Function;
 import io.reactivex.rxjava3.schedulers.Schedulers;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import retrofit2.Retrofit;
 
+import java.time.Duration;
+
 @Service
-public class RetrofitClientRxService {
+public class RetrofitClientRxService implements DisposableBean {
 
     private static final Logger logger = LoggerFactory.getLogger(RetrofitClientRxService.class);
 
     private final RetrofitClientRxApi clienRxApi;
+    private final EventJournal<SensorData> journal; // Null unless consumer.journal.enabled
+    private final SampledLog.Settings logSettings;
+    private final StreamMetrics metrics;
+    private final SensorRails.Settings railSettings;
+    private final MicroBatcher.Settings batchSettings;
+    private final SensorDedup.Settings dedupSettings;
+    private final LookupCache<String, SensorData> lookups;
+    private final SensorWindows.Settings windowSettings;
 
-    @Autowired
     public RetrofitClientRxService(Retrofit retrofit) {
         this.clienRxApi = retrofit.create(RetrofitClientRxApi.class);
+        this.journal = null;
+        this.logSettings = SampledLog.Settings.DEFAULT;
+        this.metrics = StreamMetrics.global();
+        this.railSettings = SensorRails.Settings.DEFAULT;
+        this.batchSettings = MicroBatcher.Settings.DEFAULT;
+        this.dedupSettings = SensorDedup.Settings.DEFAULT;
+        this.lookups = new LookupCache<>("retrofit", LookupCache.Settings.DEFAULT, metrics.registry());
+        this.windowSettings = SensorWindows.Settings.DEFAULT;
+    }
+
+    @Autowired
+    public RetrofitClientRxService(Retrofit retrofit, ObjectProvider<EventJournal<SensorData>> journal,
+                                   SampledLog.Settings logSettings, StreamMetrics metrics,
+                                   SensorRails.Settings railSettings, MicroBatcher.Settings batchSettings,
+                                   SensorDedup.Settings dedupSettings, LookupCache.Settings lookupSettings,
+                                   SensorWindows.Settings windowSettings) {
+        this.clienRxApi = retrofit.create(RetrofitClientRxApi.class);
+        this.journal = journal.getIfAvailable();
+        this.logSettings = logSettings;
+        this.metrics = metrics;
+        this.railSettings = railSettings;
+        this.batchSettings = batchSettings;
+        this.dedupSettings = dedupSettings;
+        this.lookups = new LookupCache<>("retrofit", lookupSettings, metrics.registry());
+        this.windowSettings = windowSettings;
     }
 
 
     public Observable<SensorData> consumeObservable() {
         logger.info("[Observable] Starting to consume observable sensor data...");
         return clienRxApi.getSensorUpdates()
+                .compose(probe("observable", StreamMetrics.NO_STRATEGY).observable())
                 .publish()
                 .refCount() // This manage the subscription
                 .doOnSubscribe(subscription -> logger.info("[Observable] Subscription started."))
-                .doOnNext(data -> logger.info("[Observable] Received sensor data: {}", data))
+                .compose(SampledLog.observable(logger, "[Observable]", logSettings))
                 .doOnError(throwable -> logger.error("[Observable] Error occurred while fetching sensor data: {}", throwable.getMessage()))
                 .doOnComplete(() -> logger.info("[Observable] Completed successfully."));
     }
 
+    /**
+     * Readings repeated within a subscription are dropped before they are journaled; see {@link SensorDedup}.
+     */
     public Flowable<SensorData> consumeFlowable() {
         logger.info("[Flowable] Starting to consume flowable sensor data...");
+        StreamMetrics.Probe probe = probe("flowable", StreamMetrics.NO_STRATEGY);
         return clienRxApi.getFastSensorUpdates()
+                .compose(probe.flowable())
+                .compose(probe.dedup(() -> SensorDedup.readings(SensorDedup.Order.ORDERED, dedupSettings, Schedulers.computation())))
+                .compose(journal())
                 .publish()
                 .refCount() // This manage the subscription
                 .doOnSubscribe(subscription -> logger.info("[Flowable] Subscription started."))
-                .doOnNext(data -> logger.info("[Flowable] Received sensor data: {}", data))
+                .compose(SampledLog.flowable(logger, "[Flowable]", logSettings))
                 .doOnError(throwable -> logger.error("[Flowable] Error occurred while fetching sensor data: {}", throwable.getMessage()))
                 .doOnComplete(() -> logger.info("[Flowable] Completed successfully."))
                 .doOnCancel(() -> logger.info("[Flowable] Subscription cancelled"));
     }
 
+    /**
+     * Same stream as {@link #consumeFlowable()}, delivered as columnar batches of up to {@code batchSize} readings.
+     * Call {@link SensorBatch#release()} once a batch has been processed so it can be reused.
+     */
+    public Flowable<SensorBatch> consumeFlowableBatches(int batchSize) {
+        logger.info("[Flowable Batch] Starting to consume flowable sensor data in batches of {}...", batchSize);
+        return clienRxApi.getFastSensorUpdates()
+                .compose(probe("flowable-batch", StreamMetrics.NO_STRATEGY).flowable())
+                .compose(SensorBatches.batches(batchSize))
+                .doOnSubscribe(subscription -> logger.info("[Flowable Batch] Subscription started."))
+                .doOnNext(batch -> logger.info("[Flowable Batch] Received {} sensor readings", batch.size()))
+                .doOnError(throwable -> logger.error("[Flowable Batch] Error occurred while fetching sensor data: {}", throwable.getMessage()))
+                .doOnComplete(() -> logger.info("[Flowable Batch] Completed successfully."))
+                .doOnCancel(() -> logger.info("[Flowable Batch] Subscription cancelled"));
+    }
+
+    /**
+     * Per-sensor temperature and humidity statistics of the flowable stream, computed incrementally, each reading
+     * counted once within a subscription. Pass the same duration twice for tumbling windows.
+     */
+    public Flowable<WindowAggregate> consumeWindowAggregates(Duration size, Duration slide) {
+        logger.info("[Window {}/{}] Starting to consume flowable sensor data...", size, slide);
+        StreamMetrics.Probe probe = probe("window", StreamMetrics.NO_STRATEGY);
+        return clienRxApi.getFastSensorUpdates()
+                .compose(probe.flowable())
+                .compose(probe.dedup(() -> SensorDedup.readings(SensorDedup.Order.ORDERED, dedupSettings, Schedulers.computation())))
+                .compose(SensorWindows.sliding(size, slide, windowSettings, Schedulers.computation(), probe::late))
+                .doOnSubscribe(subscription -> logger.info("[Window {}/{}] Subscription started.", size, slide))
+                .doOnNext(aggregate -> logger.info("[Window {}/{}] Aggregate: {}", size, slide, aggregate))
+                .doOnError(throwable -> logger.error("[Window {}/{}] Error occurred while fetching sensor data: {}", size, slide, throwable.getMessage()))
+                .doOnComplete(() -> logger.info("[Window {}/{}] Completed successfully.", size, slide))
+                .doOnCancel(() -> logger.info("[Window {}/{}] Subscription cancelled", size, slide));
+    }
+
+
+    /**
+     * Readings journaled by {@link #consumeFlowable()}, starting at the given offset.
+     */
+    public Flowable<SensorData> replayFlowable(long fromOffset) {
+        if (journal == null) {
+            return Flowable.error(new IllegalStateException("Journal is disabled, set consumer.journal.enabled"));
+        }
+        logger.info("[Replay] Replaying journaled sensor data from offset {}...", fromOffset);
+        return journal.replay(fromOffset)
+                .doOnComplete(() -> logger.info("[Replay] Completed successfully."));
+    }
+
+    private FlowableTransformer<SensorData, SensorData> journal() {
+        return journal != null ? EventJournal.journal(journal) : upstream -> upstream;
+    }
+
+    /**
+     * Removes the lookup meters, so a service built again registers its own.
+     */
+    @Override
+    public void destroy() {
+        lookups.close();
+    }
+
+    private StreamMetrics.Probe probe(String endpoint, String strategy) {
+        return metrics.probe(endpoint, StreamMetrics.RETROFIT, strategy);
+    }
+
 
+    /**
+     * Concurrent and repeated calls share requests and recent results; see {@link LookupCache}.
+     */
     public Single<SensorData> consumeSingle() {
         logger.info("[Single] Starting to consume single sensor data...");
-        return clienRxApi.getSingleSensorUpdate()
+        return lookups.single("single", clienRxApi::getSingleSensorUpdate)
                 .doOnSubscribe(subscription -> logger.info("[Single] Subscription started."))
                 .doOnSuccess(data -> logger.info("[Single] Received sensor data: {}", data))
                 .doFinally(() -> logger.info("[Single] Completed successfully."))
@@ -60,7 +182,7 @@ public class RetrofitClientRxService {
 
     public Maybe<SensorData> consumeMaybe(boolean flag) {
         logger.info("[Maybe] Starting to consume maybe sensor data... flag: {}", flag);
-        return clienRxApi.getMaybeSensorUpdate(flag)
+        return lookups.maybe("maybe:" + flag, () -> clienRxApi.getMaybeSensorUpdate(flag))
                 .doOnSubscribe(subscription -> logger.info("[Maybe] Subscription started."))
                 .doOnSuccess(data -> logger.info("[Maybe] Received sensor data: {}", data))
                 .doFinally(() -> logger.info("[Maybe] Completed successfully."))
@@ -78,12 +200,12 @@ public class RetrofitClientRxService {
     public Flowable<SensorData> consumeBackpressure(String backpressureStrategy, boolean isFastProducer) {
         logger.info("[Backpressure {}] Starting to consume flowable sensor data...", backpressureStrategy);
         return clienRxApi.getBackpressure(backpressureStrategy, isFastProducer)
+                .compose(probe("backpressure", backpressureStrategy).flowable())
                 .publish()
                 .refCount() // This manage the subscription
                 .doOnSubscribe(
                         subscription -> logger.info("[Backpressure {}] Subscription started.", backpressureStrategy))
-                .doOnNext(
-                        data -> logger.info("[Backpressure {}] Received sensor data: {}", backpressureStrategy, data))
+                .compose(SampledLog.flowable(logger, "[Backpressure " + backpressureStrategy + "]", logSettings))
                 .doOnError(
                         throwable -> logger.error("[Backpressure {}] Error occurred while fetching sensor data: {}",
                                 backpressureStrategy, throwable.getMessage()))
@@ -93,17 +215,45 @@ public class RetrofitClientRxService {
                 .subscribeOn(Schedulers.io());
     }
 
+    /**
+     * Same stream as {@link #consumeBackpressure(String, boolean)}, with {@code work} applied to every reading on
+     * {@link SensorRails} instead of a single computation thread: in parallel across sensors, in order per sensor.
+     */
+    public <R> Flowable<R> processBackpressure(String backpressureStrategy, boolean isFastProducer,
+                                               Function<SensorData, R> work) {
+        logger.info("[Rails {}] Starting to process flowable sensor data on {} rails...",
+                backpressureStrategy, railSettings.rails());
+        StreamMetrics.Probe probe = probe("rails", backpressureStrategy);
+        Function<SensorData, R> timedWork = data -> {
+            R result = work.apply(data);
+            probe.recordLatency(StreamMetrics.Stage.PROCESSED, data.epochMillis());
+            return result;
+        };
+        return clienRxApi.getBackpressure(backpressureStrategy, isFastProducer)
+                .compose(probe.flowable())
+                .doOnSubscribe(subscription -> logger.info("[Rails {}] Subscription started.", backpressureStrategy))
+                .compose(SampledLog.flowable(logger, "[Rails " + backpressureStrategy + "]", logSettings))
+                .doOnError(throwable -> logger.error("[Rails {}] Error occurred while fetching sensor data: {}",
+                        backpressureStrategy, throwable.getMessage()))
+                .doOnCancel(() -> logger.info("[Rails {}] Subscription cancelled", backpressureStrategy))
+                .doOnComplete(() -> logger.info("[Rails {}] Completed successfully.", backpressureStrategy))
+                .compose(SensorRails.rails(railSettings, Schedulers.computation(), timedWork))
+                .subscribeOn(Schedulers.io());
+    }
+
     public @NonNull Disposable fetchSensorData(String backpressureStrategy, boolean isFastProducer
             , SensorDataCallback callback) {
 
-
+        StreamMetrics.Probe probe = probe("backpressure", backpressureStrategy);
         return clienRxApi.getBackpressure(backpressureStrategy, isFastProducer)
+                .compose(probe.flowable())
                 .subscribeOn(Schedulers.io()) // Run on background thread
                 .observeOn(Schedulers.computation()) // Observe on main thread
                 .subscribe(
                         sensorData -> {
                             logger.info("Sensor Data: " + sensorData);
                             callback.onSuccess(sensorData);
+                            probe.recordLatency(StreamMetrics.Stage.PROCESSED, sensorData.epochMillis());
                         },
                         throwable -> {
                             logger.error("Error occurred: " + throwable.getMessage());
@@ -112,9 +262,26 @@ public class RetrofitClientRxService {
                 );
     }
 
+    /**
+     * Same stream as {@link #fetchSensorData}, handed to {@code callback} in batches on the computation scheduler;
+     * see {@link MicroBatcher} for when a batch is delivered and how a slow callback holds the stream back.
+     */
+    public @NonNull Disposable fetchSensorDataBatches(String backpressureStrategy, boolean isFastProducer,
+                                                      SensorDataBatchCallback callback) {
+        StreamMetrics.Probe probe = probe("backpressure-batch", backpressureStrategy);
+        Flowable<SensorData> source = clienRxApi.getBackpressure(backpressureStrategy, isFastProducer)
+                .compose(probe.flowable())
+                .doOnError(throwable -> logger.error("Error occurred: " + throwable.getMessage()))
+                .subscribeOn(Schedulers.io()); // Run on background thread
+        return MicroBatcher.subscribe(source, batchSettings, Schedulers.computation(), probe.processed(callback));
+    }
+
     public interface SensorDataCallback {
         void onSuccess(SensorData sensorData);
 
         void onError(Throwable throwable);
     }
+
+    public interface SensorDataBatchCallback extends MicroBatcher.BatchCallback<SensorData> {
+    }
 }
@@ -1,14 +1,24 @@
 package com.example.service.client;
 
+import com.example.config.HttpTransportConfig;
+import com.example.model.SseFrame;
+import com.example.util.AdaptiveOverflow;
+import com.example.util.EventCodec;
+import com.example.util.OffHeapOverflow;
+import com.example.util.SseFrameParser;
+import com.example.util.SseReconnect;
+import com.example.util.StreamMetrics;
 import io.reactivex.rxjava3.core.BackpressureStrategy;
 import io.reactivex.rxjava3.core.Flowable;
+import io.reactivex.rxjava3.functions.Function;
+import io.reactivex.rxjava3.schedulers.Schedulers;
 import okhttp3.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
 
 @Service
 public class EventStreamClientRxApi {
@@ -19,19 +29,53 @@ public class EventStreamClientRxApi {
     public static final String ERRHANDLING_ONERRORRETURN = "onErrorReturn";
     public static final String ERRHANDLING_DOONERROR = "doOnError";
     public static final String ERRHANDLING_ONERRORRESUMENEXT = "onErrorResumeNext";
+    public static final BackpressureStrategy ERROR_HANDLING_STRATEGY = BackpressureStrategy.BUFFER;
+    public static final String ADAPTIVE_STRATEGY = "ADAPTIVE";
     private final OkHttpClient client;
+    private final OkHttpClient resumingClient; // Same connection pool, read timeout acts as the idle watchdog
     private final String providerUrl;
+    private final boolean demandDriven;
+    private final OffHeapOverflow.Settings overflowSettings;
+    private final SseReconnect.Settings reconnectSettings;
+    private final AdaptiveOverflow.Settings adaptiveSettings;
+    private final StreamMetrics metrics;
 
-    public EventStreamClientRxApi(@Value("${provider.service.retrofit.url}") String providerUrl) {
+    public EventStreamClientRxApi(String providerUrl, boolean demandDriven, OffHeapOverflow.Settings overflowSettings,
+                                  SseReconnect.Settings reconnectSettings, OkHttpClient streamingHttpClient,
+                                  StreamMetrics metrics) {
+        this(providerUrl, demandDriven, overflowSettings, reconnectSettings, AdaptiveOverflow.Settings.DEFAULT,
+                streamingHttpClient, metrics);
+    }
+
+    @Autowired
+    public EventStreamClientRxApi(
+            @Value("${provider.service.retrofit.url}") String providerUrl,
+            @Value("${consumer.event-stream.demand-driven:true}") boolean demandDriven,
+            OffHeapOverflow.Settings overflowSettings,
+            SseReconnect.Settings reconnectSettings,
+            AdaptiveOverflow.Settings adaptiveSettings,
+            @Qualifier(HttpTransportConfig.STREAMING_CLIENT) OkHttpClient streamingHttpClient,
+            StreamMetrics metrics) {
         this.providerUrl = providerUrl;
-        this.client = new OkHttpClient();
+        this.demandDriven = demandDriven;
+        this.overflowSettings = overflowSettings;
+        this.reconnectSettings = reconnectSettings;
+        this.adaptiveSettings = adaptiveSettings;
+        this.client = streamingHttpClient;
+        this.metrics = metrics;
+        this.resumingClient = client.newBuilder()
+                .readTimeout(reconnectSettings.idleTimeout())
+                .build();
     }
 
     public Flowable<String> getFastSensorUpdates() {
         HttpUrl urlWithParams = HttpUrl.parse(providerUrl + FLOWABLE_ENDPOINT)
                 .newBuilder()
                 .build();
-        return streamEvents(urlWithParams, BackpressureStrategy.BUFFER);
+        // Bursts beyond the small on-heap queue spill off-heap instead of growing an unbounded BUFFER;
+        // dropped connections resume from the last event id, invisibly to subscribers
+        return resumeEvents(urlWithParams, BackpressureStrategy.MISSING)
+                .compose(OffHeapOverflow.spill(overflowSettings, EventCodec.utf8()));
     }
 
     public Flowable<String> getBackpressureFlowable(
@@ -42,7 +86,29 @@ public class EventStreamClientRxApi {
                 .addQueryParameter("isFastProducer", String.valueOf(isFastProducer))
                 .addQueryParameter("dataSize", String.valueOf(dataSize))
                 .build();
-        return streamEvents(urlWithParams, backpressureStrategy);
+        // In demand-driven mode the strategy only applies on the producer side:
+        // the client never reads ahead of what downstream requested, so nothing overflows locally,
+        // and the probe shows demand and reads in flight instead of drops and buffer depth
+        return demandDriven
+                ? pullEvents(urlWithParams, backpressureStrategy.name())
+                : streamEvents(urlWithParams, backpressureStrategy);
+    }
+
+    /**
+     * The backpressure stream read as fast as the producer sends, with the local overflow strategy chosen by
+     * {@link AdaptiveOverflow} from the consumer's lag instead of fixed per call. The producer is asked to
+     * BUFFER, so nothing is dropped before it reaches this client.
+     */
+    public Flowable<String> getAdaptiveFlowable(boolean isFastProducer, int dataSize) {
+        HttpUrl urlWithParams = HttpUrl.parse(providerUrl + BACKPRESSURE_ENDPOINT)
+                .newBuilder()
+                .addQueryParameter("backpressureStrategy", BackpressureStrategy.BUFFER.name())
+                .addQueryParameter("isFastProducer", String.valueOf(isFastProducer))
+                .addQueryParameter("dataSize", String.valueOf(dataSize))
+                .build();
+        return streamEvents(urlWithParams, BackpressureStrategy.MISSING)
+                .compose(metrics.probe(BACKPRESSURE_ENDPOINT, StreamMetrics.OKHTTP, ADAPTIVE_STRATEGY)
+                        .adaptive(adaptiveSettings, EventCodec.utf8()));
     }
 
     public Flowable<String> getErrorHandlingFlowable(String errorHandlingFlag) {
@@ -50,42 +116,197 @@ public class EventStreamClientRxApi {
                 .newBuilder()
                 .addQueryParameter("errorHandlingFlag", errorHandlingFlag)
                 .build();
-        return streamEvents(urlWithParams, BackpressureStrategy.BUFFER);
+        return streamEvents(urlWithParams, ERROR_HANDLING_STRATEGY);
     }
 
     public Flowable<String> streamEvents(HttpUrl url, BackpressureStrategy backpressureStrategy) {
+        // Only the payload is decoded; prefixes, separators and comments never become Strings
+        return stream(client, request(url, null), backpressureStrategy, parser -> parser.payload().readUtf8());
+    }
+
+    public Flowable<SseFrame> streamFrames(HttpUrl url, BackpressureStrategy backpressureStrategy) {
+        return stream(client, request(url, null), backpressureStrategy, SseFrameParser::frame);
+    }
+
+    /**
+     * Like {@link #streamEvents}, but a dropped or stalled connection is reopened with backoff and
+     * resumed with {@code Last-Event-ID} instead of failing the Flowable (see {@link SseReconnect}).
+     */
+    public Flowable<String> resumeEvents(HttpUrl url, BackpressureStrategy backpressureStrategy) {
+        return resumeFrames(url, backpressureStrategy).map(SseFrame::data);
+    }
+
+    public Flowable<SseFrame> resumeFrames(HttpUrl url, BackpressureStrategy backpressureStrategy) {
+        return SseReconnect.resumable(
+                lastEventId -> stream(resumingClient, request(url, lastEventId), backpressureStrategy, SseFrameParser::frame),
+                reconnectSettings);
+    }
+
+    /**
+     * Demand-driven variant of {@link #streamEvents}: a frame is read from the socket only when
+     * downstream has outstanding demand, so a slow consumer stalls the TCP window instead of
+     * filling an in-memory buffer.
+     */
+    public Flowable<String> pullEvents(HttpUrl url) {
+        return pullEvents(url, StreamMetrics.NO_STRATEGY);
+    }
+
+    /**
+     * @param strategy tag of the {@code consumer.stream.reads.inflight} gauge, the strategy the producer applies
+     */
+    public Flowable<String> pullEvents(HttpUrl url, String strategy) {
+        return pull(url, strategy, parser -> parser.payload().readUtf8());
+    }
+
+    public Flowable<SseFrame> pullFrames(HttpUrl url) {
+        return pull(url, StreamMetrics.NO_STRATEGY, SseFrameParser::frame);
+    }
+
+    private <T> Flowable<T> pull(HttpUrl url, String strategy, Function<SseFrameParser, T> mapper) {
+        StreamMetrics.Probe probe = metrics.probe(endpoint(url), StreamMetrics.OKHTTP, strategy);
+        return Flowable.defer(() -> {
+            PullState state = new PullState(client.newCall(request(url, null)));
+            return Flowable.<T, PullState>generate(
+                            () -> state,
+                            (current, emitter) -> {
+                                try {
+                                    // The first read also waits for the response headers
+                                    boolean next = probe.read(() -> current.parser().nextFrame());
+                                    if (next) {
+                                        emitter.onNext(mapper.apply(current.parser()));
+                                    } else {
+                                        emitter.onComplete();
+                                    }
+                                } catch (IOException e) {
+                                    if (current.isCancelled()) {
+                                        emitter.onComplete(); // Read aborted by cancel(), nobody is listening
+                                    } else {
+                                        emitter.onError(e);
+                                    }
+                                }
+                            },
+                            PullState::close)
+                    .doOnCancel(state::cancel) // Unblocks a read that is waiting on the socket
+                    .subscribeOn(Schedulers.io()); // Blocking reads, and the request(n) calls that drive them, stay on I/O threads
+        });
+    }
+
+    private static Request request(HttpUrl url, String lastEventId) {
+        Request.Builder builder = new Request.Builder()
+                .url(url);
+        if (lastEventId != null) {
+            builder.header(SseReconnect.LAST_EVENT_ID_HEADER, lastEventId);
+        }
+        return builder.build();
+    }
+
+    /**
+     * BUFFER, DROP and LATEST are applied as operators behind the source rather than by {@code Flowable.create},
+     * with the same semantics, so that drops and buffer depth show up in {@code consumer.stream.*} under the
+     * endpoint's last path segment.
+     */
+    private <T> Flowable<T> stream(OkHttpClient httpClient, Request request,
+                                   BackpressureStrategy backpressureStrategy, Function<SseFrameParser, T> mapper) {
+        return switch (backpressureStrategy) {
+            case ERROR, MISSING -> source(httpClient, request, backpressureStrategy, mapper);
+            default -> source(httpClient, request, BackpressureStrategy.MISSING, mapper)
+                    .compose(metrics.probe(endpoint(request.url()), StreamMetrics.OKHTTP, backpressureStrategy.name())
+                            .backpressure(backpressureStrategy));
+        };
+    }
+
+    private static String endpoint(HttpUrl url) {
+        return url.pathSegments().get(url.pathSize() - 1);
+    }
+
+    private <T> Flowable<T> source(OkHttpClient httpClient, Request request,
+                                   BackpressureStrategy backpressureStrategy, Function<SseFrameParser, T> mapper) {
         return Flowable.create(emitter -> {
-            Request request = new Request.Builder()
-                    .url(url)
-                    .build();
+            Call call = httpClient.newCall(request);
+            emitter.setCancellable(call::cancel); // Cancelling the Flowable aborts the HTTP exchange
 
             // asynchronously make the call
-            client.newCall(request).enqueue(new Callback() {
+            call.enqueue(new Callback() {
                 @Override
                 public void onFailure(Call call, IOException e) {
-                    emitter.onError(e);
+                    emitter.tryOnError(e);
                 }
 
                 @Override
-                public void onResponse(Call call, Response response) throws IOException {
-                    if (!response.isSuccessful()) {
-                        emitter.onError(new IOException("Unexpected code " + response));
-                        return;
-                    }
+                public void onResponse(Call call, Response response) {
+                    try (response) {
+                        if (!response.isSuccessful()) {
+                            emitter.onError(unexpectedStatus(response));
+                            return;
+                        }
 
-                    ResponseBody responseBody = response.body();
-                    if (responseBody != null) {
-                        BufferedReader reader = new BufferedReader(new InputStreamReader(responseBody.byteStream()));
-                        String line;
-                        while ((line = reader.readLine()) != null) {
-                            emitter.onNext(line);
+                        ResponseBody responseBody = response.body();
+                        if (responseBody != null) {
+                            SseFrameParser parser = new SseFrameParser(responseBody.source());
+                            while (!emitter.isCancelled() && parser.nextFrame()) {
+                                emitter.onNext(mapper.apply(parser));
+                            }
+                            emitter.onComplete();
+                        } else {
+                            emitter.onError(new IOException("Response body is null"));
                         }
-                        emitter.onComplete();
-                    } else {
-                        emitter.onError(new IOException("Response body is null"));
+                    } catch (Throwable e) {
+                        emitter.tryOnError(e);
                     }
                 }
             });
         }, backpressureStrategy);
     }
+
+    /**
+     * Tells {@link SseReconnect} whether asking again can help.
+     */
+    private static SseReconnect.StatusException unexpectedStatus(Response response) {
+        return new SseReconnect.StatusException(response.code(), response.header(SseReconnect.RETRY_AFTER_HEADER),
+                "Unexpected code " + response);
+    }
+
+    /**
+     * Per-subscription state of a demand-driven stream; the request is executed lazily on the first read.
+     */
+    private static final class PullState {
+        private final Call call;
+        private Response response;
+        private SseFrameParser parser;
+        private volatile boolean cancelled;
+
+        PullState(Call call) {
+            this.call = call;
+        }
+
+        SseFrameParser parser() throws IOException {
+            if (parser == null) {
+                response = call.execute();
+                if (!response.isSuccessful()) {
+                    throw unexpectedStatus(response);
+                }
+                ResponseBody responseBody = response.body();
+                if (responseBody == null) {
+                    throw new IOException("Response body is null");
+                }
+                parser = new SseFrameParser(responseBody.source());
+            }
+            return parser;
+        }
+
+        boolean isCancelled() {
+            return cancelled;
+        }
+
+        void cancel() {
+            cancelled = true;
+            call.cancel();
+        }
+
+        void close() {
+            if (response != null) {
+                response.close();
+            }
+        }
+    }
 }
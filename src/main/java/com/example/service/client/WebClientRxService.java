@@ -1,103 +1,101 @@
 package com.example.service.client;
 
+import com.example.config.WebClientConfig;
 import com.example.model.SensorData;
+import com.example.util.FanIn;
+import io.micrometer.core.instrument.Metrics;
 import io.reactivex.rxjava3.core.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
 
+import java.util.List;
+
 @Service
 public class WebClientRxService {
     private static final Logger logger = LoggerFactory.getLogger(WebClientRxService.class);
 
-    private final WebClient webClient;
+    private final WebClient webClient; // Request/response calls
+    private final WebClient streamingWebClient; // Long-lived streams, on their own connection pool
+    private final List<String> providerUrls; // Fan-in providers
+    private final FanIn fanIn;
+
+    public WebClientRxService(String providerUrl, WebClient.Builder webClientBuilder,
+                              WebClient.Builder streamingWebClientBuilder) {
+        this(providerUrl, List.of(), webClientBuilder, streamingWebClientBuilder,
+                new FanIn(FanIn.Settings.DEFAULT, Metrics.globalRegistry));
+    }
 
+    @Autowired
     public WebClientRxService(
             @Value("${provider.service.rx.url}") String providerUrl,
-            WebClient.Builder webClientBuilder
+            @Value("${provider.service.rx.urls:}") List<String> providerUrls,
+            @Qualifier(WebClientConfig.REQUEST_BUILDER) WebClient.Builder webClientBuilder,
+            @Qualifier(WebClientConfig.STREAMING_BUILDER) WebClient.Builder streamingWebClientBuilder,
+            FanIn fanIn
     ) {
         this.webClient = webClientBuilder.baseUrl(providerUrl).build();
+        this.streamingWebClient = streamingWebClientBuilder.baseUrl(providerUrl).build();
+        this.providerUrls = providerUrls.isEmpty() ? List.of(providerUrl) : List.copyOf(providerUrls);
+        this.fanIn = fanIn;
     }
 
+    // The WebClient publishers are bridged with fromPublisher rather than re-emitted from a subscribe() call:
+    // Rx demand (request(n)) reaches Reactor Netty, which stops reading the socket when nobody asks for more,
+    // and disposing the Rx side cancels the exchange and releases its connection.
+
     // Flux: 0 to N
     public Observable<SensorData> getSensorUpdates() {
-        return Observable.create(emitter -> webClient.get()
+        return Observable.fromPublisher(streamingWebClient.get()
                 .uri("/observable")
                 .retrieve()
-                .bodyToFlux(SensorData.class)
-                .subscribe(
-                        emitter::onNext,       // Emit the data to the Flowable
-                        emitter::onError,      // Handle errors
-                        emitter::onComplete     // Complete the Flowable
-                )
-        );
+                .bodyToFlux(SensorData.class)); // Observable has no backpressure: requests everything, still cancels
     }
 
     // Flux: 0 to N
     public Flowable<SensorData> getFastSensorUpdates() {
-        return Flowable.create(emitter -> {
-            webClient.get()
-                    .uri("/flowable")
-                    .retrieve()
-                    .bodyToFlux(SensorData.class)
-                    .subscribe(
-                            emitter::onNext,
-                            emitter::onError,
-                            emitter::onComplete
-                    );
-        },
-                BackpressureStrategy.BUFFER // Collects all items until they can be processed; Possible OutOfMemory
-//                BackpressureStrategy.DROP // Process the recent or current items, but potentially not the latest;
-                // Drop the emitted items if during that time the consumer is not ready
-//                BackpressureStrategy.LATEST // Process the latest item and discards any intermediate items that are not processed
-//                BackpressureStrategy.ERROR // Throw an exception MissingBackpressureException
-//                BackpressureStrategy.MISSING // No backpressure handling
-        );
+        // No BackpressureStrategy needed: a slow subscriber slows the producer down over TCP instead of
+        // items piling up (BUFFER), being dropped (DROP, LATEST) or failing the stream (ERROR)
+        return Flowable.fromPublisher(streamingWebClient.get()
+                .uri("/flowable")
+                .retrieve()
+                .bodyToFlux(SensorData.class));
+    }
+
+    /**
+     * {@link #getFastSensorUpdates()} of every provider in {@code provider.service.rx.urls}, merged by {@link FanIn}.
+     * Falls back to the single {@code provider.service.rx.url}.
+     */
+    public Flowable<SensorData> getFanInSensorUpdates() {
+        return fanIn.merge(providerUrls, providerUrl -> Flowable.fromPublisher(streamingWebClient.get()
+                .uri(providerUrl + "/flowable") // Absolute, so it replaces the base URL
+                .retrieve()
+                .bodyToFlux(SensorData.class)));
     }
 
     // Mono: 0 or 1
     public Single<SensorData> getSingleSensorUpdate() {
-        return Single.create(emitter -> {
-            webClient.get()
-                    .uri("/single")
-                    .retrieve()
-                    .bodyToMono(SensorData.class) // Mono is the reactive type used in WebFlux
-                    .subscribe(
-                            emitter::onSuccess, // Emit the result if successful
-                            emitter::onError     // Emit the error if something goes wrong
-                    );
-        });
+        return Single.fromPublisher(webClient.get()
+                .uri("/single")
+                .retrieve()
+                .bodyToMono(SensorData.class)); // Mono is the reactive type used in WebFlux
     }
 
     public Maybe<SensorData> getMaybeSensorUpdate(boolean flag) {
-        return Maybe.create(emitter -> {
-            webClient.get()
-                    .uri(uriBuilder -> uriBuilder.path("/maybe").queryParam("flag", flag).build())
-                    .retrieve()
-                    .bodyToMono(SensorData.class) // Mono is the reactive type used in WebFlux
-                    .subscribe(
-                            data -> {
-                                if (data != null) {
-                                    emitter.onSuccess(data); // Emit the data if available
-                                } else {
-                                    emitter.onComplete(); // Complete without emitting if data is null
-                                }
-                            },
-                            emitter::onError,     // Emit the error if something goes wrong
-                            emitter::onComplete    // Complete if there’s no data
-                    );
-        });
+        return Maybe.fromPublisher(webClient.get()
+                .uri(uriBuilder -> uriBuilder.path("/maybe").queryParam("flag", flag).build())
+                .retrieve()
+                .bodyToMono(SensorData.class)); // An empty body completes the Maybe without a value
     }
 
     public Completable calibrateSensors() {
-        return Completable.create(emitter -> {
-            webClient.post()
-                    .uri("/calibrate")
-                    .retrieve()
-                    .bodyToMono(Void.class) // No body expected
-                    .subscribe();
-        });
+        return Completable.fromPublisher(webClient.post()
+                .uri("/calibrate")
+                .retrieve()
+                .bodyToMono(Void.class)); // No body expected, completes once the response is in
     }
 }
@@ -1,8 +1,10 @@
 package com.example.service.client;
 
+import com.example.config.WebClientConfig;
 import com.example.model.SensorData;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.reactive.function.client.WebClient;
@@ -13,18 +15,21 @@ import reactor.core.publisher.Mono;
 public class WebClientWebfluxService {
     private static final Logger logger = LoggerFactory.getLogger(WebClientWebfluxService.class);
 
-    private final WebClient webClient;
+    private final WebClient webClient; // Request/response calls
+    private final WebClient streamingWebClient; // Long-lived streams, on their own connection pool
 
     public WebClientWebfluxService(
             @Value("${provider.service.webflux.url}") String providerUrl,
-            WebClient.Builder webClientBuilder
+            @Qualifier(WebClientConfig.REQUEST_BUILDER) WebClient.Builder webClientBuilder,
+            @Qualifier(WebClientConfig.STREAMING_BUILDER) WebClient.Builder streamingWebClientBuilder
     ) {
         this.webClient = webClientBuilder.baseUrl(providerUrl).build();
+        this.streamingWebClient = streamingWebClientBuilder.baseUrl(providerUrl).build();
     }
 
     // Flux: 0 to N
     public Flux<SensorData> fetchStreamSensorData() {
-        return webClient.get()
+        return streamingWebClient.get()
                 .uri("/observable")
                 .retrieve()
                 .bodyToFlux(SensorData.class);
@@ -32,7 +37,7 @@ public class WebClientWebfluxService {
 
     // Flux: 0 to N
     public Flux<SensorData> fetchFastStreamSensorData() {
-        return webClient.get()
+        return streamingWebClient.get()
                 .uri("/flowable")
                 .retrieve()
                 .bodyToFlux(SensorData.class);
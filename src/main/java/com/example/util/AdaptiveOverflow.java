@@ -0,0 +1,324 @@
+package com.example.util;
+
+import io.reactivex.rxjava3.core.FlowableTransformer;
+import io.reactivex.rxjava3.exceptions.MissingBackpressureException;
+import org.reactivestreams.Subscriber;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Overflow strategy that picks BUFFER, spilling or LATEST by itself, from how far the consumer lags behind.
+ * <p>
+ * The lag is estimated as the number of events held times the consumer's processing time per event: the time
+ * events were waiting, divided by the events delivered in it, over samples of at least {@code 50 ms}. A downstream
+ * stage that prefetches, such as {@code publish} or {@code observeOn}, takes events in bursts and then nothing until
+ * the consumer behind it has worked through them; a sample spans such gaps, so it measures that consumer's pace
+ * rather than the burst's. New events go
+ * <ul>
+ *     <li>{@link Mode#BUFFER}: into a small on-heap queue, cheapest for short bursts;</li>
+ *     <li>{@link Mode#SPILL}: serialized into a bounded off-heap ring, as {@link OffHeapOverflow} does, once the
+ *     lag reaches {@link Settings#spillLag()} or the heap queue is full;</li>
+ *     <li>{@link Mode#CONFLATE}: into a single slot where each event replaces the previous one, once the lag
+ *     reaches {@link Settings#conflateLag()} or the ring is full. Only sustained overload loses events.</li>
+ * </ul>
+ * The mode steps back down once the lag falls below the threshold minus {@link Settings#hysteresis()}, and never
+ * changes more often than every {@link Settings#minDwell()} unless a store is full, so it does not flap around a
+ * threshold. Events are always delivered in arrival order. Every transition is logged and passed to the
+ * {@link Listener}.
+ */
+public final class AdaptiveOverflow {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdaptiveOverflow.class);
+
+    private static final int INITIAL_SCRATCH_BYTES = 512;
+
+    private AdaptiveOverflow() {
+    }
+
+    public enum Mode {
+        BUFFER, SPILL, CONFLATE
+    }
+
+    /**
+     * @param onHeapCapacity events kept on the heap in {@link Mode#BUFFER}
+     * @param offHeapBytes   size of the off-heap ring, allocated on the first spill
+     * @param spillLag       lag at which {@link Mode#BUFFER} moves to {@link Mode#SPILL}
+     * @param conflateLag    lag at which {@link Mode#SPILL} moves to {@link Mode#CONFLATE}
+     * @param hysteresis     share of a threshold the lag must fall below it before the mode steps back down
+     * @param minDwell       shortest time between two transitions that no full store forces
+     */
+    public record Settings(int onHeapCapacity, int offHeapBytes, Duration spillLag, Duration conflateLag,
+                           double hysteresis, Duration minDwell) {
+
+        public static final Settings DEFAULT = new Settings(1024, 16 * 1024 * 1024, Duration.ofMillis(100),
+                Duration.ofSeconds(2), 0.5, Duration.ofSeconds(1));
+
+        public Settings {
+            if (spillLag.compareTo(conflateLag) > 0 || hysteresis < 0 || hysteresis >= 1) {
+                throw new IllegalArgumentException("Expected spillLag <= conflateLag and 0 <= hysteresis < 1, spillLag: "
+                        + spillLag + ", conflateLag: " + conflateLag + ", hysteresis: " + hysteresis);
+            }
+        }
+    }
+
+    /**
+     * @param depth events held when the mode changed
+     * @param lag   estimated lag that triggered it
+     */
+    public record Transition(Mode from, Mode to, long depth, Duration lag) {
+    }
+
+    public interface Listener {
+
+        Listener NONE = new Listener() {
+        };
+
+        default void onTransition(Transition transition) {
+        }
+
+        /**
+         * An event was replaced by a newer one while conflating.
+         */
+        default void onDropped() {
+        }
+    }
+
+    public static <T> FlowableTransformer<T, T> adaptive(Settings settings, EventCodec<T> codec, Listener listener) {
+        return upstream -> upstream.lift(downstream -> new AdaptiveSubscriber<>(downstream, settings, codec, listener));
+    }
+
+    /**
+     * The mode decision, apart from the stores so it can be driven with explicit times.
+     * Not thread-safe; the subscriber calls it holding its lock.
+     */
+    static final class Controller {
+        private static final double SMOOTHING = 0.2; // Weight of the newest sample in the average
+        private static final long SAMPLE_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+        private final Settings settings;
+        private Mode mode = Mode.BUFFER;
+        private boolean changed;
+        private long changedNanos;
+        private double serviceNanos; // Average processing time per event
+        private long lastDeliveryNanos;
+        private boolean backlogged; // Events were waiting at the last delivery
+        private long sampleNanos; // Backlogged time and deliveries since the last sample
+        private long sampleDelivered;
+
+        Controller(Settings settings) {
+            this.settings = settings;
+        }
+
+        Mode mode() {
+            return mode;
+        }
+
+        long lagNanos(long depth) {
+            return (long) (depth * serviceNanos);
+        }
+
+        /**
+         * @param remaining events still held after this delivery
+         */
+        void onDelivered(long nowNanos, long remaining) {
+            if (backlogged) {
+                sampleNanos += nowNanos - lastDeliveryNanos;
+                sampleDelivered++;
+                if (sampleNanos >= SAMPLE_NANOS) {
+                    double sample = (double) sampleNanos / sampleDelivered;
+                    serviceNanos = serviceNanos == 0 ? sample : serviceNanos + SMOOTHING * (sample - serviceNanos);
+                    sampleNanos = 0;
+                    sampleDelivered = 0;
+                }
+            }
+            lastDeliveryNanos = nowNanos;
+            backlogged = remaining > 0;
+        }
+
+        /**
+         * @return the transition made, or null when the mode stays
+         */
+        Transition evaluate(long depth, boolean heapFull, boolean ringFull, long nowNanos) {
+            long lag = lagNanos(depth);
+            Mode next = next(lag, depth, heapFull, ringFull);
+            if (next == mode) {
+                return null;
+            }
+            boolean forced = next.ordinal() > mode.ordinal() && (heapFull || ringFull);
+            if (!forced && changed && nowNanos - changedNanos < settings.minDwell().toNanos()) {
+                return null;
+            }
+            Transition transition = new Transition(mode, next, depth, Duration.ofNanos(lag));
+            mode = next;
+            changed = true;
+            changedNanos = nowNanos;
+            return transition;
+        }
+
+        private Mode next(long lag, long depth, boolean heapFull, boolean ringFull) {
+            double down = 1 - settings.hysteresis();
+            return switch (mode) {
+                case BUFFER -> heapFull || lag >= settings.spillLag().toNanos() ? Mode.SPILL : Mode.BUFFER;
+                case SPILL -> {
+                    if (ringFull || lag >= settings.conflateLag().toNanos()) {
+                        yield Mode.CONFLATE;
+                    }
+                    boolean calm = lag <= settings.spillLag().toNanos() * down
+                            && depth <= settings.onHeapCapacity() * down;
+                    yield calm ? Mode.BUFFER : Mode.SPILL;
+                }
+                case CONFLATE -> lag <= settings.conflateLag().toNanos() * down && !ringFull
+                        ? Mode.SPILL : Mode.CONFLATE;
+            };
+        }
+    }
+
+    static final class AdaptiveSubscriber<T> extends OverflowSubscriber<T> {
+        private final Settings settings;
+        private final EventCodec<T> codec;
+        private final Listener listener;
+        private final Controller controller;
+        private final ArrayDeque<T> heap = new ArrayDeque<>();
+        private final OffHeapRing ring;
+        private T latest; // Conflation slot, delivered after everything in heap and ring
+        private boolean ringFull;
+        private ByteBuffer encodeScratch = ByteBuffer.allocate(INITIAL_SCRATCH_BYTES);
+        private ByteBuffer decodeScratch = ByteBuffer.allocate(INITIAL_SCRATCH_BYTES);
+
+        AdaptiveSubscriber(Subscriber<? super T> downstream, Settings settings, EventCodec<T> codec,
+                           Listener listener) {
+            super(downstream);
+            this.settings = settings;
+            this.codec = codec;
+            this.listener = listener;
+            this.controller = new Controller(settings);
+            this.ring = new OffHeapRing(settings.offHeapBytes());
+        }
+
+        @Override
+        protected synchronized boolean offer(T value) {
+            evaluate();
+            if (controller.mode() != Mode.CONFLATE) {
+                if (requeueLatest() && append(value)) {
+                    return true;
+                }
+                ringFull = true;
+                evaluate(); // A full ring forces conflation
+            }
+            if (latest != null) {
+                listener.onDropped();
+            }
+            latest = value;
+            return true;
+        }
+
+        @Override
+        protected synchronized T poll() {
+            T value = heap.poll();
+            if (value == null) {
+                value = pollRing();
+            }
+            if (value == null) {
+                value = latest;
+                latest = null;
+            }
+            if (value != null) {
+                controller.onDelivered(System.nanoTime(), depth());
+                evaluate();
+            }
+            return value;
+        }
+
+        @Override
+        protected synchronized boolean isEmpty() {
+            return heap.isEmpty() && ring.isEmpty() && latest == null;
+        }
+
+        @Override
+        protected synchronized void clear() {
+            heap.clear();
+            ring.clear();
+            latest = null;
+        }
+
+        @Override
+        protected Throwable overflowError() {
+            return new MissingBackpressureException("Adaptive overflow cannot refuse events");
+        }
+
+        private void evaluate() {
+            long depth = depth();
+            Transition transition = controller.evaluate(depth, heap.size() >= settings.onHeapCapacity(), ringFull,
+                    System.nanoTime());
+            if (transition == null) {
+                return;
+            }
+            if (transition.from() == Mode.CONFLATE) {
+                requeueLatest(); // Newer events queue up again, behind the conflated one
+            }
+            logger.info("Overflow mode {} -> {}, {} events held, estimated lag {} ms",
+                    transition.from(), transition.to(), depth, transition.lag().toMillis());
+            listener.onTransition(transition);
+        }
+
+        /**
+         * Moves the conflated event into the ring, so an event queued after it is not delivered before it.
+         */
+        private boolean requeueLatest() {
+            if (latest == null) {
+                return true;
+            }
+            if (!ring.offer(encode(latest))) {
+                return false;
+            }
+            latest = null;
+            return true;
+        }
+
+        /**
+         * Queues behind everything held: on the heap only while nothing is spilled, so arrival order is kept.
+         */
+        private boolean append(T value) {
+            if (controller.mode() == Mode.BUFFER && ring.isEmpty() && latest == null
+                    && heap.size() < settings.onHeapCapacity()) {
+                heap.offer(value);
+                return true;
+            }
+            return ring.offer(encode(value));
+        }
+
+        private T pollRing() {
+            ByteBuffer record = ring.poll(decodeScratch);
+            if (record == null) {
+                return null;
+            }
+            ringFull = false;
+            if (record != decodeScratch && record.capacity() > decodeScratch.capacity()) {
+                decodeScratch = record;
+            }
+            return codec.decode(record);
+        }
+
+        private long depth() {
+            return heap.size() + ring.count() + (latest != null ? 1 : 0);
+        }
+
+        private ByteBuffer encode(T value) {
+            while (true) {
+                encodeScratch.clear();
+                try {
+                    codec.encode(value, encodeScratch);
+                    return encodeScratch.flip();
+                } catch (BufferOverflowException e) {
+                    encodeScratch = ByteBuffer.allocate(encodeScratch.capacity() * 2);
+                }
+            }
+        }
+    }
+}
@@ -1,8 +1,10 @@
 package com.example.util;
 
-import com.example.model.SensorData;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import okhttp3.ResponseBody;
+import okio.BufferedSource;
+import okio.ByteString;
 import retrofit2.Converter;
 import retrofit2.Retrofit;
 
@@ -12,6 +14,8 @@ import java.lang.reflect.Type;
 
 public class DataPrefixConverterFactory extends Converter.Factory {
 
+    private static final ByteString DATA_PREFIX = ByteString.encodeUtf8("data:");
+
     private final ObjectMapper objectMapper;
 
     // Constructor to accept ObjectMapper as a bean
@@ -20,18 +24,20 @@ public class DataPrefixConverterFactory extends Converter.Factory {
     }
 
     @Override
-    public Converter<ResponseBody, SensorData> responseBodyConverter(Type type, Annotation[] annotations, Retrofit retrofit) {
-        // Create your own converter that handles the data prefix
-        return new Converter<ResponseBody, SensorData>() {
+    public Converter<ResponseBody, ?> responseBodyConverter(Type type, Annotation[] annotations, Retrofit retrofit) {
+        // Resolved once per Retrofit method instead of once per response
+        ObjectReader reader = objectMapper.readerFor(objectMapper.constructType(type));
+        return new Converter<ResponseBody, Object>() {
             @Override
-            public SensorData convert(ResponseBody value) throws IOException {
-                // Read the response and remove the prefix
-                String bodyString = value.string();
-                if (bodyString.startsWith("data:")) {
-                    bodyString = bodyString.substring("data:".length());
+            public Object convert(ResponseBody value) throws IOException {
+                try (value) {
+                    // Skip the prefix on the raw bytes and parse the JSON straight from the source
+                    BufferedSource source = value.source();
+                    if (source.rangeEquals(0, DATA_PREFIX)) {
+                        source.skip(DATA_PREFIX.size());
+                    }
+                    return reader.readValue(source.inputStream());
                 }
-                // Convert the cleaned string to the desired object
-                return objectMapper.readValue(bodyString, SensorData.class);
             }
         };
     }
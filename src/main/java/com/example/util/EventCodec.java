@@ -0,0 +1,39 @@
+package com.example.util;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Binary form of a stream element, used where events leave the Java heap (off-heap buffers, journals).
+ */
+public interface EventCodec<T> {
+
+    /**
+     * Writes the value at the target's position. Throws {@link java.nio.BufferOverflowException}
+     * when the target is too small; callers retry with a bigger buffer.
+     */
+    void encode(T value, ByteBuffer target);
+
+    /**
+     * Reads a value from the source's remaining bytes, exactly one encoded record.
+     */
+    T decode(ByteBuffer source);
+
+    static EventCodec<String> utf8() {
+        return Utf8Codec.INSTANCE;
+    }
+
+    final class Utf8Codec implements EventCodec<String> {
+        private static final Utf8Codec INSTANCE = new Utf8Codec();
+
+        @Override
+        public void encode(String value, ByteBuffer target) {
+            target.put(value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public String decode(ByteBuffer source) {
+            return StandardCharsets.UTF_8.decode(source).toString();
+        }
+    }
+}
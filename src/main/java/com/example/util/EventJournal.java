@@ -0,0 +1,576 @@
+package com.example.util;
+
+import io.reactivex.rxjava3.core.Flowable;
+import io.reactivex.rxjava3.core.FlowableTransformer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Durable, append-only journal of stream events, written through memory-mapped segment files.
+ * <p>
+ * Every event gets a sequential offset (0, 1, 2, ...). Records are appended to the current segment as
+ * {@code [length][crc32c][payload]} and a new segment is rolled once it is full; segment files are named
+ * after the offset of their first record. Appends only copy into the mapping, the page cache does the
+ * rest; {@code force()} is group-committed every {@link Settings#commitBatch()} records or
+ * {@link Settings#commitInterval()}, whichever comes first; the interval flush runs on a thread of its own,
+ * as {@code force()} blocks on the disk.
+ * <p>
+ * Only the newest {@link Settings#retainedSegments()} segments are kept: older ones are deleted as new ones are
+ * rolled, and unmapped at once rather than whenever the garbage collector gets to their buffers. A segment that a
+ * replay is still reading is unmapped when the replay leaves it.
+ * <p>
+ * Each segment keeps a sparse in-memory index of one position per {@link Settings#indexInterval()}
+ * records, so {@link #replay(long)} can start from any offset after a short scan. The index is rebuilt
+ * when the journal is opened, which also drops a torn record left at the end by a crash.
+ * <p>
+ * Appends are serialized (one writer at a time); any number of replays can run alongside them.
+ */
+public final class EventJournal<T> implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(EventJournal.class);
+
+    private static final int HEADER_BYTES = 8; // Payload length, CRC32C of length and payload
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    /**
+     * @param directory      where segment files live, created if missing
+     * @param segmentBytes   size of each memory-mapped segment; also the largest record that fits
+     * @param indexInterval  records between two sparse index entries
+     * @param commitBatch    records between two forced flushes to disk
+     * @param commitInterval longest time an appended record stays unflushed, zero to only flush by batch
+     * @param retainedSegments segments kept, the active one included, 0 to keep all
+     */
+    public record Settings(Path directory, int segmentBytes, int indexInterval, int commitBatch,
+                           Duration commitInterval, int retainedSegments) {
+    }
+
+    private final Settings settings;
+    private final EventCodec<T> codec;
+    private final CRC32C writeCrc = new CRC32C();
+    private final ScheduledExecutorService flusher; // Null unless flushing by interval
+
+    private volatile Segment[] segments; // Ordered by base offset; replaced on roll
+    private Segment active;
+    private int committedPosition; // Position in the active segment up to which it was forced
+    private int uncommitted;
+    private boolean closed;
+
+    public EventJournal(Settings settings, EventCodec<T> codec) {
+        if (settings.segmentBytes() <= HEADER_BYTES || settings.indexInterval() <= 0 || settings.commitBatch() <= 0
+                || settings.retainedSegments() < 0) {
+            throw new IllegalArgumentException("Invalid journal settings: " + settings);
+        }
+        this.settings = settings;
+        this.codec = codec;
+        try {
+            Files.createDirectories(settings.directory());
+            this.segments = recover();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not open journal in " + settings.directory(), e);
+        }
+        this.active = segments[segments.length - 1];
+        this.committedPosition = active.size;
+        retain();
+
+        long intervalMillis = settings.commitInterval() == null ? 0 : settings.commitInterval().toMillis();
+        if (intervalMillis > 0) {
+            this.flusher = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform()
+                    .name("journal-flush-" + settings.directory().getFileName())
+                    .daemon()
+                    .factory());
+            flusher.scheduleWithFixedDelay(this::flushQuietly, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        } else {
+            this.flusher = null;
+        }
+        logger.info("Journal opened in {}: {} segment(s), next offset {}", settings.directory(), segments.length, nextOffset());
+    }
+
+    /**
+     * Tees every event into the journal before passing it on. Flushes when the stream terminates.
+     */
+    public static <T> FlowableTransformer<T, T> journal(EventJournal<T> journal) {
+        return upstream -> upstream
+                .doOnNext(journal::append)
+                .doFinally(journal::flush);
+    }
+
+    /**
+     * Appends one event and returns its offset. The record is visible to replays immediately and durable
+     * after the next group commit.
+     */
+    public synchronized long append(T value) {
+        if (closed) {
+            throw new IllegalStateException("Journal is closed: " + settings.directory());
+        }
+        int length = write(active, value);
+        if (length < 0 && active.count > 0) {
+            roll();
+            length = write(active, value);
+        }
+        if (length < 0) {
+            throw new IllegalArgumentException(
+                    "Event does not fit in a journal segment of " + settings.segmentBytes() + " bytes");
+        }
+
+        Segment segment = active;
+        int position = segment.size;
+        segment.index(segment.count, position, settings.indexInterval());
+        long offset = segment.baseOffset + segment.count;
+        segment.size = position + HEADER_BYTES + length; // Publishes the record to replays reading by position
+        segment.count++; // ... and then to replays looking it up by offset
+
+        if (++uncommitted >= settings.commitBatch()) {
+            commit();
+        }
+        return offset;
+    }
+
+    /**
+     * Forces every appended record to disk.
+     */
+    public synchronized void flush() {
+        if (!closed && uncommitted > 0) {
+            commit();
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            // Thrown out of a scheduled task it would cancel every later flush
+            logger.error("Journal flush failed in {}: {}", settings.directory(), e.toString());
+        }
+    }
+
+    /**
+     * Replays the journal from {@code fromOffset} up to the last record appended by the time the replay
+     * gets there. Offsets before the first retained record start at that record. A replay that falls so far
+     * behind that the segment after its current one was deleted fails with an {@link IllegalStateException}.
+     */
+    public Flowable<T> replay(long fromOffset) {
+        return Flowable.generate(() -> new Cursor(fromOffset), (cursor, emitter) -> {
+            T value = cursor.next();
+            if (value != null) {
+                emitter.onNext(value);
+            } else {
+                emitter.onComplete();
+            }
+        }, Cursor::close);
+    }
+
+    public long firstOffset() {
+        return segments[0].baseOffset;
+    }
+
+    /**
+     * Offset the next appended event will get.
+     */
+    public long nextOffset() {
+        Segment last = segments[segments.length - 1];
+        return last.baseOffset + last.count;
+    }
+
+    public int segmentCount() {
+        return segments.length;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        if (flusher != null) {
+            flusher.shutdown();
+        }
+        flush();
+        closed = true;
+        for (Segment segment : segments) {
+            segment.retire(false);
+        }
+        logger.info("Journal closed in {}, next offset {}", settings.directory(), nextOffset());
+    }
+
+    /**
+     * Encodes the record after the last one in the segment, without publishing it.
+     *
+     * @return the payload length, or -1 if the segment has no room left
+     */
+    private int write(Segment segment, T value) {
+        int start = segment.size;
+        if (start + HEADER_BYTES > settings.segmentBytes()) {
+            return -1;
+        }
+        ByteBuffer target = segment.buffer.duplicate().position(start + HEADER_BYTES);
+        try {
+            codec.encode(value, target);
+        } catch (BufferOverflowException e) {
+            return -1;
+        }
+        int length = target.position() - start - HEADER_BYTES;
+        segment.buffer.putInt(start, length);
+        segment.buffer.putInt(start + 4, checksum(writeCrc, segment.buffer, start, length));
+        return length;
+    }
+
+    private void roll() {
+        commit();
+        Segment next;
+        try {
+            next = Segment.create(settings.directory(), active.baseOffset + active.count, settings.segmentBytes());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not roll journal segment in " + settings.directory(), e);
+        }
+        Segment[] current = segments;
+        Segment[] rolled = Arrays.copyOf(current, current.length + 1);
+        rolled[current.length] = next;
+        segments = rolled;
+        active = next;
+        committedPosition = 0;
+        logger.debug("Journal rolled to segment {}", next.path.getFileName());
+        retain();
+    }
+
+    /**
+     * Deletes the oldest segments beyond {@link Settings#retainedSegments()}. They leave {@link #segments} first,
+     * so no new replay can pick them up once they are retired.
+     */
+    private void retain() {
+        Segment[] current = segments;
+        int excess = settings.retainedSegments() == 0 ? 0 : current.length - settings.retainedSegments();
+        if (excess <= 0) {
+            return;
+        }
+        segments = Arrays.copyOfRange(current, excess, current.length);
+        for (int i = 0; i < excess; i++) {
+            current[i].retire(true);
+            logger.debug("Journal deleted segment {}", current[i].path.getFileName());
+        }
+    }
+
+    private void commit() {
+        int end = active.size;
+        if (end > committedPosition) {
+            active.buffer.force(committedPosition, end - committedPosition);
+            committedPosition = end;
+        }
+        uncommitted = 0;
+    }
+
+    private Segment[] recover() throws IOException {
+        List<Path> paths;
+        try (Stream<Path> files = Files.list(settings.directory())) {
+            paths = files.filter(path -> path.getFileName().toString().endsWith(SEGMENT_SUFFIX)).sorted().toList();
+        }
+        if (paths.isEmpty()) {
+            return new Segment[]{Segment.create(settings.directory(), 0, settings.segmentBytes())};
+        }
+
+        List<Segment> recovered = new ArrayList<>(paths.size());
+        CRC32C crc = new CRC32C();
+        for (Path path : paths) {
+            Segment segment = Segment.open(path, settings.segmentBytes());
+            scan(segment, crc);
+            recovered.add(segment);
+        }
+        // Anything after the last valid record is a torn write; clear it so it can never be mistaken for data
+        Segment last = recovered.get(recovered.size() - 1);
+        byte[] zeros = new byte[8192];
+        for (int i = last.size; i < last.buffer.capacity(); i += zeros.length) {
+            last.buffer.put(i, zeros, 0, Math.min(zeros.length, last.buffer.capacity() - i));
+        }
+        return recovered.toArray(Segment[]::new);
+    }
+
+    private void scan(Segment segment, CRC32C crc) {
+        ByteBuffer buffer = segment.buffer;
+        int position = 0;
+        while (position + HEADER_BYTES <= buffer.capacity()) {
+            int length = buffer.getInt(position);
+            if (length < 0 || length > buffer.capacity() - position - HEADER_BYTES
+                    || buffer.getInt(position + 4) != checksum(crc, buffer, position, length)) {
+                break;
+            }
+            segment.index(segment.count, position, settings.indexInterval());
+            segment.count++;
+            position += HEADER_BYTES + length;
+        }
+        segment.size = position;
+    }
+
+    /**
+     * CRC32C of the length field and the payload, so an all-zero header never validates.
+     */
+    private static int checksum(CRC32C crc, ByteBuffer buffer, int start, int length) {
+        crc.reset();
+        crc.update(buffer.slice(start, 4));
+        crc.update(buffer.slice(start + HEADER_BYTES, length));
+        return (int) crc.getValue();
+    }
+
+    /**
+     * One memory-mapped segment file. {@code size} and {@code count} are written by the appender only, in
+     * that order, so a replay that sees a record count also sees the bytes and index entries behind it.
+     * <p>
+     * Replays pin the segment they read. Once retired, it cannot be pinned any more, and the last of its pins
+     * to go, or the retirement itself if there are none, unmaps it: reading an unmapped buffer crashes the JVM.
+     */
+    private static final class Segment {
+        private static final int RETIRED = Integer.MIN_VALUE; // Added to pins, which then stay negative
+
+        private final Path path;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private final long baseOffset;
+        private int[] positions = new int[16]; // Sparse index: position of every indexInterval-th record
+        private volatile int count;
+        private volatile int size;
+        private final AtomicInteger pins = new AtomicInteger();
+        private volatile boolean deleteOnRelease;
+
+        private Segment(Path path, FileChannel channel, MappedByteBuffer buffer, long baseOffset) {
+            this.path = path;
+            this.channel = channel;
+            this.buffer = buffer;
+            this.baseOffset = baseOffset;
+        }
+
+        static Segment create(Path directory, long baseOffset, int segmentBytes) throws IOException {
+            return open(directory.resolve(String.format("%020d%s", baseOffset, SEGMENT_SUFFIX)), segmentBytes);
+        }
+
+        static Segment open(Path path, int segmentBytes) throws IOException {
+            String name = path.getFileName().toString();
+            long baseOffset = Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+            FileChannel channel = FileChannel.open(path,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            // Segments written with a larger size keep it, the records already in them must stay readable
+            long mappedBytes = Math.max(segmentBytes, channel.size());
+            return new Segment(path, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, mappedBytes), baseOffset);
+        }
+
+        void index(int relativeOffset, int position, int interval) {
+            if (relativeOffset % interval != 0) {
+                return;
+            }
+            int slot = relativeOffset / interval;
+            int[] current = positions;
+            if (slot == current.length) {
+                current = Arrays.copyOf(current, current.length * 2);
+            }
+            current[slot] = position;
+            positions = current; // Published to replays by the volatile writes that follow
+        }
+
+        /**
+         * Position of the closest indexed record at or before the relative offset.
+         */
+        int floorPosition(int relativeOffset, int interval) {
+            return positions[relativeOffset / interval];
+        }
+
+        /**
+         * @return false if the segment was retired
+         */
+        boolean pin() {
+            for (int current = pins.get(); current >= 0; current = pins.get()) {
+                if (pins.compareAndSet(current, current + 1)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        void unpin() {
+            if (pins.decrementAndGet() == RETIRED) {
+                release();
+            }
+        }
+
+        /**
+         * @param delete whether to delete the file too, rather than only unmap it
+         */
+        void retire(boolean delete) {
+            deleteOnRelease = delete;
+            if (pins.getAndAdd(RETIRED) == 0) {
+                release();
+            }
+        }
+
+        private void release() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                logger.warn("Could not close journal segment {}: {}", path, e.getMessage());
+            }
+            unmap(buffer);
+            if (deleteOnRelease) {
+                try {
+                    Files.deleteIfExists(path);
+                } catch (IOException e) {
+                    logger.warn("Could not delete journal segment {}: {}", path, e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * {@code Unsafe.invokeCleaner}, which unmaps a buffer at once; null where the JDK does not offer it, and the
+     * mapping then goes with the buffer. Java 21 has no public API for this outside the preview FFM API.
+     */
+    private static final MethodHandle INVOKE_CLEANER = invokeCleaner();
+
+    private static MethodHandle invokeCleaner() {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            return MethodHandles.lookup()
+                    .findVirtual(unsafeClass, "invokeCleaner", MethodType.methodType(void.class, ByteBuffer.class))
+                    .bindTo(theUnsafe.get(null));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            logger.info("Journal segments are unmapped by the garbage collector: {}", e.toString());
+            return null;
+        }
+    }
+
+    private static void unmap(MappedByteBuffer buffer) {
+        if (INVOKE_CLEANER == null) {
+            return;
+        }
+        try {
+            INVOKE_CLEANER.invokeExact((ByteBuffer) buffer);
+        } catch (Throwable e) {
+            logger.warn("Could not unmap journal segment: {}", e.toString());
+        }
+    }
+
+    /**
+     * Read position of one replay. Reads through its own view of each mapping, and keeps the segment it is on
+     * pinned until it moves on or is closed.
+     */
+    private final class Cursor {
+        private Segment[] snapshot;
+        private int segmentIndex;
+        private Segment pinned; // Null once closed
+        private ByteBuffer view;
+        private int position;
+
+        Cursor(long fromOffset) {
+            snapshot = segments;
+            long offset = Math.max(fromOffset, snapshot[0].baseOffset);
+            segmentIndex = floorSegment(snapshot, offset);
+            while (!snapshot[segmentIndex].pin()) {
+                Segment[] current = segments;
+                if (current == snapshot) {
+                    throw new IllegalStateException("Journal is closed: " + settings.directory());
+                }
+                snapshot = current; // Deleted in between: start over on what is retained now
+                offset = Math.max(fromOffset, snapshot[0].baseOffset);
+                segmentIndex = floorSegment(snapshot, offset);
+            }
+            Segment segment = snapshot[segmentIndex];
+            pinned = segment;
+            int count = segment.count;
+            int relative = (int) Math.min(offset - segment.baseOffset, count);
+            view = segment.buffer.duplicate();
+            if (relative == 0) {
+                position = 0;
+                return;
+            }
+            // Walk from the closest indexed record; only records below count are known to be visible
+            int interval = settings.indexInterval();
+            int anchor = relative < count ? relative : relative - 1;
+            position = segment.floorPosition(anchor, interval);
+            for (int skip = relative - anchor / interval * interval; skip > 0; skip--) {
+                position += HEADER_BYTES + view.getInt(position);
+            }
+        }
+
+        T next() {
+            Segment segment = snapshot[segmentIndex];
+            while (position >= segment.size) {
+                if (segmentIndex == snapshot.length - 1) {
+                    // The appender may have rolled since, and retention shifted or dropped the older segments
+                    snapshot = segments;
+                    segmentIndex = indexOf(segment);
+                    if (segmentIndex == snapshot.length - 1) {
+                        return null;
+                    }
+                    if (position < segment.size) {
+                        break; // Records appended to this segment just before it rolled
+                    }
+                }
+                Segment following = snapshot[++segmentIndex];
+                if (following.baseOffset != segment.baseOffset + segment.count || !following.pin()) {
+                    throw new IllegalStateException("Replay fell behind the journal's retention, segment "
+                            + following.path.getFileName() + " does not follow "
+                            + segment.path.getFileName());
+                }
+                segment = following;
+                pinned.unpin();
+                pinned = segment;
+                view = segment.buffer.duplicate();
+                position = 0;
+            }
+            int length = view.getInt(position);
+            T value = codec.decode(view.slice(position + HEADER_BYTES, length));
+            position += HEADER_BYTES + length;
+            return value;
+        }
+
+        /**
+         * Index of the pinned {@code segment} in the refreshed snapshot, or -1 once retention removed it from the
+         * array, so that stepping forward lands on the oldest segment retained.
+         */
+        private int indexOf(Segment segment) {
+            int index = floorSegment(snapshot, segment.baseOffset);
+            return snapshot[index] == segment ? index : -1;
+        }
+
+        void close() {
+            if (pinned != null) {
+                pinned.unpin();
+                pinned = null;
+            }
+        }
+    }
+
+    private static int floorSegment(Segment[] segments, long offset) {
+        int low = 0;
+        int high = segments.length - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (segments[mid].baseOffset <= offset) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,247 @@
+package com.example.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.reactivex.rxjava3.core.Flowable;
+import io.reactivex.rxjava3.functions.Function;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Merges one stream per provider into a single Flowable.
+ * <p>
+ * At most {@link Settings#maxConcurrency()} streams are open at once; further providers are connected as running
+ * streams end. Each stream has its own bounded queue of {@link Settings#prefetch()} events and is only asked
+ * for more as its own events are consumed, so a fast provider cannot crowd out the others and a slow or stalled
+ * one holds back nothing but itself. A failed stream is reconnected with jittered exponential backoff; a provider
+ * that keeps failing is given up after {@link Settings#maxAttempts()} consecutive attempts without ending the merge.
+ * <p>
+ * Each subscription of a merge connects on its own and keeps its own attempts, state and rate per provider, so
+ * concurrent subscribers and a resubscribe do not share a retry budget. {@link #sources()} and the
+ * {@code consumer.fanin.*{source}} meters aggregate over the open subscriptions of each provider.
+ */
+public final class FanIn {
+
+    private static final Logger logger = LoggerFactory.getLogger(FanIn.class);
+
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    /**
+     * @param maxConcurrency provider streams open at the same time
+     * @param prefetch       events buffered and requested ahead per provider
+     * @param maxAttempts    consecutive failed connections before a provider is given up, 0 to never reconnect
+     * @param initialBackoff delay before the first reconnect
+     * @param maxBackoff     upper bound of the delay between two connections
+     */
+    public record Settings(int maxConcurrency, int prefetch, int maxAttempts, Duration initialBackoff,
+                           Duration maxBackoff) {
+
+        public static final Settings DEFAULT = new Settings(16, 128, 10, Duration.ofMillis(500), Duration.ofSeconds(30));
+    }
+
+    public enum State {
+        CONNECTING, UP, RECONNECTING, COMPLETED, FAILED
+    }
+
+    public record Health(String source, State state, long received, double eventsPerSecond, String lastError) {
+    }
+
+    private final Settings settings;
+    private final MeterRegistry registry;
+    private final ConcurrentMap<String, Source> sources = new ConcurrentHashMap<>();
+
+    public FanIn(Settings settings, MeterRegistry registry) {
+        this.settings = settings;
+        this.registry = registry;
+    }
+
+    /**
+     * @param providers provider base URLs, duplicates are ignored
+     * @param open      opens the stream of one provider
+     */
+    public <T> Flowable<T> merge(List<String> providers, Function<String, Flowable<T>> open) {
+        return Flowable.fromIterable(providers)
+                .distinct()
+                .flatMap(provider -> source(provider, open), false, settings.maxConcurrency(), settings.prefetch());
+    }
+
+    public Collection<Health> sources() {
+        return sources.values().stream().map(Source::health).toList();
+    }
+
+    private <T> Flowable<T> source(String provider, Function<String, Flowable<T>> open) {
+        Source source = sources.computeIfAbsent(provider, this::register);
+        return Flowable.defer(() -> {
+            Connection connection = source.connect();
+            return connect(provider, open, connection).doFinally(() -> source.disconnect(connection));
+        });
+    }
+
+    private <T> Flowable<T> connect(String provider, Function<String, Flowable<T>> open, Connection connection) {
+        return Flowable.defer(() -> {
+                    connection.connecting();
+                    return open.apply(provider);
+                })
+                .doOnNext(event -> connection.onNext())
+                .retryWhen(errors -> errors.concatMap(error -> {
+                    int attempt = connection.onError(error);
+                    if (attempt > settings.maxAttempts()) {
+                        return Flowable.error(error);
+                    }
+                    long delay = SseReconnect.backoff(attempt, settings.initialBackoff().toMillis(),
+                            settings.maxBackoff().toMillis());
+                    logger.warn("[FanIn] {} failed ({}), reconnecting in {} ms, attempt {}/{}",
+                            provider, error.toString(), delay, attempt, settings.maxAttempts());
+                    return Flowable.timer(delay, TimeUnit.MILLISECONDS);
+                }))
+                .doOnComplete(connection::completed)
+                .onErrorResumeNext(error -> {
+                    // Only this provider is given up, the others keep streaming
+                    connection.failed();
+                    logger.error("[FanIn] Giving up on {} after {} attempts: {}",
+                            provider, settings.maxAttempts(), error.toString());
+                    return Flowable.empty();
+                });
+    }
+
+    private Source register(String provider) {
+        Source source = new Source(provider, Counter.builder("consumer.fanin.received")
+                .tag("source", provider)
+                .register(registry));
+        Gauge.builder("consumer.fanin.up", source, s -> s.state() == State.UP ? 1 : 0)
+                .tag("source", provider)
+                .register(registry);
+        Gauge.builder("consumer.fanin.rate", source, Source::eventsPerSecond)
+                .tag("source", provider)
+                .baseUnit("events/s")
+                .register(registry);
+        return source;
+    }
+
+    /**
+     * Meters of one provider and its open connections, one per subscription of a merge; read from any thread.
+     */
+    private static final class Source {
+        private final String provider;
+        private final Counter received;
+        private final Set<Connection> connections = ConcurrentHashMap.newKeySet();
+        private volatile State lastState = State.CONNECTING; // Of the last connection closed
+        private volatile String lastError;
+
+        Source(String provider, Counter received) {
+            this.provider = provider;
+            this.received = received;
+        }
+
+        Connection connect() {
+            Connection connection = new Connection(this);
+            connections.add(connection);
+            return connection;
+        }
+
+        /**
+         * A connection closed by a cancelled subscription counts as completed.
+         */
+        void disconnect(Connection connection) {
+            lastState = connection.state == State.FAILED ? State.FAILED : State.COMPLETED;
+            connections.remove(connection);
+        }
+
+        /**
+         * The best state of the open connections: up if any is, else reconnecting, else connecting; that of the last
+         * connection closed once none is open.
+         */
+        State state() {
+            State best = null;
+            for (Connection connection : connections) {
+                State state = connection.state;
+                if (state == State.UP) {
+                    return State.UP;
+                }
+                if (best == null || state == State.RECONNECTING) {
+                    best = state;
+                }
+            }
+            return best != null ? best : lastState;
+        }
+
+        double eventsPerSecond() {
+            double sum = 0;
+            for (Connection connection : connections) {
+                sum += connection.eventsPerSecond();
+            }
+            return sum;
+        }
+
+        Health health() {
+            return new Health(provider, state(), (long) received.count(), eventsPerSecond(), lastError);
+        }
+    }
+
+    /**
+     * One subscription's connection to a provider, across its reconnects. Its events and errors are serialized;
+     * state and rate may be read from any thread.
+     */
+    private static final class Connection {
+        private final Source source;
+        private volatile State state = State.CONNECTING;
+        private volatile double eventsPerSecond;
+        private volatile long windowStartNanos = System.nanoTime();
+        private long windowCount;
+        private int attempts;
+
+        Connection(Source source) {
+            this.source = source;
+        }
+
+        void connecting() {
+            if (state != State.RECONNECTING) {
+                state = State.CONNECTING;
+            }
+        }
+
+        void onNext() {
+            source.received.increment();
+            attempts = 0;
+            state = State.UP;
+            windowCount++;
+            long now = System.nanoTime();
+            long elapsed = now - windowStartNanos;
+            if (elapsed >= NANOS_PER_SECOND) {
+                eventsPerSecond = (double) windowCount * NANOS_PER_SECOND / elapsed;
+                windowStartNanos = now;
+                windowCount = 0;
+            }
+        }
+
+        int onError(Throwable error) {
+            state = State.RECONNECTING;
+            source.lastError = error.toString();
+            return ++attempts;
+        }
+
+        void completed() {
+            state = State.COMPLETED;
+        }
+
+        void failed() {
+            state = State.FAILED;
+        }
+
+        /**
+         * The rate of the last full second, or 0 once the provider has been quiet for longer than that.
+         */
+        double eventsPerSecond() {
+            return System.nanoTime() - windowStartNanos > 2 * NANOS_PER_SECOND ? 0 : eventsPerSecond;
+        }
+    }
+}
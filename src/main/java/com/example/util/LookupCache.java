@@ -0,0 +1,252 @@
+package com.example.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.reactivex.rxjava3.core.Maybe;
+import io.reactivex.rxjava3.core.Scheduler;
+import io.reactivex.rxjava3.core.Single;
+import io.reactivex.rxjava3.functions.Supplier;
+import io.reactivex.rxjava3.schedulers.Schedulers;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single-flight, short-lived cache of request/response lookups such as the current sensor reading.
+ * <ul>
+ *     <li>Concurrent subscribers to the same key while a request is in flight share that request (coalesced).</li>
+ *     <li>Its result, an empty Maybe included, is served for {@link Settings#ttl()} without a request (hit).</li>
+ *     <li>For another {@link Settings#staleWhileRevalidate()} the old result is still served at once, while one
+ *     request in the background refreshes it (stale).</li>
+ *     <li>Anything older, or never loaded, waits for a request (miss).</li>
+ * </ul>
+ * Errors are passed to every waiting subscriber and not cached. At most {@link Settings#maxEntries()} keys are
+ * kept, the least recently used evicted first. Requests in flight are kept as futures, so RxJava ({@link #maybe},
+ * {@link #single}) and Reactor ({@link #mono}) callers share them without converting between the two. Counts are
+ * published as {@code consumer.lookup.*{cache}} meters until the cache is closed.
+ */
+public final class LookupCache<K, V> implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(LookupCache.class);
+
+    private static final String PREFIX = "consumer.lookup.";
+
+    /**
+     * @param ttl                  how long a result is served as is
+     * @param staleWhileRevalidate how long after that it is still served while being refreshed, zero for never
+     * @param maxEntries           keys kept at most
+     */
+    public record Settings(Duration ttl, Duration staleWhileRevalidate, int maxEntries) {
+
+        public static final Settings DEFAULT = new Settings(Duration.ofSeconds(1), Duration.ofSeconds(5), 1024);
+
+        public Settings {
+            if (ttl.isNegative() || staleWhileRevalidate.isNegative() || maxEntries < 1) {
+                throw new IllegalArgumentException("Expected non-negative durations and at least one entry, ttl: "
+                        + ttl + ", staleWhileRevalidate: " + staleWhileRevalidate + ", maxEntries: " + maxEntries);
+            }
+        }
+    }
+
+    private record Entry<V>(Optional<V> value, long loadedNanos) {
+    }
+
+    private final String name;
+    private final long ttlNanos;
+    private final long staleNanos;
+    private final Scheduler clock;
+    private final Map<K, Entry<V>> entries; // Guarded by itself, in least recently used order
+    private final ConcurrentMap<K, CompletableFuture<Optional<V>>> inFlight = new ConcurrentHashMap<>();
+    private final MeterRegistry registry;
+    private final List<Meter> meters = new ArrayList<>();
+    private final Counter hits;
+    private final Counter stale;
+    private final Counter misses;
+    private final Counter coalesced;
+    private final Counter evictions;
+
+    public LookupCache(String name, Settings settings, MeterRegistry registry) {
+        this(name, settings, registry, Schedulers.computation());
+    }
+
+    /**
+     * @param clock time base of the ttl
+     */
+    public LookupCache(String name, Settings settings, MeterRegistry registry, Scheduler clock) {
+        this.name = name;
+        this.ttlNanos = settings.ttl().toNanos();
+        this.staleNanos = ttlNanos + settings.staleWhileRevalidate().toNanos();
+        this.clock = clock;
+        this.registry = registry;
+        Tags tags = Tags.of("cache", name);
+        this.hits = meter(Counter.builder(PREFIX + "hits").tags(tags).register(registry));
+        this.stale = meter(Counter.builder(PREFIX + "stale").tags(tags).register(registry));
+        this.misses = meter(Counter.builder(PREFIX + "misses").tags(tags).register(registry));
+        this.coalesced = meter(Counter.builder(PREFIX + "coalesced").tags(tags).register(registry));
+        this.evictions = meter(Counter.builder(PREFIX + "evictions").tags(tags).register(registry));
+        int maxEntries = settings.maxEntries();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                if (size() <= maxEntries) {
+                    return false;
+                }
+                evictions.increment();
+                return true;
+            }
+        };
+        meter(Gauge.builder(PREFIX + "size", entries, map -> {
+            synchronized (map) {
+                return map.size();
+            }
+        }).tags(tags).register(registry));
+    }
+
+    /**
+     * {@code loader} must succeed with a value; see {@link #maybe}.
+     */
+    public Single<V> single(K key, Supplier<Single<V>> loader) {
+        return maybe(key, () -> loader.get().toMaybe()).toSingle();
+    }
+
+    /**
+     * The result of {@code loader} for {@code key}, from the cache or a request shared with concurrent callers.
+     * Nothing happens until subscription, and every subscription looks the key up anew.
+     */
+    public Maybe<V> maybe(K key, Supplier<Maybe<V>> loader) {
+        Supplier<CompletionStage<Optional<V>>> request = () -> {
+            CompletableFuture<Optional<V>> result = new CompletableFuture<>();
+            loader.get().subscribe(value -> result.complete(Optional.of(value)), result::completeExceptionally,
+                    () -> result.complete(Optional.empty()));
+            return result;
+        };
+        return Maybe.defer(() -> {
+            Optional<V> cached = cached(key, request);
+            if (cached != null) {
+                return Maybe.fromOptional(cached);
+            }
+            return Maybe.fromCompletionStage(load(key, request, true)).flatMap(Maybe::fromOptional);
+        });
+    }
+
+    /**
+     * {@link #maybe} for Reactor callers; an empty {@code loader} result is cached as an empty Mono.
+     */
+    public Mono<V> mono(K key, java.util.function.Supplier<Mono<V>> loader) {
+        Supplier<CompletionStage<Optional<V>>> request = () -> loader.get()
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .toFuture();
+        return Mono.defer(() -> {
+            Optional<V> cached = cached(key, request);
+            if (cached != null) {
+                return Mono.justOrEmpty(cached);
+            }
+            // Cancelling one subscriber must not cancel the request the others wait for
+            return Mono.fromFuture(load(key, request, true), true).flatMap(Mono::justOrEmpty);
+        });
+    }
+
+    public void invalidate(K key) {
+        synchronized (entries) {
+            entries.remove(key);
+        }
+    }
+
+    /**
+     * Removes this cache's meters from the registry.
+     */
+    @Override
+    public void close() {
+        meters.forEach(registry::remove);
+    }
+
+    /**
+     * The value of a fresh or stale entry, starting a refresh in the background for a stale one; null when the key
+     * must be loaded.
+     */
+    private Optional<V> cached(K key, Supplier<CompletionStage<Optional<V>>> request) {
+        Entry<V> entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+        }
+        if (entry == null) {
+            return null;
+        }
+        long age = clock.now(TimeUnit.NANOSECONDS) - entry.loadedNanos();
+        if (age < ttlNanos) {
+            hits.increment();
+            return entry.value();
+        }
+        if (age < staleNanos) {
+            stale.increment();
+            load(key, request, false).whenComplete((value, error) -> {
+                if (error != null) {
+                    logger.warn("[Lookup {}] Refreshing {} failed: {}", name, key, error.getMessage());
+                }
+            });
+            return entry.value();
+        }
+        return null;
+    }
+
+    private CompletableFuture<Optional<V>> load(K key, Supplier<CompletionStage<Optional<V>>> request,
+                                                boolean counted) {
+        CompletableFuture<Optional<V>> result = new CompletableFuture<>();
+        CompletableFuture<Optional<V>> running = inFlight.putIfAbsent(key, result);
+        if (running != null) {
+            if (counted) {
+                coalesced.increment();
+            }
+            return running;
+        }
+        if (counted) {
+            misses.increment();
+        }
+        CompletionStage<Optional<V>> started;
+        try {
+            started = request.get();
+        } catch (Throwable error) {
+            started = CompletableFuture.failedFuture(error);
+        }
+        started.whenComplete((value, error) -> {
+            if (error == null) {
+                store(key, value); // Stored first, so no gap in between
+            }
+            inFlight.remove(key, result);
+            if (error == null) {
+                result.complete(value);
+            } else {
+                result.completeExceptionally(error);
+            }
+        });
+        return result;
+    }
+
+    private void store(K key, Optional<V> value) {
+        Entry<V> entry = new Entry<>(value, clock.now(TimeUnit.NANOSECONDS));
+        synchronized (entries) {
+            entries.put(key, entry);
+        }
+    }
+
+    private <M extends Meter> M meter(M meter) {
+        meters.add(meter);
+        return meter;
+    }
+}
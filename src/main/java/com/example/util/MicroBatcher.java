@@ -0,0 +1,270 @@
+package com.example.util;
+
+import io.reactivex.rxjava3.core.FlowableSubscriber;
+import io.reactivex.rxjava3.core.Scheduler;
+import io.reactivex.rxjava3.disposables.Disposable;
+import io.reactivex.rxjava3.exceptions.ProtocolViolationException;
+import io.reactivex.rxjava3.plugins.RxJavaPlugins;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscription;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Delivers a stream to a callback in batches: a batch is handed over once it holds {@link Settings#maxSize()}
+ * elements or its first element has waited {@link Settings#maxLatency()}, whichever comes first.
+ * <p>
+ * The callback runs on one worker of the given scheduler, one batch at a time and in order. Batch lists are
+ * pooled and reused once the callback returns. The upstream is asked for at most {@link Settings#prefetchBatches()}
+ * full batches ahead and for more only as the callback finishes batches, so a slow callback slows the stream down
+ * instead of piling up readings. Works on any Reactive Streams publisher, {@code Flowable} and {@code Flux} alike;
+ * {@link #subscribeFlux} does the same with Reactor's own operators and schedulers.
+ */
+public final class MicroBatcher<T> implements FlowableSubscriber<T>, Disposable {
+
+    /**
+     * @param maxSize         elements per batch
+     * @param maxLatency      longest an element waits for its batch to fill
+     * @param prefetchBatches full batches requested ahead of the callback
+     */
+    public record Settings(int maxSize, Duration maxLatency, int prefetchBatches) {
+
+        public static final Settings DEFAULT = new Settings(256, Duration.ofMillis(50), 2);
+
+        public Settings {
+            if (maxSize < 1 || prefetchBatches < 1 || maxLatency.isNegative() || maxLatency.isZero()) {
+                throw new IllegalArgumentException("Batch size, latency and prefetch must be positive, size: "
+                        + maxSize + ", latency: " + maxLatency + ", prefetch: " + prefetchBatches);
+            }
+        }
+    }
+
+    public interface BatchCallback<T> {
+
+        /**
+         * @param batch reused for a later batch once this returns: copy what must outlive the call
+         */
+        void onBatch(List<T> batch) throws Exception;
+
+        void onError(Throwable throwable);
+
+        default void onComplete() {
+        }
+    }
+
+    private static final Subscription CANCELLED = new Subscription() {
+        @Override
+        public void request(long n) {
+        }
+
+        @Override
+        public void cancel() {
+        }
+    };
+
+    private final Settings settings;
+    private final BatchCallback<T> callback;
+    private final Scheduler.Worker worker;
+    private final AtomicReference<Subscription> upstream = new AtomicReference<>(); // CANCELLED once disposed
+
+    // Guarded by this: the batch being filled, sealed batches waiting for the callback, and spare lists
+    private List<T> current;
+    private long currentSeq;
+    private final ArrayDeque<List<T>> ready = new ArrayDeque<>();
+    private final ArrayDeque<List<T>> pool = new ArrayDeque<>();
+    private Throwable error;
+    private boolean done;
+
+    private volatile boolean disposed;
+
+    private MicroBatcher(Settings settings, Scheduler scheduler, BatchCallback<T> callback) {
+        this.settings = settings;
+        this.callback = callback;
+        this.worker = scheduler.createWorker();
+    }
+
+    /**
+     * Subscribes to {@code source} and delivers it to {@code callback} on {@code scheduler}.
+     */
+    public static <T> MicroBatcher<T> subscribe(Publisher<T> source, Settings settings, Scheduler scheduler,
+                                                BatchCallback<T> callback) {
+        MicroBatcher<T> batcher = new MicroBatcher<>(settings, scheduler, callback);
+        source.subscribe(batcher);
+        return batcher;
+    }
+
+    /**
+     * Reactor counterpart of {@link #subscribe}: {@code bufferTimeout} with fair backpressure seals the batches and
+     * {@code publishOn} hands them to {@code callback} on one worker of {@code scheduler}, at most
+     * {@link Settings#prefetchBatches()} ahead. A failing callback cancels the stream and is passed to
+     * {@link BatchCallback#onError}.
+     */
+    public static <T> reactor.core.Disposable subscribeFlux(Flux<T> source, Settings settings,
+                                                            reactor.core.scheduler.Scheduler scheduler,
+                                                            BatchCallback<T> callback) {
+        Queue<List<T>> pool = new ConcurrentLinkedQueue<>(); // Filled on the worker, drained by the buffer
+        return source
+                .bufferTimeout(settings.maxSize(), settings.maxLatency(), scheduler, () -> {
+                    List<T> list = pool.poll();
+                    return list != null ? list : new ArrayList<>(settings.maxSize());
+                }, true)
+                .publishOn(scheduler, settings.prefetchBatches())
+                .subscribe(batch -> {
+                    try {
+                        callback.onBatch(batch);
+                    } catch (Exception e) {
+                        throw Exceptions.propagate(e);
+                    }
+                    batch.clear();
+                    if (pool.size() <= settings.prefetchBatches()) {
+                        pool.offer(batch);
+                    }
+                }, callback::onError, callback::onComplete);
+    }
+
+    @Override
+    public void onSubscribe(Subscription subscription) {
+        if (upstream.compareAndSet(null, subscription)) {
+            subscription.request((long) settings.maxSize() * settings.prefetchBatches());
+            return;
+        }
+        subscription.cancel();
+        if (upstream.get() != CANCELLED) {
+            RxJavaPlugins.onError(new ProtocolViolationException("Subscription already set!"));
+        }
+    }
+
+    @Override
+    public void onNext(T value) {
+        boolean sealed;
+        synchronized (this) {
+            if (current == null) {
+                current = acquire();
+                long seq = ++currentSeq;
+                // Only this batch is flushed by its timer, a later one has its own
+                worker.schedule(() -> flush(seq), settings.maxLatency().toNanos(), TimeUnit.NANOSECONDS);
+            }
+            current.add(value);
+            sealed = current.size() == settings.maxSize() && seal();
+        }
+        if (sealed) {
+            worker.schedule(this::drain);
+        }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        synchronized (this) {
+            seal();
+            error = throwable;
+            done = true;
+        }
+        worker.schedule(this::drain);
+    }
+
+    @Override
+    public void onComplete() {
+        synchronized (this) {
+            seal();
+            done = true;
+        }
+        worker.schedule(this::drain);
+    }
+
+    @Override
+    public void dispose() {
+        disposed = true;
+        Subscription subscription = upstream.getAndSet(CANCELLED);
+        if (subscription != null && subscription != CANCELLED) {
+            subscription.cancel();
+        }
+        worker.dispose();
+    }
+
+    @Override
+    public boolean isDisposed() {
+        return disposed;
+    }
+
+    private void flush(long seq) {
+        synchronized (this) {
+            if (seq != currentSeq || !seal()) {
+                return; // Already sealed by size
+            }
+        }
+        drain();
+    }
+
+    /**
+     * Runs on the worker only, so batches reach the callback one at a time.
+     */
+    private void drain() {
+        while (!disposed) {
+            List<T> batch;
+            Throwable terminalError;
+            boolean terminated;
+            synchronized (this) {
+                batch = ready.poll();
+                terminalError = error;
+                terminated = done && batch == null && current == null;
+            }
+            if (batch == null) {
+                if (terminated) {
+                    disposed = true;
+                    worker.dispose();
+                    if (terminalError != null) {
+                        callback.onError(terminalError);
+                    } else {
+                        callback.onComplete();
+                    }
+                }
+                return;
+            }
+            int size = batch.size();
+            try {
+                callback.onBatch(batch);
+            } catch (Throwable throwable) {
+                dispose();
+                callback.onError(throwable);
+                return;
+            }
+            synchronized (this) {
+                release(batch);
+            }
+            upstream.get().request(size); // Room for as many as the callback just took
+        }
+    }
+
+    /**
+     * Moves the batch being filled to the ready queue; called holding the lock.
+     */
+    private boolean seal() {
+        if (current == null || current.isEmpty()) {
+            return false;
+        }
+        ready.add(current);
+        current = null;
+        return true;
+    }
+
+    private List<T> acquire() {
+        List<T> list = pool.poll();
+        return list != null ? list : new ArrayList<>(settings.maxSize());
+    }
+
+    private void release(List<T> batch) {
+        batch.clear();
+        if (pool.size() <= settings.prefetchBatches()) {
+            pool.add(batch);
+        }
+    }
+}
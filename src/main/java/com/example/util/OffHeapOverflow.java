@@ -0,0 +1,152 @@
+package com.example.util;
+
+import io.reactivex.rxjava3.core.BackpressureOverflowStrategy;
+import io.reactivex.rxjava3.core.FlowableTransformer;
+import io.reactivex.rxjava3.exceptions.MissingBackpressureException;
+import org.reactivestreams.Subscriber;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+/**
+ * Overflow strategy for fast producers: like {@code onBackpressureBuffer}, but only a small queue stays
+ * on the heap. Once it is full, further events are serialized into a bounded off-heap {@link OffHeapRing}
+ * and decoded again, in order, as downstream demand returns. Bursts are absorbed without growing the heap.
+ * <p>
+ * When the ring itself is full the {@link Settings#policy()} decides: {@code ERROR} fails the stream with
+ * a {@link MissingBackpressureException} (nothing is lost silently), {@code DROP_LATEST} discards the
+ * incoming event, {@code DROP_OLDEST} evicts the oldest spilled events to make room.
+ */
+public final class OffHeapOverflow {
+
+    private static final Logger logger = LoggerFactory.getLogger(OffHeapOverflow.class);
+
+    private static final int INITIAL_SCRATCH_BYTES = 512;
+
+    private OffHeapOverflow() {
+    }
+
+    /**
+     * @param onHeapCapacity number of events kept on the heap before spilling
+     * @param offHeapBytes   size of the off-heap ring, allocated on the first spill
+     * @param policy         what to do when the ring is full
+     */
+    public record Settings(int onHeapCapacity, int offHeapBytes, BackpressureOverflowStrategy policy) {
+    }
+
+    public static <T> FlowableTransformer<T, T> spill(Settings settings, EventCodec<T> codec) {
+        return upstream -> upstream.lift(downstream -> new SpillSubscriber<>(downstream, settings, codec));
+    }
+
+    static final class SpillSubscriber<T> extends OverflowSubscriber<T> {
+        private final Settings settings;
+        private final EventCodec<T> codec;
+        private final ArrayDeque<T> heap = new ArrayDeque<>();
+        private final OffHeapRing ring;
+        private ByteBuffer encodeScratch = ByteBuffer.allocate(INITIAL_SCRATCH_BYTES);
+        private ByteBuffer decodeScratch = ByteBuffer.allocate(INITIAL_SCRATCH_BYTES);
+        private long spilled;
+        private long dropped;
+
+        SpillSubscriber(Subscriber<? super T> downstream, Settings settings, EventCodec<T> codec) {
+            super(downstream);
+            this.settings = settings;
+            this.codec = codec;
+            this.ring = new OffHeapRing(settings.offHeapBytes());
+        }
+
+        @Override
+        protected synchronized boolean offer(T value) {
+            // Once anything is spilled, newer events must queue behind it to keep arrival order
+            if (ring.isEmpty() && heap.size() < settings.onHeapCapacity()) {
+                heap.offer(value);
+                return true;
+            }
+
+            ByteBuffer record = encode(value);
+            if (ring.offer(record)) {
+                if (spilled++ == 0) {
+                    logger.info("On-heap overflow queue full ({} events), spilling off-heap", settings.onHeapCapacity());
+                }
+                return true;
+            }
+
+            switch (settings.policy()) {
+                case DROP_LATEST -> {
+                    dropped(1);
+                    return true;
+                }
+                case DROP_OLDEST -> {
+                    while (!ring.offer(record)) {
+                        if (!ring.dropOldest()) {
+                            dropped(1); // Larger than the whole ring
+                            return true;
+                        }
+                        dropped(1);
+                        record.rewind();
+                    }
+                    return true;
+                }
+                default -> {
+                    return false;
+                }
+            }
+        }
+
+        @Override
+        protected synchronized T poll() {
+            T value = heap.poll();
+            if (value != null) {
+                return value;
+            }
+            ByteBuffer record = ring.poll(decodeScratch);
+            if (record == null) {
+                return null;
+            }
+            if (record != decodeScratch && record.capacity() > decodeScratch.capacity()) {
+                decodeScratch = record;
+            }
+            return codec.decode(record);
+        }
+
+        @Override
+        protected synchronized boolean isEmpty() {
+            return heap.isEmpty() && ring.isEmpty();
+        }
+
+        @Override
+        protected synchronized void clear() {
+            heap.clear();
+            ring.clear();
+        }
+
+        @Override
+        protected Throwable overflowError() {
+            return new MissingBackpressureException("Off-heap overflow buffer is full (" + settings.offHeapBytes()
+                    + " bytes, " + ring.count() + " events)");
+        }
+
+        private ByteBuffer encode(T value) {
+            while (true) {
+                encodeScratch.clear();
+                try {
+                    codec.encode(value, encodeScratch);
+                    return encodeScratch.flip();
+                } catch (BufferOverflowException e) {
+                    encodeScratch = ByteBuffer.allocate(encodeScratch.capacity() * 2);
+                }
+            }
+        }
+
+        private void dropped(long count) {
+            if (dropped == 0) {
+                logger.warn("Off-heap overflow buffer full ({} bytes), dropping events with policy {}",
+                        settings.offHeapBytes(), settings.policy());
+            }
+            dropped += count;
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.example.util;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Bounded FIFO of length-prefixed byte records in a direct (off-heap) ring buffer.
+ * The direct buffer is only allocated on the first {@link #offer}, so an idle ring costs nothing.
+ * <p>
+ * Not thread-safe; callers guard it.
+ */
+public final class OffHeapRing {
+
+    private static final int LENGTH_PREFIX = Integer.BYTES;
+
+    private final int capacity;
+    private ByteBuffer buffer;
+    private long head; // Absolute byte positions, wrapped with % capacity on access
+    private long tail;
+    private int count;
+
+    public OffHeapRing(int capacityBytes) {
+        this.capacity = capacityBytes;
+    }
+
+    /**
+     * Appends the record's remaining bytes.
+     *
+     * @return false, leaving the ring untouched, when the record does not fit in the free space
+     */
+    public boolean offer(ByteBuffer record) {
+        int length = record.remaining();
+        if ((long) LENGTH_PREFIX + length > capacity - usedBytes()) {
+            return false;
+        }
+        if (buffer == null) {
+            buffer = ByteBuffer.allocateDirect(capacity);
+        }
+        putInt(tail, length);
+        put(tail + LENGTH_PREFIX, record, length);
+        tail += LENGTH_PREFIX + length;
+        count++;
+        return true;
+    }
+
+    /**
+     * Removes the oldest record and copies it into {@code scratch}, or into a larger heap buffer when
+     * it does not fit.
+     *
+     * @return a buffer positioned on the record (flipped), or null when the ring is empty
+     */
+    public ByteBuffer poll(ByteBuffer scratch) {
+        if (count == 0) {
+            return null;
+        }
+        int length = getInt(head);
+        ByteBuffer target = scratch.capacity() >= length ? scratch : ByteBuffer.allocate(length);
+        target.clear();
+        get(head + LENGTH_PREFIX, target, length);
+        target.limit(length);
+        head += LENGTH_PREFIX + length;
+        count--;
+        return target;
+    }
+
+    /**
+     * Discards the oldest record.
+     *
+     * @return false when the ring was already empty
+     */
+    public boolean dropOldest() {
+        if (count == 0) {
+            return false;
+        }
+        head += LENGTH_PREFIX + getInt(head);
+        count--;
+        return true;
+    }
+
+    public void clear() {
+        head = tail = 0;
+        count = 0;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    public int count() {
+        return count;
+    }
+
+    public long usedBytes() {
+        return tail - head;
+    }
+
+    public int capacityBytes() {
+        return capacity;
+    }
+
+    private int index(long position) {
+        return (int) (position % capacity);
+    }
+
+    private void putInt(long position, int value) {
+        for (int i = 0; i < LENGTH_PREFIX; i++) {
+            buffer.put(index(position + i), (byte) (value >>> (24 - 8 * i)));
+        }
+    }
+
+    private int getInt(long position) {
+        int value = 0;
+        for (int i = 0; i < LENGTH_PREFIX; i++) {
+            value = (value << 8) | (buffer.get(index(position + i)) & 0xFF);
+        }
+        return value;
+    }
+
+    private void put(long position, ByteBuffer source, int length) {
+        int start = index(position);
+        int first = Math.min(length, capacity - start);
+        buffer.put(start, source, source.position(), first);
+        buffer.put(0, source, source.position() + first, length - first);
+    }
+
+    private void get(long position, ByteBuffer target, int length) {
+        int start = index(position);
+        int first = Math.min(length, capacity - start);
+        target.put(0, buffer, start, first);
+        target.put(first, buffer, 0, length - first);
+    }
+}
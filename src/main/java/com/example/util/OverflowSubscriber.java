@@ -0,0 +1,201 @@
+package com.example.util;
+
+import io.reactivex.rxjava3.core.FlowableSubscriber;
+import io.reactivex.rxjava3.exceptions.ProtocolViolationException;
+import io.reactivex.rxjava3.plugins.RxJavaPlugins;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Queue-drain skeleton for overflow strategies: consumes upstream without limit, parks what downstream
+ * has not requested yet in a subclass-defined store, and drains it in order as demand arrives.
+ * Terminal signals are delivered after everything still stored.
+ * <p>
+ * {@link #offer} and {@link #poll} may run concurrently (producer vs. requesting thread); subclasses
+ * synchronize their store accordingly.
+ */
+abstract class OverflowSubscriber<T> extends AtomicInteger implements FlowableSubscriber<T>, Subscription {
+
+    protected final Subscriber<? super T> downstream;
+    private final AtomicLong requested = new AtomicLong();
+    private Subscription upstream;
+    private volatile boolean done;
+    private volatile boolean cancelled;
+    private Throwable error;
+
+    OverflowSubscriber(Subscriber<? super T> downstream) {
+        this.downstream = downstream;
+    }
+
+    /**
+     * Stores a value for later delivery.
+     *
+     * @return false when the value cannot be stored and the stream must fail
+     */
+    protected abstract boolean offer(T value);
+
+    /**
+     * @return the next value in arrival order, or null when nothing is stored
+     */
+    protected abstract T poll();
+
+    protected abstract boolean isEmpty();
+
+    protected abstract void clear();
+
+    /**
+     * The error the stream fails with when {@link #offer} refuses a value.
+     */
+    protected abstract Throwable overflowError();
+
+    /**
+     * Called when the downstream is about to receive a value; overridable for instrumentation.
+     */
+    protected void onDeliver(T value) {
+    }
+
+    @Override
+    public void onSubscribe(Subscription s) {
+        if (upstream != null) {
+            s.cancel();
+            RxJavaPlugins.onError(new ProtocolViolationException("Subscription already set!"));
+            return;
+        }
+        upstream = s;
+        downstream.onSubscribe(this);
+        s.request(Long.MAX_VALUE);
+    }
+
+    @Override
+    public void onNext(T value) {
+        if (done) {
+            return;
+        }
+        if (!offer(value)) {
+            upstream.cancel();
+            onError(overflowError());
+            return;
+        }
+        drain();
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        error = t;
+        done = true;
+        drain();
+    }
+
+    @Override
+    public void onComplete() {
+        done = true;
+        drain();
+    }
+
+    @Override
+    public void request(long n) {
+        if (n <= 0L) {
+            RxJavaPlugins.onError(new IllegalArgumentException("n > 0 required but it was " + n));
+            return;
+        }
+        addCap(requested, n);
+        drain();
+    }
+
+    @Override
+    public void cancel() {
+        if (!cancelled) {
+            cancelled = true;
+            upstream.cancel();
+            if (getAndIncrement() == 0) {
+                clear();
+            }
+        }
+    }
+
+    private void drain() {
+        if (getAndIncrement() != 0) {
+            return;
+        }
+        int missed = 1;
+        for (; ; ) {
+            long r = requested.get();
+            long e = 0L;
+            while (e != r) {
+                if (cancelled) {
+                    clear();
+                    return;
+                }
+                boolean d = done;
+                T value = poll();
+                if (value == null) {
+                    if (d) {
+                        terminate();
+                        return;
+                    }
+                    break;
+                }
+                onDeliver(value);
+                downstream.onNext(value);
+                e++;
+            }
+            if (e == r) {
+                if (cancelled) {
+                    clear();
+                    return;
+                }
+                if (done && isEmpty()) {
+                    terminate();
+                    return;
+                }
+            }
+            if (e != 0L) {
+                produced(requested, e);
+            }
+            missed = addAndGet(-missed);
+            if (missed == 0) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Adds {@code n} to the outstanding demand, capped at {@link Long#MAX_VALUE}, which stands for unbounded.
+     */
+    static void addCap(AtomicLong requested, long n) {
+        for (; ; ) {
+            long current = requested.get();
+            if (current == Long.MAX_VALUE) {
+                return;
+            }
+            long next = current + n;
+            if (requested.compareAndSet(current, next < 0L ? Long.MAX_VALUE : next)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Subtracts {@code n} delivered values from the outstanding demand, unless it is unbounded.
+     */
+    static void produced(AtomicLong requested, long n) {
+        for (; ; ) {
+            long current = requested.get();
+            if (current == Long.MAX_VALUE || requested.compareAndSet(current, current - n)) {
+                return;
+            }
+        }
+    }
+
+    private void terminate() {
+        Throwable t = error;
+        if (t != null) {
+            downstream.onError(t);
+        } else {
+            downstream.onComplete();
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.util;
+
+import io.reactivex.rxjava3.core.Flowable;
+import io.reactivex.rxjava3.core.FlowableTransformer;
+import io.reactivex.rxjava3.core.Observable;
+import io.reactivex.rxjava3.core.ObservableTransformer;
+import org.slf4j.Logger;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * Hot-path replacement for {@code doOnNext(data -> logger.info("... Received sensor data: {}", data))}.
+ * <p>
+ * Only sampled elements are formatted and logged: every {@link Settings#everyNth()} element, at most
+ * {@link Settings#perSecond()} per second, or both. Every {@link Settings#summaryInterval()} a summary line with
+ * the element count and rate is logged instead, and a last one when the stream terminates. Together with an
+ * asynchronous appender (see {@code logback-spring.xml}) the emitting thread does almost no logging work.
+ * <p>
+ * State is per subscription; elements arrive serialized, so it needs no synchronization.
+ */
+public final class SampledLog {
+
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private SampledLog() {
+    }
+
+    /**
+     * @param everyNth        log one element out of N, 0 or 1 for every element
+     * @param perSecond       log at most N elements per second, 0 for no limit
+     * @param summaryInterval time between two summary lines, zero for a summary at termination only
+     */
+    public record Settings(int everyNth, int perSecond, Duration summaryInterval) {
+
+        public static final Settings DEFAULT = new Settings(0, 10, Duration.ofSeconds(10));
+
+        /**
+         * Logs every element, as the services did before sampling.
+         */
+        public static final Settings ALL = new Settings(0, 0, Duration.ZERO);
+    }
+
+    public static <T> FlowableTransformer<T, T> flowable(Logger logger, String tag, Settings settings) {
+        return upstream -> Flowable.defer(() -> {
+            Sampler sampler = new Sampler(logger, tag, settings, System::nanoTime);
+            return upstream
+                    .doOnNext(sampler::onNext)
+                    .doFinally(sampler::finish);
+        });
+    }
+
+    public static <T> ObservableTransformer<T, T> observable(Logger logger, String tag, Settings settings) {
+        return upstream -> Observable.defer(() -> {
+            Sampler sampler = new Sampler(logger, tag, settings, System::nanoTime);
+            return upstream
+                    .doOnNext(sampler::onNext)
+                    .doFinally(sampler::finish);
+        });
+    }
+
+    public static <T> Function<Flux<T>, Flux<T>> flux(Logger logger, String tag, Settings settings) {
+        return upstream -> Flux.defer(() -> {
+            Sampler sampler = new Sampler(logger, tag, settings, System::nanoTime);
+            return upstream
+                    .doOnNext(sampler::onNext)
+                    .doFinally(signal -> sampler.finish());
+        });
+    }
+
+    static final class Sampler {
+        private final Logger logger;
+        private final String tag;
+        private final int everyNth;
+        private final int perSecond;
+        private final long summaryNanos;
+        private final long startNanos;
+        private final LongSupplier nanoTime;
+
+        private long count;
+        private long secondStartNanos;
+        private int permits;
+        private long summaryStartNanos;
+        private long summaryStartCount;
+
+        /**
+         * @param nanoTime time base of the rate limit and summaries, {@link System#nanoTime()} outside tests
+         */
+        Sampler(Logger logger, String tag, Settings settings, LongSupplier nanoTime) {
+            this.logger = logger;
+            this.nanoTime = nanoTime;
+            this.tag = tag;
+            this.everyNth = Math.max(settings.everyNth(), 1);
+            this.perSecond = settings.perSecond();
+            this.summaryNanos = settings.summaryInterval().toNanos();
+            this.startNanos = nanoTime.getAsLong();
+            this.secondStartNanos = startNanos;
+            this.permits = perSecond;
+            this.summaryStartNanos = startNanos;
+        }
+
+        void onNext(Object value) {
+            long n = ++count;
+            if (!logger.isInfoEnabled()) {
+                return;
+            }
+            boolean nth = everyNth == 1 || (n - 1) % everyNth == 0;
+            if (perSecond <= 0 && summaryNanos <= 0) {
+                if (nth) {
+                    logger.info("{} Received sensor data: {}", tag, value);
+                }
+                return;
+            }
+
+            long now = nanoTime.getAsLong();
+            if (nth && permit(now)) {
+                logger.info("{} Received sensor data: {}", tag, value);
+            }
+            if (summaryNanos > 0 && now - summaryStartNanos >= summaryNanos) {
+                long received = n - summaryStartCount;
+                logger.info("{} {} events received, {} in the last {} ms ({}/s)", tag, n, received,
+                        TimeUnit.NANOSECONDS.toMillis(now - summaryStartNanos), rate(received, now - summaryStartNanos));
+                summaryStartNanos = now;
+                summaryStartCount = n;
+            }
+        }
+
+        void finish() {
+            if (logger.isInfoEnabled() && (perSecond > 0 || summaryNanos > 0 || everyNth > 1)) {
+                long elapsed = nanoTime.getAsLong() - startNanos;
+                logger.info("{} {} events received in {} ms ({}/s)", tag, count,
+                        TimeUnit.NANOSECONDS.toMillis(elapsed), rate(count, elapsed));
+            }
+        }
+
+        private boolean permit(long now) {
+            if (perSecond <= 0) {
+                return true;
+            }
+            if (now - secondStartNanos >= NANOS_PER_SECOND) {
+                secondStartNanos = now;
+                permits = perSecond;
+            }
+            if (permits == 0) {
+                return false;
+            }
+            permits--;
+            return true;
+        }
+
+        private static long rate(long events, long nanos) {
+            return nanos <= 0 ? events : events * NANOS_PER_SECOND / nanos;
+        }
+    }
+}
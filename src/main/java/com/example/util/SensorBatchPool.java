@@ -0,0 +1,42 @@
+package com.example.util;
+
+import com.example.model.SensorBatch;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Bounded pool of equally sized {@link SensorBatch} instances.
+ * When the pool is empty a new batch is allocated; when it is full released batches are dropped.
+ */
+public class SensorBatchPool {
+
+    private final int batchCapacity;
+    private final BlockingQueue<SensorBatch> free;
+
+    public SensorBatchPool(int batchCapacity, int maxPooled) {
+        this.batchCapacity = batchCapacity;
+        this.free = new ArrayBlockingQueue<>(maxPooled);
+    }
+
+    public SensorBatch acquire() {
+        SensorBatch batch = free.poll();
+        if (batch == null) {
+            return new SensorBatch(batchCapacity, this);
+        }
+        batch.reacquire();
+        return batch;
+    }
+
+    /**
+     * Called by {@link SensorBatch#release()}, at most once per acquisition.
+     */
+    public void release(SensorBatch batch) {
+        batch.clear();
+        free.offer(batch);
+    }
+
+    public int batchCapacity() {
+        return batchCapacity;
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.util;
+
+import com.example.model.SensorBatch;
+import com.example.model.SensorData;
+import io.reactivex.rxjava3.core.Flowable;
+import io.reactivex.rxjava3.core.FlowableTransformer;
+
+public final class SensorBatches {
+
+    // Enough batches for one being filled, one in flight and a couple queued downstream
+    private static final int POOLED_BATCHES = 4;
+
+    private SensorBatches() {
+    }
+
+    /**
+     * Groups readings into pooled {@link SensorBatch}es of up to {@code batchSize} elements.
+     * The last batch may be partially filled. Each subscription gets its own pool.
+     */
+    public static FlowableTransformer<SensorData, SensorBatch> batches(int batchSize) {
+        return upstream -> Flowable.defer(() -> {
+            SensorBatchPool pool = new SensorBatchPool(batchSize, POOLED_BATCHES);
+            return upstream
+                    .window(batchSize) // One window per batch, not per reading
+                    .concatMapSingle(window -> window.collect(pool::acquire, SensorBatch::add));
+        });
+    }
+}
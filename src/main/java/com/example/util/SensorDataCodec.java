@@ -0,0 +1,67 @@
+package com.example.util;
+
+import com.example.model.SensorData;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Compact binary layout of a {@link SensorData}: the two readings and epoch millis as primitives,
+ * then the id and the raw timestamp as length-prefixed UTF-8 (length -1 for null).
+ */
+public final class SensorDataCodec implements EventCodec<SensorData> {
+
+    public static final SensorDataCodec INSTANCE = new SensorDataCodec();
+
+    private SensorDataCodec() {
+    }
+
+    @Override
+    public void encode(SensorData value, ByteBuffer target) {
+        target.putDouble(value.temperature());
+        target.putDouble(value.humidity());
+        target.putLong(value.epochMillis());
+        putString(value.id(), target);
+        putString(value.timestamp(), target);
+    }
+
+    @Override
+    public SensorData decode(ByteBuffer source) {
+        double temperature = source.getDouble();
+        double humidity = source.getDouble();
+        long epochMillis = source.getLong();
+        String id = getString(source);
+        String timestamp = getString(source);
+        if (id != null) {
+            id = SensorIdDictionary.shared().intern(id);
+        }
+        // The ordinal is looked up again from the id, it is only meaningful inside this process anyway
+        int ordinal = id != null ? SensorIdDictionary.shared().ordinalOf(id) : SensorIdDictionary.NO_ORDINAL;
+        return new SensorData(id, temperature, humidity, timestamp, epochMillis, ordinal);
+    }
+
+    private static void putString(String value, ByteBuffer target) {
+        if (value == null) {
+            target.putInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        target.putInt(bytes.length);
+        target.put(bytes);
+    }
+
+    private static String getString(ByteBuffer source) {
+        int length = source.getInt();
+        if (length < 0) {
+            return null;
+        }
+        if (source.hasArray()) {
+            String value = new String(source.array(), source.arrayOffset() + source.position(), length, StandardCharsets.UTF_8);
+            source.position(source.position() + length);
+            return value;
+        }
+        byte[] bytes = new byte[length];
+        source.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
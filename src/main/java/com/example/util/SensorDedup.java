@@ -0,0 +1,275 @@
+package com.example.util;
+
+import com.example.model.SensorData;
+import io.reactivex.rxjava3.core.Flowable;
+import io.reactivex.rxjava3.core.FlowableTransformer;
+import io.reactivex.rxjava3.core.Scheduler;
+import io.reactivex.rxjava3.functions.Consumer;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToLongFunction;
+
+/**
+ * Drops readings already seen, keyed on {@code (id, epochMillis)}, in bounded memory. Reconnects, retries and
+ * overlapping providers re-deliver readings; this keeps aggregation and persistence from repeating for them.
+ * <ul>
+ *     <li>{@link Order#ORDERED}: each sensor's timestamps only increase, so one high-water mark per sensor suffices,
+ *     indexed by {@link SensorData#sensorOrdinal()}. A reading at or below the mark is a duplicate. Exact.</li>
+ *     <li>{@link Order#UNORDERED}: merged or shuffled streams. Keys go into a Bloom filter rotated every half
+ *     {@link Settings#window()}, so a key is remembered for at least half a window and at most a whole one.
+ *     A new reading is taken for a duplicate with probability {@link Settings#falsePositiveRate()}.</li>
+ * </ul>
+ * Readings without a timestamp have no key and always pass; readings without an id share one key space.
+ * <p>
+ * State is per subscription with {@link #dedup}: concurrent subscribers do not filter each other and a resubscribe
+ * starts over. A {@link Memory} outlives subscriptions and is shared only where one stream explicitly resumes or
+ * replays another. {@link #events} keys raw event payloads on their content, for streams that are not decoded.
+ */
+public final class SensorDedup {
+
+    private SensorDedup() {
+    }
+
+    public enum Order {
+        ORDERED, UNORDERED
+    }
+
+    /**
+     * @param falsePositiveRate share of new readings wrongly dropped by the {@link Order#UNORDERED} filter
+     * @param expectedPerWindow readings expected per window, sizes the filter for that rate
+     * @param window            how long the filter remembers a key, at least half of it
+     */
+    public record Settings(double falsePositiveRate, int expectedPerWindow, Duration window) {
+
+        public static final Settings DEFAULT = new Settings(0.001, 100_000, Duration.ofMinutes(5));
+
+        public Settings {
+            if (falsePositiveRate <= 0 || falsePositiveRate >= 1 || expectedPerWindow < 1
+                    || window.isNegative() || window.isZero()) {
+                throw new IllegalArgumentException("Expected 0 < falsePositiveRate < 1 and a positive size and window, "
+                        + "rate: " + falsePositiveRate + ", expected: " + expectedPerWindow + ", window: " + window);
+            }
+        }
+    }
+
+    /**
+     * @param clock       time base of the {@link Order#UNORDERED} window
+     * @param onDuplicate called for each reading dropped
+     */
+    public static FlowableTransformer<SensorData, SensorData> dedup(Order order, Settings settings, Scheduler clock,
+                                                                    Consumer<SensorData> onDuplicate) {
+        return upstream -> Flowable.defer(() -> upstream.compose(readings(order, settings, clock).dedup(onDuplicate)));
+    }
+
+    /**
+     * State for readings that outlives subscriptions; every stream composed with it shares what was seen.
+     */
+    public static Memory<SensorData> readings(Order order, Settings settings, Scheduler clock) {
+        return new Memory<>(order == Order.ORDERED
+                ? new HighWaterMarks(settings, clock)
+                : new RotatingBloomFilter<>(settings, clock, SensorDedup::readingKey));
+    }
+
+    /**
+     * State for raw event payloads that outlives subscriptions: a payload equal to one seen within the window is
+     * a duplicate, as with {@link Order#UNORDERED}.
+     */
+    public static Memory<String> events(Settings settings, Scheduler clock) {
+        return new Memory<>(new RotatingBloomFilter<>(settings, clock, SensorDedup::payloadKey));
+    }
+
+    /**
+     * Seen keys shared by every stream composed with {@link #dedup(Consumer)}, concurrent ones included.
+     */
+    public static final class Memory<T> {
+        private final Filter<T> filter; // Guarded by itself
+
+        Memory(Filter<T> filter) {
+            this.filter = filter;
+        }
+
+        /**
+         * @param onDuplicate called for each value dropped
+         */
+        public FlowableTransformer<T, T> dedup(Consumer<T> onDuplicate) {
+            return upstream -> upstream.filter(value -> {
+                boolean firstSeen;
+                synchronized (filter) {
+                    firstSeen = filter.firstSeen(value);
+                }
+                if (!firstSeen) {
+                    onDuplicate.accept(value);
+                }
+                return firstSeen;
+            });
+        }
+    }
+
+    interface Filter<T> {
+        /**
+         * Records the value's key; false if it was recorded before.
+         */
+        boolean firstSeen(T value);
+    }
+
+    /**
+     * The {@code (id, epochMillis)} key, 0 for readings without a timestamp, which always pass.
+     */
+    static long readingKey(SensorData data) {
+        if (data.epochMillis() == SensorData.NO_EPOCH) {
+            return 0L;
+        }
+        return Objects.hashCode(data.id()) * 0x9E3779B97F4A7C15L + data.epochMillis();
+    }
+
+    /**
+     * 64-bit polynomial hash of the payload; {@link String#hashCode()} alone collides too often for a full window.
+     */
+    static long payloadKey(String payload) {
+        long hash = 1125899906842597L;
+        for (int i = 0; i < payload.length(); i++) {
+            hash = 31 * hash + payload.charAt(i);
+        }
+        return hash;
+    }
+
+    /**
+     * Newest timestamp per sensor ordinal. Sensors beyond the id dictionary, and readings without an id, have no
+     * ordinal and go to a {@link RotatingBloomFilter}, created on first need.
+     */
+    static final class HighWaterMarks implements Filter<SensorData> {
+        private static final long NONE = Long.MIN_VALUE;
+
+        private final Settings settings;
+        private final Scheduler clock;
+        private long[] marks = new long[64];
+        private RotatingBloomFilter<SensorData> overflow;
+
+        HighWaterMarks(Settings settings, Scheduler clock) {
+            this.settings = settings;
+            this.clock = clock;
+            Arrays.fill(marks, NONE);
+        }
+
+        @Override
+        public boolean firstSeen(SensorData data) {
+            if (data.epochMillis() == SensorData.NO_EPOCH) {
+                return true;
+            }
+            int ordinal = data.sensorOrdinal();
+            if (ordinal == SensorIdDictionary.NO_ORDINAL || data.id() == null) {
+                if (overflow == null) {
+                    overflow = new RotatingBloomFilter<>(settings, clock, SensorDedup::readingKey);
+                }
+                return overflow.firstSeen(data);
+            }
+            if (ordinal >= marks.length) {
+                int length = marks.length;
+                marks = Arrays.copyOf(marks, Math.max(length * 2, ordinal + 1));
+                Arrays.fill(marks, length, marks.length, NONE);
+            }
+            if (data.epochMillis() <= marks[ordinal]) {
+                return false;
+            }
+            marks[ordinal] = data.epochMillis();
+            return true;
+        }
+    }
+
+    /**
+     * Two Bloom filters, each sized for half a window: keys are added to the current one and looked up in both;
+     * every half window the older one is cleared and becomes current.
+     */
+    static final class RotatingBloomFilter<T> implements Filter<T> {
+        private final Scheduler clock;
+        private final ToLongFunction<T> key;
+        private final long halfWindowNanos;
+        private final int hashes;
+        private final long bits;
+        private long[] current;
+        private long[] previous;
+        private long rotatedNanos;
+
+        /**
+         * @param key 64-bit key of a value; 0 for values without one, which always pass
+         */
+        RotatingBloomFilter(Settings settings, Scheduler clock, ToLongFunction<T> key) {
+            this.clock = clock;
+            this.key = key;
+            this.halfWindowNanos = settings.window().toNanos() / 2;
+            // Standard sizing: m = -n ln p / (ln 2)^2 bits and k = m / n ln 2 hashes, n being half a window
+            double n = Math.max(settings.expectedPerWindow() / 2.0, 1);
+            double ln2 = Math.log(2);
+            long m = (long) Math.ceil(-n * Math.log(settings.falsePositiveRate()) / (ln2 * ln2));
+            int words = (int) Math.min((m + 63) / 64, Integer.MAX_VALUE - 8);
+            this.bits = (long) words * 64;
+            this.hashes = Math.max(1, (int) Math.round(bits / n * ln2));
+            this.current = new long[words];
+            this.previous = new long[words];
+            this.rotatedNanos = clock.now(TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public boolean firstSeen(T value) {
+            long k = key.applyAsLong(value);
+            if (k == 0L) {
+                return true;
+            }
+            rotate();
+            long hash = mix(k);
+            long h1 = hash; // Probes h1 + i * h2: two hashes stand in for k without hurting the false-positive rate
+            long h2 = mix(hash);
+            boolean inCurrent = true;
+            boolean inPrevious = true;
+            for (int i = 0; i < hashes; i++) {
+                long bit = Long.remainderUnsigned(h1 + i * h2, bits);
+                int word = (int) (bit >>> 6);
+                long mask = 1L << bit;
+                inPrevious &= (previous[word] & mask) != 0;
+                if ((current[word] & mask) == 0) {
+                    inCurrent = false;
+                    current[word] |= mask;
+                }
+            }
+            return !inCurrent && !inPrevious;
+        }
+
+        long bits() {
+            return bits;
+        }
+
+        int hashes() {
+            return hashes;
+        }
+
+        private void rotate() {
+            long now = clock.now(TimeUnit.NANOSECONDS);
+            if (now - rotatedNanos < halfWindowNanos) {
+                return;
+            }
+            long[] cleared = previous;
+            Arrays.fill(cleared, 0L);
+            if (now - rotatedNanos >= 2 * halfWindowNanos) {
+                Arrays.fill(current, 0L); // Idle for a whole window: nothing is remembered
+            }
+            previous = current;
+            current = cleared;
+            rotatedNanos = now;
+        }
+
+        /**
+         * MurmurHash3's 64-bit finalizer.
+         */
+        private static long mix(long h) {
+            h ^= h >>> 33;
+            h *= 0xff51afd7ed558ccdL;
+            h ^= h >>> 33;
+            h *= 0xc4ceb9fe1a85ec53L;
+            h ^= h >>> 33;
+            return h;
+        }
+    }
+}
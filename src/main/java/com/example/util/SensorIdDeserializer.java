@@ -0,0 +1,28 @@
+package com.example.util;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdScalarDeserializer;
+import com.fasterxml.jackson.databind.deser.std.StringDeserializer;
+
+import java.io.IOException;
+
+/**
+ * Resolves sensor ids through the shared {@link SensorIdDictionary} straight from the parser's
+ * character buffer, so known ids are never copied into a new String.
+ */
+public class SensorIdDeserializer extends StdScalarDeserializer<String> {
+
+    public SensorIdDeserializer() {
+        super(String.class);
+    }
+
+    @Override
+    public String deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+        if (p.hasToken(JsonToken.VALUE_STRING)) {
+            return SensorIdDictionary.shared().intern(p.getTextCharacters(), p.getTextOffset(), p.getTextLength());
+        }
+        return StringDeserializer.instance.deserialize(p, ctxt);
+    }
+}
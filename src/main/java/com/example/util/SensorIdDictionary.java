@@ -0,0 +1,229 @@
+package com.example.util;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Interns sensor ids and assigns each one a dense {@code int} ordinal (0, 1, 2, ...), so per-sensor
+ * state can live in arrays indexed by ordinal instead of hash maps keyed by id.
+ * <p>
+ * Lookups can be made straight from a character range (see {@link SensorIdDeserializer}), so a reading
+ * for a known sensor never allocates a new String for its id. Reads are lock-free; only the first
+ * sighting of an id takes a lock. The dictionary is bounded: once {@code maxSize} ids are known, new ids
+ * are returned as-is with ordinal {@link #NO_ORDINAL} and counted as overflows.
+ */
+public final class SensorIdDictionary {
+
+    public static final int NO_ORDINAL = -1;
+    public static final int DEFAULT_MAX_SIZE = 65_536;
+
+    private static final SensorIdDictionary SHARED = new SensorIdDictionary(DEFAULT_MAX_SIZE);
+
+    private final int maxSize;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder overflows = new LongAdder();
+
+    // Open-addressing table, at most half full. Slots are written in place under the lock; a reader
+    // that misses a concurrent insert falls through to the locked path. Every insert writes the id
+    // into ids first, then places the entry and stores table again: a reader that sees the entry
+    // through the volatile read of table also sees the id of its ordinal.
+    private volatile Entry[] table = new Entry[64];
+    private volatile String[] ids = new String[32];
+    private int size;
+
+    public SensorIdDictionary(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    public static SensorIdDictionary shared() {
+        return SHARED;
+    }
+
+    /**
+     * Returns the canonical id for the given characters, only creating a String the first time it is seen.
+     */
+    public String intern(char[] chars, int offset, int length) {
+        int hash = hash(chars, offset, length);
+        Entry entry = find(table, hash, chars, offset, length);
+        if (entry == null) {
+            entry = insert(hash, new String(chars, offset, length));
+            if (entry == null) {
+                return new String(chars, offset, length);
+            }
+        } else {
+            hits.increment();
+        }
+        return entry.id;
+    }
+
+    public String intern(String id) {
+        Entry entry = lookupOrInsert(id);
+        return entry != null ? entry.id : id;
+    }
+
+    /**
+     * @return the ordinal of the id, assigning one on first sight, or {@link #NO_ORDINAL} if the dictionary is full
+     */
+    public int ordinalOf(String id) {
+        Entry entry = lookupOrInsert(id);
+        return entry != null ? entry.ordinal : NO_ORDINAL;
+    }
+
+    public String idOf(int ordinal) {
+        String[] current = ids;
+        if (ordinal < 0 || ordinal >= current.length || current[ordinal] == null) {
+            throw new IndexOutOfBoundsException("Unknown sensor ordinal: " + ordinal);
+        }
+        return current[ordinal];
+    }
+
+    /**
+     * Number of known ids; ordinals range from 0 to {@code size() - 1}.
+     */
+    public int size() {
+        synchronized (this) {
+            return size;
+        }
+    }
+
+    /**
+     * Snapshot of the known ids, indexed by ordinal.
+     */
+    public List<String> ids() {
+        synchronized (this) {
+            return List.of(Arrays.copyOf(ids, size));
+        }
+    }
+
+    public int maxSize() {
+        return maxSize;
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public long overflows() {
+        return overflows.sum();
+    }
+
+    private Entry lookupOrInsert(String id) {
+        int hash = id.hashCode();
+        Entry entry = find(table, hash, id);
+        if (entry == null) {
+            return insert(hash, id);
+        }
+        hits.increment();
+        return entry;
+    }
+
+    private synchronized Entry insert(int hash, String id) {
+        Entry existing = find(table, hash, id);
+        if (existing != null) {
+            hits.increment(); // Lost the race to another thread inserting the same id
+            return existing;
+        }
+        if (size >= maxSize) {
+            overflows.increment();
+            return null;
+        }
+        misses.increment();
+
+        String[] currentIds = ids;
+        if (size == currentIds.length) {
+            currentIds = Arrays.copyOf(currentIds, currentIds.length * 2);
+        }
+        currentIds[size] = id;
+        ids = currentIds; // Volatile store, so idOf sees the id once the entry below is visible
+        Entry entry = new Entry(id, hash, size);
+        size++;
+
+        Entry[] slots = table;
+        if (size * 2 > slots.length) {
+            Entry[] resized = new Entry[slots.length * 2];
+            for (Entry e : slots) {
+                if (e != null) {
+                    place(resized, e);
+                }
+            }
+            slots = resized;
+        }
+        place(slots, entry);
+        table = slots; // Volatile store publishing the entry, also when placed in the current array
+        return entry;
+    }
+
+    private static void place(Entry[] slots, Entry entry) {
+        int mask = slots.length - 1;
+        int i = spread(entry.hash) & mask;
+        while (slots[i] != null) {
+            i = (i + 1) & mask;
+        }
+        slots[i] = entry;
+    }
+
+    private static Entry find(Entry[] slots, int hash, String id) {
+        int mask = slots.length - 1;
+        for (int i = spread(hash) & mask; ; i = (i + 1) & mask) {
+            Entry entry = slots[i];
+            if (entry == null || (entry.hash == hash && entry.id.equals(id))) {
+                return entry;
+            }
+        }
+    }
+
+    private static Entry find(Entry[] slots, int hash, char[] chars, int offset, int length) {
+        int mask = slots.length - 1;
+        for (int i = spread(hash) & mask; ; i = (i + 1) & mask) {
+            Entry entry = slots[i];
+            if (entry == null || (entry.hash == hash && contentEquals(entry.id, chars, offset, length))) {
+                return entry;
+            }
+        }
+    }
+
+    private static boolean contentEquals(String id, char[] chars, int offset, int length) {
+        if (id.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (id.charAt(i) != chars[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Same value as {@link String#hashCode()} for the same characters.
+     */
+    private static int hash(char[] chars, int offset, int length) {
+        int h = 0;
+        for (int i = offset; i < offset + length; i++) {
+            h = 31 * h + chars[i];
+        }
+        return h;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private static final class Entry {
+        private final String id;
+        private final int hash;
+        private final int ordinal;
+
+        Entry(String id, int hash, int ordinal) {
+            this.id = id;
+            this.hash = hash;
+            this.ordinal = ordinal;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.example.util;
+
+import com.example.model.SensorData;
+import io.reactivex.rxjava3.core.Flowable;
+import io.reactivex.rxjava3.core.FlowableTransformer;
+import io.reactivex.rxjava3.core.Scheduler;
+import io.reactivex.rxjava3.functions.Function;
+import io.reactivex.rxjava3.schedulers.Schedulers;
+
+import java.util.Objects;
+
+/**
+ * Runs per-event work on several rails in parallel, partitioned by sensor.
+ * <p>
+ * A sensor is always assigned the same rail, and a rail runs its events one at a time on its own scheduler
+ * worker, so the readings of one sensor are processed in order while different sensors spread over the cores.
+ * Each rail queues at most {@link Settings#queueSize()} events; once a rail is full the upstream is not asked
+ * for more. How the results of the rails are merged back is chosen by {@link Ordering}.
+ */
+public final class SensorRails {
+
+    public enum Ordering {
+        /**
+         * Results leave as soon as their rail produces them: ordered per sensor, interleaved across sensors.
+         */
+        PER_SENSOR,
+        /**
+         * Results leave in upstream order. A slow event holds back the results of the other rails behind it.
+         */
+        ARRIVAL
+    }
+
+    /**
+     * @param rails     parallel rails, usually the number of cores
+     * @param queueSize events queued per rail
+     * @param ordering  how the results of the rails are merged
+     */
+    public record Settings(int rails, int queueSize, Ordering ordering) {
+
+        public static final Settings DEFAULT =
+                new Settings(Runtime.getRuntime().availableProcessors(), 256, Ordering.PER_SENSOR);
+
+        public Settings {
+            if (rails < 1 || queueSize < 1) {
+                throw new IllegalArgumentException("Rails and queue size must be positive, rails: " + rails
+                        + ", queue size: " + queueSize);
+            }
+        }
+    }
+
+    private SensorRails() {
+    }
+
+    /**
+     * @param scheduler provides one worker per rail and subscription, typically {@link Schedulers#computation()}
+     * @param work      per-event work, called on the rail of the event's sensor
+     */
+    public static <R> FlowableTransformer<SensorData, R> rails(Settings settings, Scheduler scheduler,
+                                                               Function<SensorData, R> work) {
+        return switch (settings.ordering()) {
+            case PER_SENSOR -> upstream -> upstream
+                    .groupBy(data -> rail(data, settings.rails()), data -> data, false, settings.queueSize())
+                    .flatMap(rail -> rail.observeOn(scheduler, false, settings.queueSize()).map(work),
+                            false, settings.rails(), settings.queueSize()); // Every rail subscribed, none starved
+            case ARRIVAL -> upstream -> Flowable.using(
+                    () -> new Workers(scheduler, settings.rails()),
+                    workers -> upstream.concatMapEager(
+                            data -> Flowable.just(data).map(work)
+                                    .subscribeOn(workers.rail(rail(data, settings.rails()))),
+                            settings.rails() * settings.queueSize(), 1),
+                    Workers::dispose);
+        };
+    }
+
+    /**
+     * The rail of a sensor: its dictionary ordinal when it has one, so consecutive sensors land on different rails.
+     */
+    static int rail(SensorData data, int rails) {
+        int key = data.sensorOrdinal() != SensorIdDictionary.NO_ORDINAL ? data.sensorOrdinal() : Objects.hashCode(data.id());
+        return Math.floorMod(key, rails);
+    }
+
+    /**
+     * One scheduler worker per rail; tasks scheduled on a worker run serially in submission order.
+     */
+    private static final class Workers {
+        private final Scheduler.Worker[] workers;
+        private final Scheduler[] rails;
+
+        Workers(Scheduler scheduler, int count) {
+            workers = new Scheduler.Worker[count];
+            rails = new Scheduler[count];
+            for (int i = 0; i < count; i++) {
+                Scheduler.Worker worker = scheduler.createWorker();
+                workers[i] = worker;
+                rails[i] = Schedulers.from(worker::schedule);
+            }
+        }
+
+        Scheduler rail(int index) {
+            return rails[index];
+        }
+
+        void dispose() {
+            for (Scheduler.Worker worker : workers) {
+                worker.dispose();
+            }
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.util;
+
+import com.example.model.SensorData;
+import com.example.model.WindowAggregate;
+import io.reactivex.rxjava3.core.Flowable;
+import io.reactivex.rxjava3.core.FlowableTransformer;
+import io.reactivex.rxjava3.core.Scheduler;
+import io.reactivex.rxjava3.schedulers.Schedulers;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Per-sensor window statistics as a stream operator, for RxJava ({@code compose}) and Reactor ({@code transform}).
+ * See {@link WindowAggregator} for the windowing semantics. Windows close on event time; a timer ticking once per
+ * slide only closes them once no reading has arrived for {@link Settings#idleTimeout()}, so the last windows before a
+ * pause in the stream are not held back until it resumes.
+ */
+public final class SensorWindows {
+
+    /**
+     * The watermark trails the newest reading, so producers must agree on time: a sensor whose clock, plus its
+     * delivery delay, lags the newest one by more than {@code allowedLateness} has its readings dropped as late.
+     * Skew between the producers and this consumer does not matter.
+     *
+     * @param allowedLateness how far a reading may lag the newest one seen and still be counted
+     * @param idleTimeout     how long no reading may arrive before the watermark moves on without one
+     */
+    public record Settings(Duration allowedLateness, Duration idleTimeout) {
+
+        public static final Settings DEFAULT = new Settings(Duration.ofSeconds(1), Duration.ofSeconds(5));
+
+        public Settings {
+            if (allowedLateness.isNegative() || idleTimeout.isNegative() || idleTimeout.isZero()) {
+                throw new IllegalArgumentException("Expected a non-negative allowed lateness and a positive idle "
+                        + "timeout, lateness: " + allowedLateness + ", idle timeout: " + idleTimeout);
+            }
+        }
+    }
+
+    private SensorWindows() {
+    }
+
+    public static FlowableTransformer<SensorData, WindowAggregate> tumbling(Duration size) {
+        return sliding(size, size);
+    }
+
+    public static FlowableTransformer<SensorData, WindowAggregate> sliding(Duration size, Duration slide) {
+        return sliding(size, slide, Settings.DEFAULT, Schedulers.computation(), data -> {
+        });
+    }
+
+    /**
+     * @param clock  runs the timer and measures how long the stream has been idle
+     * @param onLate called for each reading skipped because its windows were already emitted
+     */
+    public static FlowableTransformer<SensorData, WindowAggregate> sliding(Duration size, Duration slide,
+                                                                           Settings settings, Scheduler clock,
+                                                                           Consumer<SensorData> onLate) {
+        return upstream -> Flowable.defer(() -> {
+            Watermark watermark = new Watermark(size, slide, settings, onLate);
+            long tickMillis = slide.toMillis();
+            // Readings and ticks are merged first, so the aggregator is only ever called serially
+            return upstream.publish(readings -> readings.<Object>map(data -> data)
+                            .mergeWith(Flowable.interval(tickMillis, tickMillis, TimeUnit.MILLISECONDS, clock)
+                                    .onBackpressureDrop()
+                                    .takeUntil(readings.ignoreElements().toFlowable())))
+                    .concatMapIterable(signal -> watermark.on(signal, clock.now(TimeUnit.MILLISECONDS)))
+                    .concatWith(Flowable.defer(() -> Flowable.fromIterable(watermark.aggregator.flush())));
+        });
+    }
+
+    public static Function<Flux<SensorData>, Flux<WindowAggregate>> tumblingFlux(Duration size) {
+        return slidingFlux(size, size);
+    }
+
+    public static Function<Flux<SensorData>, Flux<WindowAggregate>> slidingFlux(Duration size, Duration slide) {
+        return slidingFlux(size, slide, Settings.DEFAULT, reactor.core.scheduler.Schedulers.parallel(), data -> {
+        });
+    }
+
+    public static Function<Flux<SensorData>, Flux<WindowAggregate>> slidingFlux(Duration size, Duration slide,
+                                                                               Settings settings,
+                                                                               reactor.core.scheduler.Scheduler clock,
+                                                                               Consumer<SensorData> onLate) {
+        return upstream -> Flux.defer(() -> {
+            Watermark watermark = new Watermark(size, slide, settings, onLate);
+            return upstream.publish(readings -> Flux.<Object>merge(readings,
+                            Flux.interval(slide, slide, clock)
+                                    .onBackpressureDrop()
+                                    .takeUntilOther(readings.then())))
+                    .concatMapIterable(signal -> watermark.on(signal, clock.now(TimeUnit.MILLISECONDS)))
+                    .concatWith(Flux.defer(() -> Flux.fromIterable(watermark.aggregator.flush())));
+        });
+    }
+
+    /**
+     * One subscription's aggregator and the arrival time of its latest reading, fed readings and ticks serially.
+     */
+    private static final class Watermark {
+        private final WindowAggregator aggregator;
+        private final long idleTimeoutMillis;
+        private final Consumer<SensorData> onLate;
+        private long arrivedMillis = Long.MIN_VALUE;
+
+        Watermark(Duration size, Duration slide, Settings settings, Consumer<SensorData> onLate) {
+            this.aggregator = new WindowAggregator(size, slide, settings.allowedLateness());
+            this.idleTimeoutMillis = settings.idleTimeout().toMillis();
+            this.onLate = onLate;
+        }
+
+        List<WindowAggregate> on(Object signal, long nowMillis) {
+            if (signal instanceof SensorData data) {
+                arrivedMillis = nowMillis;
+                long late = aggregator.lateCount();
+                List<WindowAggregate> closed = aggregator.onEvent(data);
+                if (aggregator.lateCount() != late) {
+                    onLate.accept(data);
+                }
+                return closed;
+            }
+            long idleMillis = nowMillis - arrivedMillis;
+            if (arrivedMillis == Long.MIN_VALUE || idleMillis < idleTimeoutMillis) {
+                return Collections.emptyList();
+            }
+            return aggregator.onIdle(idleMillis);
+        }
+    }
+}
@@ -1,17 +1,15 @@
 package com.example.util;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 import io.reactivex.rxjava3.core.Flowable;
 import okhttp3.ResponseBody;
 import retrofit2.Converter;
 import retrofit2.Retrofit;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Type;
-import java.util.List;
-import java.util.ArrayList;
 
 public class SseConverterFactory extends Converter.Factory {
     private final ObjectMapper objectMapper;
@@ -26,30 +24,26 @@ public class SseConverterFactory extends Converter.Factory {
 
     @Override
     public Converter<ResponseBody, ?> responseBodyConverter(Type type, Annotation[] annotations, Retrofit retrofit) {
-        return new SseConverter<>(objectMapper, type);
+        // Retrofit calls this once per service method, so the type is resolved once and not per event
+        return new SseConverter<>(objectMapper.readerFor(objectMapper.constructType(type)));
     }
 
     private static class SseConverter<T> implements Converter<ResponseBody, Flowable<T>> {
-        private final ObjectMapper objectMapper;
-        private final Type type;
+        private final ObjectReader reader;
 
-        SseConverter(ObjectMapper objectMapper, Type type) {
-            this.objectMapper = objectMapper;
-            this.type = type;
+        SseConverter(ObjectReader reader) {
+            this.reader = reader;
         }
 
         @Override
         public Flowable<T> convert(ResponseBody value) throws IOException {
             return Flowable.create(emitter -> {
-                try (BufferedReader reader = new BufferedReader(value.charStream())) {
-                    String line;
-                    // Read each line and parse lines that start with "data:"
-                    while ((line = reader.readLine()) != null) {
-                        if (line.startsWith("data:")) {
-                            String json = line.substring(5).trim();  // Remove "data:" prefix
-                            T data = objectMapper.readValue(json, objectMapper.constructType(type));
-                            emitter.onNext(data);  // Emit each parsed object
-                        }
+                try (value) {
+                    SseFrameParser parser = new SseFrameParser(value.source());
+                    // Parse each data payload straight from its bytes, no String in between
+                    while (!emitter.isCancelled() && parser.nextFrame()) {
+                        T data = reader.readValue(parser.payload().inputStream());
+                        emitter.onNext(data);  // Emit each parsed object
                     }
                     emitter.onComplete();  // Complete the flowable when done
                 } catch (Exception e) {
@@ -58,4 +52,4 @@ public class SseConverterFactory extends Converter.Factory {
             }, io.reactivex.rxjava3.core.BackpressureStrategy.BUFFER);
         }
     }
-}
\ No newline at end of file
+}
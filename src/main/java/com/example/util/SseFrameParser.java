@@ -0,0 +1,201 @@
+package com.example.util;
+
+import com.example.model.SseFrame;
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ByteString;
+
+import java.io.IOException;
+
+/**
+ * Reads Server-Sent Event frames straight from an okio {@link BufferedSource}.
+ * <p>
+ * Field names and line boundaries are matched on the raw bytes, comments and unknown fields are
+ * skipped without being decoded, and the data lines are moved segment by segment into a payload
+ * buffer. Only the payload (plus the short id/event values) is ever turned into characters, and
+ * callers that parse JSON can skip even that by reading {@link #payload()} directly.
+ * <p>
+ * Not thread-safe: one parser per response body.
+ */
+public final class SseFrameParser {
+
+    private static final byte LF = '\n';
+    private static final byte CR = '\r';
+    private static final byte COLON = ':';
+    private static final byte SPACE = ' ';
+    private static final byte NUL = 0;
+
+    private static final ByteString DATA = ByteString.encodeUtf8("data");
+    private static final ByteString ID = ByteString.encodeUtf8("id");
+    private static final ByteString EVENT = ByteString.encodeUtf8("event");
+    private static final ByteString RETRY = ByteString.encodeUtf8("retry");
+
+    public static final String DEFAULT_EVENT = "message";
+
+    private final BufferedSource source;
+    private final Buffer payload = new Buffer();
+
+    private boolean hasData;
+    private String event;
+    private String lastEventId;
+    private long retry = -1L;
+
+    public SseFrameParser(BufferedSource source) {
+        this.source = source;
+    }
+
+    /**
+     * Advances to the next frame that carries data, blocking on the source as needed.
+     * A frame cut off by the end of the stream is still dispatched, since the producer's finite
+     * streams do not always end with a blank line.
+     *
+     * @return false once the source is exhausted and no frame is pending
+     */
+    public boolean nextFrame() throws IOException {
+        payload.clear();
+        hasData = false;
+        event = null;
+
+        while (true) {
+            long lineEnd = source.indexOf(LF);
+            if (lineEnd == -1L) {
+                // End of stream: indexOf has pulled everything that is left into the buffer
+                long remaining = source.getBuffer().size();
+                if (remaining > 0) {
+                    readField(stripCr(remaining), remaining);
+                }
+                return hasData;
+            }
+
+            long lineLength = stripCr(lineEnd);
+            if (lineLength == 0) {
+                source.skip(lineEnd + 1);
+                if (hasData) {
+                    return true;
+                }
+                event = null; // A blank line without data only resets the event type
+                continue;
+            }
+            readField(lineLength, lineEnd + 1);
+        }
+    }
+
+    /**
+     * Reads the next frame and decodes its payload.
+     *
+     * @return the frame, or null once the source is exhausted
+     */
+    public SseFrame next() throws IOException {
+        return nextFrame() ? frame() : null;
+    }
+
+    /**
+     * Materializes the current frame, decoding (and consuming) the payload as UTF-8.
+     */
+    public SseFrame frame() {
+        return new SseFrame(lastEventId, event(), payload.readUtf8(), retry);
+    }
+
+    /**
+     * Raw UTF-8 bytes of the current frame's data. Reading from it consumes the payload.
+     */
+    public Buffer payload() {
+        return payload;
+    }
+
+    public String id() {
+        return lastEventId;
+    }
+
+    public String event() {
+        return event != null ? event : DEFAULT_EVENT;
+    }
+
+    public long retry() {
+        return retry;
+    }
+
+    private long stripCr(long lineLength) {
+        if (lineLength > 0 && source.getBuffer().getByte(lineLength - 1) == CR) {
+            return lineLength - 1;
+        }
+        return lineLength;
+    }
+
+    /**
+     * Handles one non-blank line of {@code lineLength} bytes, consuming {@code consume} bytes
+     * (the line plus its terminator) from the source.
+     */
+    private void readField(long lineLength, long consume) throws IOException {
+        Buffer buffer = source.getBuffer();
+        if (buffer.getByte(0) == COLON) {
+            source.skip(consume); // Comment line
+            return;
+        }
+
+        long colon = buffer.indexOf(COLON, 0, lineLength);
+        long nameLength = colon == -1L ? lineLength : colon;
+        long valueStart = colon == -1L ? lineLength : colon + 1;
+        if (valueStart < lineLength && buffer.getByte(valueStart) == SPACE) {
+            valueStart++;
+        }
+        long valueLength = lineLength - valueStart;
+
+        if (isField(buffer, nameLength, DATA)) {
+            source.skip(valueStart);
+            if (hasData) {
+                payload.writeByte(LF);
+            }
+            source.readFully(payload, valueLength);
+            source.skip(consume - valueStart - valueLength);
+            hasData = true;
+            return;
+        }
+
+        if (isField(buffer, nameLength, ID)) {
+            // Per the SSE spec an id containing NUL is ignored
+            boolean valid = buffer.indexOf(NUL, valueStart, lineLength) == -1L;
+            source.skip(valueStart);
+            String value = source.readUtf8(valueLength);
+            source.skip(consume - valueStart - valueLength);
+            if (valid) {
+                lastEventId = value;
+            }
+            return;
+        }
+
+        if (isField(buffer, nameLength, EVENT)) {
+            source.skip(valueStart);
+            event = source.readUtf8(valueLength);
+            source.skip(consume - valueStart - valueLength);
+            return;
+        }
+
+        if (isField(buffer, nameLength, RETRY)) {
+            long millis = parseDigits(buffer, valueStart, lineLength);
+            if (millis >= 0) {
+                retry = millis;
+            }
+        }
+        source.skip(consume);
+    }
+
+    private static boolean isField(Buffer buffer, long nameLength, ByteString name) {
+        return nameLength == name.size() && buffer.rangeEquals(0, name);
+    }
+
+    private static long parseDigits(Buffer buffer, long from, long to) {
+        if (from == to) {
+            return -1L;
+        }
+        long value = 0;
+        for (long i = from; i < to; i++) {
+            byte b = buffer.getByte(i);
+            if (b < '0' || b > '9') {
+                return -1L;
+            }
+            value = value * 10 + (b - '0');
+        }
+        return value;
+    }
+}
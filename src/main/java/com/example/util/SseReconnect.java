@@ -0,0 +1,167 @@
+package com.example.util;
+
+import com.example.model.SseFrame;
+import io.reactivex.rxjava3.core.Flowable;
+import io.reactivex.rxjava3.functions.Function;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reconnects a Server-Sent Events stream that failed with a retryable error, resuming where it left off.
+ * <p>
+ * Retryable are transport failures (any {@link IOException} other than a {@link StatusException}), 5xx responses
+ * and 429 Too Many Requests. Any other unsuccessful status, such as 401 or 404, will not get better by asking
+ * again and fails the stream at once. For 429 and 503 the server's {@code Retry-After} is waited at least.
+ * <p>
+ * The id of the last frame received is handed to the next connection, which sends it as the
+ * {@code Last-Event-ID} header so the server can continue after it instead of replaying the whole stream.
+ * Reconnects wait an exponentially growing, jittered delay: the base delay is the server's {@code retry:}
+ * hint when it sent one, {@link Settings#initialBackoff()} otherwise, and is capped at
+ * {@link Settings#maxBackoff()}. The attempt count starts over as soon as a reconnected stream delivers a
+ * frame. Stalled connections are expected to fail with a read timeout on the HTTP client, which is then
+ * retried like any other I/O error. A stream that completes normally is not reconnected.
+ */
+public final class SseReconnect {
+
+    private static final Logger logger = LoggerFactory.getLogger(SseReconnect.class);
+
+    public static final String LAST_EVENT_ID_HEADER = "Last-Event-ID";
+    public static final String RETRY_AFTER_HEADER = "Retry-After";
+
+    private SseReconnect() {
+    }
+
+    /**
+     * @param maxAttempts    consecutive failed connections before giving up, 0 to never reconnect
+     * @param initialBackoff delay before the first reconnect unless the server sent a retry hint
+     * @param maxBackoff     upper bound of the delay between two connections
+     * @param idleTimeout    longest silence on a connection (no bytes at all, not even comments) before it is dropped
+     */
+    public record Settings(int maxAttempts, Duration initialBackoff, Duration maxBackoff, Duration idleTimeout) {
+    }
+
+    /**
+     * @param connect opens one connection; receives the last event id seen so far, or null on the first connection
+     */
+    public static Flowable<SseFrame> resumable(Function<String, Flowable<SseFrame>> connect, Settings settings) {
+        return Flowable.defer(() -> {
+            ResumeState state = new ResumeState();
+            return Flowable.defer(() -> connect.apply(state.lastEventId))
+                    .doOnNext(state::onFrame)
+                    .retryWhen(errors -> errors.concatMap(error -> {
+                        long delay = state.nextDelay(error, settings);
+                        if (delay < 0) {
+                            return Flowable.error(error);
+                        }
+                        logger.warn("SSE connection lost ({}), reconnecting in {} ms, attempt {}/{}, Last-Event-ID: {}",
+                                error.toString(), delay, state.attempts, settings.maxAttempts(), state.lastEventId);
+                        return Flowable.timer(delay, TimeUnit.MILLISECONDS);
+                    }));
+        });
+    }
+
+    /**
+     * An unsuccessful HTTP response to a stream request.
+     */
+    public static final class StatusException extends IOException {
+        private final int code;
+        private final long retryAfterMillis;
+
+        /**
+         * @param retryAfter the {@code Retry-After} header, delay-seconds or an HTTP date, or null
+         */
+        public StatusException(int code, String retryAfter, String message) {
+            super(message);
+            this.code = code;
+            this.retryAfterMillis = SseReconnect.retryAfterMillis(retryAfter, System.currentTimeMillis());
+        }
+
+        public int code() {
+            return code;
+        }
+
+        /**
+         * @return the delay the server asked for, or -1 when it sent none or an unreadable one
+         */
+        public long retryAfterMillis() {
+            return retryAfterMillis;
+        }
+
+        boolean retryable() {
+            return code >= 500 || code == 429;
+        }
+    }
+
+    static long retryAfterMillis(String retryAfter, long nowMillis) {
+        if (retryAfter == null || retryAfter.isBlank()) {
+            return -1L;
+        }
+        String value = retryAfter.trim();
+        try {
+            return TimeUnit.SECONDS.toMillis(Math.max(Long.parseLong(value), 0L));
+        } catch (NumberFormatException e) {
+            // Not delay-seconds, so an HTTP date
+        }
+        try {
+            long at = ZonedDateTime.parse(value, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+            return Math.max(at - nowMillis, 0L);
+        } catch (DateTimeParseException e) {
+            return -1L;
+        }
+    }
+
+    /**
+     * Exponential backoff with "equal jitter": a random delay between half and all of the capped exponential value,
+     * so clients dropped together do not reconnect together.
+     */
+    static long backoff(int attempt, long baseMillis, long maxMillis) {
+        long exponential = baseMillis << Math.min(attempt - 1, 30);
+        long capped = exponential < 0 ? maxMillis : Math.min(exponential, maxMillis);
+        long half = capped / 2;
+        return half + ThreadLocalRandom.current().nextLong(capped - half + 1);
+    }
+
+    /**
+     * Per-subscription resume position; only touched from the stream's serialized callbacks.
+     */
+    private static final class ResumeState {
+        private String lastEventId;
+        private long retryHint = -1L;
+        private int attempts;
+
+        void onFrame(SseFrame frame) {
+            if (frame.id() != null) {
+                lastEventId = frame.id();
+            }
+            retryHint = frame.retry();
+            attempts = 0;
+        }
+
+        /**
+         * @return the delay before reconnecting, or -1 when the error must be passed on
+         */
+        long nextDelay(Throwable error, Settings settings) {
+            if (!(error instanceof IOException)) {
+                return -1L;
+            }
+            StatusException status = error instanceof StatusException e ? e : null;
+            if (status != null && !status.retryable() || ++attempts > settings.maxAttempts()) {
+                return -1L;
+            }
+            long base = retryHint >= 0 ? retryHint : settings.initialBackoff().toMillis();
+            long delay = backoff(attempts, base, settings.maxBackoff().toMillis());
+            if (status != null && (status.code() == 429 || status.code() == 503)) {
+                delay = Math.max(delay, status.retryAfterMillis()); // Not capped: the server said when
+            }
+            return delay;
+        }
+    }
+}
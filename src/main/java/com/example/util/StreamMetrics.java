@@ -0,0 +1,500 @@
+package com.example.util;
+
+import com.example.model.SensorData;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.reactivex.rxjava3.core.BackpressureStrategy;
+import io.reactivex.rxjava3.core.Flowable;
+import io.reactivex.rxjava3.core.FlowableTransformer;
+import io.reactivex.rxjava3.core.Observable;
+import io.reactivex.rxjava3.core.ObservableTransformer;
+import io.reactivex.rxjava3.disposables.Disposable;
+import io.reactivex.rxjava3.functions.Consumer;
+import io.reactivex.rxjava3.functions.Supplier;
+import io.reactivex.rxjava3.schedulers.Schedulers;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+
+/**
+ * Micrometer instrumentation of the consumption pipelines, one {@link Probe} per endpoint, transport and
+ * backpressure strategy:
+ * <ul>
+ *     <li>{@code consumer.stream.received}, {@code .dropped}, {@code .errors}, {@code .duplicates}: counters</li>
+ *     <li>{@code consumer.stream.late}: readings a window operator skipped because their windows were already
+ *     emitted; see {@link SensorWindows.Settings} for the clock skew this tolerates</li>
+ *     <li>{@code consumer.stream.buffer.depth}: events held by a local BUFFER/DROP/LATEST stage right now</li>
+ *     <li>{@code consumer.stream.demand}: requested but not yet delivered events; unbounded requests are not counted</li>
+ *     <li>{@code consumer.stream.reads.inflight}: blocking reads of a demand-driven source waiting on the socket
+ *     right now. Such a source reads nothing ahead of demand, so for it {@code dropped} and {@code buffer.depth}
+ *     stay 0 and the strategy applies on the producer side only</li>
+ *     <li>{@code consumer.stream.first.element}, {@code .interarrival}: timers from subscription to the first
+ *     event and between consecutive events</li>
+ *     <li>{@code consumer.stream.mode}, {@code .mode.transitions{from,to}}: current mode of an {@link AdaptiveOverflow}
+ *     stage (its ordinal) and how often it changed</li>
+ *     <li>{@code consumer.stream.latency{stage}}: age of a {@link SensorData} reading, from its producer timestamp to
+ *     its arrival at the probe ({@code received}) and to the end of its handling ({@code processed}), with p50, p99
+ *     and p999 over a rolling window</li>
+ *     <li>{@code consumer.stream.latency.skewed{stage}}: readings stamped later than our clock at that stage, a sign of
+ *     clock skew between producer and consumer; counted here and kept out of the latency percentiles</li>
+ * </ul>
+ * Probes aggregate over all subscriptions with the same tags.
+ */
+public final class StreamMetrics {
+
+    public static final String OKHTTP = "okhttp";
+    public static final String RETROFIT = "retrofit";
+    public static final String WEBCLIENT = "webclient";
+
+    /**
+     * Strategy tag of pipelines that select no backpressure strategy themselves.
+     */
+    public static final String NO_STRATEGY = "none";
+
+    public static final Duration DEFAULT_LATENCY_WINDOW = Duration.ofMinutes(1);
+
+    private static final Logger logger = LoggerFactory.getLogger(StreamMetrics.class);
+    private static final String PREFIX = "consumer.stream.";
+    private static final StreamMetrics GLOBAL = new StreamMetrics(Metrics.globalRegistry);
+
+    private final MeterRegistry registry;
+    private final Duration latencyWindow;
+    private final ConcurrentMap<List<String>, Probe> probes = new ConcurrentHashMap<>();
+
+    public StreamMetrics(MeterRegistry registry) {
+        this(registry, DEFAULT_LATENCY_WINDOW);
+    }
+
+    /**
+     * @param latencyWindow period the latency percentiles and maximum cover
+     */
+    public StreamMetrics(MeterRegistry registry, Duration latencyWindow) {
+        this.registry = registry;
+        this.latencyWindow = latencyWindow;
+    }
+
+    /**
+     * Backed by Micrometer's global registry, which Spring Boot also publishes to; for services built outside Spring.
+     */
+    public static StreamMetrics global() {
+        return GLOBAL;
+    }
+
+    /**
+     * The registry the probes publish to, for other consumer meters such as {@link LookupCache}'s.
+     */
+    public MeterRegistry registry() {
+        return registry;
+    }
+
+    public Probe probe(String endpoint, String transport, String strategy) {
+        return probes.computeIfAbsent(List.of(endpoint, transport, strategy),
+                key -> new Probe(registry, latencyWindow, endpoint, transport, strategy));
+    }
+
+    public Collection<Probe> probes() {
+        return probes.values();
+    }
+
+    public List<LatencySnapshot> latency() {
+        List<LatencySnapshot> snapshots = new ArrayList<>();
+        probes.values().forEach(probe -> snapshots.addAll(probe.latencySnapshots()));
+        return snapshots;
+    }
+
+    /**
+     * Logs the latency percentiles of every probe that recorded readings since the last line, every
+     * {@code interval}, on a thread of its own so a slow appender never holds up a shared scheduler; a zero
+     * interval logs nothing.
+     */
+    public Disposable logLatency(Duration interval) {
+        if (interval.isZero()) {
+            return Disposable.empty();
+        }
+        ConcurrentMap<List<String>, Long> logged = new ConcurrentHashMap<>();
+        return Schedulers.newThread().schedulePeriodicallyDirect(() -> {
+            for (LatencySnapshot snapshot : latency()) {
+                List<String> key = List.of(snapshot.endpoint(), snapshot.transport(), snapshot.strategy(), snapshot.stage());
+                Long previous = logged.put(key, snapshot.count());
+                if (previous == null || previous != snapshot.count()) {
+                    logger.info("[Latency {} {} {} {}] p50 {} ms, p99 {} ms, p999 {} ms, max {} ms over {} readings, "
+                                    + "{} stamped ahead of our clock",
+                            snapshot.transport(), snapshot.endpoint(), snapshot.strategy(), snapshot.stage(),
+                            snapshot.p50Ms(), snapshot.p99Ms(), snapshot.p999Ms(), snapshot.maxMs(), snapshot.count(),
+                            snapshot.skewed());
+                }
+            }
+        }, interval.toNanos(), interval.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    public record Snapshot(String endpoint, String transport, String strategy, long received, long dropped,
+                           long errors, long duplicates, long late, long bufferDepth, long outstandingDemand,
+                           long readsInFlight,
+                           double firstElementMeanMs, double interArrivalMeanMs, double interArrivalMaxMs) {
+    }
+
+    public enum Stage {
+        /**
+         * The reading reached the probe, the first stage of every pipeline.
+         */
+        RECEIVED,
+        /**
+         * Our handling of the reading finished; the gap to {@link #RECEIVED} is the time it queued and was worked on.
+         */
+        PROCESSED
+    }
+
+    /**
+     * @param count   readings recorded since the probe was created; the percentiles and max cover the rolling window
+     * @param skewed  readings since the probe was created that were stamped ahead of our clock, not in {@code count}
+     */
+    public record LatencySnapshot(String endpoint, String transport, String strategy, String stage, long count,
+                                  double p50Ms, double p99Ms, double p999Ms, double maxMs, long skewed) {
+    }
+
+    public static final class Probe {
+        private final String endpoint;
+        private final String transport;
+        private final String strategy;
+        private final Counter received;
+        private final Counter dropped;
+        private final Counter errors;
+        private final Counter duplicates;
+        private final Counter late;
+        private final AtomicLong bufferDepth = new AtomicLong();
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicLong readsInFlight = new AtomicLong();
+        private final Timer firstElement;
+        private final Timer interArrival;
+        private final MeterRegistry registry;
+        private final Tags tags;
+        private final AtomicLong mode = new AtomicLong();
+        private final Duration latencyWindow;
+        // Per stage, registered on first use so probes of String streams publish no empty latency timers
+        private final AtomicReferenceArray<Timer> latency = new AtomicReferenceArray<>(Stage.values().length);
+        private final AtomicReferenceArray<Counter> skewed = new AtomicReferenceArray<>(Stage.values().length);
+
+        Probe(MeterRegistry registry, Duration latencyWindow, String endpoint, String transport, String strategy) {
+            this.endpoint = endpoint;
+            this.transport = transport;
+            this.strategy = strategy;
+            Tags tags = Tags.of("endpoint", endpoint, "transport", transport, "strategy", strategy);
+            this.registry = registry;
+            this.tags = tags;
+            this.latencyWindow = latencyWindow;
+            this.received = Counter.builder(PREFIX + "received").tags(tags).register(registry);
+            this.dropped = Counter.builder(PREFIX + "dropped").tags(tags).register(registry);
+            this.errors = Counter.builder(PREFIX + "errors").tags(tags).register(registry);
+            this.duplicates = Counter.builder(PREFIX + "duplicates").tags(tags).register(registry);
+            this.late = Counter.builder(PREFIX + "late").tags(tags).register(registry);
+            Gauge.builder(PREFIX + "buffer.depth", bufferDepth, AtomicLong::get).tags(tags).register(registry);
+            Gauge.builder(PREFIX + "demand", demand, AtomicLong::get).tags(tags).register(registry);
+            Gauge.builder(PREFIX + "reads.inflight", readsInFlight, AtomicLong::get).tags(tags).register(registry);
+            this.firstElement = Timer.builder(PREFIX + "first.element").tags(tags).register(registry);
+            this.interArrival = Timer.builder(PREFIX + "interarrival").tags(tags).register(registry);
+        }
+
+        public <T> FlowableTransformer<T, T> flowable() {
+            return upstream -> Flowable.defer(() -> {
+                Tracker tracker = new Tracker();
+                return upstream
+                        .doOnNext(tracker::onNext)
+                        .doOnError(tracker::onError)
+                        .doOnRequest(tracker::onRequest)
+                        .doFinally(tracker::finish);
+            });
+        }
+
+        public <T> ObservableTransformer<T, T> observable() {
+            return upstream -> Observable.defer(() -> {
+                Tracker tracker = new Tracker(); // Observables have no demand, only arrivals are measured
+                return upstream
+                        .doOnNext(tracker::onNext)
+                        .doOnError(tracker::onError)
+                        .doFinally(tracker::finish);
+            });
+        }
+
+        public <T> Function<Flux<T>, Flux<T>> flux() {
+            return upstream -> Flux.defer(() -> {
+                Tracker tracker = new Tracker();
+                return upstream
+                        .doOnNext(tracker::onNext)
+                        .doOnError(tracker::onError)
+                        .doOnRequest(tracker::onRequest)
+                        .doFinally(signal -> tracker.finish());
+            });
+        }
+
+        /**
+         * Applies BUFFER, DROP or LATEST as an operator, counting what it drops and holds, to a source that
+         * ignores backpressure (created with {@link BackpressureStrategy#MISSING}). ERROR and MISSING have nothing
+         * to measure and must stay on the source; they pass through unchanged.
+         */
+        public <T> FlowableTransformer<T, T> backpressure(BackpressureStrategy backpressureStrategy) {
+            if (backpressureStrategy == BackpressureStrategy.ERROR || backpressureStrategy == BackpressureStrategy.MISSING) {
+                return upstream -> upstream;
+            }
+            return upstream -> Flowable.defer(() -> {
+                AtomicLong held = new AtomicLong(); // This subscription's share of bufferDepth
+                Consumer<T> onDrop = value -> {
+                    dropped.increment();
+                    held.decrementAndGet();
+                    bufferDepth.decrementAndGet();
+                };
+                Flowable<T> counted = upstream.doOnNext(value -> {
+                    held.incrementAndGet();
+                    bufferDepth.incrementAndGet();
+                });
+                Flowable<T> applied = switch (backpressureStrategy) {
+                    case DROP -> counted.onBackpressureDrop(onDrop);
+                    case LATEST -> counted.onBackpressureLatest(onDrop);
+                    default -> counted.onBackpressureBuffer();
+                };
+                return applied
+                        .doOnNext(value -> {
+                            held.decrementAndGet();
+                            bufferDepth.decrementAndGet();
+                        })
+                        .doFinally(() -> bufferDepth.addAndGet(-held.getAndSet(0)));
+            });
+        }
+
+        /**
+         * {@link AdaptiveOverflow} on a source that ignores backpressure, counting what it conflates away as dropped
+         * and publishing its mode changes.
+         */
+        public <T> FlowableTransformer<T, T> adaptive(AdaptiveOverflow.Settings settings, EventCodec<T> codec) {
+            Gauge.builder(PREFIX + "mode", mode, AtomicLong::get).tags(tags).register(registry);
+            return AdaptiveOverflow.adaptive(settings, codec, new AdaptiveOverflow.Listener() {
+                @Override
+                public void onTransition(AdaptiveOverflow.Transition transition) {
+                    mode.set(transition.to().ordinal());
+                    Counter.builder(PREFIX + "mode.transitions")
+                            .tags(tags.and("from", transition.from().name(), "to", transition.to().name()))
+                            .register(registry)
+                            .increment();
+                }
+
+                @Override
+                public void onDropped() {
+                    dropped.increment();
+                }
+            });
+        }
+
+        /**
+         * Runs one blocking read of a demand-driven source, counting it in {@code reads.inflight} until it returns.
+         */
+        public <T> T read(Callable<T> read) throws Exception {
+            readsInFlight.incrementAndGet();
+            try {
+                return read.call();
+            } finally {
+                readsInFlight.decrementAndGet();
+            }
+        }
+
+        /**
+         * {@link SensorDedup} with a fresh memory per subscription, counting what it suppresses as duplicates.
+         * Concurrent subscribers and a later resubscribe each see the whole stream.
+         */
+        public <T> FlowableTransformer<T, T> dedup(Supplier<SensorDedup.Memory<T>> memories) {
+            return upstream -> Flowable.defer(() -> upstream.compose(dedup(memories.get())));
+        }
+
+        /**
+         * {@link SensorDedup} with state shared by every stream composed with {@code memory}; only for streams that
+         * resume or replay one another, counting what it suppresses as duplicates.
+         */
+        public <T> FlowableTransformer<T, T> dedup(SensorDedup.Memory<T> memory) {
+            return memory.dedup(value -> duplicates.increment());
+        }
+
+        /**
+         * Counts a reading skipped as late; pass as the {@code onLate} of a {@link SensorWindows} operator.
+         */
+        public void late(SensorData data) {
+            late.increment();
+        }
+
+        /**
+         * Records the age of a reading stamped {@code eventEpochMillis} by the producer. Readings without a timestamp
+         * are skipped; a reading stamped ahead of our clock has no meaningful age and is only counted as skewed, so
+         * it cannot pull the percentiles down.
+         */
+        public void recordLatency(Stage stage, long eventEpochMillis) {
+            if (eventEpochMillis == SensorData.NO_EPOCH) {
+                return;
+            }
+            long millis = System.currentTimeMillis() - eventEpochMillis;
+            if (millis < 0L) {
+                skewedCounter(stage).increment();
+                return;
+            }
+            latencyTimer(stage).record(millis, TimeUnit.MILLISECONDS);
+        }
+
+        /**
+         * {@link MicroBatcher.BatchCallback} recording {@link Stage#PROCESSED} for each reading of a batch once
+         * {@code callback} has handled it.
+         */
+        public MicroBatcher.BatchCallback<SensorData> processed(MicroBatcher.BatchCallback<SensorData> callback) {
+            return new MicroBatcher.BatchCallback<>() {
+                @Override
+                public void onBatch(List<SensorData> batch) throws Exception {
+                    callback.onBatch(batch);
+                    for (SensorData data : batch) {
+                        recordLatency(Stage.PROCESSED, data.epochMillis());
+                    }
+                }
+
+                @Override
+                public void onError(Throwable throwable) {
+                    callback.onError(throwable);
+                }
+
+                @Override
+                public void onComplete() {
+                    callback.onComplete();
+                }
+            };
+        }
+
+        public List<LatencySnapshot> latencySnapshots() {
+            List<LatencySnapshot> snapshots = new ArrayList<>();
+            for (Stage stage : Stage.values()) {
+                Timer timer = latency.get(stage.ordinal());
+                Counter skew = skewed.get(stage.ordinal());
+                if (timer == null && skew == null) {
+                    continue;
+                }
+                long skewedCount = skew == null ? 0L : (long) skew.count();
+                if (timer == null) {
+                    snapshots.add(new LatencySnapshot(endpoint, transport, strategy, tag(stage), 0L,
+                            0.0, 0.0, 0.0, 0.0, skewedCount));
+                    continue;
+                }
+                HistogramSnapshot histogram = timer.takeSnapshot();
+                double[] percentiles = new double[3];
+                for (ValueAtPercentile value : histogram.percentileValues()) {
+                    int index = value.percentile() == 0.5 ? 0 : value.percentile() == 0.99 ? 1 : 2;
+                    percentiles[index] = value.value(TimeUnit.MILLISECONDS);
+                }
+                snapshots.add(new LatencySnapshot(endpoint, transport, strategy, tag(stage), histogram.count(),
+                        percentiles[0], percentiles[1], percentiles[2], histogram.max(TimeUnit.MILLISECONDS), skewedCount));
+            }
+            return snapshots;
+        }
+
+        private Timer latencyTimer(Stage stage) {
+            Timer timer = latency.get(stage.ordinal());
+            if (timer == null) {
+                // Micrometer keeps these in HdrHistogram ring buffers: constant memory, a few ns per record.
+                // Registering is idempotent, so a lost race returns the same timer.
+                timer = Timer.builder(PREFIX + "latency")
+                        .tags(tags.and("stage", tag(stage)))
+                        .publishPercentiles(0.5, 0.99, 0.999)
+                        .percentilePrecision(2)
+                        .distributionStatisticExpiry(latencyWindow)
+                        .distributionStatisticBufferLength(3)
+                        .register(registry);
+                latency.set(stage.ordinal(), timer);
+            }
+            return timer;
+        }
+
+        private Counter skewedCounter(Stage stage) {
+            Counter counter = skewed.get(stage.ordinal());
+            if (counter == null) {
+                counter = Counter.builder(PREFIX + "latency.skewed")
+                        .tags(tags.and("stage", tag(stage)))
+                        .register(registry);
+                skewed.set(stage.ordinal(), counter);
+            }
+            return counter;
+        }
+
+        private static String tag(Stage stage) {
+            return stage.name().toLowerCase(Locale.ROOT);
+        }
+
+        public Snapshot snapshot() {
+            return new Snapshot(endpoint, transport, strategy,
+                    (long) received.count(), (long) dropped.count(), (long) errors.count(), (long) duplicates.count(),
+                    (long) late.count(), bufferDepth.get(), demand.get(), readsInFlight.get(),
+                    firstElement.mean(TimeUnit.MILLISECONDS),
+                    interArrival.mean(TimeUnit.MILLISECONDS), interArrival.max(TimeUnit.MILLISECONDS));
+        }
+
+        /**
+         * Per-subscription timing and demand; onNext calls are serialized, requests may come from any thread.
+         */
+        private final class Tracker {
+            private final long subscribedNanos = System.nanoTime();
+            private final AtomicLong outstanding = new AtomicLong(); // -1 once the request is unbounded
+            private long lastNanos;
+
+            void onNext(Object value) {
+                received.increment();
+                if (value instanceof SensorData data) {
+                    recordLatency(Stage.RECEIVED, data.epochMillis());
+                }
+                long now = System.nanoTime();
+                if (lastNanos == 0L) {
+                    firstElement.record(now - subscribedNanos, TimeUnit.NANOSECONDS);
+                } else {
+                    interArrival.record(now - lastNanos, TimeUnit.NANOSECONDS);
+                }
+                lastNanos = now;
+                if (outstanding.getAndUpdate(n -> n > 0 ? n - 1 : n) > 0) {
+                    demand.decrementAndGet();
+                }
+            }
+
+            void onError(Throwable error) {
+                errors.increment();
+            }
+
+            void onRequest(long n) {
+                if (n == Long.MAX_VALUE) {
+                    long previous = outstanding.getAndSet(-1L);
+                    if (previous > 0) {
+                        demand.addAndGet(-previous);
+                    }
+                    return;
+                }
+                long previous = outstanding.getAndUpdate(current -> current < 0 ? current : current + n);
+                if (previous >= 0) {
+                    demand.addAndGet(n);
+                }
+            }
+
+            void finish() {
+                long previous = outstanding.getAndSet(-1L);
+                if (previous > 0) {
+                    demand.addAndGet(-previous);
+                }
+            }
+        }
+    }
+}
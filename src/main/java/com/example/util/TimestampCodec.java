@@ -0,0 +1,245 @@
+package com.example.util;
+
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+
+/**
+ * Allocation-free decoder for ISO-8601 timestamps such as {@code 2024-10-17T10:15:30.123456},
+ * producing epoch millis or nanos directly instead of going through {@code DateTimeFormatter}.
+ * <p>
+ * Accepts {@code yyyy-MM-ddTHH:mm[:ss[.fraction]]} (the {@link LocalDateTime#toString()} shapes) with an
+ * optional {@code Z} or {@code ±HH:MM} suffix. Timestamps without an offset are read in the codec's
+ * default zone, with the offset in force at that date and time, so readings on both sides of a daylight
+ * saving change are decoded correctly. The epoch seconds and the offset of the last date prefix are cached,
+ * so consecutive events from the same day skip date decoding and zone lookups entirely; only on the days
+ * around an offset transition is the offset resolved per timestamp.
+ */
+public final class TimestampCodec {
+
+    private static final int DATE_LENGTH = 10;
+    private static final int MIN_LENGTH = 16; // yyyy-MM-ddTHH:mm
+    private static final long SECONDS_PER_DAY = 86_400L;
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+    private static final long MILLIS_PER_SECOND = 1_000L;
+    private static final int NANOS_PER_MILLI = 1_000_000;
+    private static final long MAX_OFFSET_SECONDS = 18 * 3600L;
+    private static final int OFFSET_VARIES = Integer.MIN_VALUE;
+
+    // The producer stamps readings with its local wall clock, which we assume matches ours
+    private static final TimestampCodec SHARED = new TimestampCodec(ZoneId.systemDefault());
+
+    private final ZoneRules rules;
+    private volatile CachedDate cachedDate;
+
+    /**
+     * @param defaultZone zone of timestamps without an offset; a {@link ZoneOffset} for a fixed offset
+     */
+    public TimestampCodec(ZoneId defaultZone) {
+        this.rules = defaultZone.getRules();
+    }
+
+    public static TimestampCodec shared() {
+        return SHARED;
+    }
+
+    public long toEpochMillis(CharSequence text) {
+        return parse(text, MILLIS_PER_SECOND, NANOS_PER_MILLI, false);
+    }
+
+    /**
+     * Nanosecond precision; valid for instants between the years 1677 and 2262.
+     */
+    public long toEpochNanos(CharSequence text) {
+        return parse(text, NANOS_PER_SECOND, 1, false);
+    }
+
+    /**
+     * Same as {@link #toEpochMillis(CharSequence)} but returns {@code defaultValue} instead of throwing.
+     */
+    public long toEpochMillisOrDefault(CharSequence text, long defaultValue) {
+        try {
+            return toEpochMillis(text);
+        } catch (DateTimeException | ArithmeticException e) {
+            return defaultValue;
+        }
+    }
+
+    /**
+     * Drop-in for {@code LocalDateTime.parse(text, ISO_LOCAL_DATE_TIME)}: the wall-clock fields are kept
+     * as-is and an offset suffix is rejected.
+     */
+    public LocalDateTime toLocalDateTime(CharSequence text) {
+        long nanos;
+        try {
+            nanos = parse(text, NANOS_PER_SECOND, 1, true);
+        } catch (ArithmeticException e) {
+            return LocalDateTime.parse(text); // Outside the range a long of nanos can hold
+        }
+        return LocalDateTime.ofEpochSecond(
+                Math.floorDiv(nanos, NANOS_PER_SECOND), (int) Math.floorMod(nanos, NANOS_PER_SECOND), ZoneOffset.UTC);
+    }
+
+    private long parse(CharSequence text, long unitsPerSecond, int nanosPerUnit, boolean localOnly) {
+        int length = text.length();
+        if (length < MIN_LENGTH) {
+            throw error(text, length);
+        }
+        CachedDate date = date(text);
+
+        expect(text, 10, 'T');
+        int hour = digits(text, 11, 2);
+        expect(text, 13, ':');
+        int minute = digits(text, 14, 2);
+        int second = 0;
+        int nano = 0;
+        int pos = 16;
+        if (pos < length && text.charAt(pos) == ':') {
+            second = digits(text, 17, 2);
+            pos = 19;
+            if (pos < length && text.charAt(pos) == '.') {
+                int start = ++pos;
+                while (pos < length && pos - start < 9 && isDigit(text.charAt(pos))) {
+                    nano = nano * 10 + (text.charAt(pos) - '0');
+                    pos++;
+                }
+                if (pos == start) {
+                    throw error(text, pos);
+                }
+                for (int i = pos - start; i < 9; i++) {
+                    nano *= 10;
+                }
+            }
+        }
+        if (hour > 23 || minute > 59 || second > 59) {
+            throw error(text, 11);
+        }
+
+        int offsetSeconds = localOnly ? 0 : date.offsetSeconds;
+        if (pos < length) {
+            char c = text.charAt(pos);
+            if (localOnly) {
+                throw error(text, pos);
+            } else if (c == 'Z' && pos + 1 == length) {
+                offsetSeconds = 0;
+            } else if ((c == '+' || c == '-') && pos + 6 == length && text.charAt(pos + 3) == ':') {
+                int offset = digits(text, pos + 1, 2) * 3600 + digits(text, pos + 4, 2) * 60;
+                offsetSeconds = c == '-' ? -offset : offset;
+            } else {
+                throw error(text, pos);
+            }
+        } else if (offsetSeconds == OFFSET_VARIES) {
+            // A transition near this day: the offset depends on the time. In a gap or an overlap this is the
+            // offset before the transition, as ZonedDateTime.of picks for an overlap.
+            offsetSeconds = rules.getOffset(LocalDateTime.of(date.date, LocalTime.of(hour, minute, second, nano)))
+                    .getTotalSeconds();
+        }
+
+        long seconds = date.epochSeconds + hour * 3600L + minute * 60L + second - offsetSeconds;
+        return Math.addExact(Math.multiplyExact(seconds, unitsPerSecond), nano / nanosPerUnit);
+    }
+
+    private CachedDate date(CharSequence text) {
+        CachedDate cached = cachedDate;
+        if (cached != null && cached.matches(text)) {
+            return cached;
+        }
+
+        int year = digits(text, 0, 4);
+        expect(text, 4, '-');
+        int month = digits(text, 5, 2);
+        expect(text, 7, '-');
+        int day = digits(text, 8, 2);
+        LocalDate date;
+        try {
+            date = LocalDate.of(year, month, day);
+        } catch (DateTimeException e) {
+            throw new DateTimeParseException("Invalid date: " + text, text, 0, e);
+        }
+        long epochSeconds = date.toEpochDay() * SECONDS_PER_DAY;
+
+        char[] prefix = new char[DATE_LENGTH];
+        for (int i = 0; i < DATE_LENGTH; i++) {
+            prefix[i] = text.charAt(i);
+        }
+        CachedDate parsed = new CachedDate(prefix, date, epochSeconds, offsetOfDay(epochSeconds));
+        cachedDate = parsed;
+        return parsed;
+    }
+
+    /**
+     * The zone's offset for the whole local day starting at {@code epochSeconds}, or {@link #OFFSET_VARIES} when
+     * a transition falls within the instants that day can map to, whatever the offset.
+     */
+    private int offsetOfDay(long epochSeconds) {
+        if (rules.isFixedOffset()) {
+            return rules.getOffset(Instant.EPOCH).getTotalSeconds();
+        }
+        long earliest = epochSeconds - MAX_OFFSET_SECONDS;
+        long latest = epochSeconds + SECONDS_PER_DAY + MAX_OFFSET_SECONDS;
+        ZoneOffsetTransition next = rules.nextTransition(Instant.ofEpochSecond(earliest));
+        if (next != null && next.toEpochSecond() <= latest) {
+            return OFFSET_VARIES;
+        }
+        return rules.getOffset(Instant.ofEpochSecond(epochSeconds)).getTotalSeconds();
+    }
+
+    private static int digits(CharSequence text, int from, int count) {
+        int value = 0;
+        for (int i = from; i < from + count; i++) {
+            char c = text.charAt(i);
+            if (!isDigit(c)) {
+                throw error(text, i);
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static void expect(CharSequence text, int index, char expected) {
+        if (text.charAt(index) != expected) {
+            throw error(text, index);
+        }
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static DateTimeParseException error(CharSequence text, int index) {
+        return new DateTimeParseException("Text '" + text + "' could not be parsed at index " + index, text, index);
+    }
+
+    /**
+     * Immutable, so it can be published through a volatile field and shared by all threads.
+     */
+    private static final class CachedDate {
+        private final char[] prefix;
+        private final LocalDate date;
+        private final long epochSeconds;
+        private final int offsetSeconds; // OFFSET_VARIES near a transition
+
+        CachedDate(char[] prefix, LocalDate date, long epochSeconds, int offsetSeconds) {
+            this.prefix = prefix;
+            this.date = date;
+            this.epochSeconds = epochSeconds;
+            this.offsetSeconds = offsetSeconds;
+        }
+
+        boolean matches(CharSequence text) {
+            for (int i = 0; i < DATE_LENGTH; i++) {
+                if (prefix[i] != text.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.util;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdScalarDeserializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+
+import java.io.IOException;
+import java.nio.CharBuffer;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Jackson module that decodes {@link LocalDateTime} values with {@link TimestampCodec}.
+ * Register it after {@code JavaTimeModule} so it takes precedence for deserialization.
+ */
+public class TimestampModule extends SimpleModule {
+
+    public TimestampModule() {
+        super("TimestampModule");
+        addDeserializer(LocalDateTime.class, new LocalDateTimeDeserializer(TimestampCodec.shared()));
+    }
+
+    static class LocalDateTimeDeserializer extends StdScalarDeserializer<LocalDateTime> {
+        private final TimestampCodec codec;
+
+        LocalDateTimeDeserializer(TimestampCodec codec) {
+            super(LocalDateTime.class);
+            this.codec = codec;
+        }
+
+        @Override
+        public LocalDateTime deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            if (!p.hasToken(JsonToken.VALUE_STRING)) {
+                return (LocalDateTime) ctxt.handleUnexpectedToken(LocalDateTime.class, p);
+            }
+            // Decode from the parser's char buffer without materializing a String
+            CharBuffer text = CharBuffer.wrap(p.getTextCharacters(), p.getTextOffset(), p.getTextLength());
+            try {
+                return codec.toLocalDateTime(text);
+            } catch (DateTimeParseException e) {
+                return (LocalDateTime) ctxt.handleWeirdStringValue(LocalDateTime.class, text.toString(), e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.util;
+
+import io.reactivex.rxjava3.core.Scheduler;
+import io.reactivex.rxjava3.schedulers.Schedulers;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Executors and schedulers that run every task on a new virtual thread.
+ * <p>
+ * Meant for the blocking stream readers: a reader parked on a socket read holds a cheap virtual thread instead of
+ * a platform thread, so the number of open streams is no longer bounded by the thread count. Work that keeps a
+ * core busy belongs on {@link Schedulers#computation()} either way.
+ */
+public final class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * @param name thread name prefix, threads are numbered from 0
+     */
+    public static ExecutorService executor(String name) {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + "-", 0).factory());
+    }
+
+    /**
+     * A scheduler on {@code executor}. Each worker still runs its tasks one at a time and in order, like the
+     * workers of {@link Schedulers#io()}, and disposing a worker interrupts its running task.
+     */
+    public static Scheduler scheduler(ExecutorService executor) {
+        return Schedulers.from(executor, true, false);
+    }
+}
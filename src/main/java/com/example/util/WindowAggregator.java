@@ -0,0 +1,249 @@
+package com.example.util;
+
+import com.example.model.SensorData;
+import com.example.model.WindowAggregate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+/**
+ * Per-sensor tumbling or sliding window statistics over {@link SensorData#epochMillis()}.
+ * <p>
+ * Time is cut into panes of one slide each, and every sensor keeps running stats for the last
+ * {@code size / slide} panes in a ring. An event updates a single pane in O(1); when the stream moves
+ * past a window boundary the window is emitted by merging its panes, so buffered readings are never
+ * re-scanned. A tumbling window is the case where slide equals size.
+ * <p>
+ * Windows close on a watermark: the newest timestamp seen, minus an allowed lateness. The watermark follows event
+ * time only, so the consumer's clock never overtakes the readings; sensors whose clocks lag the newest one by up to
+ * the allowed lateness are still counted, in any order, and a reading for a window already emitted is counted as
+ * late and skipped. {@link #onIdle(long)} moves the watermark past the newest reading by the time the stream has
+ * been idle, so windows close even if no later reading arrives. Not thread-safe: one instance per subscription, fed
+ * serially.
+ */
+public final class WindowAggregator {
+
+    private final long slideMillis;
+    private final int panesPerWindow;
+    private final long latenessMillis;
+
+    private PaneRing[] rings = new PaneRing[64]; // Indexed by sensor ordinal
+    private final Map<String, PaneRing> unindexed = new HashMap<>(); // Sensors without an ordinal
+    private final RunningStats temperature = new RunningStats();
+    private final RunningStats humidity = new RunningStats();
+
+    private final int panesPerRing;
+    private final NavigableSet<Long> openPanes = new TreeSet<>(); // Panes with data in windows not yet all emitted
+    private long lastPane = Long.MIN_VALUE; // Of the previous reading, spares most lookups in openPanes
+    private long closedEnd = Long.MIN_VALUE; // Windows ending at or before this pane were emitted
+    private long newestMillis = Long.MIN_VALUE; // Newest reading's timestamp
+    private long late;
+
+    public WindowAggregator(Duration size, Duration slide) {
+        this(size, slide, Duration.ZERO);
+    }
+
+    /**
+     * @param allowedLateness how far a reading may lag the newest one seen and still be counted
+     */
+    public WindowAggregator(Duration size, Duration slide, Duration allowedLateness) {
+        long sizeMillis = size.toMillis();
+        this.slideMillis = slide.toMillis();
+        if (slideMillis <= 0 || sizeMillis < slideMillis || sizeMillis % slideMillis != 0) {
+            throw new IllegalArgumentException(
+                    "Window size must be a positive multiple of the slide, size: " + size + ", slide: " + slide);
+        }
+        if (allowedLateness.isNegative()) {
+            throw new IllegalArgumentException("Allowed lateness must not be negative: " + allowedLateness);
+        }
+        this.panesPerWindow = (int) (sizeMillis / slideMillis);
+        this.latenessMillis = allowedLateness.toMillis();
+        // Room for every pane between the oldest open window and the newest reading, so no slot is recycled early
+        this.panesPerRing = Math.toIntExact(panesPerWindow + Math.floorDiv(latenessMillis, slideMillis) + 2);
+    }
+
+    /**
+     * Adds a reading and returns the windows it closed, usually none. A reading without a timestamp belongs to no
+     * window and is ignored.
+     */
+    public List<WindowAggregate> onEvent(SensorData data) {
+        if (data.epochMillis() == SensorData.NO_EPOCH) {
+            return Collections.emptyList();
+        }
+        long pane = Math.floorDiv(data.epochMillis(), slideMillis);
+        if (closedEnd != Long.MIN_VALUE && pane < closedEnd) {
+            late++;
+            return Collections.emptyList();
+        }
+        ringFor(data).add(pane, data);
+        if (pane != lastPane) {
+            openPanes.add(pane);
+            lastPane = pane;
+        }
+        newestMillis = Math.max(newestMillis, data.epochMillis());
+        return advance(newestMillis);
+    }
+
+    /**
+     * Moves the watermark to the newest reading's timestamp plus {@code idleMillis}, minus the allowed lateness,
+     * and returns the windows this closed. Call when no reading has arrived for {@code idleMillis}; only the
+     * elapsed time is taken from the caller's clock, so it may be skewed against the producers'.
+     */
+    public List<WindowAggregate> onIdle(long idleMillis) {
+        if (openPanes.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return advance(newestMillis + idleMillis);
+    }
+
+    /**
+     * Emits every window that still holds data; call once the stream has completed.
+     */
+    public List<WindowAggregate> flush() {
+        if (openPanes.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<WindowAggregate> closed = close(openPanes.last() + panesPerWindow);
+        closedEnd = Long.MIN_VALUE;
+        lastPane = Long.MIN_VALUE;
+        newestMillis = Long.MIN_VALUE;
+        Arrays.fill(rings, null);
+        unindexed.clear();
+        return closed;
+    }
+
+    public long lateCount() {
+        return late;
+    }
+
+    private List<WindowAggregate> advance(long watermarkMillis) {
+        long target = Math.floorDiv(watermarkMillis - latenessMillis, slideMillis);
+        if (closedEnd == Long.MIN_VALUE) {
+            closedEnd = target; // Nothing before the first reading to emit
+            return Collections.emptyList();
+        }
+        return target > closedEnd ? close(target) : Collections.emptyList();
+    }
+
+    /**
+     * Emits the windows ending after {@link #closedEnd} up to {@code lastEnd} that hold data. Only the ends next to
+     * open panes are looked at, however long a gap between readings was.
+     */
+    private List<WindowAggregate> close(long lastEnd) {
+        List<WindowAggregate> closed = new ArrayList<>();
+        long end = closedEnd + 1;
+        for (long pane : openPanes) {
+            long windowsEnd = Math.min(pane + panesPerWindow, lastEnd); // The windows holding this pane end before
+            for (end = Math.max(end, pane + 1); end <= windowsEnd; end++) {
+                for (PaneRing ring : rings) {
+                    if (ring != null) {
+                        emit(ring, end, closed);
+                    }
+                }
+                for (PaneRing ring : unindexed.values()) {
+                    emit(ring, end, closed);
+                }
+            }
+            if (pane >= lastEnd) {
+                break;
+            }
+        }
+        openPanes.headSet(lastEnd - panesPerWindow, true).clear(); // In no window left open
+        closedEnd = lastEnd;
+        return closed;
+    }
+
+    private void emit(PaneRing ring, long endPane, List<WindowAggregate> closed) {
+        temperature.reset();
+        humidity.reset();
+        ring.mergeInto(endPane - panesPerWindow, endPane, temperature, humidity);
+        if (temperature.count() == 0) {
+            return;
+        }
+        closed.add(new WindowAggregate(
+                ring.sensorId,
+                ring.sensorOrdinal,
+                (endPane - panesPerWindow) * slideMillis,
+                endPane * slideMillis,
+                temperature.count(),
+                temperature.min(),
+                temperature.max(),
+                temperature.mean(),
+                temperature.variance(),
+                humidity.min(),
+                humidity.max(),
+                humidity.mean(),
+                humidity.variance()));
+    }
+
+    private PaneRing ringFor(SensorData data) {
+        int ordinal = data.sensorOrdinal();
+        if (ordinal < 0) {
+            return unindexed.computeIfAbsent(data.id(), id -> new PaneRing(id, ordinal, panesPerRing));
+        }
+        if (ordinal >= rings.length) {
+            rings = Arrays.copyOf(rings, Math.max(rings.length * 2, ordinal + 1));
+        }
+        PaneRing ring = rings[ordinal];
+        if (ring == null) {
+            ring = new PaneRing(data.id(), ordinal, panesPerRing);
+            rings[ordinal] = ring;
+        }
+        return ring;
+    }
+
+    /**
+     * The latest panes of one sensor, those of the open windows and the allowed lateness; a slot is recycled when a
+     * newer pane maps onto it.
+     */
+    private static final class PaneRing {
+        private final String sensorId;
+        private final int sensorOrdinal;
+        private final long[] panes;
+        private final RunningStats[] temperatures;
+        private final RunningStats[] humidities;
+
+        PaneRing(String sensorId, int sensorOrdinal, int size) {
+            this.sensorId = sensorId;
+            this.sensorOrdinal = sensorOrdinal;
+            this.panes = new long[size];
+            this.temperatures = new RunningStats[size];
+            this.humidities = new RunningStats[size];
+            Arrays.fill(panes, Long.MIN_VALUE);
+            for (int i = 0; i < size; i++) {
+                temperatures[i] = new RunningStats();
+                humidities[i] = new RunningStats();
+            }
+        }
+
+        void add(long pane, SensorData data) {
+            int slot = (int) Math.floorMod(pane, (long) panes.length);
+            if (panes[slot] != pane) {
+                panes[slot] = pane;
+                temperatures[slot].reset();
+                humidities[slot].reset();
+            }
+            temperatures[slot].add(data.temperature());
+            humidities[slot].add(data.humidity());
+        }
+
+        /**
+         * Merges the panes in [fromPane, toPane) into the given stats.
+         */
+        void mergeInto(long fromPane, long toPane, RunningStats temperature, RunningStats humidity) {
+            for (int slot = 0; slot < panes.length; slot++) {
+                if (panes[slot] >= fromPane && panes[slot] < toPane) {
+                    temperature.merge(temperatures[slot]);
+                    humidity.merge(humidities[slot]);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HttpTransportConfigTest {
+
+    private final HttpTransportConfig config = new HttpTransportConfig(Duration.ofSeconds(5), Duration.ofSeconds(10));
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private final Dispatcher dispatcher = config.httpDispatcher(256, 64, false);
+    private final ConnectionPool pool = config.httpConnectionPool(16, Duration.ofMinutes(5));
+
+    @Test
+    @DisplayName("Both client profiles share one dispatcher and connection pool and differ only in timeouts")
+    void profilesShareTransport() {
+        OkHttpClient request = config.requestHttpClient(dispatcher, pool, registry, Duration.ofSeconds(10), Duration.ZERO);
+        OkHttpClient streaming = config.streamingHttpClient(dispatcher, pool, registry, Duration.ofSeconds(30));
+
+        assertSame(request.dispatcher(), streaming.dispatcher());
+        assertSame(request.connectionPool(), streaming.connectionPool());
+        assertEquals(64, streaming.dispatcher().getMaxRequestsPerHost());
+        assertEquals(10_000, request.readTimeoutMillis());
+        assertEquals(30_000, streaming.readTimeoutMillis());
+        assertEquals(5_000, streaming.connectTimeoutMillis());
+    }
+
+    @Test
+    @DisplayName("With virtual threads enabled the dispatcher runs calls on virtual threads")
+    void virtualThreadDispatcher() throws Exception {
+        Dispatcher virtual = config.httpDispatcher(256, 64, true);
+
+        assertTrue(virtual.executorService().submit(() -> Thread.currentThread().isVirtual()).get());
+        assertFalse(dispatcher.executorService().submit(() -> Thread.currentThread().isVirtual()).get());
+        assertEquals(64, virtual.getMaxRequestsPerHost());
+        virtual.executorService().shutdown();
+    }
+
+    @Test
+    @DisplayName("Pool and dispatcher statistics are exported as gauges")
+    void exportsTransportGauges() {
+        config.httpTransportMetrics(dispatcher, pool).bindTo(registry);
+
+        assertEquals(0.0, registry.get("okhttp.dispatcher.calls").tag("state", "running").gauge().value());
+        assertEquals(0.0, registry.get("okhttp.dispatcher.calls").tag("state", "queued").gauge().value());
+        assertEquals(64.0, registry.get("okhttp.dispatcher.max.requests.per.host").gauge().value());
+        assertFalse(registry.find("okhttp.pool.connection.count").gauges().isEmpty());
+    }
+}
@@ -0,0 +1,206 @@
+package com.example.producer;
+
+import com.example.config.RetrofitConfig;
+import com.example.model.SensorData;
+import com.example.service.ConsumerRxService;
+import com.example.service.ConsumerWebfluxService;
+import com.example.service.EventStreamClientRxService;
+import com.example.service.client.EventStreamClientRxApi;
+import com.example.service.client.WebClientRxService;
+import com.example.service.client.WebClientWebfluxService;
+import com.example.util.LookupCache;
+import com.example.util.MicroBatcher;
+import com.example.util.OffHeapOverflow;
+import com.example.util.SampledLog;
+import com.example.util.SensorDedup;
+import com.example.util.SensorWindows;
+import com.example.util.SseReconnect;
+import com.example.util.StreamMetrics;
+import com.example.util.TimestampCodec;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.reactivex.rxjava3.core.BackpressureOverflowStrategy;
+import io.reactivex.rxjava3.core.Flowable;
+import io.reactivex.rxjava3.disposables.Disposable;
+import okhttp3.OkHttpClient;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Drives each streaming consumer against the {@link EmbeddedProducer} at increasing rates and logs the achieved
+ * throughput and end-to-end latency (send time in the event to arrival at the subscriber) per rate. The highest
+ * rate that is still sustained is the transport's maximum.
+ * <p>
+ * Opt-in, it runs for a while: {@code ./mvnw test -Dtest=ConsumerThroughputTest -Dconsumer.load=true}, optionally
+ * with {@code -Dconsumer.load.rates=1000,10000,50000}, {@code -Dconsumer.load.window=5s} and
+ * {@code -Dconsumer.load.payload-bytes=256}.
+ * <p>
+ * Retrofit is not on the ladder: its converter decodes one reading per response, so it has no streaming path.
+ */
+@EnabledIfSystemProperty(named = "consumer.load", matches = "true")
+class ConsumerThroughputTest {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConsumerThroughputTest.class);
+
+    /**
+     * A rate counts as sustained when this share of it arrives, with a p99 latency below {@link #MAX_P99_MILLIS}.
+     */
+    private static final double SUSTAINED_RATIO = 0.95;
+    private static final long MAX_P99_MILLIS = 1000;
+
+    private static final String TIMESTAMP_FIELD = "\"timestamp\":\"";
+
+    private static EmbeddedProducer producer;
+    private static OkHttpClient okHttpClient;
+
+    private final long[] rates = Arrays.stream(System.getProperty("consumer.load.rates", "1000,5000,20000,50000,100000")
+            .split(",")).mapToLong(rate -> Long.parseLong(rate.trim())).toArray();
+    private final Duration window = Duration.parse("PT" + System.getProperty("consumer.load.window", "3s"));
+    private final int payloadBytes = Integer.getInteger("consumer.load.payload-bytes", 0);
+
+    record Rung(long targetRate, long achievedRate, long p50Millis, long p99Millis, long maxMillis) {
+
+        boolean sustained() {
+            return achievedRate >= targetRate * SUSTAINED_RATIO && p99Millis <= MAX_P99_MILLIS;
+        }
+    }
+
+    @BeforeAll
+    static void startProducer() throws IOException {
+        producer = new EmbeddedProducer(EmbeddedProducer.Settings.DEFAULT);
+        okHttpClient = new OkHttpClient.Builder().readTimeout(Duration.ofSeconds(30)).build();
+    }
+
+    @AfterAll
+    static void stopProducer() {
+        producer.close();
+        okHttpClient.dispatcher().executorService().shutdown();
+    }
+
+    @Test
+    @DisplayName("Maximum sustainable throughput and latency per transport")
+    void throughputLadder() {
+        ObjectMapper objectMapper = new RetrofitConfig("http://localhost/").objectMapper();
+        WebClient.Builder webClientBuilder = WebClient.builder()
+                .codecs(codecs -> codecs.defaultCodecs().jackson2JsonDecoder(new Jackson2JsonDecoder(objectMapper)));
+        StreamMetrics metrics = new StreamMetrics(new SimpleMeterRegistry());
+        EventStreamClientRxApi eventStreamClient = new EventStreamClientRxApi(producer.retrofitUrl(), true,
+                new OffHeapOverflow.Settings(1024, 64 << 20, BackpressureOverflowStrategy.ERROR),
+                new SseReconnect.Settings(0, Duration.ofMillis(500), Duration.ofSeconds(1), Duration.ofSeconds(30)),
+                okHttpClient, metrics);
+
+        ConsumerRxService rx = new ConsumerRxService(
+                new WebClientRxService(producer.rxUrl(), webClientBuilder.clone(), webClientBuilder.clone()),
+                SampledLog.Settings.DEFAULT, metrics, SensorDedup.Settings.DEFAULT, LookupCache.Settings.DEFAULT,
+                SensorWindows.Settings.DEFAULT);
+        ConsumerWebfluxService webflux = new ConsumerWebfluxService(
+                new WebClientWebfluxService(producer.webfluxUrl(), webClientBuilder.clone(), webClientBuilder.clone()),
+                SampledLog.Settings.DEFAULT, metrics, MicroBatcher.Settings.DEFAULT, LookupCache.Settings.DEFAULT,
+                SensorWindows.Settings.DEFAULT);
+        EventStreamClientRxService eventStream = new EventStreamClientRxService(eventStreamClient);
+
+        Map<String, List<Rung>> curves = new LinkedHashMap<>();
+        curves.put("webclient-rx", ladder(rx::consumeFlowable, SensorData::epochMillis));
+        curves.put("webclient-webflux", ladder(() -> Flowable.fromPublisher(webflux.consumeFlowableAsFlux()),
+                SensorData::epochMillis));
+        curves.put("okhttp-sse", ladder(eventStream::consumeFlowable, ConsumerThroughputTest::sentAtMillis));
+
+        curves.forEach((transport, rungs) -> {
+            logger.info("{}: target/s achieved/s p50 ms p99 ms max ms", transport);
+            rungs.forEach(rung -> logger.info("{}: {} {} {} {} {}{}", transport, rung.targetRate(), rung.achievedRate(),
+                    rung.p50Millis(), rung.p99Millis(), rung.maxMillis(), rung.sustained() ? "" : " (not sustained)"));
+            logger.info("{}: maximum sustained rate {}/s", transport, rungs.stream()
+                    .filter(Rung::sustained).mapToLong(Rung::targetRate).max().orElse(0));
+            assertFalse(rungs.isEmpty());
+        });
+    }
+
+    private <T> List<Rung> ladder(Supplier<Flowable<T>> consumer, ToLongFunction<T> sentAtMillis) {
+        measure(rates[0], consumer, sentAtMillis); // Warm-up: connection pools, codecs and JIT, not reported
+        List<Rung> rungs = new ArrayList<>();
+        for (long rate : rates) {
+            Rung rung = measure(rate, consumer, sentAtMillis);
+            rungs.add(rung);
+            if (rung.achievedRate() < rate / 2) {
+                break; // Far past saturation, higher rates only take longer
+            }
+        }
+        return rungs;
+    }
+
+    private <T> Rung measure(long rate, Supplier<Flowable<T>> consumer, ToLongFunction<T> sentAtMillis) {
+        producer.settings(EmbeddedProducer.Settings.DEFAULT
+                .withRate(rate)
+                .withEventCount(Long.MAX_VALUE)
+                .withPayload(payloadBytes, 1000));
+        Latencies latencies = new Latencies((int) Math.min(rate * window.toSeconds() * 2, 50_000_000));
+        long start = System.nanoTime();
+        Disposable subscription = consumer.get()
+                .subscribe(event -> latencies.add(System.currentTimeMillis() - sentAtMillis.applyAsLong(event)),
+                        error -> logger.warn("Stream failed at {}/s: {}", rate, error.toString()));
+        try {
+            Thread.sleep(window.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        subscription.dispose();
+        long elapsedNanos = System.nanoTime() - start;
+        return latencies.rung(rate, elapsedNanos);
+    }
+
+    private static long sentAtMillis(String json) {
+        int from = json.indexOf(TIMESTAMP_FIELD) + TIMESTAMP_FIELD.length();
+        return TimestampCodec.shared().toEpochMillis(json.subSequence(from, json.indexOf('"', from)));
+    }
+
+    /**
+     * Arrival latencies of one run; written by the subscriber thread, read once it is disposed.
+     */
+    private static final class Latencies {
+        private long[] values;
+        private int size;
+
+        Latencies(int expected) {
+            values = new long[Math.max(expected, 1024)];
+        }
+
+        synchronized void add(long millis) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = millis;
+        }
+
+        synchronized Rung rung(long targetRate, long elapsedNanos) {
+            long[] sorted = Arrays.copyOf(values, size);
+            Arrays.sort(sorted);
+            long achieved = size * TimeUnit.SECONDS.toNanos(1) / elapsedNanos;
+            return new Rung(targetRate, achieved, percentile(sorted, 0.50), percentile(sorted, 0.99),
+                    sorted.length == 0 ? 0 : sorted[sorted.length - 1]);
+        }
+
+        private static long percentile(long[] sorted, double quantile) {
+            return sorted.length == 0 ? 0 : sorted[(int) Math.min(sorted.length - 1, quantile * sorted.length)];
+        }
+    }
+}
@@ -0,0 +1,308 @@
+package com.example.producer;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * In-process stand-in for the producer service, serving the same contracts under
+ * {@code /producer/api/sensors/rx/} and {@code /producer/api/sensors/webflux/}:
+ * <ul>
+ *     <li>{@code /observable}, {@code /flowable}: 10 events, one per second</li>
+ *     <li>{@code /backpressure?backpressureStrategy=&isFastProducer=&dataSize=}: {@code dataSize} events (default
+ *     10), every millisecond for a fast producer, every 5 seconds otherwise</li>
+ *     <li>{@code /errorHandling?errorHandlingFlag=}: 10 events, then what the flag leads to on the producer side:
+ *     a fallback event ({@code onErrorReturn}), a fallback stream ({@code onErrorResumeNext}) or a broken
+ *     connection ({@code doOnError})</li>
+ *     <li>{@code /single}, {@code /maybe?flag=}: one JSON reading, {@code sensor-single} or {@code sensor-maybe};
+ *     an empty body when {@code flag} is false</li>
+ *     <li>{@code POST /calibrate}: an empty 200 response</li>
+ * </ul>
+ * Streams are {@code text/event-stream}. {@link Settings} override rates, counts and payloads and inject faults;
+ * they can be changed while running and apply from the next request on. Each event's {@code timestamp} is its
+ * send time, so consumers in the same JVM can compute end-to-end latency from {@code epochMillis}.
+ */
+public final class EmbeddedProducer implements AutoCloseable {
+
+    public static final String CONTEXT_PATH = "/producer/api/sensors/";
+
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS");
+    private static final int DEFAULT_COUNT = 10;
+    private static final byte[] DATA = "data:".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] FRAME_END = "\n\n".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * @param eventsPerSecond    stream rate, 0 for each endpoint's own rate, {@link Double#POSITIVE_INFINITY} for
+     *                           as fast as the consumer reads
+     * @param eventCount         events per stream, 0 for each endpoint's own count, {@link Long#MAX_VALUE} for
+     *                           a stream that only ends when the consumer cancels
+     * @param payloadBytes       minimum JSON size of an event, padded with whitespace; 0 for no padding
+     * @param sensorCardinality  distinct sensor ids, cycled through
+     * @param burstSize          events sent back to back at once; the average rate is unchanged
+     * @param responseDelay      wait before the response headers
+     * @param errorResponseRate  fraction of requests answered with 503
+     * @param disconnectAfter    events after which a stream's connection is broken, 0 for never
+     */
+    public record Settings(double eventsPerSecond, long eventCount, int payloadBytes, int sensorCardinality,
+                           int burstSize, Duration responseDelay, double errorResponseRate, long disconnectAfter) {
+
+        /**
+         * Behaves like the real producer.
+         */
+        public static final Settings DEFAULT = new Settings(0, 0, 0, 10, 1, Duration.ZERO, 0, 0);
+
+        public Settings withRate(double eventsPerSecond) {
+            return new Settings(eventsPerSecond, eventCount, payloadBytes, sensorCardinality, burstSize,
+                    responseDelay, errorResponseRate, disconnectAfter);
+        }
+
+        public Settings withEventCount(long eventCount) {
+            return new Settings(eventsPerSecond, eventCount, payloadBytes, sensorCardinality, burstSize,
+                    responseDelay, errorResponseRate, disconnectAfter);
+        }
+
+        public Settings withPayload(int payloadBytes, int sensorCardinality) {
+            return new Settings(eventsPerSecond, eventCount, payloadBytes, sensorCardinality, burstSize,
+                    responseDelay, errorResponseRate, disconnectAfter);
+        }
+
+        public Settings withBursts(int burstSize) {
+            return new Settings(eventsPerSecond, eventCount, payloadBytes, sensorCardinality, burstSize,
+                    responseDelay, errorResponseRate, disconnectAfter);
+        }
+
+        public Settings withFaults(Duration responseDelay, double errorResponseRate, long disconnectAfter) {
+            return new Settings(eventsPerSecond, eventCount, payloadBytes, sensorCardinality, burstSize,
+                    responseDelay, errorResponseRate, disconnectAfter);
+        }
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor(); // One per connection
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong eventsSent = new AtomicLong();
+    private volatile Settings settings;
+
+    public EmbeddedProducer(Settings settings) throws IOException {
+        this(0, settings);
+    }
+
+    /**
+     * @param port 0 for any free port
+     */
+    public EmbeddedProducer(int port, Settings settings) throws IOException {
+        this.settings = settings;
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext(CONTEXT_PATH, this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    public void settings(Settings settings) {
+        this.settings = settings;
+    }
+
+    public Settings settings() {
+        return settings;
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Counterpart of {@code provider.service.rx.url}, without a trailing slash.
+     */
+    public String rxUrl() {
+        return "http://" + server.getAddress().getHostString() + ":" + port() + CONTEXT_PATH + "rx";
+    }
+
+    /**
+     * Counterpart of {@code provider.service.webflux.url}, without a trailing slash.
+     */
+    public String webfluxUrl() {
+        return "http://" + server.getAddress().getHostString() + ":" + port() + CONTEXT_PATH + "webflux";
+    }
+
+    /**
+     * Counterpart of {@code provider.service.retrofit.url}, with the trailing slash Retrofit requires.
+     */
+    public String retrofitUrl() {
+        return rxUrl() + "/";
+    }
+
+    public long requests() {
+        return requests.get();
+    }
+
+    public long eventsSent() {
+        return eventsSent.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        Settings current = settings; // One snapshot per request
+        if (!current.responseDelay().isZero()) {
+            LockSupport.parkNanos(current.responseDelay().toNanos());
+        }
+        if (current.errorResponseRate() > 0 && ThreadLocalRandom.current().nextDouble() < current.errorResponseRate()) {
+            exchange.sendResponseHeaders(503, -1);
+            exchange.close();
+            return;
+        }
+        String path = exchange.getRequestURI().getPath();
+        Map<String, String> query = query(exchange.getRequestURI().getRawQuery());
+        switch (path.substring(path.lastIndexOf('/') + 1)) {
+            case "observable", "flowable" -> stream(exchange, current,
+                    rate(current, 1), count(current, DEFAULT_COUNT), Tail.NONE);
+            case "backpressure" -> stream(exchange, current,
+                    rate(current, Boolean.parseBoolean(query.get("isFastProducer")) ? 1000 : 0.2),
+                    count(current, Long.parseLong(query.getOrDefault("dataSize", String.valueOf(DEFAULT_COUNT)))),
+                    Tail.NONE);
+            case "errorHandling" -> stream(exchange, current,
+                    rate(current, 10), count(current, DEFAULT_COUNT), Tail.of(query.get("errorHandlingFlag")));
+            case "single" -> json(exchange, event("sensor-single", 0, 0));
+            case "maybe" -> json(exchange, Boolean.parseBoolean(query.get("flag")) ? event("sensor-maybe", 0, 0) : null);
+            case "calibrate" -> exchange.sendResponseHeaders(200, -1);
+            default -> exchange.sendResponseHeaders(404, -1);
+        }
+        // Deliberately not in a finally block: when a stream fails, the server drops the connection
+        // instead of ending the response cleanly, which is what a consumer sees from a crashed producer
+        exchange.close();
+    }
+
+    private void stream(HttpExchange exchange, Settings current, double rate, long count, Tail tail) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0); // Chunked
+        OutputStream out = new BufferedOutputStream(exchange.getResponseBody(), 8192);
+        int burst = Math.max(current.burstSize(), 1);
+        long intervalNanos = Double.isInfinite(rate) ? 0L : (long) (1e9 * burst / rate);
+        long start = System.nanoTime();
+        for (long i = 0; i < count; i++) {
+            if (intervalNanos > 0 && i % burst == 0) {
+                // Absolute schedule, so a slow write is caught up on instead of lowering the rate
+                long due = start + (i / burst) * intervalNanos;
+                if (due - System.nanoTime() > 0) {
+                    out.flush(); // Only flushed when ahead of schedule, so full speed still fills whole chunks
+                    for (long wait; (wait = due - System.nanoTime()) > 0; ) {
+                        LockSupport.parkNanos(wait);
+                    }
+                }
+            }
+            send(out, event(sensorId(i, current), i, current.payloadBytes()));
+            if (current.disconnectAfter() > 0 && i + 1 == current.disconnectAfter()) {
+                out.flush();
+                // The server closes the connection without the final chunk: the consumer sees a truncated stream
+                throw new IOException("Injected disconnect after " + (i + 1) + " events");
+            }
+        }
+        switch (tail) {
+            case FALLBACK_EVENT -> send(out, event("sensor-fallback", 0, 0));
+            case FALLBACK_STREAM -> {
+                for (int i = 0; i < 5; i++) {
+                    send(out, event("sensor-fallback", i, 0));
+                }
+            }
+            case BROKEN -> {
+                out.flush();
+                throw new IOException("Producer error, stream broken");
+            }
+            default -> {
+            }
+        }
+        out.flush();
+    }
+
+    private void send(OutputStream out, byte[] json) throws IOException {
+        out.write(DATA);
+        out.write(json);
+        out.write(FRAME_END);
+        eventsSent.incrementAndGet();
+    }
+
+    private static void json(HttpExchange exchange, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        if (body == null) {
+            exchange.sendResponseHeaders(200, -1);
+            return;
+        }
+        exchange.sendResponseHeaders(200, body.length);
+        exchange.getResponseBody().write(body);
+    }
+
+    private static String sensorId(long sequence, Settings current) {
+        return "sensor-" + (sequence % Math.max(current.sensorCardinality(), 1) + 1);
+    }
+
+    static byte[] event(String id, long sequence, int payloadBytes) {
+        StringBuilder json = new StringBuilder(Math.max(payloadBytes, 128))
+                .append("{\"id\":\"").append(id)
+                .append("\",\"temperature\":").append(String.format(Locale.ROOT, "%.2f", 20 + sequence % 100 / 10.0))
+                .append(",\"humidity\":").append(String.format(Locale.ROOT, "%.2f", 40 + sequence % 300 / 10.0))
+                .append(",\"timestamp\":\"").append(TIMESTAMP.format(LocalDateTime.now()))
+                .append('"');
+        while (json.length() < payloadBytes - 1) {
+            json.append(' '); // Insignificant whitespace: any size without touching the SensorData schema
+        }
+        return json.append('}').toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static double rate(Settings current, double endpointRate) {
+        return current.eventsPerSecond() > 0 ? current.eventsPerSecond() : endpointRate;
+    }
+
+    private static long count(Settings current, long endpointCount) {
+        return current.eventCount() > 0 ? current.eventCount() : endpointCount;
+    }
+
+    private static Map<String, String> query(String rawQuery) {
+        Map<String, String> parameters = new HashMap<>();
+        if (rawQuery != null) {
+            for (String pair : rawQuery.split("&")) {
+                int eq = pair.indexOf('=');
+                if (eq > 0) {
+                    parameters.put(URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                            URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8));
+                }
+            }
+        }
+        return parameters;
+    }
+
+    private enum Tail {
+        NONE, FALLBACK_EVENT, FALLBACK_STREAM, BROKEN;
+
+        static Tail of(String errorHandlingFlag) {
+            return switch (String.valueOf(errorHandlingFlag)) {
+                case "onErrorReturn" -> FALLBACK_EVENT;
+                case "onErrorResumeNext" -> FALLBACK_STREAM;
+                case "doOnError" -> BROKEN;
+                default -> NONE;
+            };
+        }
+    }
+}
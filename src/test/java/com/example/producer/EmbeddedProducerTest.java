@@ -0,0 +1,150 @@
+package com.example.producer;
+
+import com.example.config.RetrofitConfig;
+import com.example.model.SensorData;
+import com.example.service.RetrofitClientRxService;
+import com.example.service.client.EventStreamClientRxApi;
+import com.example.service.client.WebClientRxService;
+import com.example.util.DataPrefixConverterFactory;
+import com.example.util.OffHeapOverflow;
+import com.example.util.SseReconnect;
+import com.example.util.StreamMetrics;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.reactivex.rxjava3.core.BackpressureOverflowStrategy;
+import io.reactivex.rxjava3.core.BackpressureStrategy;
+import io.reactivex.rxjava3.subscribers.TestSubscriber;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import retrofit2.Retrofit;
+import retrofit2.adapter.rxjava3.RxJava3CallAdapterFactory;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The embedded producer against the real clients: same contracts as the producer service, plus its overrides.
+ */
+class EmbeddedProducerTest {
+
+    private final ObjectMapper objectMapper = new RetrofitConfig("http://localhost/").objectMapper();
+    private final OkHttpClient okHttpClient = new OkHttpClient.Builder().build();
+
+    private EmbeddedProducer producer;
+    private WebClientRxService webClient;
+    private EventStreamClientRxApi eventStreamClient;
+
+    @BeforeEach
+    void startProducer() throws IOException {
+        producer = new EmbeddedProducer(EmbeddedProducer.Settings.DEFAULT.withRate(Double.POSITIVE_INFINITY));
+        WebClient.Builder builder = WebClient.builder()
+                .codecs(codecs -> codecs.defaultCodecs().jackson2JsonDecoder(new Jackson2JsonDecoder(objectMapper)));
+        webClient = new WebClientRxService(producer.rxUrl(), builder.clone(), builder.clone());
+        eventStreamClient = new EventStreamClientRxApi(producer.retrofitUrl(), false,
+                new OffHeapOverflow.Settings(1024, 1 << 20, BackpressureOverflowStrategy.ERROR),
+                new SseReconnect.Settings(3, Duration.ofMillis(10), Duration.ofMillis(50), Duration.ofSeconds(5)),
+                okHttpClient, new StreamMetrics(new SimpleMeterRegistry()));
+    }
+
+    @AfterEach
+    void stopProducer() {
+        producer.close();
+        okHttpClient.dispatcher().executorService().shutdown();
+    }
+
+    @Test
+    @DisplayName("Streams, single, maybe and calibrate follow the producer's contracts")
+    void contracts() {
+        TestSubscriber<SensorData> flowable = webClient.getFastSensorUpdates().test();
+        flowable.awaitDone(10, TimeUnit.SECONDS).assertComplete().assertValueCount(10);
+        assertTrue(flowable.values().stream().allMatch(data -> data.id().startsWith("sensor-") && data.epochMillis() > 0));
+
+        webClient.getSingleSensorUpdate().test().awaitDone(10, TimeUnit.SECONDS)
+                .assertValue(data -> data.id().equals("sensor-single"));
+        webClient.getMaybeSensorUpdate(true).test().awaitDone(10, TimeUnit.SECONDS)
+                .assertValue(data -> data.id().equals("sensor-maybe"));
+        webClient.getMaybeSensorUpdate(false).test().awaitDone(10, TimeUnit.SECONDS)
+                .assertComplete().assertNoValues();
+        webClient.calibrateSensors().test().awaitDone(10, TimeUnit.SECONDS).assertComplete();
+
+        eventStreamClient.getBackpressureFlowable(BackpressureStrategy.BUFFER, true, 25).test()
+                .awaitDone(10, TimeUnit.SECONDS).assertComplete().assertValueCount(25);
+
+        Retrofit retrofit = new Retrofit.Builder()
+                .baseUrl(producer.retrofitUrl())
+                .client(okHttpClient)
+                .addConverterFactory(new DataPrefixConverterFactory(objectMapper))
+                .addCallAdapterFactory(RxJava3CallAdapterFactory.create())
+                .build();
+        new RetrofitClientRxService(retrofit).consumeSingle().test().awaitDone(10, TimeUnit.SECONDS)
+                .assertValue(data -> data.id().equals("sensor-single"));
+    }
+
+    @Test
+    @DisplayName("Error handling flags end the stream the way the producer's operators do")
+    void errorHandling() {
+        TestSubscriber<String> onErrorReturn = eventStreamClient
+                .getErrorHandlingFlowable(EventStreamClientRxApi.ERRHANDLING_ONERRORRETURN).test();
+        onErrorReturn.awaitDone(10, TimeUnit.SECONDS).assertComplete().assertValueCount(11);
+        assertTrue(onErrorReturn.values().get(10).contains("sensor-fallback"));
+
+        eventStreamClient.getErrorHandlingFlowable(EventStreamClientRxApi.ERRHANDLING_ONERRORRESUMENEXT).test()
+                .awaitDone(10, TimeUnit.SECONDS).assertComplete().assertValueCount(15);
+
+        TestSubscriber<String> doOnError = eventStreamClient
+                .getErrorHandlingFlowable(EventStreamClientRxApi.ERRHANDLING_DOONERROR).test();
+        doOnError.awaitDone(10, TimeUnit.SECONDS).assertError(IOException.class);
+        assertEquals(10, doOnError.values().size());
+    }
+
+    @Test
+    @DisplayName("Rate, bursts and payload size are configurable")
+    void rateAndPayload() {
+        producer.settings(EmbeddedProducer.Settings.DEFAULT
+                .withRate(400)
+                .withEventCount(200)
+                .withBursts(20)
+                .withPayload(512, 3));
+        long start = System.nanoTime();
+        TestSubscriber<SensorData> subscriber = webClient.getFastSensorUpdates().test();
+        subscriber.awaitDone(10, TimeUnit.SECONDS).assertComplete().assertValueCount(200);
+
+        // 10 bursts of 20 at 400/s: the last one is due 9 * 50 ms after the first
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 400);
+        assertEquals(3, subscriber.values().stream().map(SensorData::id).distinct().count());
+        assertEquals(512, EmbeddedProducer.event("sensor-1", 0, 512).length);
+        assertEquals(200, producer.eventsSent());
+    }
+
+    @Test
+    @DisplayName("Injected faults: error responses, broken connections and resumed streams")
+    void faults() {
+        producer.settings(EmbeddedProducer.Settings.DEFAULT.withFaults(Duration.ZERO, 1.0, 0));
+        webClient.getSingleSensorUpdate().test().awaitDone(10, TimeUnit.SECONDS)
+                .assertError(WebClientResponseException.ServiceUnavailable.class);
+
+        producer.settings(EmbeddedProducer.Settings.DEFAULT
+                .withRate(Double.POSITIVE_INFINITY)
+                .withEventCount(Long.MAX_VALUE)
+                .withFaults(Duration.ZERO, 0, 5));
+        HttpUrl url = HttpUrl.get(producer.retrofitUrl() + EventStreamClientRxApi.FLOWABLE_ENDPOINT);
+        TestSubscriber<String> broken = eventStreamClient.streamEvents(url, BackpressureStrategy.BUFFER).test();
+        broken.awaitDone(10, TimeUnit.SECONDS).assertError(IOException.class);
+        assertEquals(5, broken.values().size());
+
+        // Every connection breaks after 5 events; the resuming client keeps reconnecting while events flow
+        eventStreamClient.resumeEvents(url, BackpressureStrategy.BUFFER).take(12).test()
+                .awaitDone(10, TimeUnit.SECONDS).assertComplete().assertValueCount(12);
+        assertTrue(producer.requests() >= 4);
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.service.client;
+
+import com.example.model.SensorData;
+import io.reactivex.rxjava3.observers.TestObserver;
+import io.reactivex.rxjava3.subscribers.TestSubscriber;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the Rx adapters against a stubbed exchange: an endless, as-fast-as-requested producer of NDJSON
+ * readings, so demand and cancellation can be observed at the body publisher.
+ */
+class WebClientRxServiceTest {
+
+    private final AtomicLong produced = new AtomicLong();
+    private final AtomicBoolean cancelled = new AtomicBoolean();
+    private final AtomicLong exchanges = new AtomicLong();
+
+    private final ExchangeFunction fastProducer = request -> {
+        exchanges.incrementAndGet();
+        if (request.url().getPath().endsWith("/calibrate")) {
+            return Mono.just(ClientResponse.create(HttpStatus.OK).build());
+        }
+        Flux<DataBuffer> body = Flux.<DataBuffer, Long>generate(() -> 0L, (i, sink) -> {
+                    String line = "{\"id\":\"bridge-" + (i % 5) + "\",\"temperature\":" + i
+                            + ",\"humidity\":50.0,\"timestamp\":\"2024-10-17T10:15:30\"}\n";
+                    sink.next(DefaultDataBufferFactory.sharedInstance.wrap(line.getBytes(StandardCharsets.UTF_8)));
+                    return i + 1;
+                })
+                .doOnNext(buffer -> produced.incrementAndGet())
+                .doOnCancel(() -> cancelled.set(true))
+                .subscribeOn(Schedulers.parallel()); // Like a socket, the producer runs on its own thread
+        if (request.url().getPath().endsWith("/single")) {
+            body = body.take(1);
+        }
+        return Mono.just(ClientResponse.create(HttpStatus.OK)
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_NDJSON_VALUE)
+                .body(body)
+                .build());
+    };
+
+    private final WebClientRxService service = new WebClientRxService(
+            "http://producer.test/api",
+            WebClient.builder().exchangeFunction(fastProducer),
+            WebClient.builder().exchangeFunction(fastProducer));
+
+    @Test
+    @DisplayName("Flowable demand is passed upstream: a slow subscriber does not make the producer run ahead")
+    void flowableHonorsDemand() {
+        TestSubscriber<SensorData> subscriber = service.getFastSensorUpdates().test(0);
+
+        subscriber.request(5);
+        await().atMost(Duration.ofSeconds(5)).until(() -> subscriber.values().size() == 5);
+        long producedAfterFive = produced.get();
+
+        // Give an unbounded producer the chance to run ahead; only a bounded prefetch may be read
+        await().pollDelay(Duration.ofMillis(200)).until(() -> true);
+        assertEquals(producedAfterFive, produced.get());
+        assertTrue(producedAfterFive < 1_000, "produced " + producedAfterFive);
+
+        subscriber.request(10);
+        await().atMost(Duration.ofSeconds(5)).until(() -> subscriber.values().size() == 15);
+        assertEquals(14.0, subscriber.values().get(14).temperature());
+        subscriber.assertNotComplete();
+    }
+
+    @Test
+    @DisplayName("Cancelling the Flowable cancels the HTTP body")
+    void flowableCancelReachesUpstream() {
+        TestSubscriber<SensorData> subscriber = service.getFastSensorUpdates().take(100).test();
+
+        subscriber.awaitDone(5, TimeUnit.SECONDS).assertComplete().assertValueCount(100);
+        assertTrue(cancelled.get());
+    }
+
+    @Test
+    @DisplayName("Disposing the Observable cancels the HTTP body")
+    void observableDisposeReachesUpstream() {
+        TestObserver<SensorData> observer = service.getSensorUpdates().test();
+
+        await().atMost(Duration.ofSeconds(5)).until(() -> observer.values().size() >= 10);
+        observer.dispose();
+        assertTrue(cancelled.get());
+    }
+
+    @Test
+    @DisplayName("Single and Completable terminate, and nothing is requested before subscription")
+    void monoAdaptersTerminate() {
+        var single = service.getSingleSensorUpdate();
+        var calibrate = service.calibrateSensors();
+        assertEquals(0, exchanges.get());
+
+        single.test().awaitDone(5, TimeUnit.SECONDS).assertValue(data -> data.temperature() == 0.0);
+        calibrate.test().awaitDone(5, TimeUnit.SECONDS).assertComplete();
+        assertEquals(2, exchanges.get());
+    }
+}
@@ -0,0 +1,191 @@
+package com.example.util;
+
+import io.reactivex.rxjava3.core.Flowable;
+import io.reactivex.rxjava3.processors.PublishProcessor;
+import io.reactivex.rxjava3.schedulers.Schedulers;
+import io.reactivex.rxjava3.subscribers.TestSubscriber;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveOverflowTest {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private static final AdaptiveOverflow.Settings SETTINGS = new AdaptiveOverflow.Settings(100, 1 << 20,
+            Duration.ofMillis(100), Duration.ofSeconds(1), 0.5, Duration.ofMillis(500));
+
+    /**
+     * Delivers {@code count} events {@code serviceMillis} apart with more waiting, so the controller learns the rate.
+     */
+    private static long serve(AdaptiveOverflow.Controller controller, long now, int count, long serviceMillis) {
+        for (int i = 0; i < count; i++) {
+            now += serviceMillis * MS;
+            controller.onDelivered(now, 1);
+        }
+        return now;
+    }
+
+    @Test
+    @DisplayName("The mode escalates as the estimated lag crosses each threshold")
+    void escalatesWithLag() {
+        AdaptiveOverflow.Controller controller = new AdaptiveOverflow.Controller(SETTINGS);
+        long now = serve(controller, 0, 10, 10); // 10 ms per event
+
+        assertNull(controller.evaluate(5, false, false, now)); // 50 ms behind
+        AdaptiveOverflow.Transition spill = controller.evaluate(20, false, false, now); // 200 ms behind
+        assertEquals(AdaptiveOverflow.Mode.BUFFER, spill.from());
+        assertEquals(AdaptiveOverflow.Mode.SPILL, spill.to());
+        assertEquals(Duration.ofMillis(200), spill.lag());
+
+        now += 600 * MS;
+        AdaptiveOverflow.Transition conflate = controller.evaluate(150, false, false, now); // 1.5 s behind
+        assertEquals(AdaptiveOverflow.Mode.CONFLATE, conflate.to());
+        assertEquals(150, conflate.depth());
+    }
+
+    @Test
+    @DisplayName("The mode steps down only below the threshold minus the hysteresis, and not before the minimum dwell")
+    void hysteresisAndDwell() {
+        AdaptiveOverflow.Controller controller = new AdaptiveOverflow.Controller(SETTINGS);
+        long now = serve(controller, 0, 10, 10);
+        assertNotNull(controller.evaluate(20, false, false, now));
+
+        assertNull(controller.evaluate(4, false, false, now + 100 * MS)); // Calm, but too soon
+        now += 600 * MS;
+        assertNull(controller.evaluate(8, false, false, now)); // 80 ms: under the threshold, not under half of it
+        AdaptiveOverflow.Transition back = controller.evaluate(4, false, false, now); // 40 ms
+        assertEquals(AdaptiveOverflow.Mode.SPILL, back.from());
+        assertEquals(AdaptiveOverflow.Mode.BUFFER, back.to());
+    }
+
+    @Test
+    @DisplayName("A full store forces the next mode at once; a full ring keeps conflation on")
+    void fullStoresForceEscalation() {
+        AdaptiveOverflow.Controller controller = new AdaptiveOverflow.Controller(SETTINGS);
+
+        assertEquals(AdaptiveOverflow.Mode.SPILL, controller.evaluate(100, true, false, 0).to());
+        assertEquals(AdaptiveOverflow.Mode.CONFLATE, controller.evaluate(100, false, true, 1).to());
+        assertNull(controller.evaluate(0, false, true, TimeUnit.SECONDS.toNanos(10)));
+        assertEquals(AdaptiveOverflow.Mode.SPILL, controller.evaluate(0, false, false, TimeUnit.SECONDS.toNanos(10)).to());
+    }
+
+    @Test
+    @DisplayName("Deliveries in prefetch bursts still give the pace of the consumer behind them")
+    void prefetchBursts() {
+        AdaptiveOverflow.Controller controller = new AdaptiveOverflow.Controller(SETTINGS);
+        long now = 0;
+        for (int batch = 0; batch < 10; batch++) { // 96 events taken at once, then 2 ms each to work through them
+            for (int i = 0; i < 96; i++) {
+                controller.onDelivered(now, 1_000);
+            }
+            now += 96 * 2 * MS;
+        }
+        controller.onDelivered(now, 1_000);
+
+        long lag = controller.lagNanos(1_000);
+        assertTrue(lag > 1_800 * MS && lag < 2_200 * MS, "lag " + lag / MS + " ms");
+    }
+
+    @Test
+    @DisplayName("A slow consumer behind a prefetching observeOn is measured at its own pace")
+    void slowConsumerBehindPrefetch() throws InterruptedException {
+        AdaptiveOverflow.Settings settings = new AdaptiveOverflow.Settings(10_000, 1 << 20,
+                Duration.ofMillis(100), Duration.ofMinutes(1), 0.5, Duration.ZERO);
+        Recorder recorder = new Recorder();
+        PublishProcessor<String> source = PublishProcessor.create();
+        TestSubscriber<String> subscriber = source
+                .compose(AdaptiveOverflow.adaptive(settings, EventCodec.utf8(), recorder))
+                .observeOn(Schedulers.single(), false, 32)
+                .doOnNext(event -> Thread.sleep(2))
+                .test();
+
+        for (int i = 0; i < 400; i++) {
+            source.onNext("event-" + i);
+        }
+        for (int i = 0; i < 200 && recorder.transitions.isEmpty(); i++) {
+            Thread.sleep(10);
+        }
+        subscriber.cancel();
+
+        assertFalse(recorder.transitions.isEmpty(), "no transition");
+        AdaptiveOverflow.Transition spill = recorder.transitions.get(0);
+        assertEquals(AdaptiveOverflow.Mode.SPILL, spill.to());
+        double perEventMs = (double) spill.lag().toNanos() / spill.depth() / MS;
+        assertTrue(perEventMs >= 1.5 && perEventMs < 6, perEventMs + " ms per event");
+    }
+
+    @Test
+    @DisplayName("A burst the heap queue absorbs is delivered whole, without a transition")
+    void burstStaysBuffered() {
+        Recorder recorder = new Recorder();
+        TestSubscriber<String> subscriber = Flowable.range(0, 50)
+                .map(i -> "event-" + i)
+                .compose(AdaptiveOverflow.adaptive(SETTINGS, EventCodec.utf8(), recorder))
+                .test(0);
+
+        subscriber.requestMore(Long.MAX_VALUE);
+        subscriber.assertValueCount(50).assertComplete();
+        assertEquals("event-49", subscriber.values().get(49));
+        assertTrue(recorder.transitions.isEmpty());
+        assertEquals(0, recorder.dropped.get());
+    }
+
+    @Test
+    @DisplayName("Under overload events are buffered, then spilled, then conflated, and still arrive in order")
+    void overloadEscalatesAndRecovers() {
+        AdaptiveOverflow.Settings settings = new AdaptiveOverflow.Settings(8, 2048,
+                Duration.ofMillis(1), Duration.ofSeconds(10), 0.5, Duration.ZERO);
+        Recorder recorder = new Recorder();
+        PublishProcessor<String> source = PublishProcessor.create();
+        TestSubscriber<String> subscriber = source
+                .compose(AdaptiveOverflow.adaptive(settings, EventCodec.utf8(), recorder))
+                .test(0);
+
+        for (int i = 0; i < 1000; i++) {
+            source.onNext("event-" + i);
+        }
+        assertEquals(List.of(AdaptiveOverflow.Mode.SPILL, AdaptiveOverflow.Mode.CONFLATE),
+                recorder.transitions.stream().map(AdaptiveOverflow.Transition::to).toList());
+        assertTrue(recorder.dropped.get() > 0);
+
+        subscriber.requestMore(Long.MAX_VALUE);
+        source.onNext("event-1000");
+        source.onComplete();
+        subscriber.assertComplete();
+
+        List<String> values = subscriber.values();
+        assertEquals(1001, values.size() + recorder.dropped.get());
+        for (int i = 1; i < values.size(); i++) {
+            assertTrue(index(values.get(i - 1)) < index(values.get(i)), values.get(i - 1) + " before " + values.get(i));
+        }
+        assertEquals("event-999", values.get(values.size() - 2)); // The conflated one, then the next
+        assertEquals(AdaptiveOverflow.Mode.BUFFER, recorder.transitions.get(recorder.transitions.size() - 1).to());
+    }
+
+    private static int index(String event) {
+        return Integer.parseInt(event.substring("event-".length()));
+    }
+
+    private static class Recorder implements AdaptiveOverflow.Listener {
+        final List<AdaptiveOverflow.Transition> transitions = new CopyOnWriteArrayList<>();
+        final AtomicLong dropped = new AtomicLong();
+
+        @Override
+        public void onTransition(AdaptiveOverflow.Transition transition) {
+            transitions.add(transition);
+        }
+
+        @Override
+        public void onDropped() {
+            dropped.incrementAndGet();
+        }
+    }
+}
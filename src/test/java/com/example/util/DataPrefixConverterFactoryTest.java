@@ -0,0 +1,65 @@
+package com.example.util;
+
+import com.example.model.SensorData;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import retrofit2.Converter;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Type;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DataPrefixConverterFactoryTest {
+
+    private static final MediaType JSON = MediaType.get("application/json");
+    private static final String READING =
+            "{\"id\":\"sensor-1\",\"temperature\":21.5,\"humidity\":40.0,\"timestamp\":\"2024-10-17T10:15:30\"}";
+
+    private static Converter<ResponseBody, ?> converter(Type type) {
+        return new DataPrefixConverterFactory(new ObjectMapper()).responseBodyConverter(type, new Annotation[0], null);
+    }
+
+    @Test
+    @DisplayName("A data:-prefixed body is decoded like a plain one, by the same converter")
+    void skipsDataPrefix() throws IOException {
+        Converter<ResponseBody, ?> converter = converter(SensorData.class);
+
+        SensorData prefixed = (SensorData) converter.convert(ResponseBody.create("data:" + READING, JSON));
+        SensorData plain = (SensorData) converter.convert(ResponseBody.create(READING, JSON));
+
+        assertEquals(plain, prefixed);
+        assertEquals("sensor-1", prefixed.id());
+        assertEquals(TimestampCodec.shared().toEpochMillis("2024-10-17T10:15:30"), prefixed.epochMillis());
+    }
+
+    @Test
+    @DisplayName("Generic return types are resolved for the reader")
+    void resolvesGenericTypes() throws IOException {
+        Type type = new TypeReference<List<SensorData>>() { }.getType();
+
+        Object value = converter(type).convert(ResponseBody.create("data:[" + READING + "," + READING + "]", JSON));
+
+        List<?> readings = assertInstanceOf(List.class, value);
+        assertEquals(2, readings.size());
+        assertInstanceOf(SensorData.class, readings.get(0));
+    }
+
+    @Test
+    @DisplayName("A malformed payload is thrown to the caller")
+    void propagatesMalformedPayload() {
+        Converter<ResponseBody, ?> converter = converter(SensorData.class);
+
+        assertThrows(JsonProcessingException.class,
+                () -> converter.convert(ResponseBody.create("data:{\"id\":\"sensor-1\",\"temperature\":", JSON)));
+        assertThrows(JsonProcessingException.class,
+                () -> converter.convert(ResponseBody.create("data:", JSON)));
+    }
+}
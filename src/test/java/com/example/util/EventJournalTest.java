@@ -0,0 +1,194 @@
+package com.example.util;
+
+import com.example.model.SensorData;
+import io.reactivex.rxjava3.core.Flowable;
+import io.reactivex.rxjava3.subscribers.TestSubscriber;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EventJournalTest {
+
+    @TempDir
+    Path directory;
+
+    private EventJournal<String> open(int segmentBytes) {
+        return open(segmentBytes, 0);
+    }
+
+    private EventJournal<String> open(int segmentBytes, int retainedSegments) {
+        return new EventJournal<>(new EventJournal.Settings(directory, segmentBytes, 4, 16, Duration.ZERO,
+                retainedSegments), EventCodec.utf8());
+    }
+
+    private long segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.toString().endsWith(".log")).count();
+        }
+    }
+
+    private static List<String> events(int from, int to) {
+        return IntStream.range(from, to).mapToObj(i -> "event-" + i).toList();
+    }
+
+    @Test
+    @DisplayName("Offsets are sequential and replay works from any offset across segments")
+    void replaysFromAnyOffset() {
+        try (EventJournal<String> journal = open(256)) {
+            for (int i = 0; i < 100; i++) {
+                assertEquals(i, journal.append("event-" + i));
+            }
+            assertTrue(journal.segmentCount() > 1);
+            assertEquals(100, journal.nextOffset());
+
+            for (int from : new int[]{0, 1, 3, 4, 5, 17, 50, 99}) {
+                assertEquals(events(from, 100), journal.replay(from).toList().blockingGet(), "from " + from);
+            }
+            assertEquals(List.of(), journal.replay(100).toList().blockingGet());
+            assertEquals(events(0, 100), journal.replay(-5).toList().blockingGet());
+        }
+    }
+
+    @Test
+    @DisplayName("The journal() stage tees events without changing the stream")
+    void teesStream() {
+        try (EventJournal<SensorData> journal = new EventJournal<>(
+                new EventJournal.Settings(directory, 1 << 16, 8, 32, Duration.ofMillis(10), 0), SensorDataCodec.INSTANCE)) {
+            List<SensorData> readings = IntStream.range(0, 20)
+                    .mapToObj(i -> SensorData.of("journal-" + (i % 3), i, i * 2.0, "2024-10-17T10:15:" + (10 + i)))
+                    .toList();
+
+            List<SensorData> passedOn = Flowable.fromIterable(readings)
+                    .compose(EventJournal.journal(journal))
+                    .toList()
+                    .blockingGet();
+
+            assertEquals(readings, passedOn);
+            assertEquals(readings, journal.replay(0).toList().blockingGet());
+        }
+    }
+
+    @Test
+    @DisplayName("Reopening recovers offsets and continues appending")
+    void recoversOnReopen() {
+        try (EventJournal<String> journal = open(256)) {
+            events(0, 40).forEach(journal::append);
+        }
+        try (EventJournal<String> journal = open(256)) {
+            assertEquals(40, journal.nextOffset());
+            assertEquals(40, journal.append("event-40"));
+            assertEquals(events(0, 41), journal.replay(0).toList().blockingGet());
+            assertEquals(events(38, 41), journal.replay(38).toList().blockingGet());
+        }
+    }
+
+    @Test
+    @DisplayName("A torn record at the end is dropped when the journal is reopened")
+    void dropsTornRecord() throws IOException {
+        try (EventJournal<String> journal = open(1024)) {
+            events(0, 5).forEach(journal::append);
+        }
+        Path segment;
+        try (Stream<Path> files = Files.list(directory)) {
+            segment = files.filter(path -> path.toString().endsWith(".log")).findFirst().orElseThrow();
+        }
+        // Damage the last payload byte of the last record, as if the crash happened mid-write
+        long lastByte = 5 * 8L + events(0, 5).stream().mapToLong(String::length).sum() - 1;
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{'#'}), lastByte);
+        }
+
+        try (EventJournal<String> journal = open(1024)) {
+            assertEquals(4, journal.nextOffset());
+            assertEquals(events(0, 4), journal.replay(0).toList().blockingGet());
+            journal.append("event-4");
+            assertEquals(events(0, 5), journal.replay(0).toList().blockingGet());
+        }
+    }
+
+    @Test
+    @DisplayName("Events larger than a segment are rejected")
+    void rejectsOversizedEvents() {
+        try (EventJournal<String> journal = open(64)) {
+            assertThrows(IllegalArgumentException.class, () -> journal.append("x".repeat(100)));
+            assertEquals(0, journal.append("fits"));
+            assertEquals(List.of("fits"), journal.replay(0).toList().blockingGet());
+        }
+    }
+
+    @Test
+    @DisplayName("Segments beyond the retention are deleted, and replays start at the first one retained")
+    void retainsNewestSegments() throws IOException {
+        try (EventJournal<String> journal = open(64, 3)) {
+            events(0, 30).forEach(journal::append); // Four records per segment, eight segments
+            assertEquals(3, journal.segmentCount());
+            assertEquals(3, segmentFiles());
+            assertEquals(20, journal.firstOffset());
+            assertEquals(events(20, 30), journal.replay(0).toList().blockingGet());
+        }
+        try (EventJournal<String> journal = open(64, 2)) {
+            assertEquals(2, segmentFiles()); // Applied when reopened too
+            assertEquals(events(24, 30), journal.replay(0).toList().blockingGet());
+        }
+    }
+
+    @Test
+    @DisplayName("A segment being replayed stays readable until the replay leaves it, which fails if it fell behind")
+    void replayPinsItsSegment() throws IOException {
+        try (EventJournal<String> journal = open(64, 2)) {
+            events(0, 6).forEach(journal::append);
+            TestSubscriber<String> replay = journal.replay(0).test(1);
+            replay.assertValues("event-0");
+
+            events(6, 13).forEach(journal::append); // Rolls twice: the segment replayed and the next are retired
+            assertEquals(8, journal.firstOffset());
+            assertEquals(3, segmentFiles()); // The replayed one is kept while pinned
+
+            replay.requestMore(3);
+            replay.assertValues("event-0", "event-1", "event-2", "event-3");
+            replay.requestMore(1);
+            replay.assertError(IllegalStateException.class);
+            assertEquals(2, segmentFiles());
+        }
+    }
+
+    @Test
+    @DisplayName("A replay at the tail follows rolls while retention shifts and drops segments under it")
+    void replayFollowsRollsUnderRetention() throws IOException {
+        try (EventJournal<String> journal = open(64, 2)) {
+            events(0, 10).forEach(journal::append);
+            TestSubscriber<String> replay = journal.replay(8).test(1);
+            replay.assertValues("event-8");
+
+            events(10, 14).forEach(journal::append); // Rolls once: as many segments as before, shifted by one
+            replay.requestMore(Long.MAX_VALUE);
+            replay.assertValueSequence(events(8, 14)).assertComplete();
+        }
+    }
+
+    @Test
+    @DisplayName("A replay whose segment retention already dropped from the journal continues on its successor")
+    void replayContinuesPastDroppedSegment() throws IOException {
+        try (EventJournal<String> journal = open(64, 1)) {
+            events(0, 2).forEach(journal::append);
+            TestSubscriber<String> replay = journal.replay(0).test(1);
+
+            events(2, 6).forEach(journal::append); // The replayed segment leaves the array, its successor follows on
+            replay.requestMore(Long.MAX_VALUE);
+            replay.assertValueSequence(events(0, 6)).assertComplete();
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.util;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.reactivex.rxjava3.core.Flowable;
+import io.reactivex.rxjava3.processors.PublishProcessor;
+import io.reactivex.rxjava3.schedulers.Schedulers;
+import io.reactivex.rxjava3.subscribers.TestSubscriber;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FanInTest {
+
+    private static final FanIn.Settings SETTINGS =
+            new FanIn.Settings(4, 16, 2, Duration.ofMillis(1), Duration.ofMillis(5));
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private final FanIn fanIn = new FanIn(SETTINGS, registry);
+
+    @Test
+    @DisplayName("Every provider is opened once and their events are merged")
+    void mergesProviders() {
+        AtomicInteger opened = new AtomicInteger();
+        TestSubscriber<String> subscriber = fanIn.merge(List.of("a", "b", "c", "a"), provider -> {
+            opened.incrementAndGet();
+            return Flowable.range(0, 10).map(i -> provider + i);
+        }).test();
+
+        subscriber.awaitDone(5, TimeUnit.SECONDS).assertComplete().assertValueCount(30);
+        assertEquals(3, opened.get());
+        assertTrue(fanIn.sources().stream().allMatch(health -> health.state() == FanIn.State.COMPLETED));
+    }
+
+    @Test
+    @DisplayName("A stalled provider holds back only itself")
+    void stalledProviderDoesNotStallOthers() {
+        TestSubscriber<String> subscriber = fanIn.merge(List.of("stalled", "fast"), provider ->
+                        provider.equals("stalled")
+                                ? Flowable.<String>never()
+                                : Flowable.range(0, 1000).map(i -> provider + i).subscribeOn(Schedulers.computation()))
+                .test();
+
+        subscriber.awaitCount(1000).assertValueCount(1000).assertNotComplete();
+        Map<String, FanIn.State> states = states();
+        assertEquals(FanIn.State.CONNECTING, states.get("stalled"));
+        assertEquals(FanIn.State.COMPLETED, states.get("fast"));
+        subscriber.cancel();
+    }
+
+    @Test
+    @DisplayName("Each provider is only asked for as many events as its prefetch")
+    void perProviderBackpressure() {
+        AtomicInteger requested = new AtomicInteger();
+        TestSubscriber<Integer> subscriber = fanIn.<Integer>merge(List.of("a"), provider -> Flowable.range(0, 1000)
+                .doOnRequest(n -> requested.addAndGet((int) Math.min(n, Integer.MAX_VALUE)))).test(0);
+
+        assertEquals(SETTINGS.prefetch(), requested.get());
+        subscriber.requestMore(1000).awaitDone(5, TimeUnit.SECONDS).assertValueCount(1000);
+    }
+
+    @Test
+    @DisplayName("No more than maxConcurrency providers are streaming at once")
+    void boundedConcurrency() {
+        AtomicInteger open = new AtomicInteger();
+        AtomicInteger maxOpen = new AtomicInteger();
+        List<String> providers = List.of("p1", "p2", "p3", "p4", "p5", "p6", "p7", "p8", "p9", "p10");
+        Function<String, Flowable<String>> stream = provider -> Flowable.timer(20, TimeUnit.MILLISECONDS)
+                .map(tick -> provider)
+                .doOnSubscribe(subscription -> maxOpen.accumulateAndGet(open.incrementAndGet(), Math::max))
+                .doOnTerminate(open::decrementAndGet); // Before flatMap sees the completion and opens the next
+
+        fanIn.merge(providers, stream::apply).test()
+                .awaitDone(5, TimeUnit.SECONDS).assertComplete().assertValueCount(providers.size());
+        assertEquals(SETTINGS.maxConcurrency(), maxOpen.get());
+    }
+
+    @Test
+    @DisplayName("A failing provider is reconnected, then given up without ending the merge")
+    void failingProviderIsGivenUp() {
+        AtomicInteger connections = new AtomicInteger();
+        TestSubscriber<String> subscriber = fanIn.merge(List.of("broken", "healthy"), provider -> {
+            if (provider.equals("broken")) {
+                connections.incrementAndGet();
+                return Flowable.error(new IOException("connection refused"));
+            }
+            return Flowable.just("x", "y");
+        }).test();
+
+        subscriber.awaitDone(5, TimeUnit.SECONDS).assertComplete().assertValues("x", "y");
+        assertEquals(SETTINGS.maxAttempts() + 1, connections.get());
+        FanIn.Health broken = fanIn.sources().stream()
+                .filter(health -> health.source().equals("broken")).findFirst().orElseThrow();
+        assertEquals(FanIn.State.FAILED, broken.state());
+        assertTrue(broken.lastError().contains("connection refused"));
+    }
+
+    @Test
+    @DisplayName("An event resets the attempt count, so a flapping provider is kept")
+    void flappingProviderIsKept() {
+        AtomicInteger connections = new AtomicInteger();
+        // Every connection delivers one event then breaks: more breaks in a row than maxAttempts, never two empty
+        fanIn.merge(List.of("flapping"), provider -> Flowable.just(connections.incrementAndGet())
+                        .concatWith(Flowable.error(new IOException("reset"))))
+                .take(10).test()
+                .awaitDone(5, TimeUnit.SECONDS).assertComplete().assertValueCount(10);
+        assertTrue(connections.get() >= 10);
+    }
+
+    @Test
+    @DisplayName("Retry state is per subscription: a resubscribe and a concurrent subscriber each get every attempt")
+    void retryStatePerSubscription() {
+        AtomicInteger connections = new AtomicInteger();
+        Flowable<String> merged = fanIn.merge(List.of("broken"), provider -> {
+            connections.incrementAndGet();
+            return Flowable.error(new IOException("connection refused"));
+        });
+
+        merged.test().awaitDone(5, TimeUnit.SECONDS).assertComplete();
+        assertEquals(SETTINGS.maxAttempts() + 1, connections.get());
+
+        connections.set(0);
+        TestSubscriber<String> first = merged.test();
+        TestSubscriber<String> second = merged.test();
+        first.awaitDone(5, TimeUnit.SECONDS).assertComplete();
+        second.awaitDone(5, TimeUnit.SECONDS).assertComplete();
+        assertEquals(2 * (SETTINGS.maxAttempts() + 1), connections.get());
+        assertEquals(FanIn.State.FAILED, states().get("broken"));
+    }
+
+    @Test
+    @DisplayName("A provider is reported up while any subscription streams from it")
+    void healthAggregatesSubscriptions() {
+        PublishProcessor<String> live = PublishProcessor.create();
+        Flowable<String> merged = fanIn.merge(List.of("shared"), provider -> live);
+        TestSubscriber<String> first = merged.test();
+        TestSubscriber<String> second = merged.test();
+
+        live.onNext("x");
+        assertEquals(FanIn.State.UP, states().get("shared"));
+        assertEquals(2, registry.get("consumer.fanin.received").tag("source", "shared").counter().count());
+        first.cancel();
+        assertEquals(1, registry.get("consumer.fanin.up").tag("source", "shared").gauge().value());
+        second.cancel();
+        assertEquals(0, registry.get("consumer.fanin.up").tag("source", "shared").gauge().value());
+    }
+
+    @Test
+    @DisplayName("Per-provider received count and state are published as meters")
+    void meters() {
+        fanIn.merge(List.of("a", "b"), provider -> Flowable.range(0, provider.equals("a") ? 3 : 5)).test()
+                .awaitDone(5, TimeUnit.SECONDS).assertComplete();
+
+        assertEquals(3, registry.get("consumer.fanin.received").tag("source", "a").counter().count());
+        assertEquals(5, registry.get("consumer.fanin.received").tag("source", "b").counter().count());
+        assertEquals(0, registry.get("consumer.fanin.up").tag("source", "a").gauge().value());
+        assertNotNull(registry.get("consumer.fanin.rate").tag("source", "b").gauge());
+    }
+
+    private Map<String, FanIn.State> states() {
+        return fanIn.sources().stream().collect(Collectors.toMap(FanIn.Health::source, FanIn.Health::state));
+    }
+}
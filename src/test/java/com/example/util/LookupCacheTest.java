@@ -0,0 +1,150 @@
+package com.example.util;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.reactivex.rxjava3.core.Maybe;
+import io.reactivex.rxjava3.core.Single;
+import io.reactivex.rxjava3.observers.TestObserver;
+import io.reactivex.rxjava3.schedulers.TestScheduler;
+import io.reactivex.rxjava3.subjects.SingleSubject;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LookupCacheTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final TestScheduler clock = new TestScheduler();
+    private final LookupCache<String, String> cache = new LookupCache<>("test",
+            new LookupCache.Settings(Duration.ofSeconds(1), Duration.ofSeconds(5), 2), registry, clock);
+
+    private double count(String name) {
+        return registry.get("consumer.lookup." + name).tag("cache", "test").counter().count();
+    }
+
+    @Test
+    @DisplayName("Concurrent lookups of one key share a single request")
+    void coalesces() {
+        AtomicInteger requests = new AtomicInteger();
+        SingleSubject<String> response = SingleSubject.create();
+        List<TestObserver<String>> observers = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            observers.add(cache.single("single", () -> {
+                requests.incrementAndGet();
+                return response;
+            }).test());
+        }
+        assertEquals(1, requests.get());
+        observers.forEach(TestObserver::assertEmpty);
+
+        response.onSuccess("reading");
+        observers.forEach(observer -> observer.assertValue("reading"));
+        assertEquals(1, count("misses"));
+        assertEquals(99, count("coalesced"));
+    }
+
+    @Test
+    @DisplayName("Results are served for the ttl, then served stale while one request refreshes them")
+    void ttlAndStaleWhileRevalidate() {
+        AtomicInteger requests = new AtomicInteger();
+        SingleSubject<String> refresh = SingleSubject.create();
+        List<Single<String>> responses = List.of(Single.just("first"), refresh, Single.just("third"));
+        Single<String> lookup = cache.single("single", () -> responses.get(requests.getAndIncrement()));
+
+        lookup.test().assertValue("first");
+        clock.advanceTimeBy(500, TimeUnit.MILLISECONDS);
+        lookup.test().assertValue("first");
+        assertEquals(1, requests.get());
+        assertEquals(1, count("hits"));
+
+        clock.advanceTimeBy(1, TimeUnit.SECONDS);
+        lookup.test().assertValue("first"); // Stale, answered at once
+        lookup.test().assertValue("first");
+        assertEquals(2, requests.get()); // One refresh for both
+        assertEquals(2, count("stale"));
+        refresh.onSuccess("second");
+        lookup.test().assertValue("second");
+
+        clock.advanceTimeBy(10, TimeUnit.SECONDS); // Past the stale period: waits for a new request
+        lookup.test().assertValue("third");
+        assertEquals(2, count("misses"));
+    }
+
+    @Test
+    @DisplayName("An empty Maybe is cached, an error is passed on and not cached")
+    void emptyAndErrors() {
+        AtomicInteger requests = new AtomicInteger();
+        Maybe<String> empty = cache.maybe("maybe:false", () -> {
+            requests.incrementAndGet();
+            return Maybe.empty();
+        });
+        empty.test().assertComplete().assertNoValues();
+        empty.test().assertComplete().assertNoValues();
+        assertEquals(1, requests.get());
+
+        AtomicInteger failures = new AtomicInteger();
+        Single<String> failing = cache.single("single", () -> failures.incrementAndGet() == 1
+                ? Single.error(new IOException("producer down"))
+                : Single.just("recovered"));
+        failing.test().assertError(IOException.class);
+        failing.test().assertValue("recovered");
+        assertEquals(2, failures.get());
+    }
+
+    @Test
+    @DisplayName("The least recently used key is evicted beyond the maximum size")
+    void evicts() {
+        AtomicInteger requests = new AtomicInteger();
+        for (String key : List.of("a", "b", "a", "c", "a", "b")) {
+            cache.single(key, () -> Single.just(key + requests.incrementAndGet())).test().assertComplete();
+        }
+        assertEquals(4, requests.get()); // a, b, c, then b again
+        assertEquals(2, count("evictions"));
+        assertEquals(2, registry.get("consumer.lookup.size").gauge().value());
+    }
+
+    @Test
+    @DisplayName("Reactor lookups share requests and results with RxJava ones, and a cancelled one leaves the request running")
+    void mono() {
+        AtomicInteger requests = new AtomicInteger();
+        Sinks.One<String> response = Sinks.one();
+        Mono<String> lookup = cache.mono("single", () -> {
+            requests.incrementAndGet();
+            return response.asMono();
+        });
+
+        lookup.subscribe().dispose();
+        TestObserver<String> waiting = cache.single("single", () -> Single.just("other")).test();
+        response.tryEmitValue("value");
+        waiting.assertValue("value");
+        assertEquals("value", lookup.block());
+        assertEquals(1, requests.get());
+        assertEquals(1, count("coalesced"));
+
+        assertNull(cache.mono("maybe:false", Mono::empty).block());
+        assertNull(cache.mono("maybe:false", () -> Mono.just("not requested")).block());
+        assertEquals("failed", cache.mono("failing", () -> Mono.error(new IOException("producer down")))
+                .onErrorResume(IOException.class, error -> Mono.just("failed"))
+                .block());
+    }
+
+    @Test
+    @DisplayName("Closing a cache removes its meters from the registry")
+    void closeRemovesMeters() {
+        cache.single("key", () -> Single.just("value")).test().assertValue("value");
+        assertEquals(1, registry.get("consumer.lookup.size").tag("cache", "test").gauge().value());
+
+        cache.close();
+        assertTrue(registry.find("consumer.lookup.size").meters().isEmpty());
+        assertTrue(registry.find("consumer.lookup.misses").meters().isEmpty());
+    }
+}
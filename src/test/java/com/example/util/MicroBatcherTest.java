@@ -0,0 +1,193 @@
+package com.example.util;
+
+import io.reactivex.rxjava3.core.Flowable;
+import io.reactivex.rxjava3.processors.PublishProcessor;
+import io.reactivex.rxjava3.schedulers.Schedulers;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MicroBatcherTest {
+
+    @Test
+    @DisplayName("Full batches are delivered in order, the rest on completion")
+    void batchesBySize() throws InterruptedException {
+        Recorder<Integer> recorder = new Recorder<>();
+        MicroBatcher.subscribe(Flowable.range(0, 1000), new MicroBatcher.Settings(64, Duration.ofSeconds(10), 2),
+                Schedulers.single(), recorder);
+
+        recorder.await();
+        assertEquals(16, recorder.sizes.size());
+        assertTrue(recorder.sizes.subList(0, 15).stream().allMatch(size -> size == 64));
+        assertEquals(1000 - 15 * 64, recorder.sizes.get(15));
+        assertEquals(Flowable.range(0, 1000).toList().blockingGet(), recorder.values);
+        assertNull(recorder.error.get());
+    }
+
+    @Test
+    @DisplayName("A partial batch is delivered once its first element has waited the maximum latency")
+    void batchesByTime() throws InterruptedException {
+        PublishProcessor<Integer> source = PublishProcessor.create();
+        Recorder<Integer> recorder = new Recorder<>();
+        MicroBatcher.subscribe(source, new MicroBatcher.Settings(64, Duration.ofMillis(50), 2),
+                Schedulers.single(), recorder);
+
+        long start = System.nanoTime();
+        source.onNext(1);
+        source.onNext(2);
+        assertTrue(recorder.firstBatch.await(5, TimeUnit.SECONDS));
+        long waitedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue(waitedMillis >= 40 && waitedMillis < 2000, "Waited " + waitedMillis + " ms");
+        assertEquals(List.of(1, 2), recorder.values);
+
+        source.onNext(3);
+        source.onComplete();
+        recorder.await();
+        assertEquals(List.of(2, 1), recorder.sizes);
+    }
+
+    @Test
+    @DisplayName("A slow callback holds the upstream back, and batch lists are reused")
+    void backpressure() throws InterruptedException {
+        AtomicLong requested = new AtomicLong();
+        AtomicLong maxAhead = new AtomicLong();
+        AtomicLong delivered = new AtomicLong();
+        Set<List<Integer>> lists = Collections.newSetFromMap(new IdentityHashMap<>());
+        Recorder<Integer> recorder = new Recorder<>() {
+            @Override
+            public void onBatch(List<Integer> batch) throws Exception {
+                lists.add(batch);
+                delivered.addAndGet(batch.size());
+                Thread.sleep(1); // A slow sink
+            }
+        };
+        MicroBatcher.subscribe(Flowable.range(0, 5000)
+                        .doOnRequest(n -> maxAhead.accumulateAndGet(requested.addAndGet(n) - delivered.get(), Math::max)),
+                new MicroBatcher.Settings(32, Duration.ofSeconds(10), 2), Schedulers.single(), recorder);
+
+        recorder.await();
+        assertEquals(5000, delivered.get());
+        assertTrue(maxAhead.get() <= 2 * 32 + 32, "Requested " + maxAhead.get() + " ahead");
+        assertTrue(lists.size() <= 4, lists.size() + " lists allocated");
+    }
+
+    @Test
+    @DisplayName("An upstream error is delivered after the batches before it; a failing callback cancels the stream")
+    void errors() throws InterruptedException {
+        Recorder<Integer> recorder = new Recorder<>();
+        MicroBatcher.subscribe(Flowable.range(0, 10).concatWith(Flowable.error(new IOException("broken"))),
+                new MicroBatcher.Settings(4, Duration.ofSeconds(10), 2), Schedulers.single(), recorder);
+        recorder.await();
+        assertEquals(List.of(4, 4, 2), recorder.sizes);
+        assertInstanceOf(IOException.class, recorder.error.get());
+
+        AtomicLong cancelled = new AtomicLong();
+        Recorder<Integer> failing = new Recorder<>() {
+            @Override
+            public void onBatch(List<Integer> batch) {
+                throw new IllegalStateException("sink down");
+            }
+        };
+        MicroBatcher<Integer> batcher = MicroBatcher.subscribe(Flowable.range(0, 100).doOnCancel(cancelled::incrementAndGet),
+                new MicroBatcher.Settings(4, Duration.ofSeconds(10), 2), Schedulers.single(), failing);
+        failing.await();
+        assertInstanceOf(IllegalStateException.class, failing.error.get());
+        assertEquals(1, cancelled.get());
+        assertTrue(batcher.isDisposed());
+    }
+
+    @Test
+    @DisplayName("Reactor publishers are batched the same way")
+    void flux() throws InterruptedException {
+        Recorder<Integer> recorder = new Recorder<>();
+        MicroBatcher.subscribe(Flux.range(0, 100), new MicroBatcher.Settings(30, Duration.ofSeconds(10), 1),
+                Schedulers.single(), recorder);
+
+        recorder.await();
+        assertEquals(List.of(30, 30, 30, 10), recorder.sizes);
+        assertEquals(100, recorder.values.size());
+    }
+
+    @Test
+    @DisplayName("The Reactor entry point batches by size and by time on a Reactor scheduler")
+    void subscribeFlux() throws InterruptedException {
+        Recorder<Integer> bySize = new Recorder<>();
+        MicroBatcher.subscribeFlux(Flux.range(0, 100), new MicroBatcher.Settings(30, Duration.ofSeconds(10), 1),
+                reactor.core.scheduler.Schedulers.parallel(), bySize);
+        bySize.await();
+        assertEquals(List.of(30, 30, 30, 10), bySize.sizes);
+        assertEquals(100, bySize.values.size());
+
+        Recorder<Integer> byTime = new Recorder<>();
+        reactor.core.Disposable subscription = MicroBatcher.subscribeFlux(Flux.concat(Flux.range(0, 5), Flux.never()),
+                new MicroBatcher.Settings(30, Duration.ofMillis(50), 1), reactor.core.scheduler.Schedulers.parallel(),
+                byTime);
+        assertTrue(byTime.firstBatch.await(10, TimeUnit.SECONDS));
+        assertEquals(List.of(5), byTime.sizes);
+        subscription.dispose();
+    }
+
+    @Test
+    @DisplayName("A failing callback on the Reactor entry point cancels the stream and reports the error")
+    void subscribeFluxErrors() throws InterruptedException {
+        AtomicBoolean cancelled = new AtomicBoolean();
+        Recorder<Integer> recorder = new Recorder<>() {
+            @Override
+            public void onBatch(List<Integer> batch) {
+                throw new IllegalStateException("callback failed");
+            }
+        };
+        MicroBatcher.subscribeFlux(Flux.concat(Flux.range(0, 10), Flux.never()).doOnCancel(() -> cancelled.set(true)),
+                new MicroBatcher.Settings(5, Duration.ofSeconds(10), 1), reactor.core.scheduler.Schedulers.parallel(),
+                recorder);
+
+        recorder.await();
+        assertInstanceOf(IllegalStateException.class, recorder.error.get());
+        assertTrue(cancelled.get());
+    }
+
+    private static class Recorder<T> implements MicroBatcher.BatchCallback<T> {
+        final List<T> values = Collections.synchronizedList(new ArrayList<>());
+        final List<Integer> sizes = Collections.synchronizedList(new ArrayList<>());
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        final CountDownLatch firstBatch = new CountDownLatch(1);
+        final CountDownLatch terminated = new CountDownLatch(1);
+
+        @Override
+        public void onBatch(List<T> batch) throws Exception {
+            values.addAll(batch);
+            sizes.add(batch.size());
+            firstBatch.countDown();
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error.set(throwable);
+            terminated.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            terminated.countDown();
+        }
+
+        void await() throws InterruptedException {
+            assertTrue(terminated.await(10, TimeUnit.SECONDS));
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.util;
+
+import com.example.model.SensorData;
+import io.reactivex.rxjava3.core.BackpressureOverflowStrategy;
+import io.reactivex.rxjava3.core.Flowable;
+import io.reactivex.rxjava3.exceptions.MissingBackpressureException;
+import io.reactivex.rxjava3.schedulers.Schedulers;
+import io.reactivex.rxjava3.subscribers.TestSubscriber;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OffHeapOverflowTest {
+
+    private static SensorData reading(int i) {
+        return SensorData.of("spill-" + (i % 7), i, i / 2.0, "2024-10-17T10:15:30." + (i % 1000));
+    }
+
+    @Test
+    @DisplayName("A burst larger than the heap queue is spilled and delivered in order")
+    void spillsAndDrainsInOrder() {
+        OffHeapOverflow.Settings settings = new OffHeapOverflow.Settings(16, 1 << 20, BackpressureOverflowStrategy.ERROR);
+
+        TestSubscriber<SensorData> subscriber = Flowable.range(0, 5_000)
+                .map(OffHeapOverflowTest::reading)
+                .compose(OffHeapOverflow.spill(settings, SensorDataCodec.INSTANCE))
+                .test(0);
+
+        subscriber.assertNoValues();
+        subscriber.request(10);
+        subscriber.assertValueCount(10);
+        subscriber.request(Long.MAX_VALUE);
+
+        subscriber.assertComplete();
+        List<SensorData> values = subscriber.values();
+        assertEquals(5_000, values.size());
+        for (int i = 0; i < values.size(); i++) {
+            assertEquals(reading(i), values.get(i));
+        }
+    }
+
+    @Test
+    @DisplayName("Requests adding up past Long.MAX_VALUE are capped as unbounded, invalid ones are ignored")
+    void capsDemand() {
+        OffHeapOverflow.Settings settings = new OffHeapOverflow.Settings(16, 1 << 20, BackpressureOverflowStrategy.ERROR);
+
+        TestSubscriber<SensorData> subscriber = Flowable.range(0, 1_000)
+                .map(OffHeapOverflowTest::reading)
+                .compose(OffHeapOverflow.spill(settings, SensorDataCodec.INSTANCE))
+                .test(0);
+
+        subscriber.request(0);
+        subscriber.assertNoValues();
+        subscriber.request(Long.MAX_VALUE - 1);
+        subscriber.request(10); // Would wrap to a negative demand without the cap
+        subscriber.assertComplete().assertValueCount(1_000);
+    }
+
+    @Test
+    @DisplayName("Delivery order holds while producer and consumer race")
+    void keepsOrderAcrossThreads() {
+        OffHeapOverflow.Settings settings = new OffHeapOverflow.Settings(8, 1 << 20, BackpressureOverflowStrategy.ERROR);
+
+        TestSubscriber<String> subscriber = Flowable.range(0, 20_000)
+                .map(String::valueOf)
+                .subscribeOn(Schedulers.io())
+                .compose(OffHeapOverflow.spill(settings, EventCodec.utf8()))
+                .observeOn(Schedulers.computation(), false, 4)
+                .test();
+
+        subscriber.awaitDone(10, TimeUnit.SECONDS);
+        subscriber.assertComplete();
+        List<String> values = subscriber.values();
+        for (int i = 0; i < values.size(); i++) {
+            assertEquals(String.valueOf(i), values.get(i));
+        }
+    }
+
+    @Test
+    @DisplayName("ERROR policy fails the stream once the ring is full, after delivering what it holds")
+    void failsWhenRingIsFull() {
+        OffHeapOverflow.Settings settings = new OffHeapOverflow.Settings(4, 64, BackpressureOverflowStrategy.ERROR);
+
+        TestSubscriber<String> subscriber = Flowable.range(0, 100)
+                .map(i -> "event-" + i)
+                .compose(OffHeapOverflow.spill(settings, EventCodec.utf8()))
+                .test(0);
+
+        subscriber.assertNoErrors().assertNotComplete();
+        subscriber.request(Long.MAX_VALUE);
+        subscriber.assertError(MissingBackpressureException.class);
+        assertEquals("event-0", subscriber.values().get(0));
+        assertTrue(subscriber.values().size() > 4);
+    }
+
+    @Test
+    @DisplayName("DROP_OLDEST keeps the newest spilled events")
+    void dropsOldestWhenRingIsFull() {
+        OffHeapOverflow.Settings settings = new OffHeapOverflow.Settings(2, 64, BackpressureOverflowStrategy.DROP_OLDEST);
+
+        TestSubscriber<String> subscriber = Flowable.range(0, 100)
+                .map(i -> "event-" + i)
+                .compose(OffHeapOverflow.spill(settings, EventCodec.utf8()))
+                .test(0);
+
+        subscriber.request(Long.MAX_VALUE);
+        subscriber.assertComplete();
+        List<String> values = subscriber.values();
+        assertEquals(List.of("event-0", "event-1"), values.subList(0, 2)); // The heap queue is never evicted
+        assertEquals("event-99", values.get(values.size() - 1));
+        assertTrue(values.size() < 100);
+    }
+}
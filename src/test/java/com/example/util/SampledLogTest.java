@@ -0,0 +1,118 @@
+package com.example.util;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import io.reactivex.rxjava3.core.Flowable;
+import io.reactivex.rxjava3.core.Observable;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SampledLogTest {
+
+    private final Logger logger = (Logger) LoggerFactory.getLogger("sampled-log-test");
+    private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+
+    @BeforeEach
+    void attachAppender() {
+        appender.start();
+        logger.addAppender(appender);
+    }
+
+    @AfterEach
+    void detachAppender() {
+        logger.detachAppender(appender);
+    }
+
+    private List<String> messages() {
+        return appender.list.stream().map(ILoggingEvent::getFormattedMessage).toList();
+    }
+
+    private long received() {
+        return messages().stream().filter(message -> message.contains("Received sensor data")).count();
+    }
+
+    @Test
+    @DisplayName("Every Nth element is logged, starting with the first, plus a final summary")
+    void logsEveryNth() {
+        List<Integer> values = Flowable.range(0, 1_000)
+                .compose(SampledLog.flowable(logger, "[Test]", new SampledLog.Settings(100, 0, Duration.ZERO)))
+                .toList()
+                .blockingGet();
+
+        assertEquals(1_000, values.size());
+        assertEquals(10, received());
+        assertEquals("[Test] Received sensor data: 0", messages().get(0));
+        assertEquals("[Test] Received sensor data: 900", messages().get(9));
+        assertTrue(messages().get(10).startsWith("[Test] 1000 events received in "));
+    }
+
+    @Test
+    @DisplayName("At most perSecond elements are logged per second")
+    void limitsRate() {
+        AtomicLong nanos = new AtomicLong();
+        SampledLog.Sampler sampler = new SampledLog.Sampler(logger, "[Test]",
+                new SampledLog.Settings(0, 5, Duration.ofHours(1)), nanos::get);
+
+        for (int i = 0; i < 100; i++) {
+            sampler.onNext(i);
+        }
+        assertEquals(5, received());
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(999));
+        sampler.onNext(100);
+        assertEquals(5, received());
+        nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(1));
+        for (int i = 101; i < 200; i++) {
+            sampler.onNext(i);
+        }
+        assertEquals(10, received());
+        assertEquals("[Test] Received sensor data: 101", messages().get(5));
+    }
+
+    @Test
+    @DisplayName("Summary lines report count and rate while the stream runs")
+    void logsSummaries() {
+        AtomicLong nanos = new AtomicLong();
+        SampledLog.Sampler sampler = new SampledLog.Sampler(logger, "[Test]",
+                new SampledLog.Settings(0, 1, Duration.ofMillis(30)), nanos::get);
+
+        for (int i = 0; i < 120; i++) {
+            sampler.onNext(i);
+            nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        sampler.finish();
+
+        List<String> summaries = messages().stream().filter(message -> message.contains(" in the last ")).toList();
+        assertEquals(3, summaries.size(), messages().toString()); // After 30, 60 and 90 ms
+        assertEquals("[Test] 31 events received, 31 in the last 30 ms (1033/s)", summaries.get(0));
+        assertEquals("[Test] 120 events received in 120 ms (1000/s)", messages().get(messages().size() - 1));
+        assertEquals(1, received());
+    }
+
+    @Test
+    @DisplayName("Settings.ALL logs every element without summaries")
+    void logsAll() {
+        Flowable.range(0, 50)
+                .compose(SampledLog.flowable(logger, "[Test]", SampledLog.Settings.ALL))
+                .blockingSubscribe();
+
+        assertEquals(50, received());
+        assertEquals(50, appender.list.size());
+
+        Flux.range(0, 50)
+                .transform(SampledLog.flux(logger, "[Test]", SampledLog.Settings.ALL))
+                .blockLast();
+        assertEquals(100, received());
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.util;
+
+import com.example.model.SensorBatch;
+import com.example.model.SensorData;
+import io.reactivex.rxjava3.core.Flowable;
+import io.reactivex.rxjava3.subscribers.TestSubscriber;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SensorBatchesTest {
+
+    private static SensorData reading(int i) {
+        return new SensorData("batch-" + (i % 3), i, i / 2.0, "", 1_000L + i, 1 + i % 3);
+    }
+
+    @ParameterizedTest
+    @CsvSource({"0, 4, 0", "1, 4, 1", "4, 4, 1", "5, 4, 2", "8, 4, 2", "9, 4, 3"})
+    @DisplayName("Readings are split into full batches and one partial last batch, in order")
+    void boundaries(int readings, int batchSize, int expectedBatches) {
+        TestSubscriber<SensorBatch> subscriber = Flowable.range(0, readings)
+                .map(SensorBatchesTest::reading)
+                .compose(SensorBatches.batches(batchSize))
+                .test();
+
+        subscriber.assertComplete().assertValueCount(expectedBatches);
+        int next = 0;
+        for (SensorBatch batch : subscriber.values()) {
+            assertEquals(batchSize, batch.capacity());
+            for (int i = 0; i < batch.size(); i++, next++) {
+                assertEquals(next, batch.temperatures()[i]);
+                assertEquals(next / 2.0, batch.humidities()[i]);
+                assertEquals(1_000L + next, batch.epochMillis()[i]);
+                assertEquals(1 + next % 3, batch.sensorOrdinals()[i]);
+            }
+        }
+        assertEquals(readings, next);
+    }
+
+    @Test
+    @DisplayName("A batch released downstream is refilled for a later batch")
+    void reusesReleasedBatches() {
+        List<SensorBatch> batches = Flowable.range(0, 12)
+                .map(SensorBatchesTest::reading)
+                .compose(SensorBatches.batches(4))
+                .map(batch -> {
+                    assertEquals(4, batch.size());
+                    batch.release();
+                    return batch;
+                })
+                .toList()
+                .blockingGet();
+
+        assertEquals(3, batches.size());
+        assertSame(batches.get(0), batches.get(1));
+        assertSame(batches.get(1), batches.get(2));
+    }
+
+    @Test
+    @DisplayName("Releasing a batch twice pools it once, and a released batch refuses readings")
+    void doubleRelease() {
+        SensorBatchPool pool = new SensorBatchPool(2, 4);
+        SensorBatch batch = pool.acquire();
+        batch.add(reading(0));
+
+        batch.release();
+        batch.release();
+        assertThrows(IllegalStateException.class, () -> batch.add(reading(1)));
+
+        SensorBatch first = pool.acquire();
+        SensorBatch second = pool.acquire();
+        assertSame(batch, first);
+        assertNotSame(first, second);
+        assertTrue(first.isEmpty());
+        first.add(reading(2));
+        assertEquals(1, first.size());
+    }
+
+    @Test
+    @DisplayName("The pool keeps at most its bound, extra released batches are dropped")
+    void boundedPool() {
+        SensorBatchPool pool = new SensorBatchPool(2, 1);
+        SensorBatch first = pool.acquire();
+        SensorBatch second = pool.acquire();
+
+        first.release();
+        second.release();
+
+        assertSame(first, pool.acquire());
+        SensorBatch fresh = pool.acquire();
+        assertNotSame(first, fresh);
+        assertNotSame(second, fresh);
+    }
+}
@@ -0,0 +1,178 @@
+package com.example.util;
+
+import com.example.model.SensorData;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.reactivex.rxjava3.core.Flowable;
+import io.reactivex.rxjava3.processors.PublishProcessor;
+import io.reactivex.rxjava3.schedulers.Schedulers;
+import io.reactivex.rxjava3.schedulers.TestScheduler;
+import io.reactivex.rxjava3.subscribers.TestSubscriber;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SensorDedupTest {
+
+    private static final long T0 = 1_729_160_130_000L;
+
+    private static SensorData reading(String id, long epochMillis) {
+        return new SensorData(id, 20.0, 50.0, "", epochMillis, SensorIdDictionary.shared().ordinalOf(id));
+    }
+
+    private static List<SensorData> readings(int sensors, int perSensor) {
+        List<SensorData> readings = new ArrayList<>();
+        for (int i = 0; i < perSensor; i++) {
+            for (int s = 0; s < sensors; s++) {
+                readings.add(reading("dedup-" + s, T0 + i));
+            }
+        }
+        return readings;
+    }
+
+    @Test
+    @DisplayName("Ordered: a replay after a reconnect is dropped up to each sensor's high-water mark")
+    void orderedReplay() {
+        List<SensorData> first = readings(100, 10);
+        List<SensorData> replay = new ArrayList<>(readings(100, 15)); // The first 10 again, then 5 new
+        AtomicLong duplicates = new AtomicLong();
+
+        List<SensorData> passed = Flowable.fromIterable(first).concatWith(Flowable.fromIterable(replay))
+                .compose(SensorDedup.dedup(SensorDedup.Order.ORDERED, SensorDedup.Settings.DEFAULT,
+                        Schedulers.trampoline(), data -> duplicates.incrementAndGet()))
+                .toList().blockingGet();
+
+        assertEquals(100 * 15, passed.size());
+        assertEquals(100 * 10, duplicates.get());
+        assertEquals(readings(100, 15), passed);
+    }
+
+    @Test
+    @DisplayName("Unordered: duplicates in any order are dropped, new readings pass")
+    void unorderedShuffled() {
+        List<SensorData> readings = readings(50, 40);
+        List<SensorData> overlapping = new ArrayList<>(readings);
+        overlapping.addAll(readings.subList(0, 1000)); // A second provider repeating half of them
+        Collections.shuffle(overlapping, new Random(42));
+        AtomicLong duplicates = new AtomicLong();
+
+        List<SensorData> passed = Flowable.fromIterable(overlapping)
+                .compose(SensorDedup.dedup(SensorDedup.Order.UNORDERED, SensorDedup.Settings.DEFAULT,
+                        Schedulers.trampoline(), data -> duplicates.incrementAndGet()))
+                .toList().blockingGet();
+
+        assertEquals(2000, passed.size());
+        assertEquals(1000, duplicates.get());
+        assertEquals(2000, passed.stream().distinct().count());
+    }
+
+    @Test
+    @DisplayName("Unordered: a key is remembered for at least half the window and forgotten after a whole one")
+    void window() {
+        TestScheduler clock = new TestScheduler();
+        SensorDedup.RotatingBloomFilter<SensorData> filter = new SensorDedup.RotatingBloomFilter<>(
+                new SensorDedup.Settings(0.001, 1000, Duration.ofSeconds(10)), clock, SensorDedup::readingKey);
+        SensorData data = reading("window", T0);
+
+        assertTrue(filter.firstSeen(data));
+        clock.advanceTimeBy(4, TimeUnit.SECONDS);
+        assertFalse(filter.firstSeen(data));
+        clock.advanceTimeBy(4, TimeUnit.SECONDS); // Rotated once: still in the previous half
+        assertFalse(filter.firstSeen(data));
+        clock.advanceTimeBy(11, TimeUnit.SECONDS);
+        assertTrue(filter.firstSeen(data));
+    }
+
+    @Test
+    @DisplayName("Unordered: the filter is sized for the false-positive rate, and keeps close to it")
+    void falsePositiveRate() {
+        SensorDedup.Settings settings = new SensorDedup.Settings(0.01, 20_000, Duration.ofMinutes(5));
+        SensorDedup.RotatingBloomFilter<SensorData> filter =
+                new SensorDedup.RotatingBloomFilter<>(settings, Schedulers.trampoline(), SensorDedup::readingKey);
+        assertTrue(filter.bits() >= 95_000 && filter.bits() < 100_000, filter.bits() + " bits");
+        assertEquals(7, filter.hashes());
+
+        for (int i = 0; i < 10_000; i++) {
+            filter.firstSeen(reading("fpp-" + (i % 100), T0 + i));
+        }
+        int falsePositives = 0; // Each probe is added too, so keep them few next to the 10 000 filled in
+        for (int i = 0; i < 1_000; i++) {
+            if (!filter.firstSeen(reading("fpp-new-" + (i % 100), T0 + i))) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < 1_000 * 0.01 * 3, falsePositives + " false positives");
+    }
+
+    @Test
+    @DisplayName("Readings without an ordinal, an id or a timestamp are handled, and probes count what is dropped")
+    void fallbacksAndMetrics() {
+        SensorData unindexed = new SensorData("overflowed", 20.0, 50.0, "", T0, SensorIdDictionary.NO_ORDINAL);
+        SensorData untimed = new SensorData("untimed", 20.0, 50.0, "", SensorData.NO_EPOCH, 0);
+        SensorData anonymous = new SensorData(null, 20.0, 50.0, "", T0 + 1, 0);
+        SensorData first = new SensorData("first", 20.0, 50.0, "", T0, 0); // Same ordinal as the anonymous one
+        StreamMetrics metrics = new StreamMetrics(new SimpleMeterRegistry());
+        StreamMetrics.Probe probe = metrics.probe("fan-in", StreamMetrics.WEBCLIENT, StreamMetrics.NO_STRATEGY);
+
+        for (SensorDedup.Order order : SensorDedup.Order.values()) {
+            Flowable.just(unindexed, unindexed, untimed, untimed, anonymous, anonymous, first)
+                    .compose(probe.dedup(SensorDedup.readings(order, SensorDedup.Settings.DEFAULT, Schedulers.trampoline())))
+                    .test()
+                    .assertValues(unindexed, untimed, untimed, anonymous, first);
+        }
+        assertEquals(4, probe.snapshot().duplicates());
+    }
+
+    @Test
+    @DisplayName("A probe's supplied memory is per subscription: concurrent subscribers and a resubscribe see every reading")
+    void memoryPerSubscription() {
+        StreamMetrics.Probe probe = new StreamMetrics(new SimpleMeterRegistry())
+                .probe("flowable", StreamMetrics.WEBCLIENT, StreamMetrics.NO_STRATEGY);
+        PublishProcessor<SensorData> source = PublishProcessor.create();
+        Flowable<SensorData> deduped = source.compose(probe.dedup(() -> SensorDedup.readings(SensorDedup.Order.ORDERED,
+                SensorDedup.Settings.DEFAULT, Schedulers.trampoline())));
+
+        TestSubscriber<SensorData> first = deduped.test();
+        TestSubscriber<SensorData> second = deduped.test();
+        readings(10, 5).forEach(source::onNext);
+        readings(10, 5).forEach(source::onNext); // A replay within each subscription
+        first.assertValueCount(50);
+        second.assertValueCount(50);
+
+        Flowable<SensorData> resubscribed = Flowable.defer(() -> Flowable.fromIterable(readings(10, 5)))
+                .compose(probe.dedup(() -> SensorDedup.readings(SensorDedup.Order.ORDERED,
+                        SensorDedup.Settings.DEFAULT, Schedulers.trampoline())));
+        resubscribed.test().assertValueCount(50);
+        resubscribed.test().assertValueCount(50);
+        assertEquals(100, probe.snapshot().duplicates());
+    }
+
+    @Test
+    @DisplayName("A shared memory drops what an earlier subscription already passed, for readings and raw events alike")
+    void memoryAcrossSubscriptions() {
+        SensorDedup.Memory<SensorData> readings = SensorDedup.readings(SensorDedup.Order.ORDERED,
+                SensorDedup.Settings.DEFAULT, Schedulers.trampoline());
+        Flowable<SensorData> resubscribed = Flowable.defer(() -> Flowable.fromIterable(readings(10, 5)))
+                .compose(readings.dedup(data -> {
+                }));
+
+        resubscribed.test().assertValueCount(50);
+        resubscribed.test().assertNoValues().assertComplete();
+
+        SensorDedup.Memory<String> events = SensorDedup.events(SensorDedup.Settings.DEFAULT, Schedulers.trampoline());
+        AtomicLong duplicates = new AtomicLong();
+        Flowable.just("{\"id\":\"a\"}", "{\"id\":\"b\"}").compose(events.dedup(event -> duplicates.incrementAndGet()))
+                .test().assertValueCount(2);
+        Flowable.just("{\"id\":\"b\"}", "{\"id\":\"c\"}").compose(events.dedup(event -> duplicates.incrementAndGet()))
+                .test().assertValues("{\"id\":\"c\"}");
+        assertEquals(1, duplicates.get());
+    }
+}
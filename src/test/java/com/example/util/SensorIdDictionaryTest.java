@@ -0,0 +1,117 @@
+package com.example.util;
+
+import com.example.model.SensorData;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SensorIdDictionaryTest {
+
+    @Test
+    @DisplayName("Ordinals are dense and stable")
+    void assignsDenseOrdinals() {
+        SensorIdDictionary dictionary = new SensorIdDictionary(1_000);
+
+        for (int i = 0; i < 200; i++) {
+            assertEquals(i, dictionary.ordinalOf("sensor-" + i));
+        }
+        assertEquals(42, dictionary.ordinalOf("sensor-42"));
+        assertEquals("sensor-42", dictionary.idOf(42));
+        assertEquals(200, dictionary.size());
+        assertEquals(200, dictionary.misses());
+        assertEquals(1, dictionary.hits());
+        assertEquals("sensor-199", dictionary.ids().get(199));
+    }
+
+    @Test
+    @DisplayName("Character ranges resolve to the canonical String instance")
+    void internsCharacterRanges() {
+        SensorIdDictionary dictionary = new SensorIdDictionary(1_000);
+        String canonical = dictionary.intern(new String("sensor-7"));
+
+        char[] buffer = "{\"id\":\"sensor-7\"}".toCharArray();
+        assertSame(canonical, dictionary.intern(buffer, 7, 8));
+        assertEquals(0, dictionary.ordinalOf("sensor-7"));
+    }
+
+    @Test
+    @DisplayName("A full dictionary passes new ids through without an ordinal")
+    void overflowsWhenFull() {
+        SensorIdDictionary dictionary = new SensorIdDictionary(2);
+        dictionary.ordinalOf("a");
+        dictionary.ordinalOf("b");
+
+        assertEquals(SensorIdDictionary.NO_ORDINAL, dictionary.ordinalOf("c"));
+        assertEquals("c", dictionary.intern("c".toCharArray(), 0, 1));
+        assertEquals(2, dictionary.overflows());
+        assertEquals(2, dictionary.size());
+    }
+
+    @Test
+    @DisplayName("Concurrent first sightings get exactly one ordinal each")
+    void assignsOrdinalsConcurrently() {
+        SensorIdDictionary dictionary = new SensorIdDictionary(10_000);
+        Set<Integer> ordinals = ConcurrentHashMap.newKeySet();
+
+        IntStream.range(0, 40_000).parallel()
+                .forEach(i -> ordinals.add(dictionary.ordinalOf("sensor-" + (i % 5_000))));
+
+        assertEquals(5_000, dictionary.size());
+        assertEquals(5_000, ordinals.size());
+        assertTrue(ordinals.stream().allMatch(ordinal -> ordinal >= 0 && ordinal < 5_000));
+    }
+
+    @Test
+    @DisplayName("An ordinal found without the lock always resolves to its id")
+    void publishesIdsBeforeEntries() throws InterruptedException {
+        SensorIdDictionary dictionary = new SensorIdDictionary(100_000);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Runnable lookups = () -> {
+            try {
+                for (int i = 0; i < 50_000; i++) {
+                    String id = "publish-" + i;
+                    assertEquals(id, dictionary.idOf(dictionary.ordinalOf(id)));
+                }
+            } catch (Throwable e) {
+                failure.compareAndSet(null, e);
+            }
+        };
+        Thread first = new Thread(lookups);
+        Thread second = new Thread(lookups);
+        first.start();
+        second.start();
+        first.join();
+        second.join();
+
+        assertNull(failure.get());
+        assertEquals(50_000, dictionary.size());
+    }
+
+    @Test
+    @DisplayName("Readings without an id get no ordinal")
+    void nullIdHasNoOrdinal() {
+        assertEquals(SensorIdDictionary.NO_ORDINAL, SensorData.of(null, 20.0, 50.0, "2024-10-17T10:15:30").sensorOrdinal());
+    }
+
+    @Test
+    @DisplayName("Deserialized readings share the interned id and carry its ordinal")
+    void deserializesInternedIds() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        String json = "{\"id\":\"sensor-intern-test\",\"temperature\":21.5,\"humidity\":40.0,\"timestamp\":\"2024-10-17T10:15:30\"}";
+
+        List<SensorData> readings = List.of(
+                objectMapper.readValue(json, SensorData.class),
+                objectMapper.readValue(json, SensorData.class));
+
+        assertSame(readings.get(0).id(), readings.get(1).id());
+        assertEquals(SensorIdDictionary.shared().ordinalOf("sensor-intern-test"), readings.get(0).sensorOrdinal());
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.util;
+
+import com.example.model.SensorData;
+import io.reactivex.rxjava3.core.Flowable;
+import io.reactivex.rxjava3.schedulers.Schedulers;
+import io.reactivex.rxjava3.subscribers.TestSubscriber;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SensorRailsTest {
+
+    private static final int SENSORS = 16;
+    private static final int EVENTS = 2000;
+
+    @Test
+    @DisplayName("Per-sensor ordering: every sensor's readings stay in order while rails run in parallel")
+    void perSensorOrdering() {
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        TestSubscriber<SensorData> subscriber = readings(EVENTS)
+                .compose(SensorRails.rails(new SensorRails.Settings(4, 32, SensorRails.Ordering.PER_SENSOR),
+                        Schedulers.newThread(), data -> { // Thread per rail, whatever the core count
+                            threads.add(Thread.currentThread().getName());
+                            spin(data);
+                            return data;
+                        }))
+                .test();
+
+        subscriber.awaitDone(10, TimeUnit.SECONDS).assertComplete().assertValueCount(EVENTS);
+        assertInOrderPerSensor(subscriber.values());
+        assertTrue(threads.size() > 1, "Work ran on " + threads);
+    }
+
+    @Test
+    @DisplayName("Arrival ordering: results leave in upstream order")
+    void arrivalOrdering() {
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        TestSubscriber<Long> subscriber = readings(EVENTS)
+                .compose(SensorRails.rails(new SensorRails.Settings(4, 32, SensorRails.Ordering.ARRIVAL),
+                        Schedulers.newThread(), data -> { // Thread per rail, whatever the core count
+                            threads.add(Thread.currentThread().getName());
+                            spin(data);
+                            return data.epochMillis();
+                        }))
+                .test();
+
+        subscriber.awaitDone(10, TimeUnit.SECONDS).assertComplete()
+                .assertValueSequence(LongStream.rangeClosed(1, EVENTS).boxed().toList());
+        assertTrue(threads.size() > 1, "Work ran on " + threads);
+    }
+
+    @Test
+    @DisplayName("Rails queue a bounded number of events ahead of a slow subscriber")
+    void boundedQueues() {
+        for (SensorRails.Ordering ordering : SensorRails.Ordering.values()) {
+            AtomicLong requested = new AtomicLong();
+            TestSubscriber<SensorData> subscriber = readings(100_000)
+                    .doOnRequest(n -> requested.addAndGet(Math.min(n, 1_000_000)))
+                    .compose(SensorRails.rails(new SensorRails.Settings(4, 16, ordering),
+                            Schedulers.computation(), data -> data))
+                    .test(0);
+
+            subscriber.requestMore(10).awaitCount(10);
+            assertTrue(requested.get() <= 10 + 4 * 16 * 2, ordering + " requested " + requested.get());
+            subscriber.cancel();
+        }
+    }
+
+    @Test
+    @DisplayName("A sensor is always on the same rail; sensors without an ordinal hash their id")
+    void railAssignment() {
+        SensorData data = reading(3);
+        assertEquals(SensorRails.rail(data, 4), SensorRails.rail(reading(3 + SENSORS), 4));
+        SensorData unindexed = new SensorData("sensor-x", 0, 0, null, 1, SensorIdDictionary.NO_ORDINAL);
+        assertEquals(Math.floorMod("sensor-x".hashCode(), 4), SensorRails.rail(unindexed, 4));
+        assertThrows(IllegalArgumentException.class,
+                () -> new SensorRails.Settings(0, 16, SensorRails.Ordering.PER_SENSOR));
+    }
+
+    private static Flowable<SensorData> readings(int count) {
+        return Flowable.range(0, count).map(SensorRailsTest::reading);
+    }
+
+    /**
+     * Sequence number in epochMillis, starting at 1.
+     */
+    private static SensorData reading(int seq) {
+        String id = "sensor-" + seq % SENSORS;
+        return new SensorData(id, 20, 50, null, seq + 1, SensorIdDictionary.shared().ordinalOf(id));
+    }
+
+    private static void assertInOrderPerSensor(List<SensorData> results) {
+        Map<String, List<Long>> bySensor = results.stream().collect(Collectors.groupingBy(SensorData::id,
+                Collectors.mapping(SensorData::epochMillis, Collectors.toList())));
+        assertEquals(SENSORS, bySensor.size());
+        bySensor.forEach((sensor, sequence) ->
+                assertEquals(sequence.stream().sorted().toList(), sequence, sensor + " out of order"));
+    }
+
+    /**
+     * Uneven per-event work, so rails run at different speeds.
+     */
+    private static void spin(SensorData data) {
+        long until = System.nanoTime() + (data.epochMillis() % 7) * 2_000;
+        while (System.nanoTime() < until) {
+            Thread.onSpinWait();
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.util;
+
+import com.example.model.SensorData;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.reactivex.rxjava3.core.Flowable;
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import retrofit2.Converter;
+
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SseConverterFactoryTest {
+
+    private static final MediaType EVENT_STREAM = MediaType.get("text/event-stream");
+
+    @SuppressWarnings("unchecked")
+    private static Converter<ResponseBody, Flowable<SensorData>> converter() {
+        return (Converter<ResponseBody, Flowable<SensorData>>) SseConverterFactory.create(new ObjectMapper())
+                .responseBodyConverter(SensorData.class, new Annotation[0], null);
+    }
+
+    private static String reading(String id, String timestamp) {
+        return "{\"id\":\"" + id + "\",\"temperature\":21.5,\"humidity\":40.0,\"timestamp\":\"" + timestamp + "\"}";
+    }
+
+    @Test
+    @DisplayName("Every data frame of a body is decoded, skipping comments and frames cut off at the end")
+    void decodesFrames() throws IOException {
+        String body = ": keep-alive\n\n"
+                + "data: " + reading("sensor-1", "2024-10-17T10:15:30") + "\n\n"
+                + "id: 2\nevent: sensor\ndata:" + reading("sensor-2", "2024-10-17T10:15:31") + "\n\n"
+                + "data: " + reading("sensor-3", "2024-10-17T10:15:32");
+
+        SensorData first = converter().convert(ResponseBody.create(body, EVENT_STREAM)).test()
+                .assertComplete()
+                .assertValueCount(3)
+                .values().get(0);
+
+        assertEquals("sensor-1", first.id());
+        assertEquals(TimestampCodec.shared().toEpochMillis("2024-10-17T10:15:30"), first.epochMillis());
+        assertEquals(SensorIdDictionary.shared().ordinalOf("sensor-1"), first.sensorOrdinal());
+    }
+
+    @Test
+    @DisplayName("One converter, and so one cached reader, decodes every response of a method")
+    void reusesConverter() throws IOException {
+        Converter<ResponseBody, Flowable<SensorData>> converter = converter();
+
+        for (String id : new String[]{"sensor-a", "sensor-b"}) {
+            converter.convert(ResponseBody.create("data: " + reading(id, "2024-10-17T10:15:30") + "\n\n", EVENT_STREAM))
+                    .test()
+                    .assertComplete()
+                    .assertValue(data -> data.id().equals(id));
+        }
+    }
+
+    @Test
+    @DisplayName("A malformed payload errors the stream after the frames before it")
+    void propagatesMalformedPayload() throws IOException {
+        String body = "data: " + reading("sensor-1", "2024-10-17T10:15:30") + "\n\n"
+                + "data: {\"id\":\"sensor-2\",\"temperature\":\n\n"
+                + "data: " + reading("sensor-3", "2024-10-17T10:15:32") + "\n\n";
+
+        converter().convert(ResponseBody.create(body, EVENT_STREAM)).test()
+                .assertError(JsonProcessingException.class)
+                .assertValue(data -> data.id().equals("sensor-1"));
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.util;
+
+import com.example.model.SseFrame;
+import okio.Buffer;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SseFrameParserTest {
+
+    private static SseFrameParser parserFor(String body) {
+        return new SseFrameParser(new Buffer().writeUtf8(body));
+    }
+
+    @Test
+    @DisplayName("Single-line data frames are dispatched on blank lines")
+    void parsesDataFrames() throws IOException {
+        SseFrameParser parser = parserFor("data:{\"id\":\"sensor-1\"}\n\ndata: {\"id\":\"sensor-2\"}\n\n");
+
+        assertEquals("{\"id\":\"sensor-1\"}", parser.next().data());
+        assertEquals("{\"id\":\"sensor-2\"}", parser.next().data()); // A single leading space is stripped
+        assertNull(parser.next());
+    }
+
+    @Test
+    @DisplayName("Multi-line data, id, event and retry fields")
+    void parsesAllFields() throws IOException {
+        SseFrameParser parser = parserFor(
+                ": keep-alive comment\r\n"
+                        + "id: 42\r\n"
+                        + "event: sensor\r\n"
+                        + "retry: 1500\r\n"
+                        + "data: first\r\n"
+                        + "data: second\r\n"
+                        + "\r\n"
+                        + "data: third\n"
+                        + "\n");
+
+        SseFrame first = parser.next();
+        assertEquals(new SseFrame("42", "sensor", "first\nsecond", 1500), first);
+
+        // id and retry persist across frames, the event type does not
+        SseFrame second = parser.next();
+        assertEquals(new SseFrame("42", SseFrameParser.DEFAULT_EVENT, "third", 1500), second);
+        assertNull(parser.next());
+    }
+
+    @Test
+    @DisplayName("Frames without data, unknown fields and invalid retry values are ignored")
+    void ignoresEmptyFrames() throws IOException {
+        SseFrameParser parser = parserFor("event: ping\n\nfoo: bar\nretry: soon\ndata\n\n");
+
+        SseFrame frame = parser.next();
+        assertEquals("", frame.data()); // "data" without a colon is an empty data line
+        assertEquals(SseFrameParser.DEFAULT_EVENT, frame.event());
+        assertEquals(-1, frame.retry());
+        assertNull(parser.next());
+    }
+
+    @Test
+    @DisplayName("A frame cut off by the end of the stream is still dispatched")
+    void dispatchesTrailingFrame() throws IOException {
+        SseFrameParser parser = parserFor("data: {\"id\":\"sensor-1\"}\n\ndata: {\"id\":\"sensor-2\"}");
+
+        assertTrue(parser.nextFrame());
+        assertEquals("{\"id\":\"sensor-1\"}", parser.payload().readUtf8());
+        assertTrue(parser.nextFrame());
+        assertEquals("{\"id\":\"sensor-2\"}", parser.payload().readUtf8());
+        assertFalse(parser.nextFrame());
+    }
+}
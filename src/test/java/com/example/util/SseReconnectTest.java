@@ -0,0 +1,183 @@
+package com.example.util;
+
+import com.example.model.SseFrame;
+import io.reactivex.rxjava3.core.Flowable;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SseReconnectTest {
+
+    private static final SseReconnect.Settings SETTINGS =
+            new SseReconnect.Settings(3, Duration.ofMillis(1), Duration.ofMillis(20), Duration.ofSeconds(30));
+
+    private static SseFrame frame(String id, long retry) {
+        return new SseFrame(id, SseFrameParser.DEFAULT_EVENT, "data-" + id, retry);
+    }
+
+    private static Flowable<SseFrame> frames(String... ids) {
+        return Flowable.fromIterable(Arrays.stream(ids).map(id -> frame(id, -1L)).toList());
+    }
+
+    @Test
+    @DisplayName("Reconnects after an I/O error and resumes from the last event id")
+    void resumesFromLastEventId() {
+        List<String> lastEventIds = new ArrayList<>();
+
+        List<String> data = SseReconnect.resumable(lastEventId -> {
+                    lastEventIds.add(lastEventId);
+                    return switch (lastEventIds.size()) {
+                        case 1 -> frames("1", "2").concatWith(Flowable.error(new IOException("connection reset")));
+                        case 2 -> Flowable.error(new SocketTimeoutException("read timed out"));
+                        default -> frames("3", "4");
+                    };
+                }, SETTINGS)
+                .map(SseFrame::data)
+                .toList()
+                .blockingGet();
+
+        assertEquals(List.of("data-1", "data-2", "data-3", "data-4"), data);
+        assertEquals(Arrays.asList(null, "2", "2"), lastEventIds);
+    }
+
+    @Test
+    @DisplayName("Gives up after maxAttempts consecutive failures")
+    void givesUpAfterMaxAttempts() {
+        int[] connections = {0};
+
+        SseReconnect.resumable(lastEventId -> {
+                    connections[0]++;
+                    return Flowable.<SseFrame>error(new IOException("refused"));
+                }, SETTINGS)
+                .test()
+                .awaitDone(5, TimeUnit.SECONDS)
+                .assertError(error -> error instanceof IOException && "refused".equals(error.getMessage()));
+
+        assertEquals(1 + SETTINGS.maxAttempts(), connections[0]);
+    }
+
+    @Test
+    @DisplayName("Receiving a frame resets the attempt count")
+    void frameResetsAttempts() {
+        int[] connections = {0};
+
+        SseReconnect.resumable(lastEventId -> {
+                    int connection = ++connections[0];
+                    return connection < 10
+                            ? frames(String.valueOf(connection)).concatWith(Flowable.error(new IOException("reset")))
+                            : Flowable.<SseFrame>empty();
+                }, SETTINGS)
+                .test()
+                .awaitDone(5, TimeUnit.SECONDS)
+                .assertComplete()
+                .assertValueCount(9);
+    }
+
+    @Test
+    @DisplayName("Errors other than I/O errors are not retried")
+    void passesOnOtherErrors() {
+        int[] connections = {0};
+
+        SseReconnect.resumable(lastEventId -> {
+                    connections[0]++;
+                    return Flowable.<SseFrame>error(new IllegalStateException("bad payload"));
+                }, SETTINGS)
+                .test()
+                .awaitDone(5, TimeUnit.SECONDS)
+                .assertError(IllegalStateException.class);
+
+        assertEquals(1, connections[0]);
+    }
+
+    @Test
+    @DisplayName("The server's retry hint replaces the initial backoff")
+    void honorsRetryHint() {
+        int[] connections = {0};
+        long start = System.nanoTime();
+
+        SseReconnect.resumable(lastEventId -> connections[0]++ == 0
+                        ? Flowable.just(frame("1", 200)).concatWith(Flowable.error(new IOException("reset")))
+                        : Flowable.empty(), SETTINGS)
+                .test()
+                .awaitDone(5, TimeUnit.SECONDS)
+                .assertComplete();
+
+        // The hint is capped by maxBackoff (20 ms), jittered down to no less than half of it
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue(elapsedMillis >= 10, "elapsed " + elapsedMillis);
+    }
+
+    @Test
+    @DisplayName("Client errors fail at once, server errors and 429 are retried")
+    void retriesOnlyRetryableStatuses() {
+        int[] connections = {0};
+        SseReconnect.resumable(lastEventId -> {
+                    connections[0]++;
+                    return Flowable.<SseFrame>error(new SseReconnect.StatusException(404, null, "Not Found"));
+                }, SETTINGS)
+                .test()
+                .awaitDone(5, TimeUnit.SECONDS)
+                .assertError(error -> error instanceof SseReconnect.StatusException status && status.code() == 404);
+        assertEquals(1, connections[0]);
+
+        connections[0] = 0;
+        SseReconnect.resumable(lastEventId -> switch (++connections[0]) {
+                    case 1 -> Flowable.<SseFrame>error(new SseReconnect.StatusException(502, null, "Bad Gateway"));
+                    case 2 -> Flowable.<SseFrame>error(new SseReconnect.StatusException(429, null, "Too Many Requests"));
+                    default -> frames("1");
+                }, SETTINGS)
+                .test()
+                .awaitDone(5, TimeUnit.SECONDS)
+                .assertComplete()
+                .assertValueCount(1);
+        assertEquals(3, connections[0]);
+    }
+
+    @Test
+    @DisplayName("Retry-After of a 503 is waited, beyond the backoff cap")
+    void honorsRetryAfter() {
+        int[] connections = {0};
+        long start = System.nanoTime();
+
+        SseReconnect.resumable(lastEventId -> connections[0]++ == 0
+                        ? Flowable.<SseFrame>error(new SseReconnect.StatusException(503, "1", "Service Unavailable"))
+                        : Flowable.empty(), SETTINGS)
+                .test()
+                .awaitDone(5, TimeUnit.SECONDS)
+                .assertComplete();
+
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue(elapsedMillis >= 1000, "elapsed " + elapsedMillis);
+    }
+
+    @Test
+    @DisplayName("Retry-After is read as delay-seconds or as an HTTP date")
+    void parsesRetryAfter() {
+        long now = 1_445_412_480_000L; // Wed, 21 Oct 2015 07:28:00 GMT
+        assertEquals(120_000, SseReconnect.retryAfterMillis("120", now));
+        assertEquals(30_000, SseReconnect.retryAfterMillis("Wed, 21 Oct 2015 07:28:30 GMT", now));
+        assertEquals(0, SseReconnect.retryAfterMillis("Wed, 21 Oct 2015 07:27:00 GMT", now));
+        assertEquals(-1, SseReconnect.retryAfterMillis("soon", now));
+        assertEquals(-1, SseReconnect.retryAfterMillis(null, now));
+    }
+
+    @RepeatedTest(20)
+    @DisplayName("Backoff doubles per attempt, stays within the cap and is jittered down to half")
+    void backoffIsBoundedAndJittered() {
+        for (int attempt = 1; attempt <= 40; attempt++) {
+            long delay = SseReconnect.backoff(attempt, 100, 10_000);
+            long expected = Math.min(100L << Math.min(attempt - 1, 30), 10_000);
+            assertTrue(delay >= expected / 2 && delay <= expected, "attempt " + attempt + ": " + delay);
+        }
+    }
+}
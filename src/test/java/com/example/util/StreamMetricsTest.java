@@ -0,0 +1,208 @@
+package com.example.util;
+
+import com.example.model.SensorData;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.reactivex.rxjava3.core.BackpressureStrategy;
+import io.reactivex.rxjava3.core.Flowable;
+import io.reactivex.rxjava3.processors.PublishProcessor;
+import io.reactivex.rxjava3.subscribers.TestSubscriber;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StreamMetricsTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final StreamMetrics metrics = new StreamMetrics(registry);
+
+    /**
+     * Emits {@code count} events at once, ignoring downstream demand, like the SSE client's source.
+     */
+    private static Flowable<Integer> burst(int count) {
+        return Flowable.create(emitter -> {
+            for (int i = 0; i < count; i++) {
+                emitter.onNext(i);
+            }
+        }, BackpressureStrategy.MISSING);
+    }
+
+    private double gauge(String name, String strategy) {
+        return registry.get("consumer.stream." + name).tag("strategy", strategy).gauge().value();
+    }
+
+    @Test
+    @DisplayName("Received events, timers and outstanding demand are recorded per subscription")
+    void flowableProbe() {
+        StreamMetrics.Probe probe = metrics.probe("flowable", StreamMetrics.OKHTTP, StreamMetrics.NO_STRATEGY);
+        PublishProcessor<Integer> source = PublishProcessor.create();
+
+        TestSubscriber<Integer> subscriber = source.compose(probe.<Integer>flowable()).test(5);
+        source.onNext(1);
+        source.onNext(2);
+        source.onNext(3);
+
+        assertEquals(2, gauge("demand", StreamMetrics.NO_STRATEGY));
+        subscriber.request(4);
+        assertEquals(6, gauge("demand", StreamMetrics.NO_STRATEGY));
+        subscriber.cancel();
+        assertEquals(0, gauge("demand", StreamMetrics.NO_STRATEGY));
+
+        assertEquals(3, registry.get("consumer.stream.received").counter().count());
+        assertEquals(1, registry.get("consumer.stream.first.element").timer().count());
+        assertEquals(2, registry.get("consumer.stream.interarrival").timer().count());
+        assertEquals(3, probe.snapshot().received());
+    }
+
+    @Test
+    @DisplayName("Unbounded requests and Observables leave the demand gauge untouched; errors are counted")
+    void unboundedAndErrors() {
+        StreamMetrics.Probe probe = metrics.probe("observable", StreamMetrics.RETROFIT, StreamMetrics.NO_STRATEGY);
+
+        Flowable.range(1, 10).compose(probe.<Integer>flowable()).test().assertValueCount(10);
+        burst(3).toObservable().take(3).compose(probe.<Integer>observable()).test().assertValueCount(3);
+        Flowable.<Integer>error(new IOException("reset")).compose(probe.<Integer>flowable()).test()
+                .assertError(IOException.class);
+
+        StreamMetrics.Snapshot snapshot = probe.snapshot();
+        assertEquals(13, snapshot.received());
+        assertEquals(1, snapshot.errors());
+        assertEquals(0, snapshot.outstandingDemand());
+    }
+
+    @Test
+    @DisplayName("DROP and LATEST count exactly the events they discard")
+    void dropsAreCounted() {
+        StreamMetrics.Probe drop = metrics.probe("backpressure", StreamMetrics.OKHTTP, "DROP");
+        burst(100).compose(drop.<Integer>backpressure(BackpressureStrategy.DROP))
+                .test(10)
+                .assertValueCount(10);
+        assertEquals(90, drop.snapshot().dropped());
+        assertEquals(0, drop.snapshot().bufferDepth());
+
+        StreamMetrics.Probe latest = metrics.probe("backpressure", StreamMetrics.OKHTTP, "LATEST");
+        TestSubscriber<Integer> subscriber = burst(100)
+                .compose(latest.<Integer>backpressure(BackpressureStrategy.LATEST))
+                .test(10);
+        assertEquals(1, latest.snapshot().bufferDepth()); // The latest event waits for demand
+        subscriber.request(1);
+        subscriber.assertValueCount(11);
+        assertEquals(99, subscriber.values().get(10));
+        assertEquals(89, latest.snapshot().dropped());
+        assertEquals(0, latest.snapshot().bufferDepth());
+    }
+
+    @Test
+    @DisplayName("BUFFER reports the events waiting for demand, and releases them on cancel")
+    void bufferDepth() {
+        StreamMetrics.Probe probe = metrics.probe("errorHandling", StreamMetrics.OKHTTP, "BUFFER");
+
+        TestSubscriber<Integer> subscriber = burst(100)
+                .compose(probe.<Integer>backpressure(BackpressureStrategy.BUFFER))
+                .test(10);
+        assertEquals(90, gauge("buffer.depth", "BUFFER"));
+        subscriber.request(40);
+        assertEquals(50, gauge("buffer.depth", "BUFFER"));
+        subscriber.cancel();
+        assertEquals(0, gauge("buffer.depth", "BUFFER"));
+        assertEquals(0, probe.snapshot().dropped());
+    }
+
+    @Test
+    @DisplayName("Blocking reads of a demand-driven source count as in flight until they return or fail")
+    void readsInFlight() throws Exception {
+        StreamMetrics.Probe probe = metrics.probe("backpressure", StreamMetrics.OKHTTP, "DROP");
+
+        assertEquals("frame", probe.read(() -> {
+            assertEquals(1, probe.snapshot().readsInFlight());
+            assertEquals(1, gauge("reads.inflight", "DROP"));
+            return "frame";
+        }));
+        assertThrows(IOException.class, () -> probe.read(() -> {
+            throw new IOException("connection reset");
+        }));
+        assertEquals(0, probe.snapshot().readsInFlight());
+        assertEquals(0, probe.snapshot().bufferDepth());
+    }
+
+    @Test
+    @DisplayName("Flux probes track demand like Flowables, and probes are shared per tag set")
+    void fluxProbe() {
+        StreamMetrics.Probe probe = metrics.probe("flowable", StreamMetrics.WEBCLIENT, StreamMetrics.NO_STRATEGY);
+        assertSame(probe, metrics.probe("flowable", StreamMetrics.WEBCLIENT, StreamMetrics.NO_STRATEGY));
+
+        TestSubscriber<Integer> subscriber = Flowable.fromPublisher(Flux.range(1, 20).transform(probe.<Integer>flux()))
+                .test(5);
+        subscriber.assertValueCount(5);
+        assertEquals(0, probe.snapshot().outstandingDemand());
+        subscriber.request(3);
+        subscriber.assertValueCount(8);
+        subscriber.cancel();
+
+        assertEquals(8, probe.snapshot().received());
+        assertEquals(0, probe.snapshot().outstandingDemand());
+        assertEquals(1, metrics.probes().size());
+    }
+
+    private static SensorData readingAged(long ageMillis) {
+        return new SensorData("latency", 20.0, 50.0, "", System.currentTimeMillis() - ageMillis, 0);
+    }
+
+    @Test
+    @DisplayName("SensorData readings record their age on arrival, and on completion where the pipeline reports it")
+    void latency() throws Exception {
+        StreamMetrics.Probe probe = metrics.probe("backpressure", StreamMetrics.RETROFIT, "BUFFER");
+        Flowable.range(1, 1000)
+                .map(i -> readingAged(i <= 990 ? 10 : 1000))
+                .compose(probe.<SensorData>flowable())
+                .test()
+                .assertValueCount(1000);
+
+        List<SensorData> handled = new ArrayList<>();
+        MicroBatcher.BatchCallback<SensorData> callback = probe.processed(new MicroBatcher.BatchCallback<>() {
+            @Override
+            public void onBatch(List<SensorData> batch) {
+                handled.addAll(batch);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+            }
+        });
+        callback.onBatch(List.of(readingAged(50), readingAged(-5000))); // A producer clock ahead of ours: skewed
+        assertEquals(2, handled.size());
+
+        StreamMetrics.LatencySnapshot received = metrics.latency().stream()
+                .filter(snapshot -> snapshot.stage().equals("received")).findFirst().orElseThrow();
+        assertEquals(1000, received.count());
+        assertEquals(0, received.skewed());
+        assertTrue(received.p50Ms() >= 9 && received.p50Ms() < 200, "p50 " + received.p50Ms());
+        assertTrue(received.p999Ms() >= 900, "p999 " + received.p999Ms());
+        assertTrue(received.maxMs() >= 1000, "max " + received.maxMs());
+
+        StreamMetrics.LatencySnapshot processed = metrics.latency().stream()
+                .filter(snapshot -> snapshot.stage().equals("processed")).findFirst().orElseThrow();
+        assertEquals(1, processed.count());
+        assertEquals(1, processed.skewed());
+        assertTrue(processed.p50Ms() >= 45 && processed.maxMs() < 1000, "p50 " + processed.p50Ms());
+        assertEquals(1001, registry.get("consumer.stream.latency").timers().stream().mapToLong(Timer::count).sum());
+        assertEquals(1, registry.get("consumer.stream.latency.skewed").tag("stage", "processed").counter().count());
+    }
+
+    @Test
+    @DisplayName("Streams of other types and readings without a timestamp record no latency")
+    void noLatency() {
+        StreamMetrics.Probe probe = metrics.probe("flowable", StreamMetrics.OKHTTP, StreamMetrics.NO_STRATEGY);
+        Flowable.range(1, 10).compose(probe.<Integer>flowable()).test().assertComplete();
+        probe.recordLatency(StreamMetrics.Stage.RECEIVED, SensorData.NO_EPOCH);
+
+        assertTrue(metrics.latency().isEmpty());
+        assertNull(registry.find("consumer.stream.latency").timer());
+    }
+}
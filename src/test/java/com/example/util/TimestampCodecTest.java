@@ -0,0 +1,121 @@
+package com.example.util;
+
+import com.example.model.SensorData;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimestampCodecTest {
+
+    private final TimestampCodec codec = new TimestampCodec(ZoneOffset.ofHours(2));
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "2024-10-17T10:15",
+            "2024-10-17T10:15:30",
+            "2024-10-17T10:15:30.1",
+            "2024-10-17T10:15:30.123",
+            "2024-10-17T23:59:59.123456789",
+            "1969-12-31T23:59:59.999",
+            "2024-02-29T00:00:00"})
+    @DisplayName("Local timestamps match java.time in the default offset")
+    void matchesJavaTime(String text) {
+        LocalDateTime expected = LocalDateTime.parse(text);
+
+        assertEquals(expected.toInstant(ZoneOffset.ofHours(2)).toEpochMilli(), codec.toEpochMillis(text));
+        long nanos = expected.toEpochSecond(ZoneOffset.ofHours(2)) * 1_000_000_000L + expected.getNano();
+        assertEquals(nanos, codec.toEpochNanos(text));
+        assertEquals(expected, codec.toLocalDateTime(text));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"2024-10-17T10:15:30.5Z", "2024-10-17T10:15:30+05:30", "2024-10-17T10:15:30.25-03:00"})
+    @DisplayName("Explicit offsets override the default offset")
+    void honorsExplicitOffsets(String text) {
+        assertEquals(OffsetDateTime.parse(text).toInstant().toEpochMilli(), codec.toEpochMillis(text));
+        assertThrows(DateTimeParseException.class, () -> codec.toLocalDateTime(text));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "2024-10-17", "2024-13-01T00:00", "2024-02-30T00:00", "2024-10-17 10:15:30",
+            "2024-10-17T24:00:00", "2024-10-17T10:15:30.", "2024-10-17T10:15:30.1234567891", "not-a-timestamp!"})
+    @DisplayName("Malformed timestamps are rejected")
+    void rejectsMalformed(String text) {
+        assertThrows(DateTimeParseException.class, () -> codec.toEpochMillis(text));
+        assertEquals(-1L, codec.toEpochMillisOrDefault(text, -1L));
+    }
+
+    @Test
+    @DisplayName("Date prefix cache does not leak across days")
+    void cachesDatePrefix() {
+        long day1 = codec.toEpochMillis("2024-10-17T00:00:00");
+        long day1Later = codec.toEpochMillis("2024-10-17T00:00:01");
+        long day2 = codec.toEpochMillis("2024-10-18T00:00:00");
+
+        assertEquals(1_000L, day1Later - day1);
+        assertEquals(86_400_000L, day2 - day1);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "2024-03-30T12:00:00", "2024-03-31T01:59:59.999", "2024-03-31T03:00:00", "2024-03-31T12:00:00",
+            "2024-04-01T00:30:00", "2024-07-01T12:00:00", "2024-10-26T23:00:00", "2024-10-27T01:59:59",
+            "2024-10-27T02:30:00", "2024-10-27T03:00:00", "2024-10-28T12:00:00", "2024-12-31T23:59:59"})
+    @DisplayName("Local timestamps use the zone's offset at their own date and time, across DST changes")
+    void followsZoneTransitions(String text) {
+        ZoneId berlin = ZoneId.of("Europe/Berlin");
+        TimestampCodec zoned = new TimestampCodec(berlin);
+
+        assertEquals(LocalDateTime.parse(text).atZone(berlin).toInstant().toEpochMilli(), zoned.toEpochMillis(text));
+    }
+
+    @Test
+    @DisplayName("Readings an hour apart across a DST change decode an hour apart")
+    void decodesBothSidesOfTransition() {
+        TimestampCodec zoned = new TimestampCodec(ZoneId.of("Europe/Berlin"));
+
+        // Spring forward: 02:00 CET becomes 03:00 CEST
+        assertEquals(3_600_000L, zoned.toEpochMillis("2024-03-31T03:30:00") - zoned.toEpochMillis("2024-03-31T01:30:00"));
+        // Same day-cache entry, then the next day with a fixed offset again
+        assertEquals(86_400_000L - 3_600_000L,
+                zoned.toEpochMillis("2024-04-01T00:00:00") - zoned.toEpochMillis("2024-03-31T00:00:00"));
+        // Fall back: 03:00 CEST becomes 02:00 CET
+        assertEquals(4 * 3_600_000L, zoned.toEpochMillis("2024-10-27T03:30:00") - zoned.toEpochMillis("2024-10-27T00:30:00"));
+        assertEquals(86_400_000L + 3_600_000L,
+                zoned.toEpochMillis("2024-10-28T00:00:00") - zoned.toEpochMillis("2024-10-27T00:00:00"));
+    }
+
+    @Test
+    @DisplayName("SensorData decodes epochMillis on deserialization")
+    void sensorDataCarriesEpochMillis() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+        SensorData data = objectMapper.readValue(
+                "{\"id\":\"sensor-1\",\"temperature\":21.5,\"humidity\":40.0,\"timestamp\":\"2024-10-17T10:15:30\"}",
+                SensorData.class);
+
+        assertEquals(TimestampCodec.shared().toEpochMillis("2024-10-17T10:15:30"), data.epochMillis());
+    }
+
+    @Test
+    @DisplayName("Readings with a missing or malformed timestamp carry NO_EPOCH, and a sent epochMillis is kept")
+    void sensorDataEpochFallbacks() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+
+        assertEquals(SensorData.NO_EPOCH, objectMapper.readValue(
+                "{\"id\":\"sensor-1\",\"temperature\":21.5,\"humidity\":40.0}", SensorData.class).epochMillis());
+        assertEquals(SensorData.NO_EPOCH, SensorData.of("sensor-1", 21.5, 40.0, "not-a-timestamp!").epochMillis());
+        assertEquals(0L, objectMapper.readValue(
+                "{\"id\":\"sensor-1\",\"temperature\":21.5,\"humidity\":40.0,\"timestamp\":\"2024-10-17T10:15:30\",\"epochMillis\":0}",
+                SensorData.class).epochMillis());
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.util;
+
+import io.reactivex.rxjava3.core.Flowable;
+import io.reactivex.rxjava3.core.Scheduler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VirtualThreadsTest {
+
+    private final ExecutorService executor = VirtualThreads.executor("test");
+    private final Scheduler scheduler = VirtualThreads.scheduler(executor);
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("Blocking reads subscribed on the scheduler run on named virtual threads, in order")
+    void blockingReadsOnVirtualThreads() {
+        Flowable.generate(() -> new int[1], (count, emitter) -> {
+                    assertTrue(Thread.currentThread().isVirtual());
+                    assertTrue(Thread.currentThread().getName().startsWith("test-"));
+                    Thread.sleep(1); // A blocking read
+                    if (count[0] == 5) {
+                        emitter.onComplete();
+                    } else {
+                        emitter.onNext(count[0]++);
+                    }
+                })
+                .subscribeOn(scheduler)
+                .test()
+                .awaitDone(5, TimeUnit.SECONDS)
+                .assertValueSequence(List.of(0, 1, 2, 3, 4));
+    }
+
+    @Test
+    @DisplayName("Disposing a stream interrupts the virtual thread blocked in it")
+    void disposeInterrupts() throws InterruptedException {
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        var subscriber = Flowable.fromCallable(() -> {
+                    blocked.countDown();
+                    try {
+                        Thread.sleep(60_000);
+                    } catch (InterruptedException e) {
+                        interrupted.countDown();
+                    }
+                    return 0;
+                })
+                .subscribeOn(scheduler)
+                .test();
+
+        assertTrue(blocked.await(5, TimeUnit.SECONDS));
+        subscriber.cancel();
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.util;
+
+import com.example.model.SensorData;
+import com.example.model.WindowAggregate;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.reactivex.rxjava3.core.Flowable;
+import io.reactivex.rxjava3.processors.PublishProcessor;
+import io.reactivex.rxjava3.schedulers.TestScheduler;
+import io.reactivex.rxjava3.subscribers.TestSubscriber;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class WindowAggregatorTest {
+
+    private static SensorData reading(String id, long epochMillis, double temperature, double humidity) {
+        return new SensorData(id, temperature, humidity, null, epochMillis, SensorIdDictionary.shared().ordinalOf(id));
+    }
+
+    @Test
+    @DisplayName("Tumbling windows emit per-sensor stats once the watermark moves past them")
+    void tumblingWindows() {
+        List<WindowAggregate> aggregates = Flowable.just(
+                        reading("window-a", 100, 10, 40),
+                        reading("window-b", 200, 30, 60),
+                        reading("window-a", 900, 20, 50),
+                        reading("window-a", 1_100, 50, 70),
+                        reading("window-a", 2_500, 60, 80)) // Closes [0, 1000), 1 s of lateness allowed
+                .compose(SensorWindows.tumbling(Duration.ofSeconds(1)))
+                .toList()
+                .blockingGet();
+
+        assertEquals(4, aggregates.size());
+        WindowAggregate first = aggregates.get(0);
+        assertEquals("window-a", first.sensorId());
+        assertEquals(0, first.windowStart());
+        assertEquals(1_000, first.windowEnd());
+        assertEquals(2, first.count());
+        assertEquals(10, first.minTemperature());
+        assertEquals(20, first.maxTemperature());
+        assertEquals(15, first.meanTemperature(), 1e-9);
+        assertEquals(25, first.temperatureVariance(), 1e-9);
+        assertEquals(45, first.meanHumidity(), 1e-9);
+
+        assertEquals("window-b", aggregates.get(1).sensorId());
+        assertEquals(1_000, aggregates.get(2).windowStart()); // Flushed on completion
+        assertEquals(2_000, aggregates.get(3).windowStart());
+        assertEquals(60, aggregates.get(3).meanTemperature(), 1e-9);
+    }
+
+    @Test
+    @DisplayName("Sliding windows merge panes without re-scanning readings")
+    void slidingWindows() {
+        WindowAggregator aggregator = new WindowAggregator(Duration.ofSeconds(3), Duration.ofSeconds(1));
+        assertTrue(aggregator.onEvent(reading("window-s", 500, 1, 0)).isEmpty());
+        // Every window that overlaps a reading is emitted, including the ones starting before it
+        List<WindowAggregate> leading = aggregator.onEvent(reading("window-s", 1_500, 2, 0));
+        assertEquals(-2_000, leading.get(0).windowStart());
+        assertEquals(1, leading.get(0).count());
+        aggregator.onEvent(reading("window-s", 2_500, 3, 0));
+
+        List<WindowAggregate> closed = aggregator.onEvent(reading("window-s", 3_500, 4, 0));
+        WindowAggregate full = closed.get(0); // [0, 3000) holds the first three readings
+        assertEquals(0, full.windowStart());
+        assertEquals(3_000, full.windowEnd());
+        assertEquals(3, full.count());
+        assertEquals(2, full.meanTemperature(), 1e-9);
+        assertEquals(2.0 / 3.0, full.temperatureVariance(), 1e-9);
+
+        List<WindowAggregate> flushed = aggregator.flush();
+        assertEquals(List.of(1_000L, 2_000L, 3_000L), flushed.stream().map(WindowAggregate::windowStart).toList());
+        assertEquals(3, flushed.get(0).count()); // [1000, 4000)
+        assertEquals(1, flushed.get(2).count()); // [3000, 6000)
+    }
+
+    @Test
+    @DisplayName("Late readings are skipped and counted")
+    void skipsLateReadings() {
+        WindowAggregator aggregator = new WindowAggregator(Duration.ofSeconds(1), Duration.ofSeconds(1));
+        aggregator.onEvent(reading("window-l", 5_000, 1, 0));
+        aggregator.onEvent(reading("window-l", 3_000, 100, 0));
+
+        List<WindowAggregate> flushed = aggregator.flush();
+        assertEquals(1, flushed.size());
+        assertEquals(1, flushed.get(0).count());
+        assertEquals(1, aggregator.lateCount());
+    }
+
+    @Test
+    @DisplayName("A sensor lagging within the allowed lateness is counted, in any order")
+    void countsLaggingSensors() {
+        WindowAggregator aggregator = new WindowAggregator(Duration.ofSeconds(1), Duration.ofSeconds(1),
+                Duration.ofSeconds(2));
+        assertTrue(aggregator.onEvent(reading("window-fast", 5_500, 1, 0)).isEmpty());
+        assertTrue(aggregator.onEvent(reading("window-slow", 3_900, 2, 0)).isEmpty()); // 1.6 s behind
+        assertTrue(aggregator.onEvent(reading("window-slow", 3_100, 3, 0)).isEmpty());
+
+        List<WindowAggregate> closed = aggregator.onEvent(reading("window-fast", 6_200, 4, 0)); // Watermark 4200
+        assertEquals(1, closed.size());
+        assertEquals("window-slow", closed.get(0).sensorId());
+        assertEquals(3_000, closed.get(0).windowStart());
+        assertEquals(2, closed.get(0).count());
+
+        assertTrue(aggregator.onEvent(reading("window-slow", 3_950, 5, 0)).isEmpty()); // Its window was emitted
+        assertEquals(1, aggregator.lateCount());
+    }
+
+    @Test
+    @DisplayName("An idle stream moves the watermark past the newest reading by the idle time")
+    void closesWhenIdle() {
+        WindowAggregator aggregator = new WindowAggregator(Duration.ofSeconds(1), Duration.ofSeconds(1),
+                Duration.ofMillis(500));
+        assertTrue(aggregator.onIdle(10_000).isEmpty()); // Nothing buffered yet
+        aggregator.onEvent(reading("window-t", 1_200, 1, 0));
+
+        assertTrue(aggregator.onIdle(1_200).isEmpty()); // Watermark 1900
+        List<WindowAggregate> closed = aggregator.onIdle(1_400);
+        assertEquals(1, closed.size());
+        assertEquals(1_000, closed.get(0).windowStart());
+        assertTrue(aggregator.onIdle(60_000).isEmpty());
+        assertTrue(aggregator.flush().isEmpty());
+    }
+
+    @Test
+    @DisplayName("The operator follows event time however far the clock is ahead, and closes windows once idle")
+    void operatorIdleTimeout() {
+        TestScheduler clock = new TestScheduler(60_000, TimeUnit.MILLISECONDS); // A minute ahead of the producer
+        PublishProcessor<SensorData> readings = PublishProcessor.create();
+        StreamMetrics.Probe probe = new StreamMetrics(new SimpleMeterRegistry())
+                .probe("window", StreamMetrics.WEBCLIENT, StreamMetrics.NO_STRATEGY);
+        TestSubscriber<WindowAggregate> windows = readings
+                .compose(SensorWindows.sliding(Duration.ofSeconds(1), Duration.ofSeconds(1),
+                        new SensorWindows.Settings(Duration.ofMillis(500), Duration.ofSeconds(2)), clock,
+                        probe::late))
+                .test();
+
+        readings.onNext(reading("window-o", 3_100, 1, 0));
+        clock.advanceTimeBy(1, TimeUnit.SECONDS);
+        readings.onNext(reading("window-o", 3_300, 2, 0));
+        clock.advanceTimeBy(1, TimeUnit.SECONDS); // Idle for 1 s
+        windows.assertNoValues();
+        clock.advanceTimeBy(1, TimeUnit.SECONDS); // Idle for 2 s: watermark 3300 + 2000 - 500
+        windows.assertValueCount(1);
+        assertEquals(3_000, windows.values().get(0).windowStart());
+        assertEquals(2, windows.values().get(0).count());
+
+        readings.onNext(reading("window-o", 3_900, 3, 0));
+        assertEquals(1, probe.snapshot().late());
+        readings.onComplete();
+        windows.assertComplete().assertValueCount(1);
+    }
+
+    @Test
+    @DisplayName("Reactor variant emits the same windows")
+    void fluxWindows() {
+        List<WindowAggregate> aggregates = Flux.just(
+                        reading("window-f", 100, 10, 40),
+                        reading("window-f", 1_100, 20, 50))
+                .transform(SensorWindows.tumblingFlux(Duration.ofSeconds(1)))
+                .collectList()
+                .block();
+
+        assertEquals(2, aggregates.size());
+        assertEquals(10, aggregates.get(0).meanTemperature(), 1e-9);
+        assertEquals(20, aggregates.get(1).meanTemperature(), 1e-9);
+    }
+}